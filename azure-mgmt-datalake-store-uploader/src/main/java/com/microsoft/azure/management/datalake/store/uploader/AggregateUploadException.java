@@ -5,7 +5,6 @@
  */
 package com.microsoft.azure.management.datalake.store.uploader;
 
-import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -49,7 +48,10 @@ public class AggregateUploadException extends Exception {
             all[0] = primary;
         }
 
-        Arrays.fill(all, start, all.length, secondaryExceptions);
+        for (int i = 0; i < secondaryExceptions.size(); i++) {
+            all[start + i] = secondaryExceptions.get(i);
+        }
+
         return all;
     }
 }
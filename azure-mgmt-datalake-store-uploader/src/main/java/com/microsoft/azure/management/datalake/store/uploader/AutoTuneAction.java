@@ -0,0 +1,26 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.datalake.store.uploader;
+
+/**
+ * Defines the decisions that the auto-tuning of an upload can make.
+ */
+public enum AutoTuneAction {
+    /**
+    * Indicates that the number of segments the file is split into was chosen.
+    */
+    SegmentCountChosen,
+
+    /**
+    * Indicates that more appends are allowed to run at the same time.
+    */
+    ConcurrencyIncreased,
+
+    /**
+    * Indicates that fewer appends are allowed to run at the same time.
+    */
+    ConcurrencyDecreased
+}
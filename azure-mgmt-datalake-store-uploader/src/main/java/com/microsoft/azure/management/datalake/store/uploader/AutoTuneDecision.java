@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.datalake.store.uploader;
+
+/**
+ * Represents a decision made by the auto-tuning of an upload.
+ */
+public class AutoTuneDecision {
+    private final AutoTuneAction action;
+
+    private final int previousValue;
+
+    private final int newValue;
+
+    private final double throughputBytesPerSecond;
+
+    private final double averageAppendLatencyMillis;
+
+    private final String reason;
+
+    /**
+     * Creates a new decision.
+     *
+     * @param action The kind of decision.
+     * @param previousValue The segment count or concurrency limit before the decision.
+     * @param newValue The segment count or concurrency limit after the decision.
+     * @param throughputBytesPerSecond The throughput measured over the appends the decision was based on, or 0 if none were measured.
+     * @param averageAppendLatencyMillis The average latency of the appends the decision was based on, in milliseconds, or 0 if none were measured.
+     * @param reason A description of why the decision was made.
+     */
+    AutoTuneDecision(AutoTuneAction action, int previousValue, int newValue, double throughputBytesPerSecond, double averageAppendLatencyMillis, String reason) {
+        this.action = action;
+        this.previousValue = previousValue;
+        this.newValue = newValue;
+        this.throughputBytesPerSecond = throughputBytesPerSecond;
+        this.averageAppendLatencyMillis = averageAppendLatencyMillis;
+        this.reason = reason;
+    }
+
+    /**
+     *
+     * @return The kind of decision.
+     */
+    public AutoTuneAction getAction() {
+        return action;
+    }
+
+    /**
+     *
+     * @return The segment count (for {@link AutoTuneAction#SegmentCountChosen}, the one the upload would have used without auto-tuning)
+     * or the number of appends allowed at the same time before the decision.
+     */
+    public int getPreviousValue() {
+        return previousValue;
+    }
+
+    /**
+     *
+     * @return The segment count or the number of appends allowed at the same time after the decision.
+     */
+    public int getNewValue() {
+        return newValue;
+    }
+
+    /**
+     *
+     * @return The throughput measured over the appends the decision was based on, in bytes per second, or 0 if none were measured.
+     */
+    public double getThroughputBytesPerSecond() {
+        return throughputBytesPerSecond;
+    }
+
+    /**
+     *
+     * @return The average latency of the appends the decision was based on, in milliseconds, or 0 if none were measured.
+     */
+    public double getAverageAppendLatencyMillis() {
+        return averageAppendLatencyMillis;
+    }
+
+    /**
+     *
+     * @return A description of why the decision was made.
+     */
+    public String getReason() {
+        return reason;
+    }
+}
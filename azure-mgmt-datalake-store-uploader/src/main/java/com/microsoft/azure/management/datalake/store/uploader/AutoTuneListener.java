@@ -0,0 +1,19 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.datalake.store.uploader;
+
+/**
+ * Receives the decisions made by the auto-tuning of an upload.
+ */
+public interface AutoTuneListener {
+    /**
+     * Called every time the auto-tuning chooses the segment count of a new upload or changes the number of appends allowed at the same time.
+     * Calls are made on the uploading threads, one at a time; implementations should return quickly.
+     *
+     * @param decision The decision, along with the measurements it was based on.
+     */
+    void decisionMade(AutoTuneDecision decision);
+}
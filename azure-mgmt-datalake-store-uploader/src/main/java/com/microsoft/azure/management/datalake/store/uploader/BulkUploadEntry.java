@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.datalake.store.uploader;
+
+import java.io.Serializable;
+
+/**
+ * Represents metadata for a particular file of a directory (bulk) upload.
+ */
+public class BulkUploadEntry implements Serializable {
+
+    /**
+     * Creates a new BulkUploadEntry for a file that is pending upload.
+     *
+     * @param inputFilePath The full path to the file to be uploaded.
+     * @param targetStreamPath The full stream path where the file will be uploaded to.
+     * @param length The length of the file, in bytes.
+     */
+    public BulkUploadEntry(String inputFilePath, String targetStreamPath, long length) {
+        this.inputFilePath = inputFilePath;
+        this.targetStreamPath = targetStreamPath;
+        this.length = length;
+        this.status = SegmentUploadStatus.Pending;
+    }
+
+    private String inputFilePath;
+
+    private String targetStreamPath;
+
+    private long length;
+
+    private SegmentUploadStatus status;
+
+    /**
+     *
+     * @return A value indicating the full path to the file to be uploaded.
+     */
+    public String getInputFilePath() {
+        return inputFilePath;
+    }
+
+    /**
+     *
+     * @return A value indicating the full stream path where the file will be uploaded to.
+     */
+    public String getTargetStreamPath() {
+        return targetStreamPath;
+    }
+
+    /**
+     *
+     * @return A value indicating the length of the file (in bytes).
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     *
+     * @return A value indicating the current upload status for this file.
+     */
+    public SegmentUploadStatus getStatus() {
+        return status;
+    }
+
+    /**
+     *
+     * @param status A value indicating the current upload status for this file.
+     */
+    public void setStatus(SegmentUploadStatus status) {
+        this.status = status;
+    }
+}
@@ -0,0 +1,215 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.datalake.store.uploader;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Represents the metadata of a directory (bulk) upload: one entry per file, in a single manifest.
+ * Status changes are appended to a journal next to the manifest, so that recording the completion of a file does not rewrite the entire manifest.
+ */
+public class BulkUploadMetadata implements Serializable {
+    /**
+     * The suffix of the journal file, next to the metadata file, to which the file status changes made since the last save are appended.
+     */
+    private static final String JOURNAL_SUFFIX = ".journal";
+
+    /**
+     * Constructs a new BulkUploadMetadata for the given files.
+     *
+     * @param metadataFilePath The file path to assign to this metadata file (for saving purposes).
+     * @param inputDirectoryPath The full path to the directory being uploaded.
+     * @param targetFolderPath The full path of the folder the directory is uploaded to.
+     * @param entries The files of the directory.
+     */
+    public BulkUploadMetadata(String metadataFilePath, String inputDirectoryPath, String targetFolderPath, BulkUploadEntry[] entries) {
+        this.metadataFilePath = metadataFilePath;
+        this.inputDirectoryPath = inputDirectoryPath;
+        this.targetFolderPath = targetFolderPath;
+        this.entries = entries;
+    }
+
+    private transient String metadataFilePath;
+
+    private String inputDirectoryPath;
+
+    private String targetFolderPath;
+
+    private BulkUploadEntry[] entries;
+
+    /**
+     *
+     * @return A value indicating the full path to the directory being uploaded.
+     */
+    public String getInputDirectoryPath() {
+        return inputDirectoryPath;
+    }
+
+    /**
+     *
+     * @return A value indicating the full path of the folder the directory is uploaded to.
+     */
+    public String getTargetFolderPath() {
+        return targetFolderPath;
+    }
+
+    /**
+     *
+     * @return A value indicating the files of the upload.
+     */
+    public BulkUploadEntry[] getEntries() {
+        return entries;
+    }
+
+    /**
+     *
+     * @return A value indicating the total length (in bytes) of the files of the upload.
+     */
+    public long getTotalLength() {
+        long result = 0;
+        for (BulkUploadEntry entry : entries) {
+            result += entry.getLength();
+        }
+
+        return result;
+    }
+
+    /**
+     * Attempts to load a BulkUploadMetadata object from the given file.
+     *
+     * @param filePath The full path to the file where to load the metadata from
+     * @return A deserialized {@link BulkUploadMetadata} object from the file specified.
+     * @throws FileNotFoundException Thrown if the filePath is inaccessible or does not exist
+     * @throws InvalidMetadataException Thrown if the metadata is not in the expected format.
+     */
+    public static BulkUploadMetadata loadFrom(String filePath) throws FileNotFoundException, InvalidMetadataException {
+        if (!new File(filePath).exists()) {
+            throw new FileNotFoundException("Could not find metadata file: " + filePath);
+        }
+
+        try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(filePath))) {
+            BulkUploadMetadata result = (BulkUploadMetadata) in.readObject();
+            result.metadataFilePath = filePath;
+            result.replayJournal();
+            return result;
+        } catch (Exception ex) {
+            throw new InvalidMetadataException("Unable to parse metadata file", ex);
+        }
+    }
+
+    /**
+     * Records a new status for a file: updates it in memory and appends it to the journal of the metadata file,
+     * rather than saving the entire metadata again. This method is thread-safe.
+     *
+     * @param entryNumber The index of the file in the entries.
+     * @param status The new status of the file.
+     * @throws IOException Thrown if the journal cannot be written to, or the metadata file path has not yet been set.
+     */
+    public synchronized void recordEntryStatus(int entryNumber, SegmentUploadStatus status) throws IOException {
+        this.entries[entryNumber].setStatus(status);
+        if (this.metadataFilePath == null || StringUtils.isEmpty(this.metadataFilePath)) {
+            throw new InvalidObjectException("Null or empty metadataFilePath. Cannot record the file status until this property is set.");
+        }
+
+        try (FileOutputStream out = new FileOutputStream(getJournalFilePath(), true)) {
+            // a single write per record, so that a crash can at worst leave the last record incomplete
+            out.write(ByteBuffer.allocate(5).putInt(entryNumber).put((byte) status.ordinal()).array());
+        }
+    }
+
+    /**
+     * Applies the file status changes recorded in the journal since the last save, if any.
+     * An incomplete or invalid record ends the journal.
+     *
+     * @throws IOException Thrown if the journal cannot be read.
+     */
+    private void replayJournal() throws IOException {
+        File journal = new File(getJournalFilePath());
+        if (!journal.exists()) {
+            return;
+        }
+
+        SegmentUploadStatus[] statuses = SegmentUploadStatus.values();
+        try (DataInputStream in = new DataInputStream(new FileInputStream(journal))) {
+            while (true) {
+                int entryNumber = in.readInt();
+                int status = in.readByte();
+                if (entryNumber < 0 || entryNumber >= this.entries.length || status < 0 || status >= statuses.length) {
+                    return;
+                }
+
+                this.entries[entryNumber].setStatus(statuses[status]);
+            }
+        } catch (EOFException e) {
+            // end of the journal
+        }
+    }
+
+    /**
+     * @return The path of the journal file of this metadata.
+     */
+    private String getJournalFilePath() {
+        return this.metadataFilePath + JOURNAL_SUFFIX;
+    }
+
+    /**
+     * Saves the metadata to its canonical location, replacing the previous version and its journal. This method is thread-safe.
+     *
+     * @throws IOException Thrown if the file cannot be saved due to accessibility or there is an error saving the stream to disk.
+     * @throws InvalidMetadataException Thrown if the metadata cannot be written.
+     */
+    public synchronized void save() throws IOException, InvalidMetadataException {
+        if (this.metadataFilePath == null || StringUtils.isEmpty(this.metadataFilePath)) {
+            throw new InvalidObjectException("Null or empty metadataFilePath. Cannot save metadata until this property is set.");
+        }
+
+        // always create the full path to the file, since this will not throw if it already exists.
+        File curMetadata = new File(this.metadataFilePath);
+        curMetadata.getAbsoluteFile().getParentFile().mkdirs();
+
+        // write the new version next to the current one, so that the current one stays intact if this fails
+        File newMetadata = new File(this.metadataFilePath + ".tmp");
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(newMetadata))) {
+            out.writeObject(this);
+        } catch (Exception ex) {
+            newMetadata.delete();
+            throw new InvalidMetadataException("Unable to parse metadata object and write it to a file", ex);
+        }
+
+        // the new version includes every recorded status, so replaying a journal left behind by a crash here is harmless
+        Files.move(newMetadata.toPath(), curMetadata.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        new File(getJournalFilePath()).delete();
+    }
+
+    /**
+     * Deletes the metadata file, and its journal, from disk.
+     *
+     * @throws InvalidObjectException Thrown if the metadata file path has not yet been set.
+     */
+    public synchronized void deleteFile() throws InvalidObjectException {
+        if (this.metadataFilePath == null || StringUtils.isEmpty(this.metadataFilePath)) {
+            throw new InvalidObjectException("Null or empty metadataFilePath. Cannot delete metadata until this property is set.");
+        }
+
+        new File(this.metadataFilePath).delete();
+        new File(getJournalFilePath()).delete();
+    }
+}
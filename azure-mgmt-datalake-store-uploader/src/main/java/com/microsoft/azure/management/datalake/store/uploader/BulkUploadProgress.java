@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.datalake.store.uploader;
+
+/**
+ * Represents a snapshot of the aggregate progress of a directory (bulk) upload.
+ */
+public class BulkUploadProgress {
+    private final int totalFileCount;
+
+    private final int completedFileCount;
+
+    private final int failedFileCount;
+
+    private final long totalByteCount;
+
+    private final long uploadedByteCount;
+
+    private final int transferredFileCount;
+
+    private final long transferredByteCount;
+
+    private final long elapsedMillis;
+
+    /**
+     * Creates a new progress snapshot.
+     *
+     * @param totalFileCount The number of files being uploaded.
+     * @param completedFileCount The number of files uploaded so far, including those completed by a previous (resumed) upload.
+     * @param failedFileCount The number of files that could not be uploaded.
+     * @param totalByteCount The total length of the files being uploaded.
+     * @param uploadedByteCount The number of bytes uploaded so far, including files completed by a previous (resumed) upload.
+     * @param transferredFileCount The number of files completed since the upload (or resume) started.
+     * @param transferredByteCount The number of bytes transferred since the upload (or resume) started.
+     * @param elapsedMillis The time elapsed since the upload (or resume) started, in milliseconds.
+     */
+    BulkUploadProgress(int totalFileCount, int completedFileCount, int failedFileCount, long totalByteCount, long uploadedByteCount,
+                       int transferredFileCount, long transferredByteCount, long elapsedMillis) {
+        this.totalFileCount = totalFileCount;
+        this.completedFileCount = completedFileCount;
+        this.failedFileCount = failedFileCount;
+        this.totalByteCount = totalByteCount;
+        this.uploadedByteCount = uploadedByteCount;
+        this.transferredFileCount = transferredFileCount;
+        this.transferredByteCount = transferredByteCount;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     *
+     * @return The number of files being uploaded.
+     */
+    public int getTotalFileCount() {
+        return totalFileCount;
+    }
+
+    /**
+     *
+     * @return The number of files that have been uploaded so far.
+     */
+    public int getCompletedFileCount() {
+        return completedFileCount;
+    }
+
+    /**
+     *
+     * @return The number of files that could not be uploaded.
+     */
+    public int getFailedFileCount() {
+        return failedFileCount;
+    }
+
+    /**
+     *
+     * @return The total length (in bytes) of the files being uploaded.
+     */
+    public long getTotalByteCount() {
+        return totalByteCount;
+    }
+
+    /**
+     *
+     * @return The number of bytes that have been uploaded so far.
+     */
+    public long getUploadedByteCount() {
+        return uploadedByteCount;
+    }
+
+    /**
+     *
+     * @return The time elapsed since the upload (or resume) started, in milliseconds.
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     *
+     * @return The average number of bytes transferred per second, across all files, since the upload (or resume) started.
+     */
+    public double getThroughputBytesPerSecond() {
+        if (elapsedMillis <= 0) {
+            return 0;
+        }
+
+        return transferredByteCount * 1000.0 / elapsedMillis;
+    }
+
+    /**
+     *
+     * @return The average number of files uploaded per second since the upload (or resume) started.
+     */
+    public double getFilesPerSecond() {
+        if (elapsedMillis <= 0) {
+            return 0;
+        }
+
+        return transferredFileCount * 1000.0 / elapsedMillis;
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.datalake.store.uploader;
+
+/**
+ * Receives progress notifications of a directory (bulk) upload.
+ */
+public interface BulkUploadProgressListener {
+    /**
+     * Called every time data has been uploaded, and when a file completes or fails.
+     * Calls are made on the uploading threads, one at a time; implementations should return quickly.
+     *
+     * @param progress A snapshot of the aggregate progress of the upload.
+     */
+    void progressChanged(BulkUploadProgress progress);
+}
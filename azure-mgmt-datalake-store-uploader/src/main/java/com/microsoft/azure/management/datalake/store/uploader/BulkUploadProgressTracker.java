@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.datalake.store.uploader;
+
+/**
+ * Keeps track of the files and bytes uploaded by a directory (bulk) upload, and reports them to a {@link BulkUploadProgressListener}.
+ */
+class BulkUploadProgressTracker {
+    private final BulkUploadProgressListener listener;
+
+    private final int totalFileCount;
+
+    private final long totalByteCount;
+
+    private final long startNanos;
+
+    private int completedFileCount;
+
+    private int failedFileCount;
+
+    private long uploadedByteCount;
+
+    private int transferredFileCount;
+
+    private long transferredByteCount;
+
+    /**
+     * Creates a new tracker for the given upload. Files that are already complete count as uploaded.
+     *
+     * @param metadata The metadata of the upload.
+     * @param listener The listener to notify, or null.
+     */
+    BulkUploadProgressTracker(BulkUploadMetadata metadata, BulkUploadProgressListener listener) {
+        this.listener = listener;
+        this.totalFileCount = metadata.getEntries().length;
+        this.totalByteCount = metadata.getTotalLength();
+        for (BulkUploadEntry entry : metadata.getEntries()) {
+            if (entry.getStatus() == SegmentUploadStatus.Complete) {
+                completedFileCount++;
+                uploadedByteCount += entry.getLength();
+            }
+        }
+
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Records that data of a file has been uploaded, or (with a negative count) that data previously reported has to be uploaded again.
+     *
+     * @param byteCount The number of bytes.
+     */
+    synchronized void bytesUploaded(long byteCount) {
+        uploadedByteCount += byteCount;
+        if (byteCount > 0) {
+            transferredByteCount += byteCount;
+        }
+
+        notifyListener();
+    }
+
+    /**
+     * Records that a file has been uploaded.
+     */
+    synchronized void fileCompleted() {
+        completedFileCount++;
+        transferredFileCount++;
+        notifyListener();
+    }
+
+    /**
+     * Records that a file could not be uploaded.
+     */
+    synchronized void fileFailed() {
+        failedFileCount++;
+        notifyListener();
+    }
+
+    /**
+     * @return A snapshot of the progress so far.
+     */
+    synchronized BulkUploadProgress getProgress() {
+        return new BulkUploadProgress(totalFileCount, completedFileCount, failedFileCount, totalByteCount, uploadedByteCount,
+                transferredFileCount, transferredByteCount, (System.nanoTime() - startNanos) / 1000000);
+    }
+
+    /**
+     * Notifies the listener, if any, of the current progress. Callers hold the lock, so notifications are never concurrent.
+     */
+    private void notifyListener() {
+        if (listener != null) {
+            listener.progressChanged(getProgress());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.datalake.store.uploader;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A request body that streams the remaining bytes of a {@link ByteBuffer}, without copying them into an intermediate array.
+ * Heap buffers are written straight from their backing array; direct and mapped buffers are written in small chunks.
+ * The buffer itself is never modified, so the body can be written again when a request is retried.
+ */
+final class ByteBufferRequestBody extends RequestBody {
+    /**
+     * The media type of the request bodies of the stream operations.
+     */
+    static final MediaType OCTET_STREAM = MediaType.parse("application/octet-stream");
+
+    /**
+     * The size of the chunks in which direct buffers are written.
+     */
+    private static final int CHUNK_LENGTH = 8 * 1024;
+
+    /**
+     * The data to write.
+     */
+    private final ByteBuffer data;
+
+    /**
+     * Creates a new request body.
+     *
+     * @param data The data to write; a null buffer is written as an empty body.
+     */
+    ByteBufferRequestBody(ByteBuffer data) {
+        this.data = data == null ? ByteBuffer.allocate(0) : data;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return OCTET_STREAM;
+    }
+
+    @Override
+    public long contentLength() {
+        return data.remaining();
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        if (data.hasArray()) {
+            sink.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+            return;
+        }
+
+        ByteBuffer source = data.duplicate();
+        byte[] chunk = new byte[Math.min(CHUNK_LENGTH, source.remaining())];
+        while (source.hasRemaining()) {
+            int length = Math.min(chunk.length, source.remaining());
+            source.get(chunk, 0, length);
+            sink.write(chunk, 0, length);
+        }
+    }
+}
@@ -0,0 +1,563 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.datalake.store.uploader;
+
+import com.microsoft.rest.RestException;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.management.OperationsException;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Uploads all the files of a local directory tree into a folder in DataLake, keeping their relative paths.
+ * Files smaller than the maximum segment length are not segmented: those that fit in a single append are created in one request,
+ * and the others are uploaded directly to their target stream; these are spread over a single pool of ThreadCount threads.
+ * Larger files are then uploaded one at a time, each using ThreadCount threads, like {@link DataLakeStoreUploader} does.
+ * The state of the upload is kept in a single metadata file for the whole directory, which allows the upload to be resumed.
+ */
+public class DataLakeStoreBulkUploader {
+    private final UploadParameters parameters;
+    private final FrontEndAdapter frontEnd;
+    private final String metadataFilePath;
+    private BulkUploadProgressListener progressListener;
+
+    /**
+     * Creates a new instance of the DataLakeStoreBulkUploader class, by specifying a pointer to the FrontEnd to use for the upload.
+     *
+     * @param uploadParameters The upload parameters to use. The input file path is the directory to upload, and the target stream path is the folder to upload it to.
+     * @param frontEnd A pointer to the FrontEnd interface to use for the upload.
+     * @throws FileNotFoundException if the local directory cannot be found or is inaccessible
+     */
+    public DataLakeStoreBulkUploader(UploadParameters uploadParameters, FrontEndAdapter frontEnd) throws FileNotFoundException {
+        this.parameters = uploadParameters;
+        this.frontEnd = frontEnd;
+
+        //ensure that input parameters are correct
+        validateParameters();
+        metadataFilePath = Paths.get(parameters.getLocalMetadataLocation(), MessageFormat.format("{0}.bulkupload.xml", getInputDirectoryName())).toString();
+    }
+
+    /**
+     * Gets the parameters to use for this upload.
+     * @return the parameters for this upload.
+     */
+    public UploadParameters getParameters() {
+        return parameters;
+    }
+
+    /**
+     *
+     * @param progressListener The listener to notify of the aggregate progress of the upload, or null.
+     */
+    public void setProgressListener(BulkUploadProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Executes the upload as defined by the input parameters. Files that cannot be uploaded do not stop the upload of the other ones;
+     * they are reported once all the files have been attempted, and can be uploaded again by resuming the upload.
+     *
+     * @throws Exception if there is any failure that occurs during execution.
+     */
+    public void execute() throws Exception {
+        //load up existing metadata or create a fresh one
+        BulkUploadMetadata metadata = getMetadata();
+        BulkUploadProgressTracker progressTracker = new BulkUploadProgressTracker(metadata, progressListener);
+        List<Exception> exceptions = Collections.synchronizedList(new ArrayList<Exception>());
+
+        //files that are not segmented share a pool of workers; larger files use a pool of their own, one after the other
+        Queue<Integer> pendingFiles = new ConcurrentLinkedQueue<>();
+        List<Integer> largeFiles = new ArrayList<>();
+        for (int i = 0; i < metadata.getEntries().length; i++) {
+            BulkUploadEntry entry = metadata.getEntries()[i];
+            if (entry.getStatus() != SegmentUploadStatus.Complete) {
+                if (entry.getLength() < parameters.getMaxSegementLength()) {
+                    pendingFiles.add(i);
+                } else {
+                    largeFiles.add(i);
+                }
+            }
+        }
+
+        uploadPendingFiles(metadata, pendingFiles, progressTracker, exceptions);
+        for (int entryNumber : largeFiles) {
+            try {
+                uploadFile(metadata, entryNumber, null, progressTracker);
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                exceptions.add(e);
+            }
+        }
+
+        // aggregate any exceptions and throw them back at our caller
+        if (exceptions.size() > 0) {
+            // always return the first exception as the primary exception.
+            throw new AggregateUploadException("One or more files could not be uploaded. Review the upload Metadata to determine which files failed", exceptions.remove(0), exceptions);
+        }
+
+        //clean up metadata after a successful upload
+        metadata.deleteFile();
+        deleteDirectory(new File(getFileMetadataRoot()));
+    }
+
+    /**
+     * Validates the parameters.
+     *
+     * @throws FileNotFoundException Could not find input directory
+     * @throws IllegalArgumentException Null or empty account name or target folder path, or the thread count is out of range.
+     */
+    private void validateParameters() throws FileNotFoundException, IllegalArgumentException {
+        if (!(new File(parameters.getInputFilePath()).isDirectory())) {
+            throw new FileNotFoundException("Could not find input directory: " + parameters.getInputFilePath());
+        }
+
+        if (parameters.getTargetStreamPath() == null || StringUtils.isEmpty(parameters.getTargetStreamPath())) {
+            throw new IllegalArgumentException("Null or empty Target Stream path");
+        }
+
+        if (parameters.getAccountName() == null || StringUtils.isEmpty(parameters.getAccountName())) {
+            throw new IllegalArgumentException("Null or empty Account Name");
+        }
+
+        if (parameters.getThreadCount() < 1 || parameters.getThreadCount() > DataLakeStoreUploader.MAX_ALLOWED_THREADS) {
+            throw new IllegalArgumentException(MessageFormat.format("ThreadCount must be at least 1 and at most {0}", DataLakeStoreUploader.MAX_ALLOWED_THREADS));
+        }
+    }
+
+    /**
+     * Gets the metadata: either the existing one, when resuming, or a new one listing all the files of the input directory.
+     *
+     * @return The {@link BulkUploadMetadata} used by this upload.
+     * @throws IOException Thrown if the input directory cannot be listed, or the metadata cannot be saved.
+     * @throws InvalidMetadataException Thrown if the existing metadata is invalid.
+     * @throws OperationsException Thrown if the existing metadata does not match the input directory.
+     */
+    private BulkUploadMetadata getMetadata() throws IOException, InvalidMetadataException, OperationsException {
+        if (parameters.isResume()) {
+            BulkUploadMetadata metadata = BulkUploadMetadata.loadFrom(metadataFilePath);
+            validateMetadataForResume(metadata);
+            return metadata;
+        }
+
+        BulkUploadMetadata metadata = new BulkUploadMetadata(metadataFilePath, parameters.getInputFilePath(), parameters.getTargetStreamPath(), listFiles());
+        metadata.save();
+        return metadata;
+    }
+
+    /**
+     * Verifies that the metadata is consistent with the input parameters, and that the files that remain to be uploaded have not changed.
+     *
+     * @param metadata The {@link BulkUploadMetadata} to resume the upload from.
+     * @throws OperationsException Thrown if the metadata does not match.
+     */
+    private void validateMetadataForResume(BulkUploadMetadata metadata) throws OperationsException {
+        if (!metadata.getTargetFolderPath().trim().equalsIgnoreCase(parameters.getTargetStreamPath().trim())) {
+            throw new OperationsException("Metadata points to a different target folder than the input parameters");
+        }
+
+        if (!new File(metadata.getInputDirectoryPath()).toString().toLowerCase().equals(new File(parameters.getInputFilePath()).toString().toLowerCase())) {
+            throw new OperationsException("The metadata refers to different directory than the one requested");
+        }
+
+        for (BulkUploadEntry entry : metadata.getEntries()) {
+            if (entry.getStatus() != SegmentUploadStatus.Complete) {
+                File inputFile = new File(entry.getInputFilePath());
+                if (!inputFile.exists() || inputFile.length() != entry.getLength()) {
+                    throw new OperationsException(MessageFormat.format("The metadata's file information differs from the actual file: {0}", entry.getInputFilePath()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Lists the regular files in the input directory tree, in a stable order.
+     *
+     * @return One entry per file, pending upload to the same relative path in the target folder.
+     * @throws IOException Thrown if the directory cannot be listed.
+     */
+    private BulkUploadEntry[] listFiles() throws IOException {
+        final Path root = Paths.get(parameters.getInputFilePath());
+        final String targetFolderPath = StringUtils.removeEnd(parameters.getTargetStreamPath(), "/");
+        final List<BulkUploadEntry> entries = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()) {
+                    StringBuilder targetStreamPath = new StringBuilder(targetFolderPath);
+                    for (Path name : root.relativize(file)) {
+                        targetStreamPath.append('/').append(name);
+                    }
+
+                    entries.add(new BulkUploadEntry(file.toString(), targetStreamPath.toString(), attrs.size()));
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        Collections.sort(entries, new Comparator<BulkUploadEntry>() {
+            @Override
+            public int compare(BulkUploadEntry e1, BulkUploadEntry e2) {
+                return e1.getInputFilePath().compareTo(e2.getInputFilePath());
+            }
+        });
+
+        return entries.toArray(new BulkUploadEntry[entries.size()]);
+    }
+
+    /**
+     * Uploads the given files on a pool of workers, each of which uploads one file at a time, until there are none left.
+     *
+     * @param metadata The metadata of the upload.
+     * @param pendingFiles The entry numbers of the files to upload.
+     * @param progressTracker The tracker to report the progress of the upload to.
+     * @param exceptions The collection to add the failure of each file that cannot be uploaded to.
+     * @throws InterruptedException if there is some interruption sent during a wait.
+     */
+    private void uploadPendingFiles(final BulkUploadMetadata metadata, final Queue<Integer> pendingFiles, final BulkUploadProgressTracker progressTracker, final List<Exception> exceptions) throws InterruptedException {
+        int threadCount = Math.min(pendingFiles.size(), parameters.getThreadCount());
+        if (threadCount == 0) {
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        List<Future<?>> workers = new ArrayList<>(threadCount);
+        try {
+            for (int i = 0; i < threadCount; i++) {
+                workers.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        // each worker reuses one buffer for all the files that fit in a single append
+                        byte[] buffer = null;
+                        while (!Thread.currentThread().isInterrupted()) {
+                            Integer entryNumber = pendingFiles.poll();
+                            if (entryNumber == null) {
+                                return;
+                            }
+
+                            if (buffer == null && metadata.getEntries()[entryNumber].getLength() <= SingleSegmentUploader.BUFFER_LENGTH) {
+                                buffer = new byte[SingleSegmentUploader.BUFFER_LENGTH];
+                            }
+
+                            try {
+                                uploadFile(metadata, entryNumber, buffer, progressTracker);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                exceptions.add(e);
+                            } catch (Exception e) {
+                                exceptions.add(e);
+                            }
+                        }
+                    }
+                }));
+            }
+
+            for (Future<?> worker : workers) {
+                try {
+                    worker.get();
+                } catch (ExecutionException e) {
+                    // workers record the failures of their files; anything else is unexpected, but should be reported all the same
+                    exceptions.add(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+                }
+            }
+        } catch (InterruptedException e) {
+            for (Future<?> worker : workers) {
+                worker.cancel(true);
+            }
+
+            throw e;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Uploads a single file, and records its status in the metadata.
+     *
+     * @param metadata The metadata of the upload.
+     * @param entryNumber The entry number of the file to upload.
+     * @param buffer The buffer to read the file into, if it fits in a single append.
+     * @param progressTracker The tracker to report the progress of the upload to.
+     * @throws Exception if the file cannot be uploaded.
+     */
+    private void uploadFile(BulkUploadMetadata metadata, int entryNumber, byte[] buffer, BulkUploadProgressTracker progressTracker) throws Exception {
+        BulkUploadEntry entry = metadata.getEntries()[entryNumber];
+
+        //a file left in progress by a previous attempt has a (partial) target stream, which belongs to this upload
+        boolean resume = entry.getStatus() == SegmentUploadStatus.InProgress;
+        boolean overwrite = parameters.isOverwrite() || resume;
+
+        FileProgress fileProgress = new FileProgress(progressTracker);
+        try {
+            if (entry.getLength() <= SingleSegmentUploader.BUFFER_LENGTH && buffer != null) {
+                //the stream is created with its contents in a single request, so there is nothing to resume if it fails;
+                //the file is still recorded in progress first, since that request may create the stream without its response being received
+                if (!resume) {
+                    metadata.recordEntryStatus(entryNumber, SegmentUploadStatus.InProgress);
+                }
+
+                uploadSmallFile(metadata, entryNumber, resume, buffer);
+            } else {
+                if (!overwrite && frontEnd.streamExists(entry.getTargetStreamPath())) {
+                    throw new OperationsException(MessageFormat.format("Target Stream already exists: {0}", entry.getTargetStreamPath()));
+                }
+
+                if (!resume) {
+                    metadata.recordEntryStatus(entryNumber, SegmentUploadStatus.InProgress);
+                }
+
+                if (entry.getLength() < parameters.getMaxSegementLength()) {
+                    uploadUnsegmentedFile(entry, fileProgress);
+                } else {
+                    uploadSegmentedFile(entryNumber, entry, resume, fileProgress);
+                }
+            }
+        } catch (Exception e) {
+            fileProgress.retract();
+
+            //a file that has started uploading stays in progress, so that resuming the upload overwrites (or resumes) its target stream;
+            //a file that failed for good has already been recorded as failed
+            if (entry.getStatus() == SegmentUploadStatus.Pending) {
+                metadata.recordEntryStatus(entryNumber, SegmentUploadStatus.Failed);
+            }
+
+            progressTracker.fileFailed();
+            throw e;
+        }
+
+        fileProgress.complete(entry.getLength());
+        metadata.recordEntryStatus(entryNumber, SegmentUploadStatus.Complete);
+        progressTracker.fileCompleted();
+    }
+
+    /**
+     * Uploads a file that fits in a single append, by creating its target stream with its entire contents.
+     * Whether the target stream may already exist is checked by the service as part of that request. When it may not, a request
+     * whose outcome is unknown (it failed without a response from the service, or it was sent by the upload being resumed) may
+     * still have created the target stream; since its contents are written by the same request, a target stream of the expected
+     * length is then taken to be that one. Any other existing target stream fails the file for good.
+     *
+     * @param metadata The metadata of the upload.
+     * @param entryNumber The entry number of the file to upload.
+     * @param resume Whether the upload being resumed already tried to create the target stream.
+     * @param buffer The buffer to read the file into.
+     * @throws Exception if the file cannot be uploaded.
+     */
+    private void uploadSmallFile(BulkUploadMetadata metadata, int entryNumber, boolean resume, byte[] buffer) throws Exception {
+        BulkUploadEntry entry = metadata.getEntries()[entryNumber];
+        boolean overwrite = parameters.isOverwrite();
+        boolean mayHaveBeenCreated = resume;
+        int length = (int) entry.getLength();
+        try (FileInputStream in = new FileInputStream(entry.getInputFilePath())) {
+            int bytesRead = 0;
+            while (bytesRead < length) {
+                int read = in.read(buffer, bytesRead, length - bytesRead);
+                if (read < 0) {
+                    throw new EOFException(MessageFormat.format("The file {0} is shorter than when the upload started", entry.getInputFilePath()));
+                }
+
+                bytesRead += read;
+            }
+        }
+
+        int attemptCount = 0;
+        while (true) {
+            attemptCount++;
+            try {
+                frontEnd.createStream(entry.getTargetStreamPath(), overwrite, length == 0 ? null : buffer, length);
+                return;
+            } catch (Exception ex) {
+                if (!(ex instanceof RestException)) {
+                    //the request may have reached the service, only its response was not received
+                    mayHaveBeenCreated = true;
+                }
+
+                if (!overwrite) {
+                    long existingLength = getStreamLengthIfExists(entry.getTargetStreamPath());
+                    if (mayHaveBeenCreated && existingLength == length) {
+                        return;
+                    }
+
+                    if (existingLength >= 0) {
+                        //the target stream is not ours; retrying, or resuming the upload, would fail the same way
+                        metadata.recordEntryStatus(entryNumber, SegmentUploadStatus.Failed);
+                        throw ex;
+                    }
+                }
+
+                //if we tried more than the number of times we were allowed to, give up and throw the exception
+                if (attemptCount >= SingleSegmentUploader.MAX_BUFFER_UPLOAD_ATTEMPT_COUNT) {
+                    throw ex;
+                }
+
+                SingleSegmentUploader.waitForRetry(attemptCount, parameters.isUseSegmentBlockBackOffRetryStrategy());
+            }
+        }
+    }
+
+    /**
+     * Gets the length of a stream, if it exists.
+     *
+     * @param streamPath The path of the stream.
+     * @return The length of the stream, or -1 if it does not exist or cannot be checked.
+     */
+    private long getStreamLengthIfExists(String streamPath) {
+        try {
+            if (frontEnd.streamExists(streamPath)) {
+                return frontEnd.getStreamLength(streamPath);
+            }
+        } catch (Exception e) {
+            //the stream cannot be checked; retry creating it as if it did not exist
+        }
+
+        return -1;
+    }
+
+    /**
+     * Uploads a file smaller than the maximum segment length directly to its target stream, block by block, without any local metadata file.
+     * The target stream is overwritten, since the caller has already checked that it may be.
+     *
+     * @param entry The file to upload.
+     * @param fileProgress The progress of the file.
+     * @throws Exception if the file cannot be uploaded.
+     */
+    private void uploadUnsegmentedFile(BulkUploadEntry entry, FileProgress fileProgress) throws Exception {
+        UploadParameters fileParameters = parameters.forFile(entry.getInputFilePath(), entry.getTargetStreamPath(), true, false, parameters.getLocalMetadataLocation());
+
+        // the metadata is never saved: the status of the file is kept in the metadata of the whole upload
+        UploadMetadata fileMetadata = new UploadMetadata(metadataFilePath, fileParameters);
+        UploadSegmentMetadata[] segments = fileMetadata.getSegments();
+        segments[0].setPath(entry.getTargetStreamPath());
+        fileMetadata.setSegments(segments);
+
+        SingleSegmentUploader ssu = new SingleSegmentUploader(0, fileMetadata, frontEnd);
+        ssu.setUseBackOffRetryStrategy(parameters.isUseSegmentBlockBackOffRetryStrategy());
+        ssu.setProgressTracker(new UploadProgressTracker(fileMetadata, fileProgress));
+        ssu.upload();
+    }
+
+    /**
+     * Uploads a file at least as long as the maximum segment length in segments, with its own local metadata file so that it can be resumed.
+     * The target stream is overwritten, since the caller has already checked that it may be.
+     *
+     * @param entryNumber The entry number of the file.
+     * @param entry The file to upload.
+     * @param resume Whether to resume a previous upload of the file, if its metadata is still there.
+     * @param fileProgress The progress of the file.
+     * @throws Exception if the file cannot be uploaded.
+     */
+    private void uploadSegmentedFile(int entryNumber, BulkUploadEntry entry, boolean resume, FileProgress fileProgress) throws Exception {
+        String fileMetadataLocation = Paths.get(getFileMetadataRoot(), Integer.toString(entryNumber)).toString();
+
+        // the location holds the metadata of this file only, so any metadata found there comes from a previous attempt at it
+        String[] existingMetadata = new File(fileMetadataLocation).list();
+        resume = resume && existingMetadata != null && existingMetadata.length > 0;
+        UploadParameters fileParameters = parameters.forFile(entry.getInputFilePath(), entry.getTargetStreamPath(), true, resume, fileMetadataLocation);
+        DataLakeStoreUploader uploader = new DataLakeStoreUploader(fileParameters, frontEnd);
+        uploader.setProgressListener(fileProgress);
+        uploader.execute();
+    }
+
+    /**
+     * @return The directory under which the metadata files of the segmented files are kept, one directory per file.
+     */
+    private String getFileMetadataRoot() {
+        return Paths.get(parameters.getLocalMetadataLocation(), MessageFormat.format("{0}.bulkupload.files", getInputDirectoryName())).toString();
+    }
+
+    /**
+     * @return The name of the input directory.
+     */
+    private String getInputDirectoryName() {
+        Path name = Paths.get(parameters.getInputFilePath()).toAbsolutePath().normalize().getFileName();
+        return name == null ? "root" : name.toString();
+    }
+
+    /**
+     * Deletes a directory and its contents, if it exists.
+     *
+     * @param directory The directory to delete.
+     */
+    private static void deleteDirectory(File directory) {
+        File[] children = directory.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteDirectory(child);
+            }
+        }
+
+        directory.delete();
+    }
+
+    /**
+     * Forwards the progress of the upload of a single file to the progress of the whole upload.
+     */
+    private static final class FileProgress implements UploadProgressListener {
+        private final BulkUploadProgressTracker progressTracker;
+        private long reportedByteCount;
+
+        /**
+         * Creates a new forwarder to the given tracker.
+         *
+         * @param progressTracker The tracker of the whole upload.
+         */
+        FileProgress(BulkUploadProgressTracker progressTracker) {
+            this.progressTracker = progressTracker;
+        }
+
+        @Override
+        public void progressChanged(UploadProgress progress) {
+            long byteCount = progress.getUploadedByteCount();
+            progressTracker.bytesUploaded(byteCount - reportedByteCount);
+            reportedByteCount = byteCount;
+        }
+
+        /**
+         * Reports the bytes of the file that have not been reported yet, once it has been uploaded;
+         * this includes the segments uploaded by a previous attempt, when it has been resumed.
+         *
+         * @param fileLength The length of the file.
+         */
+        void complete(long fileLength) {
+            if (reportedByteCount != fileLength) {
+                progressTracker.bytesUploaded(fileLength - reportedByteCount);
+                reportedByteCount = fileLength;
+            }
+        }
+
+        /**
+         * Takes back the bytes reported so far, once the file has failed.
+         */
+        void retract() {
+            if (reportedByteCount != 0) {
+                progressTracker.bytesUploaded(-reportedByteCount);
+                reportedByteCount = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,517 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.datalake.store.uploader;
+
+import org.apache.commons.lang3.StringUtils;
+
+import javax.management.OperationsException;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Represents a general purpose stream downloader from DataLake. Supports the efficient download of large streams:
+ * the stream is read in segments, with parallel ranged reads, each of which is written in place into local files preallocated to their final length.
+ * Text streams can be split into several output files, each ending on a record boundary.
+ */
+public class DataLakeStoreDownloader {
+
+    /**
+     * The maximum attempts to read a segment of the stream before failing out.
+     * A failed attempt resumes reading where the previous one stopped.
+     */
+    public static final int MAX_DOWNLOAD_ATTEMPT_COUNT = 4;
+
+    /**
+     * The number of bytes read at a time while looking for a record boundary, so that only as much of the stream as needed is transferred.
+     */
+    private static final int RECORD_BOUNDARY_SEARCH_LENGTH = 64 * 1024;
+
+    private final DownloadParameters parameters;
+    private final FrontEndAdapter frontEnd;
+    private final String metadataFilePath;
+
+    /**
+     * Creates a new instance of the DataLakeStoreDownloader class, by specifying a pointer to the FrontEnd to use for the download.
+     *
+     * @param downloadParameters The download parameters to use.
+     * @param frontEnd A pointer to the FrontEnd interface to use for the download.
+     */
+    public DataLakeStoreDownloader(DownloadParameters downloadParameters, FrontEndAdapter frontEnd) {
+        this.parameters = downloadParameters;
+        this.frontEnd = frontEnd;
+
+        //ensure that input parameters are correct
+        validateParameters();
+        metadataFilePath = Paths.get(parameters.getLocalMetadataLocation(), MessageFormat.format("{0}.download.xml", Paths.get(parameters.getTargetFilePath()).getFileName())).toString();
+    }
+
+    /**
+     * Gets the parameters to use for this download.
+     * @return the parameters for this download.
+     */
+    public DownloadParameters getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Executes the download as defined by the input parameters.
+     *
+     * @throws Exception if there is any failure that occurs during execution.
+     */
+    public void execute() throws Exception {
+        //load up existing metadata or create a fresh one
+        DownloadMetadata metadata = getMetadata();
+
+        //the output files must be in place before any segment is written to them
+        prepareOutputFiles(metadata);
+
+        downloadPendingSegments(metadata);
+
+        verifyDownload(metadata);
+
+        //clean up metadata after a successful download
+        metadata.deleteFile();
+    }
+
+    /**
+     * Validates the parameters.
+     *
+     * @throws IllegalArgumentException Null or empty source stream path, target file path or account name, or a value out of range.
+     */
+    private void validateParameters() throws IllegalArgumentException {
+        if (parameters.getSourceStreamPath() == null || StringUtils.isEmpty(parameters.getSourceStreamPath())) {
+            throw new IllegalArgumentException("Null or empty Source Stream path");
+        }
+
+        if (parameters.getSourceStreamPath().endsWith("/")) {
+            throw new IllegalArgumentException("Invalid SourceStreamPath, a stream path should not end with /");
+        }
+
+        if (parameters.getTargetFilePath() == null || StringUtils.isEmpty(parameters.getTargetFilePath())) {
+            throw new IllegalArgumentException("Null or empty Target File path");
+        }
+
+        if (new File(parameters.getTargetFilePath()).isDirectory()) {
+            throw new IllegalArgumentException("Invalid TargetFilePath, it refers to an existing directory");
+        }
+
+        if (parameters.getAccountName() == null || StringUtils.isEmpty(parameters.getAccountName())) {
+            throw new IllegalArgumentException("Null or empty Account Name");
+        }
+
+        if (parameters.getThreadCount() < 1 || parameters.getThreadCount() > DataLakeStoreUploader.MAX_ALLOWED_THREADS) {
+            throw new IllegalArgumentException(MessageFormat.format("ThreadCount must be at least 1 and at most {0}", DataLakeStoreUploader.MAX_ALLOWED_THREADS));
+        }
+
+        if (parameters.getMaxSegmentLength() <= 0) {
+            throw new IllegalArgumentException("MaxSegmentLength must be positive");
+        }
+
+        if (parameters.getMaxOutputFileLength() < 0) {
+            throw new IllegalArgumentException("MaxOutputFileLength cannot be negative");
+        }
+    }
+
+    /**
+     * Gets the metadata: either the existing one, when resuming, or a new one for the current state of the source stream.
+     *
+     * @return The {@link DownloadMetadata} used by this download.
+     * @throws Exception if the metadata cannot be loaded, created or saved, or does not match the parameters.
+     */
+    private DownloadMetadata getMetadata() throws Exception {
+        long streamLength = frontEnd.getStreamLength(parameters.getSourceStreamPath());
+        if (parameters.isResume()) {
+            DownloadMetadata metadata = DownloadMetadata.loadFrom(metadataFilePath);
+            validateMetadataForResume(metadata, streamLength);
+            return metadata;
+        }
+
+        long[] outputFileOffsets = parameters.isBinary() || parameters.getMaxOutputFileLength() == 0
+                ? new long[] {0}
+                : findOutputFileOffsets(streamLength);
+
+        DownloadMetadata metadata = new DownloadMetadata(metadataFilePath, parameters, streamLength, outputFileOffsets);
+
+        //verify that the target files do not already exist (in case we don't want to overwrite)
+        if (!parameters.isOverwrite()) {
+            for (int i = 0; i < metadata.getOutputFileCount(); i++) {
+                if (new File(metadata.getOutputFilePath(i)).exists()) {
+                    throw new OperationsException(MessageFormat.format("Target file already exists: {0}", metadata.getOutputFilePath(i)));
+                }
+            }
+        }
+
+        metadata.save();
+        return metadata;
+    }
+
+    /**
+     * Validates that the metadata is valid for a resume operation: it must be for the same stream and files, and the stream must not have changed length since.
+     * Any segment that was not complete is downloaded again.
+     *
+     * @param metadata The {@link DownloadMetadata} to resume the download from.
+     * @param streamLength The current length of the source stream.
+     * @throws Exception if the metadata does not match.
+     */
+    private void validateMetadataForResume(DownloadMetadata metadata, long streamLength) throws Exception {
+        if (!metadata.getSourceStreamPath().trim().equalsIgnoreCase(parameters.getSourceStreamPath().trim())) {
+            throw new OperationsException("Metadata points to a different source stream than the input parameters");
+        }
+
+        if (!new File(metadata.getTargetFilePath()).toString().toLowerCase().equals(new File(parameters.getTargetFilePath()).toString().toLowerCase())) {
+            throw new OperationsException("The metadata refers to different file than the one requested");
+        }
+
+        if (metadata.getStreamLength() != streamLength) {
+            throw new OperationsException(
+                    MessageFormat.format(
+                            "The source stream has changed length since the download started (from {0} to {1} bytes); the download cannot be resumed",
+                            metadata.getStreamLength(),
+                            streamLength));
+        }
+
+        //make sure we don't split part of the stream as text, while the rest is binary
+        if (parameters.isBinary() != metadata.isBinary()) {
+            throw new OperationsException(
+                    MessageFormat.format(
+                            "Existing metadata was created for a {0}binary file while the current parameters requested a {1}binary download.",
+                            metadata.isBinary() ? "" : "non-",
+                            parameters.isBinary() ? "" : "non-"));
+        }
+
+        for (int i = 0; i < metadata.getOutputFileCount(); i++) {
+            File outputFile = new File(metadata.getOutputFilePath(i));
+            if (!outputFile.exists() || outputFile.length() != metadata.getOutputFileLength(i)) {
+                throw new OperationsException(MessageFormat.format("The output file has been removed or modified since the download started: {0}", outputFile));
+            }
+        }
+
+        //anything which is not in 'Completed' status needs to be downloaded again
+        for (DownloadSegmentMetadata segment : metadata.getSegments()) {
+            if (segment.getStatus() != SegmentUploadStatus.Complete) {
+                segment.setStatus(SegmentUploadStatus.Pending);
+            }
+        }
+
+        metadata.save();
+    }
+
+    /**
+     * Creates (or truncates) the output files with their final length, so that segments can be written to them in any order.
+     * When resuming, the files are already there.
+     *
+     * @param metadata The metadata of the download.
+     * @throws IOException if an output file cannot be created.
+     */
+    private void prepareOutputFiles(DownloadMetadata metadata) throws IOException {
+        if (parameters.isResume()) {
+            return;
+        }
+
+        for (int i = 0; i < metadata.getOutputFileCount(); i++) {
+            File outputFile = new File(metadata.getOutputFilePath(i));
+            outputFile.getAbsoluteFile().getParentFile().mkdirs();
+            try (RandomAccessFile file = new RandomAccessFile(outputFile, "rw")) {
+                file.setLength(metadata.getOutputFileLength(i));
+            }
+        }
+    }
+
+    /**
+     * Downloads the segments that are not complete on a pool of workers, each of which downloads one segment at a time, until there are none left.
+     *
+     * @param metadata The metadata of the download.
+     * @throws InterruptedException if there is some interruption sent during a wait.
+     * @throws AggregateUploadException if any of the segments could not be downloaded.
+     */
+    private void downloadPendingSegments(final DownloadMetadata metadata) throws InterruptedException, AggregateUploadException {
+        final Queue<DownloadSegmentMetadata> pendingSegments = new ConcurrentLinkedQueue<>();
+        for (DownloadSegmentMetadata segment : metadata.getSegments()) {
+            if (segment.getStatus() != SegmentUploadStatus.Complete) {
+                pendingSegments.add(segment);
+            }
+        }
+
+        int threadCount = Math.min(pendingSegments.size(), parameters.getThreadCount());
+        if (threadCount == 0) {
+            return;
+        }
+
+        final List<Exception> exceptions = Collections.synchronizedList(new ArrayList<Exception>());
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        List<Future<?>> workers = new ArrayList<>(threadCount);
+        try {
+            for (int i = 0; i < threadCount; i++) {
+                workers.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        // each worker reuses one buffer for all the segments it downloads
+                        byte[] buffer = new byte[SingleSegmentUploader.BUFFER_LENGTH];
+                        while (!Thread.currentThread().isInterrupted()) {
+                            DownloadSegmentMetadata segment = pendingSegments.poll();
+                            if (segment == null) {
+                                return;
+                            }
+
+                            try {
+                                downloadSegment(metadata, segment, buffer);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                exceptions.add(e);
+                            } catch (Exception e) {
+                                exceptions.add(e);
+                            }
+                        }
+                    }
+                }));
+            }
+
+            for (Future<?> worker : workers) {
+                try {
+                    worker.get();
+                } catch (ExecutionException e) {
+                    // workers record the failures of their segments; anything else is unexpected, but should be reported all the same
+                    exceptions.add(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+                }
+            }
+        } catch (InterruptedException e) {
+            for (Future<?> worker : workers) {
+                worker.cancel(true);
+            }
+
+            throw e;
+        } finally {
+            executor.shutdown();
+        }
+
+        // aggregate any exceptions and throw them back at our caller
+        if (exceptions.size() > 0) {
+            // always return the first exception as the primary exception.
+            throw new AggregateUploadException("One or more segments could not be downloaded. Review the download Metadata to determine which segments failed", exceptions.remove(0), exceptions);
+        }
+    }
+
+    /**
+     * Downloads a single segment: reads its range of the stream and writes it at the matching position of its output file.
+     * A failed read is retried from where it stopped, up to {@link #MAX_DOWNLOAD_ATTEMPT_COUNT} attempts.
+     *
+     * @param metadata The metadata of the download.
+     * @param segment The segment to download.
+     * @param buffer The buffer to read the segment through.
+     * @throws Exception if the segment cannot be downloaded.
+     */
+    private void downloadSegment(DownloadMetadata metadata, DownloadSegmentMetadata segment, byte[] buffer) throws Exception {
+        updateSegmentMetadataStatus(metadata, segment.getSegmentNumber(), SegmentUploadStatus.InProgress);
+
+        long filePosition = segment.getOffset() - metadata.getOutputFileOffset(segment.getOutputFileNumber());
+        long bytesDownloaded = 0;
+        int attemptCount = 0;
+        try (FileChannel channel = FileChannel.open(Paths.get(metadata.getOutputFilePath(segment.getOutputFileNumber())), StandardOpenOption.WRITE)) {
+            while (bytesDownloaded < segment.getLength()) {
+                attemptCount++;
+                long bytesRemaining = segment.getLength() - bytesDownloaded;
+                try (InputStream in = frontEnd.readStream(metadata.getSourceStreamPath(), segment.getOffset() + bytesDownloaded, bytesRemaining)) {
+                    while (bytesRemaining > 0) {
+                        int bytesRead = in.read(buffer, 0, (int) Math.min(buffer.length, bytesRemaining));
+                        if (bytesRead < 0) {
+                            throw new EOFException(
+                                    MessageFormat.format(
+                                            "The source stream ended {0} bytes before the end of segment {1}",
+                                            bytesRemaining,
+                                            segment.getSegmentNumber()));
+                        }
+
+                        // positional writes leave the channel position alone, so segments of the same file never interfere
+                        ByteBuffer data = ByteBuffer.wrap(buffer, 0, bytesRead);
+                        long position = filePosition + bytesDownloaded;
+                        while (data.hasRemaining()) {
+                            position += channel.write(data, position);
+                        }
+
+                        bytesDownloaded += bytesRead;
+                        bytesRemaining -= bytesRead;
+                    }
+                } catch (Exception ex) {
+                    //if we tried more than the number of times we were allowed to, give up and throw the exception
+                    if (attemptCount >= MAX_DOWNLOAD_ATTEMPT_COUNT) {
+                        updateSegmentMetadataStatus(metadata, segment.getSegmentNumber(), SegmentUploadStatus.Failed);
+                        throw ex;
+                    }
+
+                    SingleSegmentUploader.waitForRetry(attemptCount, parameters.isUseBackOffRetryStrategy());
+                }
+            }
+
+            // the segment is only recorded as complete once its data is on disk, so that a resumed download does not skip lost data
+            channel.force(false);
+        }
+
+        updateSegmentMetadataStatus(metadata, segment.getSegmentNumber(), SegmentUploadStatus.Complete);
+    }
+
+    /**
+     * Updates the segment metadata status, appending the change to the journal of the metadata file.
+     *
+     * @param metadata The metadata.
+     * @param segmentNumber The segment number.
+     * @param newStatus The new status.
+     */
+    private static void updateSegmentMetadataStatus(DownloadMetadata metadata, int segmentNumber, SegmentUploadStatus newStatus) {
+        try {
+            metadata.recordSegmentStatus(segmentNumber, newStatus);
+        } catch (Exception e) {
+        } //no need to crash the program if were unable to save the metadata; it is what's in memory that's important
+    }
+
+    /**
+     * Verifies that the output files have the expected length, and that the source stream has not changed length while it was being downloaded.
+     *
+     * @param metadata The metadata of the download.
+     * @throws Exception if the download is not consistent with the source stream.
+     */
+    private void verifyDownload(DownloadMetadata metadata) throws Exception {
+        for (int i = 0; i < metadata.getOutputFileCount(); i++) {
+            File outputFile = new File(metadata.getOutputFilePath(i));
+            if (outputFile.length() != metadata.getOutputFileLength(i)) {
+                throw new DownloadFailedException(
+                        MessageFormat.format(
+                                "Output file {0} has a length of {1} bytes; expected {2} bytes",
+                                outputFile,
+                                outputFile.length(),
+                                metadata.getOutputFileLength(i)));
+            }
+        }
+
+        long streamLength = frontEnd.getStreamLength(metadata.getSourceStreamPath());
+        if (streamLength != metadata.getStreamLength()) {
+            throw new DownloadFailedException(
+                    MessageFormat.format(
+                            "The source stream changed length during the download (from {0} to {1} bytes); the downloaded data may be inconsistent",
+                            metadata.getStreamLength(),
+                            streamLength));
+        }
+    }
+
+    /**
+     * Determines where each output file of a text stream starts: each one but the last ends at the first record boundary at or after the maximum output file length.
+     *
+     * @param streamLength The length of the source stream.
+     * @return The offset in the stream at which each output file starts.
+     * @throws Exception if the stream cannot be read, or a record boundary cannot be found.
+     */
+    private long[] findOutputFileOffsets(long streamLength) throws Exception {
+        List<Long> offsets = new ArrayList<>();
+        offsets.add(0L);
+
+        byte[] buffer = new byte[SingleSegmentUploader.BUFFER_LENGTH];
+        long nextOffset = parameters.getMaxOutputFileLength();
+        while (nextOffset < streamLength) {
+            long boundary = findRecordBoundary(nextOffset, streamLength, buffer);
+            if (boundary >= streamLength) {
+                break;
+            }
+
+            offsets.add(boundary);
+            nextOffset = boundary + parameters.getMaxOutputFileLength();
+        }
+
+        long[] result = new long[offsets.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = offsets.get(i);
+        }
+
+        return result;
+    }
+
+    /**
+     * Finds the first record boundary (the offset right after a newline) at or after the given offset.
+     * The stream is read in small pieces from just before that offset, and the read stops as soon as a boundary is found.
+     *
+     * @param offset The offset to search from.
+     * @param streamLength The length of the source stream.
+     * @param buffer The buffer to read the stream into; no boundary further than its length away from the offset is searched for.
+     * @return The offset of the record boundary, or the stream length if the last record starts before the offset.
+     * @throws Exception if the stream cannot be read, or there is no record boundary within the length of the buffer.
+     */
+    private long findRecordBoundary(long offset, long streamLength, byte[] buffer) throws Exception {
+        Charset encoding = parameters.getFileEncoding();
+        String delimiter = parameters.getDelimiter();
+        boolean defaultDelimiter = delimiter == null || StringUtils.isEmpty(delimiter);
+        int bytesPerChar = isUtf16(encoding) ? 2 : 1;
+        int delimiterLength = defaultDelimiter ? bytesPerChar : delimiter.getBytes(encoding.equals(StandardCharsets.UTF_16) ? StandardCharsets.UTF_16BE : encoding).length;
+
+        //the bytes searched again after each read, since a delimiter (or a \r\n pair) may start in them and end in the next read
+        int overlap = Math.max(bytesPerChar, delimiterLength - 1);
+
+        //start one character early, so that a newline which ends exactly at the offset is found, and a \r\n pair is never split
+        long windowStart = Math.max(0, offset - bytesPerChar);
+        int bytesRead = 0;
+        int bytesSearched = 0;
+        boolean endOfStream = false;
+        try (InputStream in = frontEnd.readStream(parameters.getSourceStreamPath(), windowStart, Math.min(buffer.length, streamLength - windowStart))) {
+            while (!endOfStream && bytesRead < buffer.length) {
+                int read = in.read(buffer, bytesRead, Math.min(RECORD_BOUNDARY_SEARCH_LENGTH, buffer.length - bytesRead));
+                if (read < 0) {
+                    endOfStream = true;
+                } else {
+                    bytesRead += read;
+                }
+
+                boolean moreData = !endOfStream && bytesRead < buffer.length;
+                if (bytesRead - bytesSearched >= bytesPerChar) {
+                    //the index of the last byte of the delimiter, which is the \n of a \r\n pair
+                    int newlinePos = StringExtensions.findNewline(buffer, bytesSearched, bytesRead - bytesSearched, false, encoding, delimiter);
+
+                    //a newline read last may be a \r followed by a \n, so it is only taken once the next character is read
+                    if (newlinePos >= 0 && !(defaultDelimiter && moreData && newlinePos == bytesRead - 1)) {
+                        return windowStart + newlinePos + 1;
+                    }
+
+                    bytesSearched = Math.max(bytesSearched, (bytesRead - overlap) / bytesPerChar * bytesPerChar);
+                }
+            }
+        }
+
+        if (endOfStream || windowStart + bytesRead >= streamLength) {
+            //the last record starts before the offset; there is no need for another output file
+            return streamLength;
+        }
+
+        //if we get this far, we were unable to find a record boundary within our limits => fail the download
+        throw new DownloadFailedException(
+                MessageFormat.format(
+                        "Unable to locate a record boundary within {0}MB after offset {1}. This means the record at that offset is larger than {0}MB.",
+                        buffer.length / 1024 / 1024,
+                        offset));
+    }
+
+    /**
+     * @param encoding The encoding.
+     * @return True if the encoding has two bytes per (non-surrogate) character.
+     */
+    private static boolean isUtf16(Charset encoding) {
+        return encoding.equals(StandardCharsets.UTF_16) || encoding.equals(StandardCharsets.UTF_16BE) || encoding.equals(StandardCharsets.UTF_16LE);
+    }
+}
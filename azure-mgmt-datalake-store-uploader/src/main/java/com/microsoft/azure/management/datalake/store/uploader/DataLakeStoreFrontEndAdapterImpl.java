@@ -5,13 +5,29 @@
  */
 package com.microsoft.azure.management.datalake.store.uploader;
 
+import com.google.common.base.Joiner;
+import com.google.common.reflect.TypeToken;
+import com.microsoft.azure.AzureServiceResponseBuilder;
 import com.microsoft.azure.management.datalake.store.models.AdlsErrorException;
 import com.microsoft.rest.RestException;
 import com.microsoft.azure.management.datalake.store.implementation.DataLakeStoreFileSystemManagementClientImpl;
 import com.microsoft.azure.management.datalake.store.models.FileStatusResult;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
 import org.apache.commons.lang3.StringUtils;
+import retrofit2.Call;
+import retrofit2.Response;
+import retrofit2.http.Body;
+import retrofit2.http.Header;
+import retrofit2.http.Headers;
+import retrofit2.http.POST;
+import retrofit2.http.PUT;
+import retrofit2.http.Path;
+import retrofit2.http.Query;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.text.MessageFormat;
 
@@ -27,6 +43,22 @@ public class DataLakeStoreFrontEndAdapterImpl implements FrontEndAdapter {
 
     private DataLakeStoreFileSystemManagementClientImpl client;
 
+    private StreamService streamService;
+
+    /**
+     * The create and append operations of the file system, taking the request body as is.
+     * The generated client only accepts whole arrays, which would have to be copied out of the upload buffers.
+     */
+    interface StreamService {
+        @Headers("Content-Type: application/octet-stream")
+        @POST("webhdfs/v1/{directFilePath}")
+        Call<ResponseBody> append(@Path("directFilePath") String directFilePath, @Body RequestBody streamContents, @Query("offset") Long offset, @Query("op") String op, @Query("append") String append, @Header("Transfer-Encoding") String transferEncoding, @Query("api-version") String apiVersion, @Header("accept-language") String acceptLanguage, @Header("x-ms-parameterized-host") String parameterizedHost, @Header("User-Agent") String userAgent);
+
+        @Headers("Content-Type: application/octet-stream")
+        @PUT("webhdfs/v1/{directFilePath}")
+        Call<ResponseBody> create(@Path("directFilePath") String directFilePath, @Body RequestBody streamContents, @Query("overwrite") Boolean overwrite, @Query("op") String op, @Query("write") String write, @Header("Transfer-Encoding") String transferEncoding, @Query("api-version") String apiVersion, @Header("accept-language") String acceptLanguage, @Header("x-ms-parameterized-host") String parameterizedHost, @Header("User-Agent") String userAgent);
+    }
+
     /**
      * Initializes a new instance of the DataLakeStoreFrontEndAdapter adapter.
      *
@@ -36,6 +68,7 @@ public class DataLakeStoreFrontEndAdapterImpl implements FrontEndAdapter {
     public DataLakeStoreFrontEndAdapterImpl(String accountName, DataLakeStoreFileSystemManagementClientImpl client) {
         this.accountName = accountName;
         this.client = client;
+        this.streamService = client.retrofit().create(StreamService.class);
     }
 
     /**
@@ -49,14 +82,22 @@ public class DataLakeStoreFrontEndAdapterImpl implements FrontEndAdapter {
      * @throws RestException if there is a failure communicating with the service.
      */
     public void createStream(String streamPath, boolean overwrite, byte[] data, int byteCount) throws RestException, IOException {
-        byte[] toCreate;
-        if (data == null) {
-            toCreate = new byte[0];
-        } else {
-            toCreate = new byte[byteCount];
-            System.arraycopy(data, 0, toCreate, 0, byteCount);
-        }
-        client.fileSystems().create(accountName, streamPath, toCreate, overwrite);
+        createStream(streamPath, overwrite, data == null ? null : ByteBuffer.wrap(data, 0, byteCount));
+    }
+
+    /**
+     * Creates a new stream at the given path, streaming the remaining bytes of the buffer into the request.
+     *
+     * @param streamPath The relative path to the stream.
+     * @param overwrite  Whether to overwrite an existing stream.
+     * @param data Optionally pass in data to add to the stream during creation. If null is passed in an empty stream is created
+     * @throws IOException if the file does not exist or is inaccessible.
+     * @throws RestException if there is a failure communicating with the service.
+     */
+    public void createStream(String streamPath, boolean overwrite, ByteBuffer data) throws RestException, IOException {
+        Call<ResponseBody> call = streamService.create(streamPath, new ByteBufferRequestBody(data), overwrite, "CREATE", "true", "chunked",
+                client.apiVersion(), client.acceptLanguage(), parameterizedHost(), client.userAgent());
+        checkResponse(call.execute(), 201);
     }
 
     /**
@@ -82,9 +123,46 @@ public class DataLakeStoreFrontEndAdapterImpl implements FrontEndAdapter {
      * @throws RestException if there is a failure communicating with the service.
      */
     public void appendToStream(String streamPath, byte[] data, long offset, int byteCount) throws IOException, RestException {
-        byte[] toAppend = new byte[byteCount];
-        System.arraycopy(data, 0, toAppend, 0, byteCount);
-        client.fileSystems().append(accountName, streamPath, toAppend);
+        appendToStream(streamPath, ByteBuffer.wrap(data, 0, byteCount), offset);
+    }
+
+    /**
+     * Appends the remaining bytes of the buffer to the stream, streaming them into the request.
+     *
+     * @param streamPath The relative path to the stream.
+     * @param data The data to append to the stream
+     * @param offset This parameter is unused by this implementation, and any value put here is ignored
+     * @throws IOException if the file does not exist or is inaccessible.
+     * @throws RestException if there is a failure communicating with the service.
+     */
+    public void appendToStream(String streamPath, ByteBuffer data, long offset) throws IOException, RestException {
+        Call<ResponseBody> call = streamService.append(streamPath, new ByteBufferRequestBody(data), null, "APPEND", "true", "chunked",
+                client.apiVersion(), client.acceptLanguage(), parameterizedHost(), client.userAgent());
+        checkResponse(call.execute(), 200);
+    }
+
+    /**
+     * Gets the value of the host template parameters for this account.
+     *
+     * @return The value of the x-ms-parameterized-host header.
+     */
+    private String parameterizedHost() {
+        return Joiner.on(", ").join("{accountName}", accountName, "{adlsFileSystemDnsSuffix}", client.adlsFileSystemDnsSuffix());
+    }
+
+    /**
+     * Checks the response of a create or append operation.
+     *
+     * @param response The raw response.
+     * @param successStatusCode The status code of a successful operation.
+     * @throws AdlsErrorException if the operation failed.
+     * @throws IOException if the response cannot be read.
+     */
+    private void checkResponse(Response<ResponseBody> response, int successStatusCode) throws AdlsErrorException, IOException {
+        new AzureServiceResponseBuilder<Void, AdlsErrorException>(client.mapperAdapter())
+                .register(successStatusCode, new TypeToken<Void>() { }.getType())
+                .registerError(AdlsErrorException.class)
+                .build(response);
     }
 
     /**
@@ -122,6 +200,20 @@ public class DataLakeStoreFrontEndAdapterImpl implements FrontEndAdapter {
         return fileInfoResponse.fileStatus().length();
     }
 
+    /**
+     * Opens the given range of a stream for reading. The response body is streamed rather than buffered.
+     *
+     * @param streamPath The relative path to the stream.
+     * @param offset The offset in the stream at which to start reading.
+     * @param length The number of bytes to read, starting at offset.
+     * @return An {@link InputStream} of the bytes in the range.
+     * @throws IOException if the file does not exist or is inaccessible.
+     * @throws RestException if there is a failure communicating with the service.
+     */
+    public InputStream readStream(String streamPath, long offset, long length) throws IOException, RestException {
+        return client.fileSystems().open(accountName, streamPath, length, offset).getBody();
+    }
+
     /**
      * Concatenates the given input streams (in order) into the given target stream.
      * At the end of this operation, input streams will be deleted.
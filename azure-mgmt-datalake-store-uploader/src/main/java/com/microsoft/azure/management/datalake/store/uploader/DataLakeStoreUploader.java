@@ -30,6 +30,10 @@ public class DataLakeStoreUploader {
     public static final int MAX_ALLOWED_THREADS = 1024;
     private FrontEndAdapter frontEnd;
     private String metadataFilePath;
+    private UploadProgressListener progressListener;
+    private ExecutorService executorService;
+    private boolean autoTune;
+    private AutoTuneListener autoTuneListener;
 
     /**
      * Creates a new instance of the DataLakeUploader class, by specifying a pointer to the FrontEnd to use for the upload.
@@ -65,14 +69,60 @@ public class DataLakeStoreUploader {
     public UploadParameters getParameters() {
         return parameters;
     }
+
+    /**
+     *
+     * @param progressListener The listener to notify of the progress of the upload, or null.
+     */
+    public void setProgressListener(UploadProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     *
+     * @param executorService The executor to upload the segments of the file on, or null to use a thread pool of ThreadCount threads
+     *                        created for the upload. The executor is not shut down by the uploader.
+     */
+    public void setExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    /**
+     *
+     * @return A value indicating whether the upload tunes itself as it runs.
+     */
+    public boolean isAutoTune() {
+        return autoTune;
+    }
+
+    /**
+     *
+     * @param autoTune A value indicating whether the upload tunes itself as it runs. When enabled, a new upload is split into enough segments
+     *                 to keep ThreadCount threads busy (within a bound on the number of segments to concatenate), and the number of appends
+     *                 in flight at the same time starts low and is adjusted from the latency and throughput measured, ThreadCount being the maximum.
+     */
+    public void setAutoTune(boolean autoTune) {
+        this.autoTune = autoTune;
+    }
+
+    /**
+     *
+     * @param autoTuneListener The listener to notify of the decisions made by the auto-tuning, or null.
+     */
+    public void setAutoTuneListener(AutoTuneListener autoTuneListener) {
+        this.autoTuneListener = autoTuneListener;
+    }
+
     /**
      * Executes the upload as defined by the input parameters.
      *
      * @throws Exception if there is any failure that occurs during execution.
      */
     public void execute() throws Exception {
+        UploadAutoTuner autoTuner = autoTune ? new UploadAutoTuner(this.getParameters().getThreadCount(), autoTuneListener) : null;
+
         //load up existing metadata or create a fresh one
-        UploadMetadata metadata = getMetadata();
+        UploadMetadata metadata = getMetadata(autoTuner);
 
         if (metadata.getSegmentCount() < this.getParameters().getThreadCount()) {
             // reducing the thread count to make it equal to the segment count
@@ -81,7 +131,7 @@ public class DataLakeStoreUploader {
         }
 
         //begin (or resume) uploading the file
-        uploadFile(metadata);
+        uploadFile(metadata, autoTuner);
 
         //clean up metadata after a successful upload
         metadata.deleteFile();
@@ -118,13 +168,15 @@ public class DataLakeStoreUploader {
     /**
      * Gets the metadata.
      *
+     * @param autoTuner The tuner to choose the segment count of a new upload, or null.
      * @return The {@link UploadMetadata} used by this upload.
      * @throws IOException
      * @throws InvalidMetadataException
      * @throws UploadFailedException
      */
-    private UploadMetadata getMetadata() throws IOException, InvalidMetadataException, UploadFailedException {
+    private UploadMetadata getMetadata(UploadAutoTuner autoTuner) throws IOException, InvalidMetadataException, UploadFailedException {
         UploadMetadataGenerator metadataGenerator = new UploadMetadataGenerator(this.parameters);
+        metadataGenerator.setAutoTuner(autoTuner);
         if (this.getParameters().isResume()) {
             return metadataGenerator.getExistingMetadata(metadataFilePath);
         } else {
@@ -251,9 +303,10 @@ public class DataLakeStoreUploader {
     /**
      * Uploads the file using the given metadata.
      * @param metadata The {@link UploadMetadata} to use to upload the file.
+     * @param autoTuner The tuner to limit the appends in flight with, or null.
      * @throws Exception
      */
-    private void uploadFile(UploadMetadata metadata) throws Exception {
+    private void uploadFile(UploadMetadata metadata, UploadAutoTuner autoTuner) throws Exception {
         try {
             //TODO: figure out if we need a ServicePointManager equivalent for the connection limit
             //match up the metadata with the information on the server
@@ -263,14 +316,16 @@ public class DataLakeStoreUploader {
                 validateMetadataForFreshUpload(metadata);
             }
 
-            // TODO: figure out if we need a way to track progress.
+            UploadProgressTracker progressTracker = progressListener == null ? null : new UploadProgressTracker(metadata, progressListener);
             if (metadata.getSegmentCount() == 0) {
                 // simply create the target stream, overwriting existing streams if they exist
                 frontEnd.createStream(metadata.getTargetStreamPath(), true, null, 0);
             } else if (metadata.getSegmentCount() > 1) {
                 //perform the multi-segment upload
-                MultipleSegmentUploader msu = new MultipleSegmentUploader(metadata, this.getParameters().getThreadCount(), frontEnd);
+                MultipleSegmentUploader msu = new MultipleSegmentUploader(metadata, this.getParameters().getThreadCount(), frontEnd, executorService);
                 msu.setUseSegmentBlockBackOffRetryStrategy(this.getParameters().isUseSegmentBlockBackOffRetryStrategy());
+                msu.setProgressTracker(progressTracker);
+                msu.setAutoTuner(autoTuner);
                 msu.upload();
 
                 //concatenate the files at the end
@@ -282,6 +337,7 @@ public class DataLakeStoreUploader {
                 metadata.setSegments(toUse);
                 SingleSegmentUploader ssu = new SingleSegmentUploader(0, metadata, frontEnd);
                 ssu.setUseBackOffRetryStrategy(this.getParameters().isUseSegmentBlockBackOffRetryStrategy());
+                ssu.setProgressTracker(progressTracker);
                 ssu.upload();
             }
         } catch (InterruptedException ex) {
@@ -0,0 +1,19 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.datalake.store.uploader;
+
+/**
+ * Represents an exception that is thrown when a download fails.
+ */
+public class DownloadFailedException extends Exception {
+    /**
+     * Initializes a new instance of the DownloadFailedException exception.
+     * @param message The message that describes the error.
+     */
+    public DownloadFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,356 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.datalake.store.uploader;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents general metadata pertaining to a download: the output files the stream is written to, and the segments (ranges) it is read in.
+ */
+public class DownloadMetadata implements Serializable {
+    /**
+     * The suffix of the journal file, next to the metadata file, to which the segment status changes made since the last save are appended.
+     */
+    private static final String JOURNAL_SUFFIX = ".journal";
+
+    /**
+     * Constructs a new DownloadMetadata for the given stream, split into output files starting at the given offsets.
+     *
+     * @param metadataFilePath The file path to assign to this metadata file (for saving purposes).
+     * @param downloadParameters The parameter of the download to construct this metadata for.
+     * @param streamLength The length of the stream being downloaded.
+     * @param outputFileOffsets The offset in the stream at which each output file starts; the first one is always 0.
+     */
+    public DownloadMetadata(String metadataFilePath, DownloadParameters downloadParameters, long streamLength, long[] outputFileOffsets) {
+        this.metadataFilePath = metadataFilePath;
+        this.sourceStreamPath = downloadParameters.getSourceStreamPath();
+        this.targetFilePath = downloadParameters.getTargetFilePath();
+        this.streamLength = streamLength;
+        this.isBinary = downloadParameters.isBinary();
+        this.encodingName = downloadParameters.getFileEncoding().name();
+        this.delimiter = downloadParameters.getDelimiter();
+
+        int outputFileCount = outputFileOffsets.length;
+        this.outputFilePaths = new String[outputFileCount];
+        this.outputFileOffsets = outputFileOffsets.clone();
+        this.outputFileLengths = new long[outputFileCount];
+
+        List<DownloadSegmentMetadata> segmentList = new ArrayList<>();
+        for (int i = 0; i < outputFileCount; i++) {
+            this.outputFilePaths[i] = outputFileCount == 1 ? this.targetFilePath : MessageFormat.format("{0}.{1}", this.targetFilePath, Integer.toString(i));
+            long outputFileEnd = i == outputFileCount - 1 ? streamLength : outputFileOffsets[i + 1];
+            this.outputFileLengths[i] = outputFileEnd - outputFileOffsets[i];
+
+            // segments never span output files; within a file, they follow the same growth pattern as upload segments, and are at most maxSegmentLength long
+            long outputFileLength = this.outputFileLengths[i];
+            int segmentCount = (int) Math.max(UploadSegmentMetadata.calculateSegmentCount(outputFileLength), (outputFileLength + downloadParameters.getMaxSegmentLength() - 1) / downloadParameters.getMaxSegmentLength());
+            long segmentLength = UploadSegmentMetadata.calculateSegmentLength(outputFileLength, segmentCount);
+            for (int j = 0; j < segmentCount; j++) {
+                long offset = outputFileOffsets[i] + j * segmentLength;
+                segmentList.add(new DownloadSegmentMetadata(segmentList.size(), i, offset, Math.min(segmentLength, outputFileEnd - offset)));
+            }
+        }
+
+        this.segments = segmentList.toArray(new DownloadSegmentMetadata[segmentList.size()]);
+    }
+
+    private transient String metadataFilePath;
+
+    private String sourceStreamPath;
+
+    private String targetFilePath;
+
+    private long streamLength;
+
+    private boolean isBinary;
+
+    private String encodingName;
+
+    private String delimiter;
+
+    private String[] outputFilePaths;
+
+    private long[] outputFileOffsets;
+
+    private long[] outputFileLengths;
+
+    private DownloadSegmentMetadata[] segments;
+
+    /**
+     *
+     * @return A value indicating the full stream path of the stream being downloaded.
+     */
+    public String getSourceStreamPath() {
+        return sourceStreamPath;
+    }
+
+    /**
+     *
+     * @return A value indicating the full path to the local file the stream is downloaded to.
+     */
+    public String getTargetFilePath() {
+        return targetFilePath;
+    }
+
+    /**
+     *
+     * @return A value indicating the length (in bytes) of the stream being downloaded.
+     */
+    public long getStreamLength() {
+        return streamLength;
+    }
+
+    /**
+     *
+     * @return A value indicating whether the stream is binary or not.
+     */
+    public boolean isBinary() {
+        return isBinary;
+    }
+
+    /**
+     *
+     * @return A value indicating the encoding of the stream.
+     */
+    public Charset getEncoding() {
+        return Charset.forName(encodingName);
+    }
+
+    /**
+     *
+     * @return A value indicating the record boundary delimiter of the stream.
+     */
+    public String getDelimiter() {
+        return delimiter;
+    }
+
+    /**
+     *
+     * @return A value indicating the number of output files the stream is split into.
+     */
+    public int getOutputFileCount() {
+        return outputFilePaths.length;
+    }
+
+    /**
+     *
+     * @param outputFileNumber The number of the output file.
+     * @return A value indicating the local path of the output file.
+     */
+    public String getOutputFilePath(int outputFileNumber) {
+        return outputFilePaths[outputFileNumber];
+    }
+
+    /**
+     *
+     * @param outputFileNumber The number of the output file.
+     * @return A value indicating the offset in the stream at which the output file starts.
+     */
+    public long getOutputFileOffset(int outputFileNumber) {
+        return outputFileOffsets[outputFileNumber];
+    }
+
+    /**
+     *
+     * @param outputFileNumber The number of the output file.
+     * @return A value indicating the length (in bytes) of the output file.
+     */
+    public long getOutputFileLength(int outputFileNumber) {
+        return outputFileLengths[outputFileNumber];
+    }
+
+    /**
+     *
+     * @return A value indicating the segments the stream is downloaded in.
+     */
+    public DownloadSegmentMetadata[] getSegments() {
+        return segments;
+    }
+
+    /**
+     * Attempts to load a DownloadMetadata object from the given file.
+     *
+     * @param filePath The full path to the file where to load the metadata from
+     * @return A deserialized {@link DownloadMetadata} object from the file specified.
+     * @throws FileNotFoundException Thrown if the filePath is inaccessible or does not exist
+     * @throws InvalidMetadataException Thrown if the metadata is not in the expected format.
+     */
+    public static DownloadMetadata loadFrom(String filePath) throws FileNotFoundException, InvalidMetadataException {
+        if (!new File(filePath).exists()) {
+            throw new FileNotFoundException("Could not find metadata file: " + filePath);
+        }
+
+        try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(filePath))) {
+            DownloadMetadata result = (DownloadMetadata) in.readObject();
+            result.metadataFilePath = filePath;
+            result.replayJournal();
+            return result;
+        } catch (Exception ex) {
+            throw new InvalidMetadataException("Unable to parse metadata file", ex);
+        }
+    }
+
+    /**
+     * Records a new status for a segment: updates it in memory and appends it to the journal of the metadata file,
+     * rather than saving the entire metadata again. This method is thread-safe.
+     *
+     * @param segmentNumber The segment number.
+     * @param status The new status of the segment.
+     * @throws IOException Thrown if the journal cannot be written to, or the metadata file path has not yet been set.
+     */
+    public synchronized void recordSegmentStatus(int segmentNumber, SegmentUploadStatus status) throws IOException {
+        this.segments[segmentNumber].setStatus(status);
+        if (this.metadataFilePath == null || StringUtils.isEmpty(this.metadataFilePath)) {
+            throw new InvalidObjectException("Null or empty metadataFilePath. Cannot record the segment status until this property is set.");
+        }
+
+        try (FileOutputStream out = new FileOutputStream(getJournalFilePath(), true)) {
+            // a single write per record, so that a crash can at worst leave the last record incomplete
+            out.write(ByteBuffer.allocate(5).putInt(segmentNumber).put((byte) status.ordinal()).array());
+        }
+    }
+
+    /**
+     * Applies the segment status changes recorded in the journal since the last save, if any.
+     * An incomplete or invalid record ends the journal.
+     *
+     * @throws IOException Thrown if the journal cannot be read.
+     */
+    private void replayJournal() throws IOException {
+        File journal = new File(getJournalFilePath());
+        if (!journal.exists()) {
+            return;
+        }
+
+        SegmentUploadStatus[] statuses = SegmentUploadStatus.values();
+        try (DataInputStream in = new DataInputStream(new FileInputStream(journal))) {
+            while (true) {
+                int segmentNumber = in.readInt();
+                int status = in.readByte();
+                if (segmentNumber < 0 || segmentNumber >= this.segments.length || status < 0 || status >= statuses.length) {
+                    return;
+                }
+
+                this.segments[segmentNumber].setStatus(statuses[status]);
+            }
+        } catch (EOFException e) {
+            // end of the journal
+        }
+    }
+
+    /**
+     * @return The path of the journal file of this metadata.
+     */
+    private String getJournalFilePath() {
+        return this.metadataFilePath + JOURNAL_SUFFIX;
+    }
+
+    /**
+     * Saves the metadata to its canonical location, replacing the previous version and its journal. This method is thread-safe.
+     *
+     * @throws IOException Thrown if the file cannot be saved due to accessibility or there is an error saving the stream to disk.
+     * @throws InvalidMetadataException Thrown if the metadata is invalid.
+     */
+    public synchronized void save() throws IOException, InvalidMetadataException {
+        if (this.metadataFilePath == null || StringUtils.isEmpty(this.metadataFilePath)) {
+            throw new InvalidObjectException("Null or empty metadataFilePath. Cannot save metadata until this property is set.");
+        }
+
+        //quick check to ensure that the metadata we constructed is sane
+        this.validateConsistency();
+
+        // always create the full path to the file, since this will not throw if it already exists.
+        File curMetadata = new File(this.metadataFilePath);
+        curMetadata.getAbsoluteFile().getParentFile().mkdirs();
+
+        // write the new version next to the current one, so that the current one stays intact if this fails
+        File newMetadata = new File(this.metadataFilePath + ".tmp");
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(newMetadata))) {
+            out.writeObject(this);
+        } catch (Exception ex) {
+            newMetadata.delete();
+            throw new InvalidMetadataException("Unable to parse metadata object and write it to a file", ex);
+        }
+
+        // the journal applies to the current version only; dropping it first means a crash leaves an older, but consistent, state behind
+        new File(getJournalFilePath()).delete();
+        Files.move(newMetadata.toPath(), curMetadata.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Deletes the metadata file, and its journal, from disk.
+     *
+     * @throws InvalidObjectException Thrown if the metadata file path has not yet been set.
+     */
+    public synchronized void deleteFile() throws InvalidObjectException {
+        if (this.metadataFilePath == null || StringUtils.isEmpty(this.metadataFilePath)) {
+            throw new InvalidObjectException("Null or empty metadataFilePath. Cannot delete metadata until this property is set.");
+        }
+
+        new File(this.metadataFilePath).delete();
+        new File(getJournalFilePath()).delete();
+    }
+
+    /**
+     * Verifies the given metadata for consistency: the output files and the segments must each cover the stream exactly, in order.
+     *
+     * @throws InvalidMetadataException Thrown if the metadata is inconsistent.
+     */
+    public void validateConsistency() throws InvalidMetadataException {
+        long expectedOffset = 0;
+        for (int i = 0; i < outputFilePaths.length; i++) {
+            if (outputFileOffsets[i] != expectedOffset || outputFileLengths[i] <= 0 && outputFilePaths.length > 1) {
+                throw new InvalidMetadataException(MessageFormat.format("Output file {0} does not start where the previous one ends, or is empty", i));
+            }
+
+            expectedOffset += outputFileLengths[i];
+        }
+
+        if (expectedOffset != streamLength) {
+            throw new InvalidMetadataException("The output files do not add up to the length of the stream");
+        }
+
+        expectedOffset = 0;
+        for (int i = 0; i < segments.length; i++) {
+            DownloadSegmentMetadata segment = segments[i];
+            if (segment.getSegmentNumber() != i || segment.getOffset() != expectedOffset || segment.getLength() <= 0) {
+                throw new InvalidMetadataException(MessageFormat.format("Segment {0} does not start where the previous one ends, or is empty", i));
+            }
+
+            int outputFileNumber = segment.getOutputFileNumber();
+            if (outputFileNumber < 0 || outputFileNumber >= outputFilePaths.length
+                    || segment.getOffset() < outputFileOffsets[outputFileNumber]
+                    || segment.getOffset() + segment.getLength() > outputFileOffsets[outputFileNumber] + outputFileLengths[outputFileNumber]) {
+                throw new InvalidMetadataException(MessageFormat.format("Segment {0} does not lie within its output file", i));
+            }
+
+            expectedOffset += segment.getLength();
+        }
+
+        if (expectedOffset != streamLength) {
+            throw new InvalidMetadataException("The segments do not add up to the length of the stream");
+        }
+    }
+}
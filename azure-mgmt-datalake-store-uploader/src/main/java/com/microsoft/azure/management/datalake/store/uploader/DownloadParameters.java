@@ -0,0 +1,380 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.datalake.store.uploader;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Represents parameters for the DataLake Downloader.
+ */
+public class DownloadParameters {
+
+    /**
+     * The default segment length, which is the most data that is read in a single request.
+     */
+    private static final long SEGMENT_LENGTH = 256 * 1024 * 1024;
+
+    /**
+     * Creates a new set of parameters for the DataLake Downloader with optional values set with their defaults.
+     * Defaults are as follows:
+     *  threadCount = 1
+     *  isOverwrite = false
+     *  isResume = false
+     *  isBinary = true
+     *  maxSegmentLength = 256mb
+     *  maxOutputFileLength = 0 (a single output file)
+     *  localMetadataLocation = File.createTempFile()
+     *
+     * @param sourceStreamPath The full stream path of the stream to be downloaded.
+     * @param targetFilePath The full path to the local file where the stream will be downloaded to.
+     * @param accountName Name of the account to download from.
+     */
+    public DownloadParameters(String sourceStreamPath, String targetFilePath, String accountName) {
+        this(sourceStreamPath, targetFilePath, accountName, 1, false, false, true, SEGMENT_LENGTH, 0, null);
+    }
+
+    /**
+     * Creates a new set of parameters for the DataLake Downloader with the following optional values set with their defaults.
+     * Defaults are as follows:
+     *  isBinary = true
+     *  maxSegmentLength = 256mb
+     *  maxOutputFileLength = 0 (a single output file)
+     *  localMetadataLocation = File.createTempFile().
+     *
+     * @param sourceStreamPath The full stream path of the stream to be downloaded.
+     * @param targetFilePath The full path to the local file where the stream will be downloaded to.
+     * @param accountName Name of the account to download from.
+     * @param threadCount The maximum number of parallel threads to use for the download.
+     * @param isOverwrite Whether to overwrite the target file or not.
+     * @param isResume Indicates whether to resume a previously interrupted download.
+     */
+    public DownloadParameters(String sourceStreamPath, String targetFilePath, String accountName, int threadCount, boolean isOverwrite, boolean isResume) {
+        this(sourceStreamPath, targetFilePath, accountName, threadCount, isOverwrite, isResume, true, SEGMENT_LENGTH, 0, null);
+    }
+
+    /**
+     * Creates a new set of parameters for the DataLake Downloader.
+     *
+     * @param sourceStreamPath The full stream path of the stream to be downloaded.
+     * @param targetFilePath The full path to the local file where the stream will be downloaded to.
+     * @param accountName Name of the account to download from.
+     * @param threadCount The maximum number of parallel threads to use for the download.
+     * @param isOverwrite Whether to overwrite the target file(s) or not.
+     * @param isResume Indicates whether to resume a previously interrupted download.
+     * @param isBinary Indicates whether to treat the stream as a binary file (true), or whether to split it into output files at record boundaries (false).
+     * @param maxSegmentLength The maximum number of bytes downloaded in a single request; the stream is split into segments no longer than this, which are downloaded in parallel.
+     * @param maxOutputFileLength For text streams, the approximate length of each output file, or 0 to download the stream into a single file.
+     *                            Each output file ends at the first record boundary at or after this length.
+     * @param localMetadataLocation Indicates the directory path where to store the local download metadata file while the download is in progress. This location must be writeable from this application. Default location if null: File.createTempFile()
+     */
+    public DownloadParameters(String sourceStreamPath, String targetFilePath, String accountName, int threadCount, boolean isOverwrite, boolean isResume, boolean isBinary, long maxSegmentLength, long maxOutputFileLength, String localMetadataLocation) {
+        this.setSourceStreamPath(sourceStreamPath);
+        this.setTargetFilePath(targetFilePath);
+        this.setAccountName(accountName);
+        this.setThreadCount(threadCount);
+        this.setOverwrite(isOverwrite);
+        this.setResume(isResume);
+        this.setBinary(isBinary);
+        this.setMaxSegmentLength(maxSegmentLength);
+        this.setMaxOutputFileLength(maxOutputFileLength);
+
+        if (localMetadataLocation == null || StringUtils.isEmpty(localMetadataLocation)) {
+            localMetadataLocation = System.getProperty("java.io.tmpdir");
+        }
+
+        this.setLocalMetadataLocation(localMetadataLocation);
+
+        this.setUseBackOffRetryStrategy(true);
+
+        // TODO: in the future we will expose these as optional parameters, allowing customers to specify encoding and delimiters.
+        this.setFileEncoding(StandardCharsets.UTF_8);
+        this.setDelimiter(null);
+    }
+
+    /**
+     * Creates a new set of parameters for the DataLake Downloader used for unit testing.
+     *
+     * @param sourceStreamPath The full stream path of the stream to be downloaded.
+     * @param targetFilePath The full path to the local file where the stream will be downloaded to.
+     * @param accountName Name of the account to download from.
+     * @param useBackOffRetryStrategy if set to <code>true</code> [use back off retry strategy].
+     * @param threadCount The maximum number of parallel threads to use for the download.
+     * @param isOverwrite Whether to overwrite the target file(s) or not.
+     * @param isResume Indicates whether to resume a previously interrupted download.
+     * @param isBinary Indicates whether to treat the stream as a binary file (true), or whether to split it into output files at record boundaries (false).
+     * @param maxSegmentLength The maximum number of bytes downloaded in a single request.
+     * @param maxOutputFileLength For text streams, the approximate length of each output file, or 0 to download the stream into a single file.
+     * @param localMetadataLocation Indicates the directory path where to store the local download metadata file while the download is in progress.
+     */
+    protected DownloadParameters(String sourceStreamPath, String targetFilePath, String accountName, boolean useBackOffRetryStrategy, int threadCount, boolean isOverwrite, boolean isResume, boolean isBinary, long maxSegmentLength, long maxOutputFileLength, String localMetadataLocation) {
+        this(sourceStreamPath, targetFilePath, accountName, threadCount, isOverwrite, isResume, isBinary, maxSegmentLength, maxOutputFileLength, localMetadataLocation);
+        this.setUseBackOffRetryStrategy(useBackOffRetryStrategy);
+    }
+
+    /**
+     * Gets a value indicating whether [to use back off retry strategy] when a read fails.
+     *
+     * @return <code>true</code> if [to use back off retry strategy]; otherwise, <code>false</code>.
+     */
+    public boolean isUseBackOffRetryStrategy() {
+        return useBackOffRetryStrategy;
+    }
+
+    /**
+     * Internally sets the value of whether [to use back off retry strategy].
+     *
+     * @param useBackOffRetryStrategy <code>true</code> if [to use back off retry strategy]; otherwise, <code>false</code>.
+     */
+    private void setUseBackOffRetryStrategy(boolean useBackOffRetryStrategy) {
+        this.useBackOffRetryStrategy = useBackOffRetryStrategy;
+    }
+
+    /**
+     * Gets a value indicating the full stream path of the stream to be downloaded.
+     *
+     * @return The stream path of the stream to be downloaded.
+     */
+    public String getSourceStreamPath() {
+        return sourceStreamPath;
+    }
+
+    /**
+     * Internally sets the full stream path of the stream to be downloaded.
+     *
+     * @param sourceStreamPath The stream path of the stream to be downloaded.
+     */
+    private void setSourceStreamPath(String sourceStreamPath) {
+        this.sourceStreamPath = sourceStreamPath;
+    }
+
+    /**
+     * Gets a value indicating the full path to the local file where the stream will be downloaded to.
+     * When the stream is split into several output files, this is the prefix of their names.
+     *
+     * @return The local path of the downloaded file.
+     */
+    public String getTargetFilePath() {
+        return targetFilePath;
+    }
+
+    /**
+     * Internally sets the full path to the local file where the stream will be downloaded to.
+     *
+     * @param targetFilePath The local path of the downloaded file.
+     */
+    private void setTargetFilePath(String targetFilePath) {
+        this.targetFilePath = targetFilePath;
+    }
+
+    /**
+     * Gets a value indicating the name of the account to download from.
+     *
+     * @return the account name.
+     */
+    public String getAccountName() {
+        return accountName;
+    }
+
+    /**
+     * Internally sets the name of the account to download from.
+     *
+     * @param accountName the account name.
+     */
+    private void setAccountName(String accountName) {
+        this.accountName = accountName;
+    }
+
+    /**
+     * Gets a value indicating the maximum number of parallel threads to use for the download.
+     *
+     * @return The thread count.
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Internally sets the maximum number of parallel threads to use for the download.
+     *
+     * @param threadCount The thread count.
+     */
+    private void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Gets a value indicating whether to overwrite the target file(s) if they exist.
+     *
+     * @return <code>true</code> if the target file(s) will be overwritten; otherwise, <code>false</code>.
+     */
+    public boolean isOverwrite() {
+        return overwrite;
+    }
+
+    /**
+     * Internally sets a value indicating whether to overwrite the target file(s) if they exist.
+     *
+     * @param overwrite <code>true</code> if the target file(s) will be overwritten; otherwise, <code>false</code>.
+     */
+    private void setOverwrite(boolean overwrite) {
+        this.overwrite = overwrite;
+    }
+
+    /**
+     * Gets a value indicating whether to resume a previously interrupted download.
+     *
+     * @return <code>true</code> if the download is resumed; otherwise, <code>false</code>.
+     */
+    public boolean isResume() {
+        return resume;
+    }
+
+    /**
+     * Internally sets a value indicating whether to resume a previously interrupted download.
+     *
+     * @param resume <code>true</code> if the download is resumed; otherwise, <code>false</code>.
+     */
+    private void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
+    /**
+     * Gets a value indicating whether the stream is binary (true), or text that may be split into output files at record boundaries (false).
+     *
+     * @return <code>true</code> if the stream is binary; otherwise, <code>false</code>.
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * Internally sets a value indicating whether the stream is binary.
+     *
+     * @param binary <code>true</code> if the stream is binary; otherwise, <code>false</code>.
+     */
+    private void setBinary(boolean binary) {
+        this.binary = binary;
+    }
+
+    /**
+     * Gets a value indicating the maximum number of bytes downloaded in a single request.
+     *
+     * @return The maximum segment length.
+     */
+    public long getMaxSegmentLength() {
+        return maxSegmentLength;
+    }
+
+    /**
+     * Internally sets the maximum number of bytes downloaded in a single request.
+     *
+     * @param maxSegmentLength The maximum segment length.
+     */
+    private void setMaxSegmentLength(long maxSegmentLength) {
+        this.maxSegmentLength = maxSegmentLength;
+    }
+
+    /**
+     * Gets a value indicating the approximate length of each output file of a text stream, or 0 to download the stream into a single file.
+     *
+     * @return The maximum output file length.
+     */
+    public long getMaxOutputFileLength() {
+        return maxOutputFileLength;
+    }
+
+    /**
+     * Internally sets the approximate length of each output file of a text stream.
+     *
+     * @param maxOutputFileLength The maximum output file length.
+     */
+    private void setMaxOutputFileLength(long maxOutputFileLength) {
+        this.maxOutputFileLength = maxOutputFileLength;
+    }
+
+    /**
+     * Gets a value indicating the directory path where to store the local download metadata file while the download is in progress.
+     *
+     * @return The local metadata location.
+     */
+    public String getLocalMetadataLocation() {
+        return localMetadataLocation;
+    }
+
+    /**
+     * Internally sets the directory path where to store the local download metadata file while the download is in progress.
+     *
+     * @param localMetadataLocation The local metadata location.
+     */
+    private void setLocalMetadataLocation(String localMetadataLocation) {
+        this.localMetadataLocation = localMetadataLocation;
+    }
+
+    /**
+     * Gets a value indicating the encoding of the stream, used to find record boundaries.
+     *
+     * @return The file encoding.
+     */
+    public Charset getFileEncoding() {
+        return fileEncoding;
+    }
+
+    /**
+     * Internally sets the encoding of the stream.
+     *
+     * @param fileEncoding The file encoding.
+     */
+    void setFileEncoding(Charset fileEncoding) {
+        this.fileEncoding = fileEncoding;
+    }
+
+    /**
+     * Gets a value indicating the record boundary delimiter of the stream, or null for the default (\r, \n and \r\n).
+     *
+     * @return The delimiter.
+     */
+    public String getDelimiter() {
+        return delimiter;
+    }
+
+    /**
+     * Internally sets the record boundary delimiter of the stream.
+     *
+     * @param delimiter The delimiter.
+     */
+    void setDelimiter(String delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    private boolean useBackOffRetryStrategy;
+
+    private String sourceStreamPath;
+
+    private String targetFilePath;
+
+    private String accountName;
+
+    private int threadCount;
+
+    private boolean overwrite;
+
+    private boolean resume;
+
+    private boolean binary;
+
+    private long maxSegmentLength;
+
+    private long maxOutputFileLength;
+
+    private String localMetadataLocation;
+
+    private Charset fileEncoding;
+
+    private String delimiter;
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.datalake.store.uploader;
+
+import java.io.Serializable;
+
+/**
+ * Represents metadata for a particular range of the stream being downloaded.
+ * A segment always lies within a single output file.
+ */
+public class DownloadSegmentMetadata implements Serializable {
+
+    /**
+     * Creates a new DownloadSegmentMetadata for the given range of the stream.
+     *
+     * @param segmentNumber The segment number for this instance.
+     * @param outputFileNumber The number of the output file the segment is written to.
+     * @param offset The starting offset of the segment in the stream.
+     * @param length The length of the segment (in bytes).
+     */
+    public DownloadSegmentMetadata(int segmentNumber, int outputFileNumber, long offset, long length) {
+        this.segmentNumber = segmentNumber;
+        this.outputFileNumber = outputFileNumber;
+        this.offset = offset;
+        this.length = length;
+        this.status = SegmentUploadStatus.Pending;
+    }
+
+    private int segmentNumber;
+
+    private int outputFileNumber;
+
+    private long offset;
+
+    private long length;
+
+    private SegmentUploadStatus status;
+
+    /**
+     *
+     * @return A value indicating the number (sequence) of the segment in the stream.
+     */
+    public int getSegmentNumber() {
+        return segmentNumber;
+    }
+
+    /**
+     *
+     * @return A value indicating the number of the output file the segment is written to.
+     */
+    public int getOutputFileNumber() {
+        return outputFileNumber;
+    }
+
+    /**
+     *
+     * @return A value indicating the starting offset of the segment in the stream.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     *
+     * @return A value indicating the size of the segment (in bytes).
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     *
+     * @return A value indicating the current download status for this segment.
+     */
+    public SegmentUploadStatus getStatus() {
+        return status;
+    }
+
+    /**
+     *
+     * @param status A value indicating the current download status for this segment.
+     */
+    public void setStatus(SegmentUploadStatus status) {
+        this.status = status;
+    }
+}
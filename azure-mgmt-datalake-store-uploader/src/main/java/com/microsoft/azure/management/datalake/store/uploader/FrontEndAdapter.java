@@ -8,6 +8,8 @@ package com.microsoft.azure.management.datalake.store.uploader;
 import com.microsoft.rest.RestException;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * The frontend adapter that must be implemented in order to execute using the
@@ -26,6 +28,20 @@ public interface FrontEndAdapter {
      */
     void createStream(String streamPath, boolean overwrite, byte[] data, int byteCount) throws RestException, IOException;
 
+    /**
+     * Creates a new stream at the given path, with the remaining bytes of the given buffer as its contents.
+     * The buffer is sent as is, without copying it into a new array; it may be a slice of a larger array,
+     * a direct buffer, or a region of a file mapped with {@link java.nio.channels.FileChannel#map}.
+     * The position and limit of the buffer are left unchanged.
+     *
+     * @param streamPath The relative path to the stream.
+     * @param overwrite  Whether to overwrite an existing stream.
+     * @param data The data to include in the stream during creation, or null to create an empty stream.
+     * @throws IOException if the file does not exist or is inaccessible.
+     * @throws RestException if there is a failure communicating with the service.
+     */
+    void createStream(String streamPath, boolean overwrite, ByteBuffer data) throws RestException, IOException;
+
     /**
      * Deletes an existing stream at the given path.
      *
@@ -48,6 +64,20 @@ public interface FrontEndAdapter {
      */
     void appendToStream(String streamPath, byte[] data, long offset, int length) throws IOException, RestException;
 
+    /**
+     * Appends the remaining bytes of the given buffer to the end of a given stream.
+     * The buffer is sent as is, without copying it into a new array; it may be a slice of a larger array,
+     * a direct buffer, or a region of a file mapped with {@link java.nio.channels.FileChannel#map}.
+     * The position and limit of the buffer are left unchanged.
+     *
+     * @param streamPath The relative path to the stream.
+     * @param data The data to append to the stream.
+     * @param offset The offset at which to append to the stream.
+     * @throws IOException if the file does not exist or is inaccessible.
+     * @throws RestException if there is a failure communicating with the service.
+     */
+    void appendToStream(String streamPath, ByteBuffer data, long offset) throws IOException, RestException;
+
     /**
      * Determines if the stream with given path exists.
      *
@@ -68,6 +98,18 @@ public interface FrontEndAdapter {
      */
     long getStreamLength(String streamPath) throws IOException, RestException;
 
+    /**
+     * Opens the given range of a stream for reading.
+     * The returned stream must be closed by the caller; it may end before the range does if the stream is shorter than expected.
+     * @param streamPath The relative path to the stream.
+     * @param offset The offset in the stream at which to start reading.
+     * @param length The number of bytes to read, starting at offset.
+     * @return An {@link InputStream} of the bytes in the range.
+     * @throws IOException if the file does not exist or is inaccessible.
+     * @throws RestException if there is a failure communicating with the service.
+     */
+    InputStream readStream(String streamPath, long offset, long length) throws IOException, RestException;
+
     /**
      * Concatenates the given input streams (in order) into the given target stream.
      * At the end of this operation, input streams will be deleted.
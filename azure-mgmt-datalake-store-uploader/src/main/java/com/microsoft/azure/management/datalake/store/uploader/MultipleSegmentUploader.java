@@ -7,9 +7,14 @@ package com.microsoft.azure.management.datalake.store.uploader;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Uploads a local file in parallel by splitting it into several segments, according to the given metadata.
@@ -23,21 +28,39 @@ public class MultipleSegmentUploader implements Runnable {
     private UploadMetadata metadata;
     private FrontEndAdapter frontEnd;
     private int maxThreadCount;
+    private ExecutorService executorService;
     private Queue<SegmentQueueItem> pendingSegments;
     private List<Exception> exceptions;
+    private UploadProgressListener progressListener;
+    private UploadProgressTracker progressTracker;
+    private UploadAutoTuner autoTuner;
 
     /**
-     * Creates a new MultipleSegmentUploader.
+     * Creates a new MultipleSegmentUploader, which runs the upload on a thread pool of its own.
      *
      * @param uploadMetadata The metadata that keeps track of the file upload.
      * @param maxThreadCount The maximum number of threads to use. Note that in some cases, this number may not be reached.
      * @param frontEnd A pointer to the Front End interface to perform the upload to.
      */
     public MultipleSegmentUploader(UploadMetadata uploadMetadata, int maxThreadCount, FrontEndAdapter frontEnd) {
+        this(uploadMetadata, maxThreadCount, frontEnd, null);
+    }
+
+    /**
+     * Creates a new MultipleSegmentUploader, which runs the upload on the given executor.
+     *
+     * @param uploadMetadata The metadata that keeps track of the file upload.
+     * @param maxThreadCount The maximum number of segments to upload at the same time. Note that in some cases, this number may not be reached.
+     * @param frontEnd A pointer to the Front End interface to perform the upload to.
+     * @param executorService The executor to run the upload on, or null to use a thread pool of maxThreadCount threads created for each upload.
+     *                        The executor is not shut down by the uploader.
+     */
+    public MultipleSegmentUploader(UploadMetadata uploadMetadata, int maxThreadCount, FrontEndAdapter frontEnd, ExecutorService executorService) {
         metadata = uploadMetadata;
         this.maxThreadCount = maxThreadCount;
         this.frontEnd = frontEnd;
-        exceptions = new ArrayList<>();
+        this.executorService = executorService;
+        exceptions = Collections.synchronizedList(new ArrayList<Exception>());
         pendingSegments = getPendingSegmentsToUpload(metadata);
         this.useSegmentBlockBackOffRetryStrategy = true;
     }
@@ -65,6 +88,31 @@ public class MultipleSegmentUploader implements Runnable {
     public void setUseSegmentBlockBackOffRetryStrategy(boolean isEnabled) {
         useSegmentBlockBackOffRetryStrategy = isEnabled;
     }
+
+    /**
+     *
+     * @param progressListener The listener to notify of the progress of the upload, or null.
+     */
+    public void setProgressListener(UploadProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     *
+     * @param progressTracker The tracker to report the progress of the upload to; takes precedence over the progress listener.
+     */
+    void setProgressTracker(UploadProgressTracker progressTracker) {
+        this.progressTracker = progressTracker;
+    }
+
+    /**
+     *
+     * @param autoTuner The tuner that limits the number of appends in flight across the segments, or null to let every thread append freely.
+     */
+    void setAutoTuner(UploadAutoTuner autoTuner) {
+        this.autoTuner = autoTuner;
+    }
+
     /**
      * Executes the upload of the segments in the file that were not already uploaded (i.e., those that are in a 'Pending' state).
      *
@@ -73,19 +121,46 @@ public class MultipleSegmentUploader implements Runnable {
      */
     public void upload() throws InterruptedException, AggregateUploadException {
         int threadCount = Math.min(pendingSegments.size(), maxThreadCount);
-        List<Thread> threads = new ArrayList<>(threadCount);
+        if (progressTracker == null && progressListener != null) {
+            progressTracker = new UploadProgressTracker(metadata, progressListener);
+        }
 
-        //start a bunch of new threads that pull from the pendingSegments and then wait for them to finish
-        for (int i = 0; i < threadCount; i++) {
-            Thread t = new Thread(this);
-            t.start();
-            threads.add(t);
+        if (autoTuner != null) {
+            // there are never more appends in flight than threads uploading segments
+            autoTuner.limitMaxConcurrency(Math.max(threadCount, 1));
         }
 
-        for (Thread t : threads) {
-            t.join();
+        ExecutorService executor = executorService;
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(Math.max(threadCount, 1));
         }
 
+        //start a bunch of workers that pull from the pendingSegments and then wait for them to finish
+        List<Future<?>> workers = new ArrayList<>(threadCount);
+        try {
+            for (int i = 0; i < threadCount; i++) {
+                workers.add(executor.submit(this));
+            }
+
+            for (Future<?> worker : workers) {
+                try {
+                    worker.get();
+                } catch (ExecutionException e) {
+                    // workers record the failures of their segments; anything else is unexpected, but should be reported all the same
+                    exceptions.add(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+                }
+            }
+        } catch (InterruptedException e) {
+            for (Future<?> worker : workers) {
+                worker.cancel(true);
+            }
+
+            throw e;
+        } finally {
+            if (executor != executorService) {
+                executor.shutdown();
+            }
+        }
 
         // aggregate any exceptions and throw them back at our caller
         if (exceptions.size() > 0) {
@@ -100,14 +175,11 @@ public class MultipleSegmentUploader implements Runnable {
      * @param exceptions The exceptions.
      */
     private void processPendingSegments(Queue<SegmentQueueItem> pendingSegments, Collection<Exception> exceptions) {
-        while (pendingSegments.size() > 0) {
+        while (!Thread.currentThread().isInterrupted()) {
             //get the next item to process
-            SegmentQueueItem toProcess;
-            synchronized (pendingSegments) {
-                if (pendingSegments.size() == 0) {
-                    break;
-                }
-                toProcess = pendingSegments.remove();
+            SegmentQueueItem toProcess = pendingSegments.poll();
+            if (toProcess == null) {
+                break;
             }
 
             try {
@@ -116,14 +188,10 @@ public class MultipleSegmentUploader implements Runnable {
             } catch (Exception ex) {
                 if (toProcess.attemptCount + 1 < MAX_UPLOAD_ATTEMPT_COUNT) {
                     //re-enqueue at the end, but with an incremented attempt count
-                    synchronized (pendingSegments) {
-                        pendingSegments.add(new SegmentQueueItem(toProcess.segmentNumber, toProcess.attemptCount + 1));
-                    }
+                    pendingSegments.add(new SegmentQueueItem(toProcess.segmentNumber, toProcess.attemptCount + 1));
                 } else {
                     //keep track of the last exception for each segment and report it back
-                    synchronized (exceptions) {
-                        exceptions.add(ex);
-                    }
+                    exceptions.add(ex);
                 }
             }
         }
@@ -142,6 +210,8 @@ public class MultipleSegmentUploader implements Runnable {
 
         SingleSegmentUploader segmentUploader = new SingleSegmentUploader(segmentNumber, metadata, frontEnd);
         segmentUploader.setUseBackOffRetryStrategy(this.useSegmentBlockBackOffRetryStrategy);
+        segmentUploader.setProgressTracker(progressTracker);
+        segmentUploader.setAutoTuner(autoTuner);
 
         try {
             segmentUploader.upload();
@@ -161,7 +231,7 @@ public class MultipleSegmentUploader implements Runnable {
      * @return A queue containing the remaining pending segments to upload
      */
     private static Queue<SegmentQueueItem> getPendingSegmentsToUpload(UploadMetadata metadata) {
-        Queue<SegmentQueueItem> result = new LinkedList<>();
+        Queue<SegmentQueueItem> result = new ConcurrentLinkedQueue<>();
         for (UploadSegmentMetadata segment : metadata.getSegments()) {
             if (segment.getStatus() == SegmentUploadStatus.Pending) {
                 result.add(new SegmentQueueItem(segment.getSegmentNumber(), 0));
@@ -171,34 +241,23 @@ public class MultipleSegmentUploader implements Runnable {
     }
 
     /**
-     * Updates the segment metadata status.
+     * Updates the segment metadata status, appending the change to the journal of the metadata file.
      *
      * @param metadata The metadata.
      * @param segmentNumber The segment number.
      * @param newStatus The new status.
      */
     private static void updateSegmentMetadataStatus(UploadMetadata metadata, int segmentNumber, SegmentUploadStatus newStatus) {
-        UploadSegmentMetadata[] toSave = metadata.getSegments();
-        toSave[segmentNumber].setStatus(newStatus);
-        metadata.setSegments(toSave);
         try {
-            metadata.save();
+            metadata.recordSegmentStatus(segmentNumber, newStatus);
         } catch (Exception e) {
         } //no need to crash the program if were unable to save the metadata; it is what's in memory that's important
     }
 
     /**
-     * When an object implementing interface <code>Runnable</code> is used
-     * to create a thread, starting the thread causes the object's
-     * <code>run</code> method to be called in that separately executing
-     * thread.
-     * <p>
-     * The general contract of the method <code>run</code> is that it may
-     * take any action whatsoever.
-     *
-     * In this run, we are allowing each thread to attempt to process all
-     * of the remaining segments, which will ultimately result in each thread
-     * processing a subset of segments that are still in the queue.
+     * Processes pending segments until there are none left. The upload submits this
+     * to the executor once per worker; each worker ends up processing a subset of
+     * the segments that are in the queue.
      *
      * @see Thread#run()
      */
@@ -5,14 +5,24 @@
  */
 package com.microsoft.azure.management.datalake.store.uploader;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.lang3.StringUtils;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.text.MessageFormat;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Represents an uploader for a single segment of a larger file.
@@ -39,9 +49,22 @@ public class SingleSegmentUploader {
      */
     public static final int MAX_BUFFER_UPLOAD_ATTEMPT_COUNT = 4;
 
+    /**
+     * The default number of buffers a segment is read into, so that the next blocks are read from disk while the current one is uploaded.
+     */
+    public static final int DEFAULT_PIPELINE_DEPTH = 2;
+
+    /**
+     * The threads reading ahead from the input files.
+     */
+    private static final ExecutorService READER_EXECUTOR = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("adls-segment-reader-%d").build());
+
     private FrontEndAdapter frontEndAdapter;
     private UploadSegmentMetadata segmentMetadata;
     private UploadMetadata metadata;
+    private UploadProgressTracker progressTracker;
+    private UploadAutoTuner autoTuner;
 
     /**
      * Creates a new uploader for a single segment.
@@ -55,6 +78,7 @@ public class SingleSegmentUploader {
         segmentMetadata = uploadMetadata.getSegments()[segmentNumber];
         frontEndAdapter = frontEnd;
         this.useBackOffRetryStrategy = true;
+        this.pipelineDepth = DEFAULT_PIPELINE_DEPTH;
     }
 
     /**
@@ -81,10 +105,53 @@ public class SingleSegmentUploader {
         useBackOffRetryStrategy = isEnabled;
     }
 
+    /**
+     * The number of buffers of {@link #BUFFER_LENGTH} bytes that may be in use at once by this uploader.
+     * With a single buffer, reads and appends alternate; with more, up to that many blocks are read ahead of the one being appended.
+     */
+    private int pipelineDepth;
+
+    /**
+     *
+     * @return The number of buffers that may be in use at once by this uploader.
+     */
+    public int pipelineDepth() {
+        return pipelineDepth;
+    }
+
+    /**
+     *
+     * @param pipelineDepth The number of buffers that may be in use at once by this uploader. Must be at least 1.
+     */
+    public void setPipelineDepth(int pipelineDepth) {
+        if (pipelineDepth < 1) {
+            throw new IllegalArgumentException("The pipeline depth must be at least 1");
+        }
+
+        this.pipelineDepth = pipelineDepth;
+    }
+
+    /**
+     *
+     * @param progressTracker The tracker to report the uploaded blocks to, or null.
+     */
+    void setProgressTracker(UploadProgressTracker progressTracker) {
+        this.progressTracker = progressTracker;
+    }
+
+    /**
+     *
+     * @param autoTuner The tuner that limits the number of appends in flight across the upload and measures them, or null.
+     */
+    void setAutoTuner(UploadAutoTuner autoTuner) {
+        this.autoTuner = autoTuner;
+    }
+
     /**
      * Uploads the portion of the InputFilePath to the given TargetStreamPath, starting at the given StartOffset.
      * The segment is further divided into equally-sized blocks which are uploaded in sequence.
      * Each such block is attempted a certain number of times; if after that it still cannot be uploaded, the entire segment is aborted (in which case no cleanup is performed on the server).
+     * While a block is being uploaded, the following blocks are read ahead from the input file on a background thread.
      *
      * @throws Exception if there is any failure during the upload
      */
@@ -94,14 +161,19 @@ public class SingleSegmentUploader {
             throw new FileNotFoundException("Unable to locate input file: " + metadata.getInputFilePath());
         }
 
-        //open up a reader from the input file, seek to the appropriate offset
-        try (RandomAccessFile inputStream = openInputStream()) {
+        if (progressTracker != null) {
+            // the segment is (re)written from its start
+            progressTracker.segmentRestarted(segmentMetadata.getSegmentNumber());
+        }
+
+        //open up a channel to the input file; reads are positional, starting at the segment offset
+        try (FileChannel inputChannel = openInputChannel()) {
             long endPosition = segmentMetadata.getOffset() + segmentMetadata.getLength();
             if (endPosition > fileInfo.length()) {
                 throw new IllegalArgumentException("StartOffset+UploadLength is beyond the end of the input file");
             }
 
-            uploadSegmentContents(inputStream, endPosition);
+            uploadSegmentContents(inputChannel, endPosition);
 
             verifyUploadedStream();
             //any exceptions are (re)thrown to be handled by the caller; we do not handle retries or other recovery techniques here
@@ -137,44 +209,39 @@ public class SingleSegmentUploader {
     }
 
     /**
-     * Uploads the segment contents.
+     * Uploads the segment contents. The blocks are read by a {@link BlockReader} on a background thread
+     * and appended here, in the order in which they were read, so the reads overlap with the appends.
      *
-     * @param inputStream The input stream.
+     * @param inputChannel The input channel.
      * @param endPosition The end position.
      * @throws Exception if there is any failure attempting to upload the contents of a single segment.
      */
-    private void uploadSegmentContents(RandomAccessFile inputStream, long endPosition) throws Exception {
-        long bytesCopiedSoFar = 0; // we start off with a fresh stream
-
-        byte[] buffer = new byte[BUFFER_LENGTH];
-        int residualBufferLength = 0; //the number of bytes that remained in the buffer from the last upload (bytes which were not uploaded)
-
-        while (inputStream.getFilePointer() < endPosition) {
-            //read a block of data, and keep track of how many bytes are actually read
-            int bytesRead = readIntoBuffer(inputStream, buffer, residualBufferLength, endPosition);
-            int bufferDataLength = residualBufferLength + bytesRead;
+    private void uploadSegmentContents(FileChannel inputChannel, long endPosition) throws Exception {
+        BlockReader reader = new BlockReader(inputChannel, segmentMetadata.getOffset(), endPosition);
+        Future<?> readTask = READER_EXECUTOR.submit(reader);
+        try {
+            long bytesCopiedSoFar = 0; // we start off with a fresh stream
+            while (true) {
+                Block block = reader.readBlocks.take();
+                if (block.error != null) {
+                    throw block.error;
+                }
 
-            //determine the cutoff offset for upload - everything before will be uploaded, everything after is residual; (the position of the last record in this buffer)
-            int uploadCutoff = bufferDataLength;
-            if (!metadata.isBinary()) {
-                uploadCutoff = determineUploadCutoffForTextFile(buffer, bufferDataLength, inputStream);
-            }
+                if (block.buffer == null) {
+                    break;
+                }
 
-            bytesCopiedSoFar = uploadBuffer(buffer, uploadCutoff, bytesCopiedSoFar);
+                bytesCopiedSoFar = uploadBuffer(block.buffer, block.length, bytesCopiedSoFar);
+                if (progressTracker != null) {
+                    progressTracker.blockUploaded(segmentMetadata.getSegmentNumber(), block.length);
+                }
 
-            residualBufferLength = bufferDataLength - uploadCutoff;
-            if (residualBufferLength > 0) {
-                //move the remainder of the buffer to the front
-                System.arraycopy(buffer, uploadCutoff, buffer, 0, residualBufferLength);
+                reader.freeBuffers.offer(block.buffer);
             }
+        } finally {
+            // stops the reader if the upload failed; a no-op otherwise
+            readTask.cancel(true);
         }
-
-        //make sure we don't leave anything behind
-        if (residualBufferLength > 0) {
-            uploadBuffer(buffer, residualBufferLength, bytesCopiedSoFar);
-        }
-
-        buffer = null;
     }
 
     /**
@@ -182,17 +249,16 @@ public class SingleSegmentUploader {
      *
      * @param buffer The buffer.
      * @param bufferDataLength length of the buffer data.
-     * @param inputStream The input stream.
+     * @param position The position in the input file up to which data has been read.
      * @return The index within the buffer which indicates a record boundary cutoff for a single append request for a text file.
      * @throws UploadFailedException indicates that the upload failed for the specified reason.
-     * @throws IOException indicates the path is inaccessible or does not exist.
      */
-    private int determineUploadCutoffForTextFile(byte[] buffer, int bufferDataLength, RandomAccessFile inputStream) throws UploadFailedException, IOException {
+    private int determineUploadCutoffForTextFile(byte[] buffer, int bufferDataLength, long position) throws UploadFailedException {
         Charset encoding = Charset.forName(metadata.getEncodingName());
         //NOTE: we return an offset, but everywhere else below we treat it as a byte count; in order for that to work, we need to add 1 to the result of FindNewLine.
         int uploadCutoff = StringExtensions.findNewline(buffer, bufferDataLength - 1, bufferDataLength, true, encoding, metadata.getDelimiter()) + 1;
         if (uploadCutoff <= 0 && (metadata.getSegmentCount() > 1 || bufferDataLength >= MAX_RECORD_LENGTH)) {
-            throw new UploadFailedException(MessageFormat.format("Found a record that exceeds the maximum allowed record length around offset {0}", inputStream.getFilePointer()));
+            throw new UploadFailedException(MessageFormat.format("Found a record that exceeds the maximum allowed record length around offset {0}", position));
         }
 
         //a corner case here is when the newline is 2 chars long, and the first of those lands on the last byte of the buffer. If so, let's try to find another
@@ -222,12 +288,22 @@ public class SingleSegmentUploader {
         boolean uploadCompleted = false;
         while (!uploadCompleted && attemptCount < MAX_BUFFER_UPLOAD_ATTEMPT_COUNT) {
             attemptCount++;
+            //the tuner gate is taken outside of the retry handling, so an interruption while waiting for it is not retried
+            long appendStartNanos = autoTuner == null ? 0 : autoTuner.appendStarting();
             try {
-                if (targetStreamOffset == 0) {
-                    frontEndAdapter.createStream(segmentMetadata.getPath(), true, buffer, bytesToCopy);
-                } else {
-                    frontEndAdapter.appendToStream(segmentMetadata.getPath(), buffer, targetStreamOffset, bytesToCopy);
-
+                boolean appended = false;
+                try {
+                    if (targetStreamOffset == 0) {
+                        frontEndAdapter.createStream(segmentMetadata.getPath(), true, ByteBuffer.wrap(buffer, 0, bytesToCopy));
+                    } else {
+                        frontEndAdapter.appendToStream(segmentMetadata.getPath(), ByteBuffer.wrap(buffer, 0, bytesToCopy), targetStreamOffset);
+                    }
+
+                    appended = true;
+                } finally {
+                    if (autoTuner != null) {
+                        autoTuner.appendFinished(appendStartNanos, bytesToCopy, appended);
+                    }
                 }
 
                 uploadCompleted = true;
@@ -248,28 +324,29 @@ public class SingleSegmentUploader {
     /**
      * Reads the data into the buffer.
      *
-     * @param inputStream The stream to read data from.
+     * @param inputChannel The channel to read data from.
+     * @param position The position in the channel to begin reading.
      * @param buffer The buffer to read data into
      * @param bufferOffset The offset in the buffer to begin pushing data
      * @param streamEndPosition The last point in the stream to read.
      * @return The number of bytes read into the buffer.
-     * @throws IOException Thrown if there is an issue accessing the stream or the pointer to the file.
+     * @throws IOException Thrown if there is an issue accessing the channel or the file ends unexpectedly.
      */
-    private int readIntoBuffer(RandomAccessFile inputStream, byte[] buffer, int bufferOffset, long streamEndPosition) throws IOException {
+    private static int readIntoBuffer(FileChannel inputChannel, long position, byte[] buffer, int bufferOffset, long streamEndPosition) throws IOException {
         //read a block of data
         int bytesToRead = buffer.length - bufferOffset;
-        if (bytesToRead > streamEndPosition - inputStream.getFilePointer()) {
+        if (bytesToRead > streamEndPosition - position) {
             //last read may be smaller than previous reads; readjust # of bytes to read accordingly
-            bytesToRead = (int) (streamEndPosition - inputStream.getFilePointer());
+            bytesToRead = (int) (streamEndPosition - position);
         }
 
-        int remainingBytes = bytesToRead;
-
-        while (remainingBytes > 0) {
-            //Stream.Read may not read all the bytes we requested, so we need to retry until we filled up the entire buffer
-            int bytesRead = inputStream.read(buffer, bufferOffset, remainingBytes);
-            bufferOffset += bytesRead;
-            remainingBytes = bytesToRead - bufferOffset;
+        ByteBuffer target = ByteBuffer.wrap(buffer, bufferOffset, bytesToRead);
+        while (target.hasRemaining()) {
+            //FileChannel.read may not read all the bytes we requested, so we need to retry until we filled up the entire buffer
+            int bytesRead = inputChannel.read(target, position + target.position() - bufferOffset);
+            if (bytesRead < 0) {
+                throw new EOFException(MessageFormat.format("Unexpected end of the input file at offset {0}", position + target.position() - bufferOffset));
+            }
         }
 
         return bytesToRead;
@@ -293,20 +370,179 @@ public class SingleSegmentUploader {
     }
 
     /**
-     * Opens the input stream.
-     * @return A {@link RandomAccessFile} stream of the file being uploaded.
-     * @throws IOException Thrown if the input stream cannot be opened due to file accessibility or existence.
+     * Opens the input channel. Package-private so that tests can simulate a slow input.
+     * @return A {@link FileChannel} of the file being uploaded.
+     * @throws IOException Thrown if the input channel cannot be opened due to file accessibility or existence.
      */
-    private RandomAccessFile openInputStream() throws IOException {
-        RandomAccessFile stream = new RandomAccessFile(metadata.getInputFilePath(), "r");
+    FileChannel openInputChannel() throws IOException {
+        FileChannel channel = new RandomAccessFile(metadata.getInputFilePath(), "r").getChannel();
 
-        if (segmentMetadata.getOffset() >= stream.length()) {
+        if (segmentMetadata.getOffset() >= channel.size()) {
+            channel.close();
             throw new IllegalArgumentException("StartOffset is beyond the end of the input file");
         }
 
-        // always seek from the beginning of the file
-        stream.seek(0);
-        stream.seek(segmentMetadata.getOffset());
-        return stream;
+        return channel;
+    }
+
+    /**
+     * A block of the segment that was read from the input file and is ready to be appended.
+     */
+    private static final class Block {
+        /**
+         * The buffer holding the data, or null if this marks the end of the segment.
+         */
+        private final byte[] buffer;
+
+        /**
+         * The number of bytes at the start of the buffer to append.
+         */
+        private final int length;
+
+        /**
+         * The failure of the reader, if any.
+         */
+        private final Exception error;
+
+        /**
+         * Creates a new block.
+         *
+         * @param buffer The buffer holding the data.
+         * @param length The number of bytes to append.
+         * @param error The failure of the reader.
+         */
+        Block(byte[] buffer, int length, Exception error) {
+            this.buffer = buffer;
+            this.length = length;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Reads the segment from the input file into a bounded set of buffers, determining the record boundaries
+     * of text files as it goes. Buffers are handed to the uploader in order and recycled once appended.
+     */
+    private final class BlockReader implements Runnable {
+        /**
+         * The channel to read from.
+         */
+        private final FileChannel inputChannel;
+
+        /**
+         * The position in the input file of the next read.
+         */
+        private long position;
+
+        /**
+         * The end position of the segment.
+         */
+        private final long endPosition;
+
+        /**
+         * The number of buffers allocated so far; buffers are allocated lazily, up to the pipeline depth.
+         */
+        private int allocatedBuffers;
+
+        /**
+         * The buffers that have been appended and can be read into again.
+         */
+        private final BlockingQueue<byte[]> freeBuffers;
+
+        /**
+         * The blocks that have been read and are waiting to be appended.
+         */
+        private final BlockingQueue<Block> readBlocks;
+
+        /**
+         * Creates a new reader for the given range of the input file.
+         *
+         * @param inputChannel The channel to read from.
+         * @param startPosition The start position of the segment.
+         * @param endPosition The end position of the segment.
+         */
+        BlockReader(FileChannel inputChannel, long startPosition, long endPosition) {
+            this.inputChannel = inputChannel;
+            this.position = startPosition;
+            this.endPosition = endPosition;
+            this.freeBuffers = new ArrayBlockingQueue<>(pipelineDepth);
+            // one extra slot for the end (or failure) marker
+            this.readBlocks = new ArrayBlockingQueue<>(pipelineDepth + 1);
+        }
+
+        @Override
+        public void run() {
+            try {
+                readBlocks();
+                readBlocks.put(new Block(null, 0, null));
+            } catch (InterruptedException | ClosedByInterruptException e) {
+                // the upload was aborted; nobody is waiting for more blocks
+                return;
+            } catch (Exception e) {
+                readBlocks.offer(new Block(null, 0, e));
+            }
+        }
+
+        /**
+         * Reads the segment into buffers and queues them for the uploader.
+         *
+         * @throws Exception if the input cannot be read or a record is too long.
+         * @throws InterruptedException if the upload is aborted.
+         */
+        private void readBlocks() throws Exception {
+            byte[] buffer = acquireBuffer();
+            int residualBufferLength = 0; //the number of bytes that remained in the buffer from the last block (bytes which were not uploaded)
+
+            while (position < endPosition) {
+                //read a block of data, and keep track of how many bytes are actually read
+                int bytesRead = readIntoBuffer(inputChannel, position, buffer, residualBufferLength, endPosition);
+                position += bytesRead;
+                int bufferDataLength = residualBufferLength + bytesRead;
+
+                //determine the cutoff offset for upload - everything before will be uploaded, everything after is residual; (the position of the last record in this buffer)
+                int uploadCutoff = bufferDataLength;
+                if (!metadata.isBinary()) {
+                    uploadCutoff = determineUploadCutoffForTextFile(buffer, bufferDataLength, position);
+                }
+
+                residualBufferLength = bufferDataLength - uploadCutoff;
+                readBlocks.put(new Block(buffer, uploadCutoff, null));
+                if (position >= endPosition && residualBufferLength == 0) {
+                    return;
+                }
+
+                //move the remainder of the buffer to the front of the next one; the uploader only reads the bytes before the cutoff
+                byte[] nextBuffer = acquireBuffer();
+                if (residualBufferLength > 0) {
+                    System.arraycopy(buffer, uploadCutoff, nextBuffer, 0, residualBufferLength);
+                }
+
+                buffer = nextBuffer;
+            }
+
+            //make sure we don't leave anything behind
+            if (residualBufferLength > 0) {
+                readBlocks.put(new Block(buffer, residualBufferLength, null));
+            }
+        }
+
+        /**
+         * Gets a buffer to read into, waiting for the uploader to release one if the pipeline is full.
+         *
+         * @return The buffer.
+         * @throws InterruptedException if the upload is aborted.
+         */
+        private byte[] acquireBuffer() throws InterruptedException {
+            byte[] buffer = freeBuffers.poll();
+            if (buffer == null) {
+                if (allocatedBuffers < pipelineDepth) {
+                    allocatedBuffers++;
+                    return new byte[BUFFER_LENGTH];
+                }
+
+                buffer = freeBuffers.take();
+            }
+
+            return buffer;
+        }
     }
 }
@@ -12,9 +12,20 @@ import java.nio.charset.StandardCharsets;
 
 /**
  * A class of helpers to determine the location of record boundaries within byte arrays.
+ * The search is done directly on the encoded bytes, eight bytes at a time, and does not allocate.
  */
 public final class StringExtensions {
 
+    /**
+     * The low seven bits of every byte in a word; used to test all the bytes of a word for zero at once.
+     */
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+    /**
+     * The number of bytes tested at once by the word-at-a-time search.
+     */
+    private static final int WORD_SIZE = 8;
+
     private StringExtensions() {
         // empty constructor that should not be used.
     }
@@ -37,8 +48,11 @@ public final class StringExtensions {
 
         // define the bytes per character to use
         int bytesPerChar;
+        boolean littleEndian = false;
         if (encoding.equals(StandardCharsets.UTF_16) || encoding.equals(StandardCharsets.UTF_16BE) || encoding.equals(StandardCharsets.UTF_16LE)) {
+            // without a byte order mark, UTF-16 is decoded as big endian
             bytesPerChar = 2;
+            littleEndian = encoding.equals(StandardCharsets.UTF_16LE);
         } else if (encoding.equals(StandardCharsets.US_ASCII) || encoding.equals(StandardCharsets.UTF_8)) {
             bytesPerChar = 1;
         } else {
@@ -50,34 +64,13 @@ public final class StringExtensions {
             throw new IllegalArgumentException("The delimiter must only be a single character or unspecified to represent the CRLF delimiter");
         }
 
-        if (delimiter != null && !StringUtils.isEmpty(delimiter)) {
-            // convert the byte array back to a String
-            int startOfSegment = reverse ? startOffset - length + 1 : startOffset;
-            String bytesToString = new String(buffer, startOfSegment, length, encoding);
-            if (!bytesToString.contains(delimiter)) {
-                // didn't find the delimiter.
-                return -1;
-            }
-
-            // the index is returned, which is 0 based, so our loop must include the zero case.
-            int numCharsToDelim = reverse ? bytesToString.lastIndexOf(delimiter) : bytesToString.indexOf(delimiter);
-            int toReturn = 0;
-            for (int i = 0; i <= numCharsToDelim; i++) {
-                toReturn += Character.toString(bytesToString.charAt(startOfSegment + i)).getBytes(encoding).length;
-            }
-
-            // we get the total number of bytes, but we want to return the index (which starts at 0)
-            // so we subtract 1 from the total number of bytes to get the final byte index.
-            return toReturn - 1;
-        }
-
         //endOffset is a 'sentinel' value; we use that to figure out when to stop searching
         int endOffset = reverse ? startOffset - length : startOffset + length;
 
         // if we are starting at the end, we need to move toward the front enough to grab the right number of bytes
-        startOffset = reverse ? startOffset - (bytesPerChar - 1) : startOffset;
+        int firstCharOffset = reverse ? startOffset - (bytesPerChar - 1) : startOffset;
 
-        if (startOffset < 0 || startOffset >= buffer.length) {
+        if (firstCharOffset < 0 || startOffset >= buffer.length) {
             throw new IndexOutOfBoundsException("Given start offset is outside the bounds of the given buffer. In reverse cases, the start offset is modified to ensure we check the full size of the last character");
         }
 
@@ -90,67 +83,242 @@ public final class StringExtensions {
             throw new IndexOutOfBoundsException("Given combination of startOffset and length would execute the search outside the bounds of the given buffer.");
         }
 
-        int bufferEndOffset = reverse ? startOffset : startOffset + length;
-        int result = -1;
-        for (int charPos = startOffset; reverse ? charPos != endOffset : charPos + bytesPerChar - 1 < endOffset; charPos = reverse ? charPos - 1 : charPos + 1) {
-            char c;
-            if (bytesPerChar == 1) {
-                c = (char) buffer[charPos];
+        // the searched bytes are [from, to), in both directions
+        int from = reverse ? endOffset + 1 : startOffset;
+        int to = reverse ? startOffset + 1 : endOffset;
+
+        if (delimiter != null && !StringUtils.isEmpty(delimiter)) {
+            char delimiterChar = delimiter.charAt(0);
+            int pattern;
+            int patternLength;
+            int keyIndex = 0;
+            if (bytesPerChar == 2) {
+                // the low byte of the code unit is the more selective one, since the high byte of most text is zero
+                pattern = littleEndian ? delimiterChar : Character.reverseBytes(delimiterChar);
+                patternLength = 2;
+                keyIndex = littleEndian ? 0 : 1;
+            } else if (delimiterChar < 0x80) {
+                pattern = delimiterChar;
+                patternLength = 1;
+            } else if (encoding.equals(StandardCharsets.US_ASCII) || Character.isSurrogate(delimiterChar)) {
+                // the delimiter has no encoding in the buffer, so it cannot be found
+                return -1;
+            } else if (delimiterChar < 0x800) {
+                pattern = (0xC0 | delimiterChar >>> 6) | (0x80 | delimiterChar & 0x3F) << 8;
+                patternLength = 2;
+            } else {
+                pattern = (0xE0 | delimiterChar >>> 12) | (0x80 | delimiterChar >>> 6 & 0x3F) << 8 | (0x80 | delimiterChar & 0x3F) << 16;
+                patternLength = 3;
+            }
+
+            byte key = (byte) (pattern >>> (keyIndex * 8));
+            return reverse
+                    ? lastIndexOf(buffer, from, to, pattern, patternLength, keyIndex, key)
+                    : indexOf(buffer, from, to, pattern, patternLength, keyIndex, key);
+        }
+
+        // '\r' and '\n' only differ in the byte holding the character value, so both are searched for in a single pass
+        int pattern = littleEndian || bytesPerChar == 1 ? '\n' : '\n' << 8;
+        int keyIndex = littleEndian || bytesPerChar == 1 ? 0 : 1;
+        int result = reverse
+                ? lastIndexOf(buffer, from, to, pattern, bytesPerChar, keyIndex, (byte) '\r')
+                : indexOf(buffer, from, to, pattern, bytesPerChar, keyIndex, (byte) '\r');
+
+        if (!reverse && result >= 0 && result < endOffset - bytesPerChar
+                && matches(buffer, result + 1, pattern, bytesPerChar, keyIndex, (byte) '\r')) {
+            //we originally landed on a \r character; if we have a \r\n character, advance one position to include that
+            result += bytesPerChar;
+        }
+
+        return result;
+    }
+
+    /**
+     * Finds the first occurrence of an encoded character within the given range of the buffer.
+     *
+     * @param buffer The buffer to search in.
+     * @param from The index of the first byte to search.
+     * @param to The index after the last byte to search.
+     * @param pattern The encoded character, with its first byte in the lowest eight bits.
+     * @param patternLength The number of bytes in the encoded character.
+     * @param keyIndex The index, within the encoded character, of the byte that is scanned for.
+     * @param alternateKey A second value of the key byte that also matches; the other bytes are the same.
+     * @return The index of the last byte of the first occurrence, or -1 if not found.
+     */
+    private static int indexOf(byte[] buffer, int from, int to, int pattern, int patternLength, int keyIndex, byte alternateKey) {
+        byte key = (byte) (pattern >>> (keyIndex * 8));
+        int lastStart = to - patternLength;
+        while (from <= lastStart) {
+            int keyPosition = scanForward(buffer, from + keyIndex, lastStart + keyIndex + 1, key, alternateKey);
+            if (keyPosition < 0) {
+                return -1;
+            }
+
+            int start = keyPosition - keyIndex;
+            if (matches(buffer, start, pattern, patternLength, keyIndex, alternateKey)) {
+                return start + patternLength - 1;
             }
-            else {
-                String temp = new String(buffer, charPos, bytesPerChar, encoding);
-                if (StringUtils.isEmpty(temp)) {
-                    continue;
-                }
-                else {
-                    c = temp.toCharArray()[0];
-                }
+
+            from = start + 1;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Finds the last occurrence of an encoded character within the given range of the buffer.
+     *
+     * @param buffer The buffer to search in.
+     * @param from The index of the first byte to search.
+     * @param to The index after the last byte to search.
+     * @param pattern The encoded character, with its first byte in the lowest eight bits.
+     * @param patternLength The number of bytes in the encoded character.
+     * @param keyIndex The index, within the encoded character, of the byte that is scanned for.
+     * @param alternateKey A second value of the key byte that also matches; the other bytes are the same.
+     * @return The index of the last byte of the last occurrence, or -1 if not found.
+     */
+    private static int lastIndexOf(byte[] buffer, int from, int to, int pattern, int patternLength, int keyIndex, byte alternateKey) {
+        byte key = (byte) (pattern >>> (keyIndex * 8));
+        int lastStart = to - patternLength;
+        while (from <= lastStart) {
+            int keyPosition = scanReverse(buffer, from + keyIndex, lastStart + keyIndex + 1, key, alternateKey);
+            if (keyPosition < 0) {
+                return -1;
             }
 
-            if (isNewline(c, delimiter)) {
-                result = charPos + bytesPerChar - 1;
-                break;
+            int start = keyPosition - keyIndex;
+            if (matches(buffer, start, pattern, patternLength, keyIndex, alternateKey)) {
+                return start + patternLength - 1;
             }
+
+            lastStart = start - 1;
         }
 
-        if ((delimiter == null || StringUtils.isEmpty(delimiter)) && !reverse && result < bufferEndOffset - bytesPerChar) {
-            char c;
-            if (bytesPerChar == 1) {
-                c = (char) buffer[result + bytesPerChar];
+        return -1;
+    }
+
+    /**
+     * Determines whether the encoded character (or its alternate) starts at the given index of the buffer.
+     *
+     * @param buffer The buffer to check.
+     * @param start The index of the first byte of the candidate.
+     * @param pattern The encoded character, with its first byte in the lowest eight bits.
+     * @param patternLength The number of bytes in the encoded character.
+     * @param keyIndex The index, within the encoded character, of the byte that may take the alternate value.
+     * @param alternateKey A second value of the key byte that also matches.
+     * @return True if the bytes at the given index are the encoded character.
+     */
+    private static boolean matches(byte[] buffer, int start, int pattern, int patternLength, int keyIndex, byte alternateKey) {
+        for (int i = 0; i < patternLength; i++) {
+            byte expected = (byte) (pattern >>> (i * 8));
+            if (buffer[start + i] != expected && (i != keyIndex || buffer[start + i] != alternateKey)) {
+                return false;
             }
-            else {
-                String temp = new String(buffer, result + 1, bytesPerChar, encoding);
-                if (StringUtils.isEmpty(temp)) {
-                    // this can occur if the number of bytes for characters in the string result in an empty string (an invalid code for the given encoding)
-                    // in this case, that means that we are done for the default delimiter.
-                    return result;
-                }
-                else {
-                    c = temp.toCharArray()[0];
-                }
+        }
+
+        return true;
+    }
+
+    /**
+     * Finds the first byte in the given range that has either of the given values, testing a word at a time.
+     *
+     * @param buffer The buffer to search in.
+     * @param from The index of the first byte to search.
+     * @param to The index after the last byte to search.
+     * @param first The first value to search for.
+     * @param second The second value to search for (may be the same as the first).
+     * @return The index of the byte, or -1 if not found.
+     */
+    private static int scanForward(byte[] buffer, int from, int to, byte first, byte second) {
+        long firstWord = broadcast(first);
+        long secondWord = broadcast(second);
+        int i = from;
+        for (; i <= to - WORD_SIZE; i += WORD_SIZE) {
+            long word = readWord(buffer, i);
+            long found = zeroBytes(word ^ firstWord) | zeroBytes(word ^ secondWord);
+            if (found != 0) {
+                // the lowest byte of the word is the one at the lowest index
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
             }
+        }
 
-            if (isNewline(c, delimiter)) {
-                //we originally landed on a \r character; if we have a \r\n character, advance one position to include that
-                result += bytesPerChar;
+        for (; i < to; i++) {
+            if (buffer[i] == first || buffer[i] == second) {
+                return i;
             }
         }
 
-        return result;
+        return -1;
     }
 
     /**
-     * Determines whether the specified character is newline.
+     * Finds the last byte in the given range that has either of the given values, testing a word at a time.
      *
-     * @param c The character.
-     * @param delimiter The delimiter to use. If null or empty CR LF characters are used.
-     * @return
+     * @param buffer The buffer to search in.
+     * @param from The index of the first byte to search.
+     * @param to The index after the last byte to search.
+     * @param first The first value to search for.
+     * @param second The second value to search for (may be the same as the first).
+     * @return The index of the byte, or -1 if not found.
      */
-    private static boolean isNewline(char c, String delimiter) {
-        if ((delimiter == null || StringUtils.isEmpty(delimiter))) {
-            return c == '\r' || c == '\n';
+    private static int scanReverse(byte[] buffer, int from, int to, byte first, byte second) {
+        long firstWord = broadcast(first);
+        long secondWord = broadcast(second);
+        int i = to;
+        for (; i - WORD_SIZE >= from; i -= WORD_SIZE) {
+            long word = readWord(buffer, i - WORD_SIZE);
+            long found = zeroBytes(word ^ firstWord) | zeroBytes(word ^ secondWord);
+            if (found != 0) {
+                // the highest byte of the word is the one at the highest index
+                return i - 1 - (Long.numberOfLeadingZeros(found) >>> 3);
+            }
+        }
+
+        for (i--; i >= from; i--) {
+            if (buffer[i] == first || buffer[i] == second) {
+                return i;
+            }
         }
 
-        return c == delimiter.toCharArray()[0];
+        return -1;
+    }
+
+    /**
+     * Reads eight bytes of the buffer into a word, with the byte at the given index in the lowest eight bits.
+     *
+     * @param buffer The buffer to read from.
+     * @param index The index of the first byte to read.
+     * @return The word.
+     */
+    private static long readWord(byte[] buffer, int index) {
+        return (buffer[index] & 0xFFL)
+                | (buffer[index + 1] & 0xFFL) << 8
+                | (buffer[index + 2] & 0xFFL) << 16
+                | (buffer[index + 3] & 0xFFL) << 24
+                | (buffer[index + 4] & 0xFFL) << 32
+                | (buffer[index + 5] & 0xFFL) << 40
+                | (buffer[index + 6] & 0xFFL) << 48
+                | (buffer[index + 7] & 0xFFL) << 56;
+    }
+
+    /**
+     * Repeats the given byte in every byte of a word.
+     *
+     * @param value The byte to repeat.
+     * @return The word.
+     */
+    private static long broadcast(byte value) {
+        return (value & 0xFFL) * 0x0101010101010101L;
+    }
+
+    /**
+     * Sets the high bit of every byte of the word that is zero, and clears all the other bits.
+     * Unlike the usual (x - 0x01..) &amp; ~x trick, no borrow crosses bytes, so the result is exact for every byte.
+     *
+     * @param word The word to test.
+     * @return The word with the high bit set for each zero byte.
+     */
+    private static long zeroBytes(long word) {
+        return ~(((word & LOW_BITS) + LOW_BITS) | word | LOW_BITS);
     }
 }
@@ -0,0 +1,301 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.datalake.store.uploader;
+
+import com.google.common.base.Ticker;
+
+/**
+ * Tunes an upload while it runs: it limits the number of appends in flight at the same time and adjusts that limit
+ * (additive increase, multiplicative decrease) from the latency and throughput measured over windows of appends,
+ * and it chooses the segment count of new uploads so that the threads are kept busy.
+ * Decisions are reported to an {@link AutoTuneListener}.
+ */
+class UploadAutoTuner {
+
+    /**
+     * The number of appends allowed at the same time when the upload starts.
+     */
+    static final int INITIAL_CONCURRENCY = 2;
+
+    /**
+     * The number of segments to create per thread, so that a thread that finishes its segment early picks up another one
+     * instead of idling until the slowest segment completes.
+     */
+    static final int SEGMENTS_PER_THREAD = 2;
+
+    /**
+     * The largest number of segments the tuner splits a file into to keep the threads busy. Every segment is an input of the final
+     * concatenate request, which gets larger and slower as segments are added.
+     */
+    static final int MAX_CONCATENATE_FAN_IN = 256;
+
+    /**
+     * The smallest number of appends a measurement window is made of; a window also covers at least as many appends as the current limit.
+     */
+    static final int MIN_WINDOW_APPENDS = 4;
+
+    /**
+     * The relative throughput gain over the previous window above which raising the limit is considered to have helped.
+     */
+    static final double THROUGHPUT_GAIN_THRESHOLD = 0.1;
+
+    /**
+     * The factor by which the average append latency of a window must exceed the lowest one observed for the limit to be cut,
+     * when it comes without a throughput gain (the appends are then queuing rather than running in parallel).
+     */
+    static final double LATENCY_INFLATION_THRESHOLD = 2.0;
+
+    /**
+     * The number of windows without a change after which the limit is raised by one anyway, to find out whether the available bandwidth grew.
+     */
+    static final int PROBE_INTERVAL_WINDOWS = 8;
+
+    private final AutoTuneListener listener;
+
+    private final Ticker ticker;
+
+    private int maxConcurrency;
+
+    private int concurrencyLimit;
+
+    private int inFlightCount;
+
+    private boolean slowStart;
+
+    private long lastDecreaseNanos;
+
+    private long windowStartNanos;
+
+    private int windowAppendCount;
+
+    private long windowByteCount;
+
+    private long windowLatencyNanos;
+
+    private int windowsSinceChange;
+
+    private double previousThroughput;
+
+    private double minLatencyMillis;
+
+    /**
+     * Creates a new tuner.
+     *
+     * @param maxConcurrency The maximum number of appends to allow at the same time (the thread count of the upload).
+     * @param listener The listener to notify of the decisions made, or null.
+     */
+    UploadAutoTuner(int maxConcurrency, AutoTuneListener listener) {
+        this(maxConcurrency, listener, Ticker.systemTicker());
+    }
+
+    /**
+     * Creates a new tuner which measures time with the given ticker.
+     *
+     * @param maxConcurrency The maximum number of appends to allow at the same time (the thread count of the upload).
+     * @param listener The listener to notify of the decisions made, or null.
+     * @param ticker The source of the time measurements.
+     */
+    UploadAutoTuner(int maxConcurrency, AutoTuneListener listener, Ticker ticker) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("The maximum concurrency must be at least 1");
+        }
+
+        this.maxConcurrency = maxConcurrency;
+        this.listener = listener;
+        this.ticker = ticker;
+        this.concurrencyLimit = Math.min(INITIAL_CONCURRENCY, maxConcurrency);
+        this.slowStart = true;
+        this.windowStartNanos = -1;
+        this.lastDecreaseNanos = Long.MIN_VALUE;
+    }
+
+    /**
+     *
+     * @return The number of appends currently allowed at the same time.
+     */
+    synchronized int getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    /**
+     * Lowers the maximum number of appends allowed at the same time, e.g. when there are fewer segments to upload than threads.
+     *
+     * @param maxConcurrency The new maximum; ignored if it is not lower than the current one.
+     */
+    synchronized void limitMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = Math.max(1, Math.min(this.maxConcurrency, maxConcurrency));
+        this.concurrencyLimit = Math.min(concurrencyLimit, this.maxConcurrency);
+    }
+
+    /**
+     * Chooses the number of segments to split a new upload into. The default segment count is raised so that every thread has
+     * {@link #SEGMENTS_PER_THREAD} segments to upload, as long as each segment stays at least {@link UploadSegmentMetadata#MINIMUM_SEGMENT_SIZE}
+     * bytes long and there are no more than {@link #MAX_CONCATENATE_FAN_IN} segments; it is never lowered.
+     *
+     * @param fileLength The length of the file to upload.
+     * @param defaultSegmentCount The segment count the upload would use without auto-tuning.
+     * @return The segment count to use.
+     */
+    synchronized int chooseSegmentCount(long fileLength, int defaultSegmentCount) {
+        if (defaultSegmentCount == 0) {
+            //empty file => no segments
+            return 0;
+        }
+
+        long maxSegmentCount = Math.min(MAX_CONCATENATE_FAN_IN, Math.max(1, fileLength / UploadSegmentMetadata.MINIMUM_SEGMENT_SIZE));
+        int segmentCount = (int) Math.max(defaultSegmentCount, Math.min((long) maxConcurrency * SEGMENTS_PER_THREAD, maxSegmentCount));
+
+        String reason = segmentCount > defaultSegmentCount
+                ? "raised to keep all the threads busy"
+                : "the default segment count already keeps all the threads busy, or cannot be raised further";
+        notifyListener(new AutoTuneDecision(AutoTuneAction.SegmentCountChosen, defaultSegmentCount, segmentCount, 0, 0, reason));
+        return segmentCount;
+    }
+
+    /**
+     * Waits until one more append is allowed to run and claims it.
+     *
+     * @return The time the append started at, to be passed on to {@link #appendFinished(long, int, boolean)}.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    synchronized long appendStarting() throws InterruptedException {
+        while (inFlightCount >= concurrencyLimit) {
+            wait();
+        }
+
+        inFlightCount++;
+        long now = ticker.read();
+        if (windowStartNanos < 0) {
+            windowStartNanos = now;
+        }
+
+        return now;
+    }
+
+    /**
+     * Records the outcome of an append claimed through {@link #appendStarting()}, and adjusts the concurrency limit when
+     * a measurement window is complete or when the append failed.
+     *
+     * @param startNanos The time the append started at.
+     * @param byteCount The number of bytes appended.
+     * @param succeeded Whether the append succeeded.
+     */
+    synchronized void appendFinished(long startNanos, int byteCount, boolean succeeded) {
+        inFlightCount--;
+        long now = ticker.read();
+        try {
+            if (!succeeded) {
+                //failures (throttling, timeouts) are the clearest sign of congestion; only the first of the appends that were running
+                //together when it happened cuts the limit, the others failed under the same conditions
+                if (startNanos >= lastDecreaseNanos) {
+                    decrease(now, 0, 0, "an append failed");
+                }
+
+                return;
+            }
+
+            windowAppendCount++;
+            windowByteCount += byteCount;
+            windowLatencyNanos += now - startNanos;
+            if (windowAppendCount >= Math.max(MIN_WINDOW_APPENDS, concurrencyLimit)) {
+                evaluateWindow(now);
+            }
+        } finally {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Adjusts the concurrency limit from the measurements of the window that just completed, and starts a new window.
+     *
+     * @param now The current time.
+     */
+    private void evaluateWindow(long now) {
+        double throughput = windowByteCount / (Math.max(1, now - windowStartNanos) / 1e9);
+        double latencyMillis = windowLatencyNanos / 1e6 / windowAppendCount;
+        if (minLatencyMillis == 0 || latencyMillis < minLatencyMillis) {
+            minLatencyMillis = latencyMillis;
+        }
+
+        boolean gained = previousThroughput == 0 || throughput >= previousThroughput * (1 + THROUGHPUT_GAIN_THRESHOLD);
+        previousThroughput = throughput;
+        resetWindow(now);
+
+        if (!gained && latencyMillis > minLatencyMillis * LATENCY_INFLATION_THRESHOLD) {
+            decrease(now, throughput, latencyMillis, "the append latency rose without a throughput gain");
+        } else if (gained) {
+            increase(throughput, latencyMillis, "the throughput grew with the concurrency");
+        } else {
+            //the throughput has leveled off; keep the limit, but probe for more bandwidth once in a while
+            slowStart = false;
+            windowsSinceChange++;
+            if (windowsSinceChange >= PROBE_INTERVAL_WINDOWS) {
+                increase(throughput, latencyMillis, "probing for more bandwidth");
+            }
+        }
+    }
+
+    /**
+     * Raises the concurrency limit: doubles it until the throughput levels off for the first time, adds one after that.
+     *
+     * @param throughput The throughput measured, in bytes per second.
+     * @param latencyMillis The average append latency measured, in milliseconds.
+     * @param reason The reason of the increase.
+     */
+    private void increase(double throughput, double latencyMillis, String reason) {
+        windowsSinceChange = 0;
+        int previousLimit = concurrencyLimit;
+        concurrencyLimit = Math.min(maxConcurrency, slowStart ? concurrencyLimit * 2 : concurrencyLimit + 1);
+        if (concurrencyLimit != previousLimit) {
+            notifyListener(new AutoTuneDecision(AutoTuneAction.ConcurrencyIncreased, previousLimit, concurrencyLimit, throughput, latencyMillis, reason));
+        }
+    }
+
+    /**
+     * Halves the concurrency limit and discards the measurements of the current window, which were taken at the old limit.
+     *
+     * @param now The current time.
+     * @param throughput The throughput measured, in bytes per second, or 0.
+     * @param latencyMillis The average append latency measured, in milliseconds, or 0.
+     * @param reason The reason of the decrease.
+     */
+    private void decrease(long now, double throughput, double latencyMillis, String reason) {
+        slowStart = false;
+        windowsSinceChange = 0;
+        lastDecreaseNanos = now;
+        previousThroughput = 0;
+        resetWindow(now);
+
+        int previousLimit = concurrencyLimit;
+        concurrencyLimit = Math.max(1, concurrencyLimit / 2);
+        if (concurrencyLimit != previousLimit) {
+            notifyListener(new AutoTuneDecision(AutoTuneAction.ConcurrencyDecreased, previousLimit, concurrencyLimit, throughput, latencyMillis, reason));
+        }
+    }
+
+    /**
+     * Starts a new measurement window.
+     *
+     * @param now The current time.
+     */
+    private void resetWindow(long now) {
+        windowStartNanos = now;
+        windowAppendCount = 0;
+        windowByteCount = 0;
+        windowLatencyNanos = 0;
+    }
+
+    /**
+     * Notifies the listener, if any, of a decision.
+     *
+     * @param decision The decision.
+     */
+    private void notifyListener(AutoTuneDecision decision) {
+        if (listener != null) {
+            listener.decisionMade(decision);
+        }
+    }
+}
@@ -7,6 +7,8 @@ package com.microsoft.azure.management.datalake.store.uploader;
 
 import org.apache.commons.lang3.StringUtils;
 
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -16,7 +18,10 @@ import java.io.InvalidObjectException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.text.MessageFormat;
 import java.util.BitSet;
 import java.util.UUID;
@@ -25,7 +30,15 @@ import java.util.UUID;
  * Represents general metadata pertaining to an upload.
  */
 public class UploadMetadata implements Serializable {
-    private static Object saveSync = new Object();
+    /**
+     * The serialization version, pinned to the one computed for the previous releases so that their metadata files can still be resumed.
+     */
+    private static final long serialVersionUID = -2838446203405128809L;
+
+    /**
+     * The suffix of the journal file, next to the metadata file, to which the segment status changes made since the last save are appended.
+     */
+    private static final String JOURNAL_SUFFIX = ".journal";
 
     /**
      * Constructs a new UploadMetadata from the given parameters.
@@ -34,6 +47,17 @@ public class UploadMetadata implements Serializable {
      * @param uploadParameters The parameters to use for constructing this metadata.
      */
     public UploadMetadata(String metadataFilePath, UploadParameters uploadParameters) {
+        this(metadataFilePath, uploadParameters, null);
+    }
+
+    /**
+     * Constructs a new UploadMetadata from the given parameters, letting the given tuner choose the segment count.
+     *
+     * @param metadataFilePath The file path to assign to this metadata file (for saving purposes).
+     * @param uploadParameters The parameters to use for constructing this metadata.
+     * @param autoTuner The tuner to choose the segment count, or null to use the default segment count.
+     */
+    UploadMetadata(String metadataFilePath, UploadParameters uploadParameters, UploadAutoTuner autoTuner) {
         this.metadataFilePath = metadataFilePath;
 
         this.uploadId = UUID.randomUUID().toString();
@@ -68,6 +92,10 @@ public class UploadMetadata implements Serializable {
         // This is the size that ensures we have the optimal storage creation in the store.
         int preliminarySegmentCount = (int) Math.ceil((double) fileInfo.length() / uploadParameters.getMaxSegementLength());
         this.segmentCount = Math.min(preliminarySegmentCount, UploadSegmentMetadata.calculateSegmentCount(fileInfo.length()));
+        if (autoTuner != null) {
+            this.segmentCount = autoTuner.chooseSegmentCount(fileInfo.length(), this.segmentCount);
+        }
+
         this.segmentLength = UploadSegmentMetadata.calculateSegmentLength(fileInfo.length(), this.segmentCount);
 
         this.segments = new UploadSegmentMetadata[this.segmentCount];
@@ -319,6 +347,7 @@ public class UploadMetadata implements Serializable {
             in.close();
             fileIn.close();
             result.metadataFilePath = filePath;
+            result.replayJournal();
             return result;
         } catch (Exception ex) {
             throw new InvalidMetadataException("Unable to parse metadata file", ex);
@@ -326,12 +355,67 @@ public class UploadMetadata implements Serializable {
     }
 
     /**
-     * Saves the given metadata to its canonical location. This method is thread-safe.
+     * Records a new status for a segment: updates it in memory and appends it to the journal of the metadata file,
+     * rather than saving the entire metadata again. This method is thread-safe.
+     *
+     * @param segmentNumber The segment number.
+     * @param status The new status of the segment.
+     * @throws IOException Thrown if the journal cannot be written to, or the metadata file path has not yet been set.
+     */
+    public synchronized void recordSegmentStatus(int segmentNumber, SegmentUploadStatus status) throws IOException {
+        this.segments[segmentNumber].setStatus(status);
+        if (this.metadataFilePath == null || StringUtils.isEmpty(this.metadataFilePath)) {
+            throw new InvalidObjectException("Null or empty metadataFilePath. Cannot record the segment status until this property is set.");
+        }
+
+        try (FileOutputStream out = new FileOutputStream(getJournalFilePath(), true)) {
+            // a single write per record, so that a crash can at worst leave the last record incomplete
+            out.write(ByteBuffer.allocate(5).putInt(segmentNumber).put((byte) status.ordinal()).array());
+        }
+    }
+
+    /**
+     * Applies the segment status changes recorded in the journal since the last save, if any.
+     * An incomplete or invalid record ends the journal.
+     *
+     * @throws IOException Thrown if the journal cannot be read.
+     */
+    private void replayJournal() throws IOException {
+        File journal = new File(getJournalFilePath());
+        if (!journal.exists()) {
+            return;
+        }
+
+        SegmentUploadStatus[] statuses = SegmentUploadStatus.values();
+        try (DataInputStream in = new DataInputStream(new FileInputStream(journal))) {
+            while (true) {
+                int segmentNumber = in.readInt();
+                int status = in.readByte();
+                if (segmentNumber < 0 || segmentNumber >= this.segments.length || status < 0 || status >= statuses.length) {
+                    return;
+                }
+
+                this.segments[segmentNumber].setStatus(statuses[status]);
+            }
+        } catch (EOFException e) {
+            // end of the journal
+        }
+    }
+
+    /**
+     * @return The path of the journal file of this metadata.
+     */
+    private String getJournalFilePath() {
+        return this.metadataFilePath + JOURNAL_SUFFIX;
+    }
+
+    /**
+     * Saves the given metadata to its canonical location, replacing the previous version and its journal. This method is thread-safe.
      *
      * @throws IOException Thrown if the file cannot be saved due to accessibility or there is an error saving the stream to disk.
      * @throws InvalidMetadataException Thrown if the metadata is invalid.
      */
-    public void save() throws IOException, InvalidMetadataException {
+    public synchronized void save() throws IOException, InvalidMetadataException {
         if (this.metadataFilePath == null || StringUtils.isEmpty(this.metadataFilePath)) {
             throw new InvalidObjectException("Null or empty metadataFilePath. Cannot save metadata until this property is set.");
         }
@@ -339,26 +423,22 @@ public class UploadMetadata implements Serializable {
         //quick check to ensure that the metadata we constructed is sane
         this.validateConsistency();
 
-        synchronized (saveSync) {
-            File curMetadata = new File(this.metadataFilePath);
-            if (curMetadata.exists()) {
-                curMetadata.delete();
-            }
+        // always create the full path to the file, since this will not throw if it already exists.
+        File curMetadata = new File(this.metadataFilePath);
+        curMetadata.getAbsoluteFile().getParentFile().mkdirs();
 
-            // always create the full path to the file, since this will not throw if it already exists.
-            curMetadata.getParentFile().mkdirs();
-            curMetadata.createNewFile();
-            try {
-                FileOutputStream fileOut =
-                        new FileOutputStream(this.metadataFilePath);
-                ObjectOutputStream out = new ObjectOutputStream(fileOut);
-                out.writeObject(this);
-                out.close();
-                fileOut.close();
-            } catch (Exception ex) {
-                throw new InvalidMetadataException("Unable to parse metadata object and write it to a file", ex);
-            }
+        // write the new version next to the current one, so that the current one stays intact if this fails
+        File newMetadata = new File(this.metadataFilePath + ".tmp");
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(newMetadata))) {
+            out.writeObject(this);
+        } catch (Exception ex) {
+            newMetadata.delete();
+            throw new InvalidMetadataException("Unable to parse metadata object and write it to a file", ex);
         }
+
+        // the journal applies to the current version only; dropping it first means a crash leaves an older, but consistent, state behind
+        new File(getJournalFilePath()).delete();
+        Files.move(newMetadata.toPath(), curMetadata.toPath(), StandardCopyOption.REPLACE_EXISTING);
     }
 
     /**
@@ -366,7 +446,7 @@ public class UploadMetadata implements Serializable {
      *
      * @throws InvalidObjectException Thrown if the metadata file path has not yet been set.
      */
-    public void deleteFile() throws InvalidObjectException {
+    public synchronized void deleteFile() throws InvalidObjectException {
         if (this.metadataFilePath == null || StringUtils.isEmpty(this.metadataFilePath)) {
             throw new InvalidObjectException("Null or empty metadataFilePath. Cannot delete metadata until this property is set.");
         }
@@ -375,6 +455,11 @@ public class UploadMetadata implements Serializable {
         if (curMetadata.exists()) {
             curMetadata.delete();
         }
+
+        File journal = new File(getJournalFilePath());
+        if (journal.exists()) {
+            journal.delete();
+        }
     }
 
     /**
@@ -5,14 +5,28 @@
  */
 package com.microsoft.azure.management.datalake.store.uploader;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 
+import java.io.EOFException;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * An internally used class for generating the metadata used for upload.
@@ -21,6 +35,7 @@ public class UploadMetadataGenerator {
 
     private UploadParameters parameters;
     private int maxAppendLength;
+    private UploadAutoTuner autoTuner;
 
     /**
      * Creates a new instance of the UploadMetadataGenerator with the given parameters and the default maximum append length.
@@ -42,6 +57,14 @@ public class UploadMetadataGenerator {
         this.maxAppendLength = maxAppendLength;
     }
 
+    /**
+     *
+     * @param autoTuner The tuner to choose the segment count of new metadata, or null to use the default segment count.
+     */
+    void setAutoTuner(UploadAutoTuner autoTuner) {
+        this.autoTuner = autoTuner;
+    }
+
     /**
      * Attempts to load the metadata from an existing file in its canonical location.
      *
@@ -69,7 +92,7 @@ public class UploadMetadataGenerator {
     public UploadMetadata createNewMetadata(String metadataFilePath) throws IOException, UploadFailedException, InvalidMetadataException {
         //determine segment count, segment length and upload Id
         //create metadata
-        UploadMetadata metadata = new UploadMetadata(metadataFilePath, parameters);
+        UploadMetadata metadata = new UploadMetadata(metadataFilePath, parameters, autoTuner);
 
         if (!parameters.isBinary() && metadata.getSegmentCount() > 1) {
             this.alignSegmentsToRecordBoundaries(metadata);
@@ -90,40 +113,48 @@ public class UploadMetadataGenerator {
      * @throws UploadFailedException Thrown if the length adjustment cannot be determined.
      */
     private void alignSegmentsToRecordBoundaries(UploadMetadata metadata) throws IOException, UploadFailedException {
+        UploadSegmentMetadata[] segments = metadata.getSegments();
+
+        //the end of each segment is searched for around where it was originally placed, regardless of how the segments before it were adjusted,
+        //so all the boundaries can be searched for at the same time
+        long[] referenceFileOffsets = new long[segments.length - 1];
+        for (int i = 0; i < referenceFileOffsets.length; i++) {
+            referenceFileOffsets[i] = segments[i].getOffset() + segments[i].getLength();
+        }
+
+        RecordBoundarySearch search = new RecordBoundarySearch(metadata, referenceFileOffsets);
+        search.run(Math.max(1, Math.min(parameters.getThreadCount(), referenceFileOffsets.length)));
+
         int remainingSegments = 0;
+        long offset = 0;
+        for (int i = 0; i < segments.length; i++) {
+            UploadSegmentMetadata segment = segments[i];
 
-        try (RandomAccessFile stream = new RandomAccessFile(metadata.getInputFilePath(), "r")) {
-            long offset = 0;
-            for (int i = 0; i < metadata.getSegments().length; i++) {
-                UploadSegmentMetadata segment = metadata.getSegments()[i];
-
-                //updating segment lengths means that both the offset and the length of the next segment needs to be recalculated, to keep the segment lengths somewhat balanced
-                long diff = segment.getOffset() - offset;
-                segment.setOffset(offset);
-                segment.setLength(segment.getLength() + diff);
-                if (segment.getOffset() >= metadata.getFileLength()) {
-                    continue;
-                }
+            //updating segment lengths means that both the offset and the length of the next segment needs to be recalculated, to keep the segment lengths somewhat balanced
+            long diff = segment.getOffset() - offset;
+            segment.setOffset(offset);
+            segment.setLength(segment.getLength() + diff);
+            if (segment.getOffset() >= metadata.getFileLength()) {
+                continue;
+            }
 
-                if (segment.getSegmentNumber() == metadata.getSegments().length - 1) {
-                    //last segment picks up the slack
-                    segment.setLength(metadata.getFileLength() - segment.getOffset());
-                } else {
-                    //figure out how much do we need to adjust the length of the segment so it ends on a record boundary (this can be negative or positive)
-                    int lengthAdjustment = determineLengthAdjustment(segment, stream, Charset.forName(metadata.getEncodingName()), metadata.getDelimiter()) + 1;
+            if (segment.getSegmentNumber() == segments.length - 1) {
+                //last segment picks up the slack
+                segment.setLength(metadata.getFileLength() - segment.getOffset());
+            } else {
+                //figure out how much do we need to adjust the length of the segment so it ends on a record boundary (this can be negative or positive)
+                int lengthAdjustment = search.getLengthAdjustment(i) + 1;
 
-                    //adjust segment length and offset
-                    segment.setLength(segment.getLength() + lengthAdjustment);
-                }
-                offset += segment.getLength();
-                remainingSegments++;
+                //adjust segment length and offset
+                segment.setLength(segment.getLength() + lengthAdjustment);
             }
+            offset += segment.getLength();
+            remainingSegments++;
         }
 
         //since we adjusted the segment lengths, it's possible that the last segment(s) became of zero length; so remove it
-        UploadSegmentMetadata[] segments = metadata.getSegments();
         if (remainingSegments < segments.length) {
-            ArrayUtils.subarray(segments, 0, remainingSegments);
+            segments = ArrayUtils.subarray(segments, 0, remainingSegments);
             metadata.setSegments(segments);
             metadata.setSegmentCount(segments.length);
         }
@@ -132,25 +163,30 @@ public class UploadMetadataGenerator {
     }
 
     /**
-     * Calculates the value by which we'd need to adjust the length of the given segment, by searching for the nearest newline around it (before and after),
+     * Calculates the value by which we'd need to adjust the length of a segment ending at the given file offset, by searching for the nearest newline around it (before and after),
      * and returning the distance to it (which can be positive, if after, or negative, if before).
      *
-     * @param segment The segment to do the calculation on.
-     * @param stream The full stream used to figure out the adjustment
+     * @param segmentNumber The number of the segment to do the calculation on.
+     * @param referenceFileOffset The file offset the segment currently ends at.
+     * @param channel The file channel used to figure out the adjustment.
+     * @param fileLength The length of the file.
+     * @param buffer The buffer to read the data around the reference file offset into; its length is the maximum append length.
      * @param encoding The encoding to use to determine where the cutoffs are
      * @param delimiter The delimiter that determines how we adjust. If null then '\\r', \\n' and '\\r\\n' are used.
      * @return How much to adjust the segment length by.
      * @throws UploadFailedException Thrown if proper upload boundaries cannot be determined.
-     * @throws IOException Thrown if the stream being used is invalid or inaccessible.
+     * @throws IOException Thrown if the file being used is invalid or inaccessible.
      */
-    private int determineLengthAdjustment(UploadSegmentMetadata segment, RandomAccessFile stream, Charset encoding, String delimiter) throws UploadFailedException, IOException {
-        long referenceFileOffset = segment.getOffset() + segment.getLength();
-        byte[] buffer = new byte[maxAppendLength];
-
+    private int determineLengthAdjustment(int segmentNumber, long referenceFileOffset, FileChannel channel, long fileLength, byte[] buffer, Charset encoding, String delimiter) throws UploadFailedException, IOException {
         //read 2MB before the segment boundary and 2MB after (for a total of 4MB = max append length)
-        int bytesRead = readIntoBufferAroundReference(stream, buffer, referenceFileOffset);
-        if (bytesRead > 0) {
-            int middlePoint = bytesRead / 2;
+        long fileStartOffset = Math.max(0, referenceFileOffset - buffer.length / 2);
+        int bytesRead = (int) Math.max(0, Math.min(buffer.length, fileLength - fileStartOffset));
+        if (bytesRead > 1) {
+            readIntoBuffer(channel, fileStartOffset, buffer, bytesRead);
+
+            //the reference offset is in the middle of the buffer, unless the buffer was cut short by the beginning or the end of the file
+            int middlePoint = (int) Math.min(referenceFileOffset - fileStartOffset, bytesRead - 2);
+
             //search for newline in it
             int newLinePosBefore = StringExtensions.findNewline(buffer, middlePoint + 1, middlePoint + 1, true, encoding, delimiter);
 
@@ -163,8 +199,8 @@ public class UploadMetadataGenerator {
                 }
             }
 
-            int newLinePosAfter = StringExtensions.findNewline(buffer, middlePoint, middlePoint, false, encoding, delimiter);
-            if ((delimiter == null || StringUtils.isEmpty(delimiter)) && newLinePosAfter == buffer.length - 1 && buffer[newLinePosAfter] == (byte) '\r' && newLinePosBefore >= 0) {
+            int newLinePosAfter = StringExtensions.findNewline(buffer, middlePoint, bytesRead - middlePoint, false, encoding, delimiter);
+            if ((delimiter == null || StringUtils.isEmpty(delimiter)) && newLinePosAfter == bytesRead - 1 && buffer[newLinePosAfter] == (byte) '\r' && newLinePosBefore >= 0) {
                 newLinePosAfter = -1;
             }
 
@@ -180,10 +216,10 @@ public class UploadMetadataGenerator {
         throw new UploadFailedException(
                 MessageFormat.format(
                         "Unable to locate a record boundary within {0}MB on either side of segment {1} (offset {2}). This means the record at that offset is larger than {0}MB.",
-                        maxAppendLength / 1024 / 1024 / 2,
-                        segment.getSegmentNumber(),
-                        segment.getOffset(),
-                        maxAppendLength / 1024 / 1024));
+                        buffer.length / 1024 / 1024 / 2,
+                        segmentNumber,
+                        referenceFileOffset,
+                        buffer.length / 1024 / 1024));
     }
 
     /**
@@ -208,45 +244,112 @@ public class UploadMetadataGenerator {
     }
 
     /**
-     * Reads data from the given file into the given buffer, centered around the given file offset. The first half of the buffer will be
-     * filled with data right before the given offset, while the remainder of the buffer will contain data right after it (of course, containing the byte at the given offset).
-     * @param stream The stream to read from
-     * @param buffer The buffer to read data into
-     * @param fileReferenceOffset The offset to start reading from in the stream.
-     * @return The number of bytes reads, which could be less than the length of the input buffer if we can't read due to the beginning or the end of the file.
-     * @throws IOException Thrown if the stream being used is invalid or inaccessible.
+     * Reads the given range of the file into the given buffer. Reads are positional, so several threads can read from the same channel at once.
+     *
+     * @param channel The channel to read from.
+     * @param fileStartOffset The offset of the first byte to read.
+     * @param buffer The buffer to read data into.
+     * @param length The number of bytes to read.
+     * @throws IOException Thrown if the file being used is invalid or inaccessible.
      */
-    private static int readIntoBufferAroundReference(RandomAccessFile stream, byte[] buffer, long fileReferenceOffset) throws IOException {
-        int length = buffer.length;
-        //calculate start offset
-        long fileStartOffset = fileReferenceOffset - length / 2;
-
-        if (fileStartOffset < 0) {
-            //offset is less than zero, adjust it, as well as the length we want to read
-            length += (int) fileStartOffset;
-            fileStartOffset = 0;
-            if (length <= 0) {
-                return 0;
+    private static void readIntoBuffer(FileChannel channel, long fileStartOffset, byte[] buffer, int length) throws IOException {
+        ByteBuffer target = ByteBuffer.wrap(buffer, 0, length);
+        while (target.hasRemaining()) {
+            if (channel.read(target, fileStartOffset + target.position()) < 0) {
+                throw new EOFException("The input file ended before the expected number of bytes could be read");
+            }
+        }
+    }
+
+    /**
+     * Searches for the record boundaries around a set of file offsets, with several threads, each of them using a single buffer for all the offsets it handles.
+     */
+    private final class RecordBoundarySearch implements Callable<Void> {
+        private final UploadMetadata metadata;
+        private final long[] referenceFileOffsets;
+        private final int[] lengthAdjustments;
+        private final UploadFailedException[] failures;
+        private final AtomicInteger nextIndex = new AtomicInteger();
+        private FileChannel channel;
+
+        /**
+         * Creates a new search for the record boundaries around the given file offsets.
+         *
+         * @param metadata The metadata of the file to search in.
+         * @param referenceFileOffsets The file offsets to search around; the one at index i is the end of segment i.
+         */
+        RecordBoundarySearch(UploadMetadata metadata, long[] referenceFileOffsets) {
+            this.metadata = metadata;
+            this.referenceFileOffsets = referenceFileOffsets;
+            this.lengthAdjustments = new int[referenceFileOffsets.length];
+            this.failures = new UploadFailedException[referenceFileOffsets.length];
+        }
+
+        /**
+         * Searches around all the reference file offsets and waits for the search to complete.
+         * A record boundary that cannot be found does not fail the search, since the segment it belongs to may not be needed in the end;
+         * it is reported by {@link #getLengthAdjustment(int)} instead.
+         *
+         * @param threadCount The number of threads to search with.
+         * @throws IOException Thrown if the input file is invalid or inaccessible.
+         */
+        void run(int threadCount) throws IOException {
+            ExecutorService executor = Executors.newFixedThreadPool(threadCount,
+                    new ThreadFactoryBuilder().setDaemon(true).setNameFormat("adls-boundary-search-%d").build());
+            try (FileChannel fileChannel = FileChannel.open(Paths.get(metadata.getInputFilePath()), StandardOpenOption.READ)) {
+                this.channel = fileChannel;
+                List<Future<Void>> workers = new ArrayList<>(threadCount);
+                for (int i = 0; i < threadCount; i++) {
+                    workers.add(executor.submit(this));
+                }
+
+                for (Future<Void> worker : workers) {
+                    try {
+                        worker.get();
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof IOException) {
+                            throw (IOException) e.getCause();
+                        }
+
+                        throw new IOException("Unable to search for the record boundaries of the input file", e.getCause());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while searching for the record boundaries of the input file");
+                    }
+                }
+            } finally {
+                executor.shutdownNow();
             }
         }
 
-        if (fileStartOffset + length > stream.length()) {
-            //startOffset + length is beyond the end of the stream, adjust the length accordingly
-            length = (int) (stream.length() - fileStartOffset);
-            if (length <= 0) {
-                return 0;
+        @Override
+        public Void call() throws IOException {
+            byte[] buffer = new byte[maxAppendLength];
+            Charset encoding = Charset.forName(metadata.getEncodingName());
+            for (int i = nextIndex.getAndIncrement(); i < referenceFileOffsets.length; i = nextIndex.getAndIncrement()) {
+                try {
+                    lengthAdjustments[i] = determineLengthAdjustment(i, referenceFileOffsets[i], channel, metadata.getFileLength(), buffer, encoding, metadata.getDelimiter());
+                } catch (UploadFailedException e) {
+                    failures[i] = e;
+                }
             }
+
+            return null;
         }
 
-        //read the appropriate block of the file into the buffer, using symmetry with respect to its midpoint
-        // we always initiate a seek from the origin of the file.
-        stream.seek(0);
-        stream.seek(fileStartOffset);
-        int bufferOffset = 0;
-        while (bufferOffset < length) {
-            int bytesRead = stream.read(buffer, bufferOffset, length - bufferOffset);
-            bufferOffset += bytesRead;
+        /**
+         * Gets how much to adjust the length of the given segment by, so that it ends on a record boundary.
+         *
+         * @param segmentNumber The segment number.
+         * @return How much to adjust the segment length by.
+         * @throws UploadFailedException Thrown if there is no record boundary around the end of the segment.
+         */
+        int getLengthAdjustment(int segmentNumber) throws UploadFailedException {
+            if (failures[segmentNumber] != null) {
+                throw failures[segmentNumber];
+            }
+
+            return lengthAdjustments[segmentNumber];
         }
-        return length;
     }
 }
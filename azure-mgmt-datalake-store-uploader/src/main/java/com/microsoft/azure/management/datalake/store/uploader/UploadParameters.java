@@ -129,6 +129,23 @@ public class UploadParameters {
         this.setUseSegmentBlockBackOffRetryStrategy(useSegmentBlockBackOffRetryStrategy);
     }
 
+    /**
+     * Creates the parameters for uploading one of the files of a directory upload; all the other settings are the same as these.
+     *
+     * @param inputFilePath The full path to the file to be uploaded.
+     * @param targetStreamPath The full stream path where the file will be uploaded to.
+     * @param isOverwrite Whether to overwrite the target stream or not.
+     * @param isResume Indicates whether to resume a previously interrupted upload of the file.
+     * @param localMetadataLocation The directory path where to store the local upload metadata file of the file.
+     * @return The parameters for the upload of the file.
+     */
+    UploadParameters forFile(String inputFilePath, String targetStreamPath, boolean isOverwrite, boolean isResume, String localMetadataLocation) {
+        UploadParameters result = new UploadParameters(inputFilePath, targetStreamPath, accountName, useSegmentBlockBackOffRetryStrategy, threadCount, isOverwrite, isResume, binary, maxSegementLength, localMetadataLocation);
+        result.setFileEncoding(fileEncoding);
+        result.setDelimiter(delimiter);
+        return result;
+    }
+
     /**
      * Gets a value indicating whether [to use segment block back off retry strategy].
      *
@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.datalake.store.uploader;
+
+/**
+ * Represents a snapshot of the progress of an upload.
+ */
+public class UploadProgress {
+    private final long totalFileLength;
+
+    private final long uploadedByteCount;
+
+    private final long[] segmentUploadedByteCounts;
+
+    private final long transferredByteCount;
+
+    private final long elapsedMillis;
+
+    /**
+     * Creates a new progress snapshot.
+     *
+     * @param totalFileLength The length of the file being uploaded.
+     * @param uploadedByteCount The number of bytes of the file uploaded so far, including segments completed by a previous (resumed) upload.
+     * @param segmentUploadedByteCounts The number of bytes uploaded so far in each segment, indexed by segment number.
+     * @param transferredByteCount The number of bytes transferred since the upload (or resume) started.
+     * @param elapsedMillis The time elapsed since the upload (or resume) started, in milliseconds.
+     */
+    UploadProgress(long totalFileLength, long uploadedByteCount, long[] segmentUploadedByteCounts, long transferredByteCount, long elapsedMillis) {
+        this.totalFileLength = totalFileLength;
+        this.uploadedByteCount = uploadedByteCount;
+        this.segmentUploadedByteCounts = segmentUploadedByteCounts;
+        this.transferredByteCount = transferredByteCount;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     *
+     * @return The length (in bytes) of the file being uploaded.
+     */
+    public long getTotalFileLength() {
+        return totalFileLength;
+    }
+
+    /**
+     *
+     * @return The number of bytes of the file that have been uploaded so far.
+     */
+    public long getUploadedByteCount() {
+        return uploadedByteCount;
+    }
+
+    /**
+     *
+     * @return The number of segments of the upload.
+     */
+    public int getSegmentCount() {
+        return segmentUploadedByteCounts.length;
+    }
+
+    /**
+     *
+     * @param segmentNumber The segment number.
+     * @return The number of bytes of the given segment that have been uploaded so far.
+     */
+    public long getSegmentUploadedByteCount(int segmentNumber) {
+        return segmentUploadedByteCounts[segmentNumber];
+    }
+
+    /**
+     *
+     * @return The time elapsed since the upload (or resume) started, in milliseconds.
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     *
+     * @return The average number of bytes transferred per second since the upload (or resume) started.
+     * Segments completed by a previous upload are not included; data sent by attempts that failed and were retried is.
+     */
+    public double getThroughputBytesPerSecond() {
+        if (elapsedMillis <= 0) {
+            return 0;
+        }
+
+        return transferredByteCount * 1000.0 / elapsedMillis;
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.datalake.store.uploader;
+
+/**
+ * Receives progress notifications of an upload.
+ */
+public interface UploadProgressListener {
+    /**
+     * Called every time a block of data has been uploaded, and when a segment is restarted after a failure.
+     * Calls are made on the uploading threads, one at a time; implementations should return quickly.
+     *
+     * @param progress A snapshot of the progress of the upload.
+     */
+    void progressChanged(UploadProgress progress);
+}
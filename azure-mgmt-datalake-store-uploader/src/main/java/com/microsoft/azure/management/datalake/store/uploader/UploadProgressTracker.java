@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.datalake.store.uploader;
+
+/**
+ * Keeps track of the bytes uploaded in each segment of an upload, and reports them to an {@link UploadProgressListener}.
+ */
+class UploadProgressTracker {
+    private final UploadProgressListener listener;
+
+    private final long totalFileLength;
+
+    private final long[] segmentUploadedByteCounts;
+
+    private final long startNanos;
+
+    private long uploadedByteCount;
+
+    private long transferredByteCount;
+
+    /**
+     * Creates a new tracker for the given upload. Segments that are already complete count as uploaded.
+     *
+     * @param metadata The metadata of the upload.
+     * @param listener The listener to notify.
+     */
+    UploadProgressTracker(UploadMetadata metadata, UploadProgressListener listener) {
+        this.listener = listener;
+        this.totalFileLength = metadata.getFileLength();
+        UploadSegmentMetadata[] segments = metadata.getSegments();
+        this.segmentUploadedByteCounts = new long[segments == null ? 0 : segments.length];
+        for (int i = 0; i < segmentUploadedByteCounts.length; i++) {
+            if (segments[i].getStatus() == SegmentUploadStatus.Complete) {
+                segmentUploadedByteCounts[i] = segments[i].getLength();
+                uploadedByteCount += segments[i].getLength();
+            }
+        }
+
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Records that a block of a segment has been uploaded.
+     *
+     * @param segmentNumber The segment number.
+     * @param byteCount The length of the block.
+     */
+    synchronized void blockUploaded(int segmentNumber, long byteCount) {
+        segmentUploadedByteCounts[segmentNumber] += byteCount;
+        uploadedByteCount += byteCount;
+        transferredByteCount += byteCount;
+        notifyListener();
+    }
+
+    /**
+     * Records that a segment is being uploaded again from its start.
+     *
+     * @param segmentNumber The segment number.
+     */
+    synchronized void segmentRestarted(int segmentNumber) {
+        if (segmentUploadedByteCounts[segmentNumber] == 0) {
+            return;
+        }
+
+        uploadedByteCount -= segmentUploadedByteCounts[segmentNumber];
+        segmentUploadedByteCounts[segmentNumber] = 0;
+        notifyListener();
+    }
+
+    /**
+     * @return A snapshot of the progress so far.
+     */
+    synchronized UploadProgress getProgress() {
+        return new UploadProgress(totalFileLength, uploadedByteCount, segmentUploadedByteCounts.clone(), transferredByteCount,
+                (System.nanoTime() - startNanos) / 1000000);
+    }
+
+    /**
+     * Notifies the listener, if any, of the current progress. Callers hold the lock, so notifications are never concurrent.
+     */
+    private void notifyListener() {
+        if (listener != null) {
+            listener.progressChanged(getProgress());
+        }
+    }
+}
@@ -13,6 +13,11 @@ import java.text.MessageFormat;
  */
 public class UploadSegmentMetadata implements Serializable {
 
+    /**
+     * The serialization version, pinned to the one computed for the previous releases so that their metadata files can still be resumed.
+     */
+    private static final long serialVersionUID = 6400643740343073284L;
+
     /**
      * Initializes a new instance of the UploadSegmentMetadata for use with unit tests.
      */
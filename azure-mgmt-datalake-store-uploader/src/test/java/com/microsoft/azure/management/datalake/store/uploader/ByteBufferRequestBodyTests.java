@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.datalake.store.uploader;
+
+import okio.Buffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+public class ByteBufferRequestBodyTests {
+
+    /**
+     * Tests that a slice of an array is written as is, and that the body can be written again (as on a retry).
+     *
+     * @throws Exception
+     */
+    @Test
+    public void ByteBufferRequestBody_WritesArraySlice() throws Exception {
+        byte[] data = "0123456789".getBytes();
+        ByteBuffer slice = ByteBuffer.wrap(data, 2, 5);
+        ByteBufferRequestBody body = new ByteBufferRequestBody(slice);
+
+        Assert.assertEquals(5, body.contentLength());
+        for (int i = 0; i < 2; i++) {
+            Buffer sink = new Buffer();
+            body.writeTo(sink);
+            Assert.assertEquals("23456", sink.readUtf8());
+        }
+
+        Assert.assertEquals(2, slice.position());
+        Assert.assertEquals(7, slice.limit());
+    }
+
+    /**
+     * Tests that a region of a file, mapped into memory, is written without staging it in an array first.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void ByteBufferRequestBody_WritesFileRegion() throws Exception {
+        byte[] contents = new byte[100 * 1024];
+        String filePath = TestHelpers.GenerateFileData(contents);
+        try (RandomAccessFile file = new RandomAccessFile(filePath, "r"); FileChannel channel = file.getChannel()) {
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, 1000, 50 * 1024);
+            ByteBufferRequestBody body = new ByteBufferRequestBody(region);
+
+            Buffer sink = new Buffer();
+            body.writeTo(sink);
+            Assert.assertEquals(50 * 1024, body.contentLength());
+            Assert.assertArrayEquals(Arrays.copyOfRange(contents, 1000, 1000 + 50 * 1024), sink.readByteArray());
+            Assert.assertEquals(0, region.position());
+        }
+        finally {
+            new File(filePath).delete();
+        }
+    }
+
+    /**
+     * Tests that a null buffer (an empty stream being created) is written as an empty body.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void ByteBufferRequestBody_WritesEmptyBody() throws Exception {
+        ByteBufferRequestBody body = new ByteBufferRequestBody(null);
+        Buffer sink = new Buffer();
+        body.writeTo(sink);
+        Assert.assertEquals(0, body.contentLength());
+        Assert.assertEquals(0, sink.size());
+    }
+}
@@ -0,0 +1,357 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.datalake.store.uploader;
+
+import com.microsoft.rest.RestException;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Unit tests for the directory (bulk) uploader.
+ */
+public class DataLakeStoreBulkUploaderTests {
+    private static final long MaxSegmentLength = 8 * 1024 * 1024;
+    private static final int ThreadCount = 4;
+    private static final String TargetFolderPath = "/bulk";
+
+    private static File _inputDirectory;
+    private static String[] _relativePaths = new String[] { "empty.txt", "small.data", "medium.data", "large.data", "sub/small.data", "sub/deeper/small.data" };
+    private static int[] _fileLengths = new int[] { 0, 128, 6 * 1024 * 1024, 20 * 1024 * 1024, 1024, 4 * 1024 * 1024 };
+    private static byte[][] _fileData = new byte[_relativePaths.length][];
+
+    @BeforeClass
+    public static void Setup() throws IOException {
+        _inputDirectory = File.createTempFile("adlsBulkUploader", "input");
+        _inputDirectory.delete();
+        Random rnd = new Random(0);
+        for (int i = 0; i < _relativePaths.length; i++)
+        {
+            File file = new File(_inputDirectory, _relativePaths[i]);
+            file.getParentFile().mkdirs();
+            _fileData[i] = new byte[_fileLengths[i]];
+            rnd.nextBytes(_fileData[i]);
+            FileOutputStream writer = new FileOutputStream(file);
+            writer.write(_fileData[i]);
+            writer.flush();
+            writer.close();
+        }
+    }
+
+    @AfterClass
+    public static void Teardown()
+    {
+        DeleteDirectory(_inputDirectory);
+    }
+
+    /**
+     * Tests the case when invalid parameters are being passed to the bulk uploader.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void DataLakeBulkUploader_InvalidParameters() throws Exception
+    {
+        //a file rather than a directory
+        File file = new File(_inputDirectory, _relativePaths[1]);
+        try {
+            new DataLakeStoreBulkUploader(new UploadParameters(file.toString(), TargetFolderPath, "foo", 1, false, false, true, MaxSegmentLength, null), new InMemoryFrontEnd());
+            Assert.assertTrue("Expected a file not found exception but no exception was thrown!", false);
+        }
+        catch (FileNotFoundException e) {
+            // do nothing this is expected
+        }
+
+        //no target folder
+        try {
+            new DataLakeStoreBulkUploader(new UploadParameters(_inputDirectory.toString(), null, "foo", 1, false, false, true, MaxSegmentLength, null), new InMemoryFrontEnd());
+            Assert.assertTrue("Expected an illegal argument exception but no exception was thrown!", false);
+        }
+        catch (IllegalArgumentException e) {
+            // do nothing this is expected
+        }
+
+        //invalid thread count
+        try {
+            new DataLakeStoreBulkUploader(new UploadParameters(_inputDirectory.toString(), TargetFolderPath, "foo", 0, false, false, true, MaxSegmentLength, null), new InMemoryFrontEnd());
+            Assert.assertTrue("Expected an illegal argument exception but no exception was thrown!", false);
+        }
+        catch (IllegalArgumentException e) {
+            // do nothing this is expected
+        }
+    }
+
+    /**
+     * Tests a fresh upload of a directory containing empty, small, unsegmented and segmented files, some of them in sub directories.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void DataLakeBulkUploader_FreshUpload() throws Exception
+    {
+        InMemoryFrontEnd frontEnd = new InMemoryFrontEnd();
+        UploadParameters up = CreateParameters(false, false, CreateMetadataFolder());
+        final List<BulkUploadProgress> progress = new ArrayList<>();
+
+        DataLakeStoreBulkUploader uploader = new DataLakeStoreBulkUploader(up, frontEnd);
+        uploader.setProgressListener(new BulkUploadProgressListener() {
+            @Override
+            public void progressChanged(BulkUploadProgress p) {
+                progress.add(p);
+            }
+        });
+        uploader.execute();
+
+        VerifyDirectoryUploadedSuccessfully(frontEnd);
+        Assert.assertEquals("Unexpected number of files in the metadata folder after the upload", 0, new File(up.getLocalMetadataLocation()).list().length);
+
+        BulkUploadProgress last = progress.get(progress.size() - 1);
+        Assert.assertEquals(_relativePaths.length, last.getTotalFileCount());
+        Assert.assertEquals(_relativePaths.length, last.getCompletedFileCount());
+        Assert.assertEquals(0, last.getFailedFileCount());
+        Assert.assertEquals(GetTotalLength(), last.getTotalByteCount());
+        Assert.assertEquals(GetTotalLength(), last.getUploadedByteCount());
+        for (BulkUploadProgress p : progress)
+        {
+            Assert.assertTrue("Reported uploaded bytes exceed the total", p.getUploadedByteCount() <= p.getTotalByteCount());
+        }
+    }
+
+    /**
+     * Tests the case when some target streams exist and we haven't set the overwrite flag: only those files fail.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void DataLakeBulkUploader_TargetExistsNoOverwrite() throws Exception
+    {
+        InMemoryFrontEnd frontEnd = new InMemoryFrontEnd();
+        frontEnd.createStream(TargetFolderPath + "/small.data", true, null, 0);
+        frontEnd.createStream(TargetFolderPath + "/medium.data", true, null, 0);
+
+        UploadParameters up = CreateParameters(false, false, CreateMetadataFolder());
+        DataLakeStoreBulkUploader uploader = new DataLakeStoreBulkUploader(up, frontEnd);
+        try
+        {
+            uploader.execute();
+            Assert.assertTrue("Expected an aggregate upload exception but no exception was thrown!", false);
+        }
+        catch (AggregateUploadException e)
+        {
+            Assert.assertEquals(2, e.getAllExceptions().length);
+        }
+
+        Assert.assertEquals(0, frontEnd.getStreamLength(TargetFolderPath + "/small.data"));
+        Assert.assertEquals(0, frontEnd.getStreamLength(TargetFolderPath + "/medium.data"));
+        Assert.assertArrayEquals(_fileData[3], frontEnd.GetStreamContents(TargetFolderPath + "/large.data"));
+
+        //resuming with overwrite uploads the files that failed
+        up = CreateParameters(true, true, up.getLocalMetadataLocation());
+        new DataLakeStoreBulkUploader(up, frontEnd).execute();
+        VerifyDirectoryUploadedSuccessfully(frontEnd);
+    }
+
+    /**
+     * Tests the case when the response to the request creating a small file is lost: the stream created by that request is not
+     * mistaken for one that existed before the upload.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void DataLakeBulkUploader_SmallFileCreateResponseLost() throws Exception
+    {
+        final InMemoryFrontEnd backingFrontEnd = new InMemoryFrontEnd();
+        UploaderFrontEndMock frontEnd = new UploaderFrontEndMock(backingFrontEnd, false, false) {
+            private boolean responseLost;
+
+            @Override
+            public void concatenate(String targetStreamPath, String[] inputStreamPaths) throws RestException, IOException {
+                backingFrontEnd.concatenate(targetStreamPath, inputStreamPaths);
+            }
+
+            @Override
+            public void createStream(String streamPath, boolean overwrite, ByteBuffer data) throws RestException, IOException {
+                super.createStream(streamPath, overwrite, data);
+                synchronized (this) {
+                    if (!responseLost && streamPath.endsWith("/small.data")) {
+                        responseLost = true;
+                        throw new SocketTimeoutException("read timed out");
+                    }
+                }
+            }
+        };
+
+        UploadParameters up = CreateParameters(false, false, CreateMetadataFolder());
+        new DataLakeStoreBulkUploader(up, frontEnd).execute();
+        VerifyDirectoryUploadedSuccessfully(backingFrontEnd);
+    }
+
+    /**
+     * Tests the case when the target stream of a small file exists with the same length as the file: it is not mistaken for one
+     * created by the upload, neither by the first attempt nor when the upload is resumed.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void DataLakeBulkUploader_SmallFileTargetOfSameLengthExists() throws Exception
+    {
+        InMemoryFrontEnd frontEnd = new InMemoryFrontEnd();
+        byte[] existingData = new byte[_fileData[1].length];
+        frontEnd.createStream(TargetFolderPath + "/small.data", true, existingData, existingData.length);
+
+        UploadParameters up = CreateParameters(false, false, CreateMetadataFolder());
+        for (int i = 0; i < 2; i++)
+        {
+            try
+            {
+                new DataLakeStoreBulkUploader(up, frontEnd).execute();
+                Assert.assertTrue("Expected an aggregate upload exception but no exception was thrown!", false);
+            }
+            catch (AggregateUploadException e)
+            {
+                Assert.assertEquals(1, e.getAllExceptions().length);
+            }
+
+            Assert.assertArrayEquals(existingData, frontEnd.GetStreamContents(TargetFolderPath + "/small.data"));
+            up = CreateParameters(true, false, up.getLocalMetadataLocation());
+        }
+    }
+
+    /**
+     * Tests resuming an upload that failed in the middle of uploading a segmented file: the completed files are not uploaded again.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void DataLakeBulkUploader_ResumePartialUpload() throws Exception
+    {
+        InMemoryFrontEnd backingFrontEnd = new InMemoryFrontEnd();
+        UploaderFrontEndMock frontEnd = new UploaderFrontEndMock(backingFrontEnd, true, false);
+        UploadParameters up = CreateParameters(false, false, CreateMetadataFolder());
+        try
+        {
+            new DataLakeStoreBulkUploader(up, frontEnd).execute();
+            Assert.assertTrue("Expected an aggregate upload exception but no exception was thrown!", false);
+        }
+        catch (AggregateUploadException e)
+        {
+            Assert.assertEquals(1, e.getAllExceptions().length);
+        }
+
+        Assert.assertFalse("Segmented file should not have been uploaded", backingFrontEnd.streamExists(TargetFolderPath + "/large.data"));
+
+        //the completed files are not uploaded again: remove one of them and verify it is not recreated
+        backingFrontEnd.deleteStream(TargetFolderPath + "/medium.data", false);
+        final List<BulkUploadProgress> progress = new ArrayList<>();
+        up = CreateParameters(true, false, up.getLocalMetadataLocation());
+        DataLakeStoreBulkUploader uploader = new DataLakeStoreBulkUploader(up, backingFrontEnd);
+        uploader.setProgressListener(new BulkUploadProgressListener() {
+            @Override
+            public void progressChanged(BulkUploadProgress p) {
+                progress.add(p);
+            }
+        });
+        uploader.execute();
+
+        Assert.assertFalse("Completed file was uploaded again", backingFrontEnd.streamExists(TargetFolderPath + "/medium.data"));
+        Assert.assertArrayEquals(_fileData[3], backingFrontEnd.GetStreamContents(TargetFolderPath + "/large.data"));
+        BulkUploadProgress last = progress.get(progress.size() - 1);
+        Assert.assertEquals(_relativePaths.length, last.getCompletedFileCount());
+        Assert.assertEquals(GetTotalLength(), last.getUploadedByteCount());
+        Assert.assertEquals("Unexpected number of files in the metadata folder after the upload", 0, new File(up.getLocalMetadataLocation()).list().length);
+    }
+
+    /**
+     * Creates a parameter object.
+     *
+     * @param isResume Whether to resume.
+     * @param isOverwrite Whether to enable overwrite.
+     * @param metadataFolder The folder where the metadata should be placed.
+     * @return A {@link UploadParameters} object.
+     */
+    private UploadParameters CreateParameters(boolean isResume, boolean isOverwrite, String metadataFolder)
+    {
+        return new UploadParameters(
+                _inputDirectory.toString(),
+                TargetFolderPath,
+                "foo",
+                false,
+                ThreadCount,
+                isOverwrite,
+                isResume,
+                true,
+                MaxSegmentLength,
+                metadataFolder);
+    }
+
+    /**
+     * Creates a new, empty folder for the upload metadata.
+     *
+     * @return The path of the folder.
+     * @throws IOException
+     */
+    private String CreateMetadataFolder() throws IOException
+    {
+        File fileToFolder = File.createTempFile("adlsBulkUploader", "metadata");
+        fileToFolder.delete();
+        fileToFolder.mkdirs();
+        return fileToFolder.getAbsolutePath();
+    }
+
+    /**
+     * Verifies that all the files of the input directory were successfully uploaded.
+     *
+     * @param frontEnd The front end to use.
+     * @throws Exception
+     */
+    private void VerifyDirectoryUploadedSuccessfully(InMemoryFrontEnd frontEnd) throws Exception
+    {
+        Assert.assertEquals(_relativePaths.length, frontEnd.getStreamCount());
+        for (int i = 0; i < _relativePaths.length; i++)
+        {
+            String streamPath = TargetFolderPath + "/" + _relativePaths[i];
+            Assert.assertTrue("Uploaded stream does not exist: " + streamPath, frontEnd.streamExists(streamPath));
+            Assert.assertEquals(_fileData[i].length, frontEnd.getStreamLength(streamPath));
+            Assert.assertArrayEquals("Uploaded stream is not binary identical to input file: " + streamPath, _fileData[i], frontEnd.GetStreamContents(streamPath));
+        }
+    }
+
+    private static long GetTotalLength()
+    {
+        long result = 0;
+        for (int length : _fileLengths)
+        {
+            result += length;
+        }
+
+        return result;
+    }
+
+    private static void DeleteDirectory(File directory)
+    {
+        File[] children = directory.listFiles();
+        if (children != null)
+        {
+            for (File child : children)
+            {
+                DeleteDirectory(child);
+            }
+        }
+
+        directory.delete();
+    }
+}
@@ -0,0 +1,409 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.datalake.store.uploader;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.management.OperationsException;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Unit tests for the downloader.
+ */
+public class DataLakeStoreDownloaderTests {
+    private static final int StreamLength = 20 * 1024 * 1024; // 20mb
+    private static final long MaxSegmentLength = 8 * 1024 * 1024;
+    private static final int ThreadCount = 4;
+    private static final String SourceStreamPath = "/download/source";
+    private static byte[] _streamData = new byte[StreamLength];
+
+    @BeforeClass
+    public static void Setup()
+    {
+        new Random(0).nextBytes(_streamData);
+    }
+
+    /**
+     * Tests the case when invalid parameters are being passed to the downloader.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void DataLakeDownloader_InvalidParameters() throws Exception
+    {
+        String targetFilePath = CreateTargetFilePath();
+
+        //no source stream
+        try {
+            new DataLakeStoreDownloader(new DownloadParameters(null, targetFilePath, "foo"), new InMemoryFrontEnd());
+            Assert.assertTrue("Expected an illegal argument exception but no exception was thrown!", false);
+        }
+        catch (IllegalArgumentException e) {
+            // do nothing this is expected
+        }
+
+        //target is a directory
+        try {
+            new DataLakeStoreDownloader(new DownloadParameters(SourceStreamPath, new File(targetFilePath).getParent(), "foo"), new InMemoryFrontEnd());
+            Assert.assertTrue("Expected an illegal argument exception but no exception was thrown!", false);
+        }
+        catch (IllegalArgumentException e) {
+            // do nothing this is expected
+        }
+
+        //no account
+        try {
+            new DataLakeStoreDownloader(new DownloadParameters(SourceStreamPath, targetFilePath, null), new InMemoryFrontEnd());
+            Assert.assertTrue("Expected an illegal argument exception but no exception was thrown!", false);
+        }
+        catch (IllegalArgumentException e) {
+            // do nothing this is expected
+        }
+
+        //thread count out of range
+        try {
+            new DataLakeStoreDownloader(new DownloadParameters(SourceStreamPath, targetFilePath, "foo", DataLakeStoreUploader.MAX_ALLOWED_THREADS + 1, false, false), new InMemoryFrontEnd());
+            Assert.assertTrue("Expected an illegal argument exception but no exception was thrown!", false);
+        }
+        catch (IllegalArgumentException e) {
+            // do nothing this is expected
+        }
+    }
+
+    /**
+     * Tests a fresh download of a stream in multiple segments.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void DataLakeDownloader_FreshDownload() throws Exception
+    {
+        InMemoryFrontEnd frontEnd = CreateFrontEnd(_streamData);
+        DownloaderFrontEndMock mock = new DownloaderFrontEndMock(frontEnd, Long.MAX_VALUE, 0);
+        DownloadParameters dp = CreateParameters(CreateTargetFilePath(), false, false, true, 0);
+
+        new DataLakeStoreDownloader(dp, mock).execute();
+
+        Assert.assertArrayEquals("Downloaded file is not binary identical to the stream", _streamData, Files.readAllBytes(new File(dp.getTargetFilePath()).toPath()));
+        Assert.assertTrue("Expected the stream to be read in more than one segment", mock.getReadOffsets().size() > 1);
+        Assert.assertEquals("Unexpected number of files in the metadata folder after the download", 0, new File(dp.getLocalMetadataLocation()).list().length);
+    }
+
+    /**
+     * Tests the download of an empty stream.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void DataLakeDownloader_EmptyStream() throws Exception
+    {
+        InMemoryFrontEnd frontEnd = CreateFrontEnd(new byte[0]);
+        DownloadParameters dp = CreateParameters(CreateTargetFilePath(), false, false, true, 0);
+
+        new DataLakeStoreDownloader(dp, frontEnd).execute();
+
+        File targetFile = new File(dp.getTargetFilePath());
+        Assert.assertTrue("Downloaded file does not exist", targetFile.exists());
+        Assert.assertEquals(0, targetFile.length());
+    }
+
+    /**
+     * Tests that reads which break off half way through are retried from where they stopped.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void DataLakeDownloader_RetryBrokenReads() throws Exception
+    {
+        InMemoryFrontEnd frontEnd = CreateFrontEnd(_streamData);
+        DownloaderFrontEndMock mock = new DownloaderFrontEndMock(frontEnd, Long.MAX_VALUE, 2);
+        DownloadParameters dp = CreateParameters(CreateTargetFilePath(), false, false, true, 0);
+
+        new DataLakeStoreDownloader(dp, mock).execute();
+
+        Assert.assertArrayEquals("Downloaded file is not binary identical to the stream", _streamData, Files.readAllBytes(new File(dp.getTargetFilePath()).toPath()));
+    }
+
+    /**
+     * Tests the case when the target file exists and we haven't set the overwrite flag.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void DataLakeDownloader_TargetExistsNoOverwrite() throws Exception
+    {
+        InMemoryFrontEnd frontEnd = CreateFrontEnd(_streamData);
+        DownloadParameters dp = CreateParameters(CreateTargetFilePath(), false, false, true, 0);
+        byte[] existingData = new byte[] { 1, 2, 3 };
+        Files.write(new File(dp.getTargetFilePath()).toPath(), existingData);
+
+        try
+        {
+            new DataLakeStoreDownloader(dp, frontEnd).execute();
+            Assert.assertTrue("Expected an operations exception but no exception was thrown!", false);
+        }
+        catch (OperationsException e)
+        {
+            // do nothing this is expected
+        }
+
+        Assert.assertArrayEquals("Existing file was modified", existingData, Files.readAllBytes(new File(dp.getTargetFilePath()).toPath()));
+
+        //with overwrite, the file is replaced
+        dp = CreateParameters(dp.getTargetFilePath(), false, true, true, 0);
+        new DataLakeStoreDownloader(dp, frontEnd).execute();
+        Assert.assertArrayEquals("Downloaded file is not binary identical to the stream", _streamData, Files.readAllBytes(new File(dp.getTargetFilePath()).toPath()));
+    }
+
+    /**
+     * Tests resuming a download in which some segments could not be read: only those are read again.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void DataLakeDownloader_ResumePartialDownload() throws Exception
+    {
+        InMemoryFrontEnd frontEnd = CreateFrontEnd(_streamData);
+        long failFromOffset = StreamLength / 2;
+        DownloadParameters dp = CreateParameters(CreateTargetFilePath(), false, false, true, 0);
+        try
+        {
+            new DataLakeStoreDownloader(dp, new DownloaderFrontEndMock(frontEnd, failFromOffset, 0)).execute();
+            Assert.assertTrue("Expected an aggregate upload exception but no exception was thrown!", false);
+        }
+        catch (AggregateUploadException e)
+        {
+            // do nothing this is expected
+        }
+
+        DownloaderFrontEndMock mock = new DownloaderFrontEndMock(frontEnd, Long.MAX_VALUE, 0);
+        dp = CreateParameters(dp.getTargetFilePath(), true, false, true, 0);
+        new DataLakeStoreDownloader(dp, mock).execute();
+
+        Assert.assertArrayEquals("Downloaded file is not binary identical to the stream", _streamData, Files.readAllBytes(new File(dp.getTargetFilePath()).toPath()));
+        Assert.assertFalse("Expected some segments to be read again", mock.getReadOffsets().isEmpty());
+        for (long offset : mock.getReadOffsets())
+        {
+            Assert.assertTrue("A segment that was already downloaded was read again", offset >= failFromOffset);
+        }
+    }
+
+    /**
+     * Tests that a download cannot be resumed once the source stream has changed length.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void DataLakeDownloader_ResumeAfterSourceChanged() throws Exception
+    {
+        InMemoryFrontEnd frontEnd = CreateFrontEnd(_streamData);
+        DownloadParameters dp = CreateParameters(CreateTargetFilePath(), false, false, true, 0);
+        try
+        {
+            new DataLakeStoreDownloader(dp, new DownloaderFrontEndMock(frontEnd, StreamLength / 2, 0)).execute();
+            Assert.assertTrue("Expected an aggregate upload exception but no exception was thrown!", false);
+        }
+        catch (AggregateUploadException e)
+        {
+            // do nothing this is expected
+        }
+
+        frontEnd.appendToStream(SourceStreamPath, new byte[] { 1 }, StreamLength, 1);
+        dp = CreateParameters(dp.getTargetFilePath(), true, false, true, 0);
+        try
+        {
+            new DataLakeStoreDownloader(dp, frontEnd).execute();
+            Assert.assertTrue("Expected an operations exception but no exception was thrown!", false);
+        }
+        catch (OperationsException e)
+        {
+            // do nothing this is expected
+        }
+    }
+
+    /**
+     * Tests splitting a text stream into several output files, each of which ends on a record boundary.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void DataLakeDownloader_SplitTextStream() throws Exception
+    {
+        byte[] textData = new byte[10 * 1024 * 1024];
+        String textFilePath = TestHelpers.GenerateTextFileData(textData, 1, 5000);
+        new File(textFilePath).delete();
+
+        DownloadParameters dp = CreateParameters(CreateTargetFilePath(), false, false, false, 1024 * 1024);
+        DownloadAndVerifySplit(textData, dp, new byte[] { '\n' }, 5003);
+    }
+
+    /**
+     * Tests splitting a UTF-16 text stream, whose newlines are two bytes long, into several output files.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void DataLakeDownloader_SplitUtf16TextStream() throws Exception
+    {
+        byte[] textData = GenerateRecords(10 * 1024 * 1024, "\n", StandardCharsets.UTF_16LE);
+        DownloadParameters dp = CreateParameters(CreateTargetFilePath(), false, false, false, 1024 * 1024);
+        dp.setFileEncoding(StandardCharsets.UTF_16LE);
+        DownloadAndVerifySplit(textData, dp, "\n".getBytes(StandardCharsets.UTF_16LE), 2 * 5001);
+    }
+
+    /**
+     * Tests splitting a UTF-8 text stream on a custom delimiter that is encoded in several bytes.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void DataLakeDownloader_SplitTextStreamOnMultiByteDelimiter() throws Exception
+    {
+        String delimiter = "\u20AC";
+        byte[] textData = GenerateRecords(10 * 1024 * 1024, delimiter, StandardCharsets.UTF_8);
+        DownloadParameters dp = CreateParameters(CreateTargetFilePath(), false, false, false, 1024 * 1024);
+        dp.setDelimiter(delimiter);
+        DownloadAndVerifySplit(textData, dp, delimiter.getBytes(StandardCharsets.UTF_8), 5003);
+    }
+
+    /**
+     * Downloads a text stream split into several output files, and verifies that each of them ends on the first record boundary after
+     * the maximum output file length.
+     *
+     * @param textData The contents of the source stream.
+     * @param dp The parameters of the download.
+     * @param delimiter The encoded record delimiter.
+     * @param maxRecordLength The maximum length of a record, delimiter included.
+     * @throws Exception
+     */
+    private void DownloadAndVerifySplit(byte[] textData, DownloadParameters dp, byte[] delimiter, int maxRecordLength) throws Exception
+    {
+        InMemoryFrontEnd frontEnd = CreateFrontEnd(textData);
+        long maxOutputFileLength = dp.getMaxOutputFileLength();
+
+        new DataLakeStoreDownloader(dp, frontEnd).execute();
+
+        ByteArrayOutputStream downloaded = new ByteArrayOutputStream();
+        int outputFileCount = 0;
+        File outputFile;
+        while ((outputFile = new File(dp.getTargetFilePath() + "." + outputFileCount)).exists())
+        {
+            byte[] outputData = Files.readAllBytes(outputFile.toPath());
+            Assert.assertArrayEquals("Output file does not end on a record boundary", delimiter,
+                    Arrays.copyOfRange(outputData, outputData.length - delimiter.length, outputData.length));
+            if (new File(dp.getTargetFilePath() + "." + (outputFileCount + 1)).exists())
+            {
+                Assert.assertTrue("Output file is shorter than the maximum output file length", outputData.length >= maxOutputFileLength);
+                Assert.assertTrue("Output file extends beyond the first record boundary", outputData.length < maxOutputFileLength + maxRecordLength);
+            }
+
+            downloaded.write(outputData);
+            outputFileCount++;
+        }
+
+        Assert.assertTrue("Expected the stream to be split into several files", outputFileCount > 1);
+        Assert.assertFalse("A single output file should not be created when splitting", new File(dp.getTargetFilePath()).exists());
+        Assert.assertTrue("Output files are not identical to the stream", Arrays.equals(textData, downloaded.toByteArray()));
+    }
+
+    /**
+     * Generates text made of records of random letters, each up to 5000 characters long and followed by the delimiter.
+     *
+     * @param length The minimum length of the encoded text.
+     * @param delimiter The record delimiter.
+     * @param encoding The encoding of the text.
+     * @return The encoded text.
+     */
+    private static byte[] GenerateRecords(int length, String delimiter, Charset encoding)
+    {
+        Random rnd = new Random(0);
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        while (text.size() < length)
+        {
+            StringBuilder record = new StringBuilder();
+            int recordLength = 1 + rnd.nextInt(5000);
+            for (int i = 0; i < recordLength; i++)
+            {
+                record.append((char) ('a' + rnd.nextInt(26)));
+            }
+
+            byte[] encoded = record.append(delimiter).toString().getBytes(encoding);
+            text.write(encoded, 0, encoded.length);
+        }
+
+        return text.toByteArray();
+    }
+
+    /**
+     * Creates a front end containing a source stream with the given data.
+     *
+     * @param data The contents of the source stream.
+     * @return A {@link InMemoryFrontEnd} object.
+     * @throws Exception
+     */
+    private InMemoryFrontEnd CreateFrontEnd(byte[] data) throws Exception
+    {
+        InMemoryFrontEnd frontEnd = new InMemoryFrontEnd();
+        frontEnd.createStream(SourceStreamPath, true, null, 0);
+        if (data.length > 0)
+        {
+            frontEnd.appendToStream(SourceStreamPath, data, 0, data.length);
+        }
+
+        return frontEnd;
+    }
+
+    /**
+     * Creates a path in a new, empty folder to download to; the folder is also used for the metadata.
+     *
+     * @return The path of the target file.
+     * @throws IOException
+     */
+    private String CreateTargetFilePath() throws IOException
+    {
+        File folder = File.createTempFile("adlsDownloader", "target");
+        folder.delete();
+        folder.mkdirs();
+        return new File(folder, "downloaded.data").getAbsolutePath();
+    }
+
+    /**
+     * Creates a parameter object.
+     *
+     * @param targetFilePath The path to download to.
+     * @param isResume Whether to resume.
+     * @param isOverwrite Whether to enable overwrite.
+     * @param isBinary Whether the stream is binary.
+     * @param maxOutputFileLength The length to split text streams at, or 0.
+     * @return A {@link DownloadParameters} object.
+     */
+    private DownloadParameters CreateParameters(String targetFilePath, boolean isResume, boolean isOverwrite, boolean isBinary, long maxOutputFileLength)
+    {
+        File metadataFolder = new File(new File(targetFilePath).getParentFile(), "metadata");
+        metadataFolder.mkdirs();
+        return new DownloadParameters(
+                SourceStreamPath,
+                targetFilePath,
+                "foo",
+                false,
+                ThreadCount,
+                isOverwrite,
+                isResume,
+                isBinary,
+                MaxSegmentLength,
+                maxOutputFileLength,
+                metadataFolder.getAbsolutePath());
+    }
+}
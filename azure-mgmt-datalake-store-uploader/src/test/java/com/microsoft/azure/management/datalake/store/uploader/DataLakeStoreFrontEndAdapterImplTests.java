@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.datalake.store.uploader;
+
+import com.microsoft.azure.RestClient;
+import com.microsoft.azure.management.datalake.store.implementation.DataLakeStoreFileSystemManagementClientImpl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class DataLakeStoreFrontEndAdapterImplTests {
+
+    /**
+     * Tests that create and append send exactly the requested range of the buffer to the WebHDFS endpoints of the account.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void FrontEndAdapter_SendsBufferRanges() throws Exception {
+        final List<String> urls = new CopyOnWriteArrayList<>();
+        final List<String> bodies = new CopyOnWriteArrayList<>();
+        RestClient restClient = new RestClient.Builder()
+                .withBaseUrl("https://{accountName}.{adlsFileSystemDnsSuffix}")
+                .withInterceptor(new Interceptor() {
+                    @Override
+                    public Response intercept(Chain chain) throws IOException {
+                        Request request = chain.request();
+                        Buffer body = new Buffer();
+                        request.body().writeTo(body);
+                        urls.add(request.method() + " " + request.url().encodedPath() + "?" + request.url().query()
+                                + " " + request.header("x-ms-parameterized-host"));
+                        bodies.add(body.readUtf8());
+                        return new Response.Builder()
+                                .request(request)
+                                .protocol(Protocol.HTTP_1_1)
+                                .code(request.method().equals("PUT") ? 201 : 200)
+                                .body(ResponseBody.create(MediaType.parse("application/json"), ""))
+                                .build();
+                    }
+                })
+                .build();
+        DataLakeStoreFrontEndAdapterImpl frontEnd = new DataLakeStoreFrontEndAdapterImpl("acct", new DataLakeStoreFileSystemManagementClientImpl(restClient));
+
+        byte[] data = "0123456789".getBytes();
+        frontEnd.createStream("dir/file", true, data, 4);
+        frontEnd.appendToStream("dir/file", ByteBuffer.wrap(data, 4, 3), 4);
+        frontEnd.appendToStream("dir/file", data, 7, 3);
+
+        Assert.assertEquals(3, urls.size());
+        Assert.assertEquals("PUT /webhdfs/v1/dir%2Ffile?overwrite=true&op=CREATE&write=true&api-version=2015-10-01-preview"
+                + " {accountName}, acct, {adlsFileSystemDnsSuffix}, azuredatalakestore.net", urls.get(0));
+        Assert.assertEquals("POST /webhdfs/v1/dir%2Ffile?op=APPEND&append=true&api-version=2015-10-01-preview"
+                + " {accountName}, acct, {adlsFileSystemDnsSuffix}, azuredatalakestore.net", urls.get(1));
+        Assert.assertEquals("0123", bodies.get(0));
+        Assert.assertEquals("456", bodies.get(1));
+        Assert.assertEquals("012", bodies.get(2));
+    }
+}
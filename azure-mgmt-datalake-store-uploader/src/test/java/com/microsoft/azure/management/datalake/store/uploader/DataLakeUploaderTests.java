@@ -15,6 +15,8 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Unit tests for the uploader.
@@ -179,6 +181,33 @@ public class DataLakeUploaderTests {
         VerifyFileUploadedSuccessfully(up, frontEnd);
     }
 
+    /**
+     * Tests the case of a fresh upload with multiple segments, tuned as it runs.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void DataLakeUploader_FreshUploadWithAutoTune() throws Exception {
+        InMemoryFrontEnd frontEnd = new InMemoryFrontEnd();
+        UploadParameters up = CreateParameters(false, false, null, true);
+        DataLakeStoreUploader uploader = new DataLakeStoreUploader(up, frontEnd);
+        final List<AutoTuneDecision> decisions = new CopyOnWriteArrayList<>();
+        uploader.setAutoTune(true);
+        uploader.setAutoTuneListener(new AutoTuneListener() {
+            @Override
+            public void decisionMade(AutoTuneDecision decision) {
+                decisions.add(decision);
+            }
+        });
+
+        uploader.execute();
+
+        VerifyFileUploadedSuccessfully(up, frontEnd);
+        Assert.assertFalse("No auto-tune decisions were reported", decisions.isEmpty());
+        Assert.assertEquals(AutoTuneAction.SegmentCountChosen, decisions.get(0).getAction());
+        Assert.assertTrue("Segment count lowered by the auto-tuning", decisions.get(0).getNewValue() >= decisions.get(0).getPreviousValue());
+    }
+
     /**
      * Tests the resume upload when the metadata indicates all files are uploaded but no files exist on the server.
      *
@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.datalake.store.uploader;
+
+import com.microsoft.rest.RestException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A front end mock used for unit testing {@link DataLakeStoreDownloader}
+ */
+public class DownloaderFrontEndMock implements FrontEndAdapter {
+
+    private FrontEndAdapter BaseAdapter;
+    private long FailFromOffset;
+    private int BreakEveryNthRead;
+    private AtomicInteger ReadCount = new AtomicInteger();
+    private List<Long> ReadOffsets = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructor with base front end.
+     * @param baseAdapter The real front end to use when methods are not mocked.
+     * @param failFromOffset Reads of any range starting at or after this offset fail.
+     * @param breakEveryNthRead If positive, every Nth read breaks off half way through its range.
+     */
+    public DownloaderFrontEndMock(FrontEndAdapter baseAdapter, long failFromOffset, int breakEveryNthRead)
+    {
+        BaseAdapter = baseAdapter;
+        FailFromOffset = failFromOffset;
+        BreakEveryNthRead = breakEveryNthRead;
+    }
+
+    /**
+     * @return The offsets of all the ranges read so far.
+     */
+    public List<Long> getReadOffsets()
+    {
+        return ReadOffsets;
+    }
+
+    public void createStream(String streamPath, boolean overwrite, byte[] data, int byteCount) throws RestException, IOException {
+        BaseAdapter.createStream(streamPath, overwrite, data, byteCount);
+    }
+
+    public void createStream(String streamPath, boolean overwrite, ByteBuffer data) throws RestException, IOException {
+        BaseAdapter.createStream(streamPath, overwrite, data);
+    }
+
+    public void deleteStream(String streamPath, boolean recurse) throws RestException, IOException {
+        BaseAdapter.deleteStream(streamPath, recurse);
+    }
+
+    public void appendToStream(String streamPath, byte[] data, long offset, int byteCount) throws RestException, IOException {
+        BaseAdapter.appendToStream(streamPath, data, offset, byteCount);
+    }
+
+    public void appendToStream(String streamPath, ByteBuffer data, long offset) throws RestException, IOException {
+        BaseAdapter.appendToStream(streamPath, data, offset);
+    }
+
+    public boolean streamExists(String streamPath) throws RestException, IOException {
+        return BaseAdapter.streamExists(streamPath);
+    }
+
+    public long getStreamLength(String streamPath) throws RestException, IOException {
+        return BaseAdapter.getStreamLength(streamPath);
+    }
+
+    public InputStream readStream(String streamPath, long offset, long length) throws RestException, IOException {
+        ReadOffsets.add(offset);
+        if (offset >= FailFromOffset)
+        {
+            throw new IntentionalException();
+        }
+
+        InputStream result = BaseAdapter.readStream(streamPath, offset, length);
+        if (BreakEveryNthRead > 0 && ReadCount.incrementAndGet() % BreakEveryNthRead == 0)
+        {
+            final long breakAfter = length / 2;
+            return new FilterInputStream(result) {
+                private long position;
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    if (position >= breakAfter)
+                    {
+                        throw new IOException("connection reset");
+                    }
+
+                    int read = super.read(b, off, (int)Math.min(len, breakAfter - position));
+                    if (read > 0)
+                    {
+                        position += read;
+                    }
+
+                    return read;
+                }
+            };
+        }
+
+        return result;
+    }
+
+    public void concatenate(String targetStreamPath, String[] inputStreamPaths) throws RestException, IOException {
+        BaseAdapter.concatenate(targetStreamPath, inputStreamPaths);
+    }
+}
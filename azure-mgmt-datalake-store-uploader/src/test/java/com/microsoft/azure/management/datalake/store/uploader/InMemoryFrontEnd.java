@@ -7,6 +7,9 @@ package com.microsoft.azure.management.datalake.store.uploader;
 
 import com.microsoft.azure.CloudException;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Hashtable;
 import java.util.LinkedList;
 
@@ -25,6 +28,22 @@ public class InMemoryFrontEnd implements FrontEndAdapter {
      * @Throws CloudException
      */
     public void createStream(String streamPath, boolean overwrite, byte[] data, int byteCount) throws CloudException {
+        if (data != null && byteCount > data.length)
+        {
+            throw new CloudException("invalid byteCount");
+        }
+
+        createStream(streamPath, overwrite, data == null ? null : ByteBuffer.wrap(data, 0, byteCount));
+    }
+
+    /**
+     *
+     * @param streamPath The relative path to the stream.
+     * @param overwrite  Whether to overwrite an existing stream.
+     * @param data
+     * @Throws CloudException
+     */
+    public void createStream(String streamPath, boolean overwrite, ByteBuffer data) throws CloudException {
         if (overwrite)
         {
             _streams.put(streamPath, new StreamData(streamPath));
@@ -42,16 +61,11 @@ public class InMemoryFrontEnd implements FrontEndAdapter {
         // if there is data passed in, we should do the same operation as in append
         if (data != null)
         {
-            if (byteCount > data.length)
-            {
-                throw new CloudException("invalid byteCount");
-            }
-
             StreamData stream = _streams.get(streamPath);
 
             //always make a copy of the original buffer since it is reused
-            byte[] toAppend = new byte[byteCount];
-            System.arraycopy(data, 0, toAppend, 0, byteCount);
+            byte[] toAppend = new byte[data.remaining()];
+            data.duplicate().get(toAppend);
 
             stream.Append(toAppend);
         }
@@ -80,14 +94,25 @@ public class InMemoryFrontEnd implements FrontEndAdapter {
      * @Throws CloudException
      */
     public void appendToStream(String streamPath, byte[] data, long offset, int byteCount) throws CloudException {
-        if (!streamExists(streamPath))
+        if (byteCount > data.length)
         {
-            throw new CloudException("stream does not exist");
+            throw new CloudException("invalid byteCount");
         }
 
-        if (byteCount > data.length)
+        appendToStream(streamPath, ByteBuffer.wrap(data, 0, byteCount), offset);
+    }
+
+    /**
+     *
+     * @param streamPath The relative path to the stream.
+     * @param data The bytes to be appended to the stream.
+     * @param offset The offset at which to append to the stream.
+     * @Throws CloudException
+     */
+    public void appendToStream(String streamPath, ByteBuffer data, long offset) throws CloudException {
+        if (!streamExists(streamPath))
         {
-            throw new CloudException("invalid byteCount");
+            throw new CloudException("stream does not exist");
         }
 
         StreamData stream = _streams.get(streamPath);
@@ -97,8 +122,8 @@ public class InMemoryFrontEnd implements FrontEndAdapter {
         }
 
         //always make a copy of the original buffer since it is reused
-        byte[] toAppend = new byte[byteCount];
-        System.arraycopy(data, 0, toAppend, 0, byteCount);
+        byte[] toAppend = new byte[data.remaining()];
+        data.duplicate().get(toAppend);
 
         stream.Append(toAppend);
     }
@@ -128,6 +153,43 @@ public class InMemoryFrontEnd implements FrontEndAdapter {
         return _streams.get(streamPath).Length;
     }
 
+    /**
+     *
+     * @param streamPath The relative path to the stream.
+     * @param offset The offset in the stream at which to start reading.
+     * @param length The number of bytes to read.
+     * @return A stream over a copy of the bytes in the range, which ends early if the stream is shorter.
+     * @Throws CloudException
+     */
+    public InputStream readStream(String streamPath, long offset, long length) throws CloudException {
+        if (!streamExists(streamPath))
+        {
+            throw new CloudException("stream does not exist");
+        }
+
+        StreamData sd = _streams.get(streamPath);
+        if (offset < 0 || length < 0 || offset > sd.Length)
+        {
+            throw new CloudException("invalid offset or length");
+        }
+
+        byte[] result = new byte[(int)Math.min(length, sd.Length - offset)];
+        long chunkOffset = 0;
+        for (byte[] chunk: sd.GetDataChunks())
+        {
+            long from = Math.max(offset, chunkOffset);
+            long to = Math.min(offset + result.length, chunkOffset + chunk.length);
+            if (from < to)
+            {
+                System.arraycopy(chunk, (int)(from - chunkOffset), result, (int)(from - offset), (int)(to - from));
+            }
+
+            chunkOffset += chunk.length;
+        }
+
+        return new ByteArrayInputStream(result);
+    }
+
     /**
      *
      * @param targetStreamPath The relative path to the target stream.
@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.datalake.store.uploader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Represents a file channel that delays every positional read, simulating a slow input file.
+ */
+public class LatencyFileChannel extends FileChannel {
+
+    private FileChannel BaseChannel;
+
+    private int ReadLatencyMillis;
+
+    /**
+     * Constructor with base channel.
+     * @param baseChannel The base channel that performs the actual operations.
+     * @param readLatencyMillis The delay of each positional read, in milliseconds.
+     */
+    public LatencyFileChannel(FileChannel baseChannel, int readLatencyMillis)
+    {
+        BaseChannel = baseChannel;
+        ReadLatencyMillis = readLatencyMillis;
+    }
+
+    public int read(ByteBuffer dst, long position) throws IOException {
+        try {
+            Thread.sleep(ReadLatencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new ClosedByInterruptException();
+        }
+
+        return BaseChannel.read(dst, position);
+    }
+
+    public int read(ByteBuffer dst) throws IOException {
+        return BaseChannel.read(dst);
+    }
+
+    public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+        return BaseChannel.read(dsts, offset, length);
+    }
+
+    public int write(ByteBuffer src) throws IOException {
+        return BaseChannel.write(src);
+    }
+
+    public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        return BaseChannel.write(srcs, offset, length);
+    }
+
+    public int write(ByteBuffer src, long position) throws IOException {
+        return BaseChannel.write(src, position);
+    }
+
+    public long position() throws IOException {
+        return BaseChannel.position();
+    }
+
+    public FileChannel position(long newPosition) throws IOException {
+        BaseChannel.position(newPosition);
+        return this;
+    }
+
+    public long size() throws IOException {
+        return BaseChannel.size();
+    }
+
+    public FileChannel truncate(long size) throws IOException {
+        BaseChannel.truncate(size);
+        return this;
+    }
+
+    public void force(boolean metaData) throws IOException {
+        BaseChannel.force(metaData);
+    }
+
+    public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        return BaseChannel.transferTo(position, count, target);
+    }
+
+    public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+        return BaseChannel.transferFrom(src, position, count);
+    }
+
+    public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+        return BaseChannel.map(mode, position, size);
+    }
+
+    public FileLock lock(long position, long size, boolean shared) throws IOException {
+        return BaseChannel.lock(position, size, shared);
+    }
+
+    public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+        return BaseChannel.tryLock(position, size, shared);
+    }
+
+    protected void implCloseChannel() throws IOException {
+        BaseChannel.close();
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.datalake.store.uploader;
+
+import com.microsoft.rest.RestException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Represents a front end that delays every create and append call, simulating the latency of the service,
+ * and records the offsets of the appends in the order they were made.
+ */
+public class LatencyFrontEnd implements FrontEndAdapter {
+
+    private FrontEndAdapter BaseAdapter;
+
+    private int MinLatencyMillis;
+
+    private int MaxLatencyMillis;
+
+    private Random Rnd = new Random(0);
+
+    private List<Long> AppendOffsets = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructor with base front end.
+     * @param baseAdapter The base adapter that performs the actual operations.
+     * @param minLatencyMillis The minimum delay of each create or append call, in milliseconds.
+     * @param maxLatencyMillis The maximum delay of each create or append call, in milliseconds.
+     */
+    public LatencyFrontEnd(FrontEndAdapter baseAdapter, int minLatencyMillis, int maxLatencyMillis)
+    {
+        BaseAdapter = baseAdapter;
+        MinLatencyMillis = minLatencyMillis;
+        MaxLatencyMillis = maxLatencyMillis;
+    }
+
+    /**
+     * @return The offsets of the appends (0 for a create with data), in the order they were made.
+     */
+    public List<Long> getAppendOffsets()
+    {
+        return AppendOffsets;
+    }
+
+    public void createStream(String streamPath, boolean overwrite, byte[] data, int byteCount) throws RestException, IOException {
+        createStream(streamPath, overwrite, data == null ? null : ByteBuffer.wrap(data, 0, byteCount));
+    }
+
+    public void createStream(String streamPath, boolean overwrite, ByteBuffer data) throws RestException, IOException {
+        delay();
+        AppendOffsets.add(0L);
+        BaseAdapter.createStream(streamPath, overwrite, data);
+    }
+
+    public void deleteStream(String streamPath, boolean recurse) throws RestException, IOException {
+        BaseAdapter.deleteStream(streamPath, recurse);
+    }
+
+    public void appendToStream(String streamPath, byte[] data, long offset, int byteCount) throws RestException, IOException {
+        appendToStream(streamPath, ByteBuffer.wrap(data, 0, byteCount), offset);
+    }
+
+    public void appendToStream(String streamPath, ByteBuffer data, long offset) throws RestException, IOException {
+        delay();
+        AppendOffsets.add(offset);
+        BaseAdapter.appendToStream(streamPath, data, offset);
+    }
+
+    public boolean streamExists(String streamPath) throws RestException, IOException {
+        return BaseAdapter.streamExists(streamPath);
+    }
+
+    public long getStreamLength(String streamPath) throws RestException, IOException {
+        return BaseAdapter.getStreamLength(streamPath);
+    }
+
+    public InputStream readStream(String streamPath, long offset, long length) throws RestException, IOException {
+        delay();
+        return BaseAdapter.readStream(streamPath, offset, length);
+    }
+
+    public void concatenate(String targetStreamPath, String[] inputStreamPaths) throws RestException, IOException {
+        BaseAdapter.concatenate(targetStreamPath, inputStreamPaths);
+    }
+
+    private void delay() throws IOException {
+        int latency;
+        synchronized (Rnd) {
+            latency = MinLatencyMillis + Rnd.nextInt(MaxLatencyMillis - MinLatencyMillis + 1);
+        }
+
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+}
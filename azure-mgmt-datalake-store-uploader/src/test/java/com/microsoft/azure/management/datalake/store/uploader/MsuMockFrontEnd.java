@@ -9,6 +9,8 @@ import com.microsoft.rest.RestException;
 import org.junit.Assert;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * A mocked front end for testing out the code paths of the {@link MultipleSegmentUploader}
@@ -35,6 +37,10 @@ public class MsuMockFrontEnd implements FrontEndAdapter {
     }
 
     public void createStream(String streamPath, boolean overwrite, byte[] data, int byteCount) throws RestException, IOException {
+        createStream(streamPath, overwrite, data == null ? null : ByteBuffer.wrap(data, 0, byteCount));
+    }
+
+    public void createStream(String streamPath, boolean overwrite, ByteBuffer data) throws RestException, IOException {
         if (TestRetry) {
             CallCount++;
             if (CallCount <= FailCount)
@@ -43,14 +49,18 @@ public class MsuMockFrontEnd implements FrontEndAdapter {
             }
         }
 
-        BaseAdapter.createStream(streamPath, overwrite, data, byteCount);
+        BaseAdapter.createStream(streamPath, overwrite, data);
     }
 
     public void deleteStream(String streamPath, boolean recurse) throws IOException, RestException {
         BaseAdapter.deleteStream(streamPath, recurse);
     }
 
-    public void appendToStream(String streamPath, byte[] data, long offset, int byteCount) throws IOException, RestException {
+    public void appendToStream(String streamPath, byte[] data, long offset, int byteCount) throws RestException, IOException {
+        appendToStream(streamPath, ByteBuffer.wrap(data, 0, byteCount), offset);
+    }
+
+    public void appendToStream(String streamPath, ByteBuffer data, long offset) throws IOException, RestException {
         if (TestRetry) {
             CallCount++;
             if (CallCount <= FailCount)
@@ -59,7 +69,7 @@ public class MsuMockFrontEnd implements FrontEndAdapter {
             }
         }
 
-        BaseAdapter.appendToStream(streamPath, data, offset, byteCount);
+        BaseAdapter.appendToStream(streamPath, data, offset);
     }
 
     public boolean streamExists(String streamPath) throws IOException, RestException {
@@ -70,6 +80,10 @@ public class MsuMockFrontEnd implements FrontEndAdapter {
         return BaseAdapter.getStreamLength(streamPath);
     }
 
+    public InputStream readStream(String streamPath, long offset, long length) throws IOException, RestException {
+        return BaseAdapter.readStream(streamPath, offset, length);
+    }
+
     public void concatenate(String targetStreamPath, String[] inputStreamPaths) throws IOException, RestException {
         Assert.assertTrue("concatenate should not be called when using 1 segment", false);
         BaseAdapter.concatenate(targetStreamPath, inputStreamPaths);
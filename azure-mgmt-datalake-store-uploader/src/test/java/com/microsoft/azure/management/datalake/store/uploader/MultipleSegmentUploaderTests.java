@@ -15,6 +15,10 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Represents a class of unit tests targeting the {@link MultipleSegmentUploader}
@@ -163,6 +167,96 @@ public class MultipleSegmentUploaderTests {
         }
     }
 
+    /**
+     * Tests an upload on a caller-provided executor, which must be left running, reporting its progress to a listener.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void MultipleSegmentUploader_ExecutorAndProgressListener() throws Exception
+    {
+        InMemoryFrontEnd fe = new InMemoryFrontEnd();
+        UploadMetadata metadata = CreateMetadata(10);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        final AtomicInteger notifications = new AtomicInteger();
+        final AtomicReference<UploadProgress> lastProgress = new AtomicReference<>();
+        try
+        {
+            MultipleSegmentUploader msu = new MultipleSegmentUploader(metadata, 4, fe, executor);
+            msu.setUseSegmentBlockBackOffRetryStrategy(false);
+            msu.setProgressListener(new UploadProgressListener() {
+                @Override
+                public void progressChanged(UploadProgress progress) {
+                    notifications.incrementAndGet();
+                    lastProgress.set(progress);
+                }
+            });
+            msu.upload();
+            VerifyTargetStreamsAreComplete(metadata, fe);
+
+            Assert.assertFalse(executor.isShutdown());
+            Assert.assertEquals(metadata.getSegmentCount(), notifications.get());
+            UploadProgress progress = lastProgress.get();
+            Assert.assertEquals(_smallFileContents.length, progress.getUploadedByteCount());
+            Assert.assertEquals(metadata.getSegmentCount(), progress.getSegmentCount());
+            for (UploadSegmentMetadata segment: metadata.getSegments())
+            {
+                Assert.assertEquals(segment.getLength(), progress.getSegmentUploadedByteCount(segment.getSegmentNumber()));
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+            metadata.deleteFile();
+        }
+    }
+
+    /**
+     * Tests that the segment status changes are journaled next to the saved metadata, and picked up when it is loaded again.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void MultipleSegmentUploader_SegmentStatusIsJournaled() throws Exception
+    {
+        InMemoryFrontEnd fe = new InMemoryFrontEnd();
+        UploadMetadata metadata = CreateMetadata(10);
+        try
+        {
+            metadata.save();
+            long savedLength = new File(metadata.getMetadataFilePath()).length();
+
+            MultipleSegmentUploader msu = new MultipleSegmentUploader(metadata, 2, fe);
+            msu.setUseSegmentBlockBackOffRetryStrategy(false);
+            msu.upload();
+
+            File journal = new File(metadata.getMetadataFilePath() + ".journal");
+            Assert.assertTrue("The segment status changes were not journaled", journal.exists());
+            Assert.assertEquals(savedLength, new File(metadata.getMetadataFilePath()).length());
+
+            //an incomplete record at the end (e.g. a crash in the middle of a write) is ignored
+            try (FileOutputStream stream = new FileOutputStream(journal, true)) {
+                stream.write(new byte[] { 0, 0 });
+            }
+
+            UploadMetadata loaded = UploadMetadata.loadFrom(metadata.getMetadataFilePath());
+            for (UploadSegmentMetadata segment: loaded.getSegments())
+            {
+                Assert.assertEquals(SegmentUploadStatus.Complete, segment.getStatus());
+            }
+
+            //saving folds the journal into the metadata file
+            loaded.save();
+            Assert.assertFalse(journal.exists());
+            loaded = UploadMetadata.loadFrom(metadata.getMetadataFilePath());
+            Assert.assertEquals(SegmentUploadStatus.Complete, loaded.getSegments()[0].getStatus());
+        }
+        finally
+        {
+            metadata.deleteFile();
+        }
+    }
+
     /**
      * Tests an upload made of several segments, where
      *  some fail a couple of times => upload can finish.
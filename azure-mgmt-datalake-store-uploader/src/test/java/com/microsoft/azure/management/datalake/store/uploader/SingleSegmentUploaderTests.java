@@ -5,6 +5,7 @@
  */
 package com.microsoft.azure.management.datalake.store.uploader;
 
+import com.microsoft.rest.RestException;
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -12,6 +13,9 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
 
 public class SingleSegmentUploaderTests {
     private static byte[] _smallFileContents = new byte[10 * 1024]; //10KB file
@@ -231,6 +235,93 @@ public class SingleSegmentUploaderTests {
         }
     }
 
+    /**
+     * Tests the read-ahead pipeline against a front end with variable latency: the appends must be made in order,
+     * on record boundaries, and the uploaded stream must be identical to the source file.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void SingleSegmentUploader_UploadNonBinaryFileWithLatency() throws Exception {
+        InMemoryFrontEnd workingFrontEnd = new InMemoryFrontEnd();
+        LatencyFrontEnd fe = new LatencyFrontEnd(workingFrontEnd, 0, 20);
+
+        UploadMetadata metadata = CreateMetadata(_textFilePath, _textFileContents.length);
+        metadata.setBinary(false);
+
+        SingleSegmentUploader ssu = new SingleSegmentUploader(0, metadata, fe);
+        ssu.setUseBackOffRetryStrategy(false);
+        ssu.setPipelineDepth(3);
+        ssu.upload();
+
+        byte[] actualContents = workingFrontEnd.GetStreamContents(StreamPath);
+        Assert.assertArrayEquals("Unexpected uploaded stream contents.", _textFileContents, actualContents);
+
+        long expectedOffset = 0;
+        int blockIndex = 0;
+        for (byte[] append: workingFrontEnd.GetAppendBlocks(StreamPath))
+        {
+            Assert.assertEquals("Unexpected append offset.", expectedOffset, (long) fe.getAppendOffsets().get(blockIndex));
+            expectedOffset += append.length;
+            blockIndex++;
+            if (expectedOffset < actualContents.length)
+            {
+                Assert.assertEquals('\n', (char)append[append.length - 1]);
+            }
+        }
+
+        Assert.assertEquals(blockIndex, fe.getAppendOffsets().size());
+    }
+
+    /**
+     * Tests that a failing append aborts the read-ahead pipeline instead of waiting for the rest of the segment to be read.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void SingleSegmentUploader_PipelineStopsOnAppendFailure() throws Exception {
+        final InMemoryFrontEnd workingFrontEnd = new InMemoryFrontEnd();
+        FrontEndAdapter fe = new SsuMockFrontEnd(workingFrontEnd, false, false, -1) {
+            @Override
+            public void appendToStream(String streamPath, ByteBuffer data, long offset) throws RestException, IOException {
+                throw new IntentionalException();
+            }
+        };
+
+        UploadMetadata metadata = CreateMetadata(_largeFilePath, _largeFileContents.length);
+        SingleSegmentUploader ssu = new SingleSegmentUploader(0, metadata, fe);
+        ssu.setUseBackOffRetryStrategy(false);
+        ssu.setPipelineDepth(1);
+
+        try {
+            ssu.upload();
+            Assert.assertTrue("upload should have failed since every append fails, but didn't!", false);
+        }
+        catch (IntentionalException ex) {
+            // do nothing, expected
+        }
+
+        //only the first block made it
+        Assert.assertEquals(SingleSegmentUploader.BUFFER_LENGTH, workingFrontEnd.getStreamLength(StreamPath));
+    }
+
+    /**
+     * Tests that the read-ahead pipeline overlaps the reads of the input file with the appends: over an input and
+     * a front end that are both slow, the pipelined upload must beat the serialized one by at least one read.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void SingleSegmentUploader_PipelineOverlapsReadsWithAppends() throws Exception {
+        int latencyMillis = 100;
+        long serializedMillis = TimeUploadWithLatency(1, latencyMillis);
+        long pipelinedMillis = TimeUploadWithLatency(3, latencyMillis);
+
+        Assert.assertTrue(
+                "Pipelined upload took " + pipelinedMillis + "ms, serialized upload took " + serializedMillis + "ms",
+                pipelinedMillis + latencyMillis < serializedMillis);
+    }
+
     /**
      * Tests various scenarios where the upload will fail repeatedly; verifies that the uploader will retry a certain number of times before finally giving up
      *
@@ -277,6 +368,29 @@ public class SingleSegmentUploaderTests {
         }
     }
 
+    private long TimeUploadWithLatency(int pipelineDepth, final int latencyMillis) throws Exception
+    {
+        InMemoryFrontEnd workingFrontEnd = new InMemoryFrontEnd();
+        LatencyFrontEnd fe = new LatencyFrontEnd(workingFrontEnd, latencyMillis, latencyMillis);
+
+        UploadMetadata metadata = CreateMetadata(_largeFilePath, _largeFileContents.length);
+        SingleSegmentUploader ssu = new SingleSegmentUploader(0, metadata, fe) {
+            @Override
+            FileChannel openInputChannel() throws IOException {
+                return new LatencyFileChannel(super.openInputChannel(), latencyMillis);
+            }
+        };
+        ssu.setUseBackOffRetryStrategy(false);
+        ssu.setPipelineDepth(pipelineDepth);
+
+        long start = System.nanoTime();
+        ssu.upload();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        Assert.assertArrayEquals("Unexpected uploaded stream contents.", _largeFileContents, workingFrontEnd.GetStreamContents(StreamPath));
+        return elapsedMillis;
+    }
+
     private UploadMetadata CreateMetadata(String filePath, long filelength)
     {
         UploadMetadata metadata = new UploadMetadata();
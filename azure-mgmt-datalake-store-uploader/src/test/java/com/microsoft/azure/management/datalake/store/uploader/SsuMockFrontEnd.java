@@ -8,6 +8,8 @@ package com.microsoft.azure.management.datalake.store.uploader;
 import com.microsoft.rest.RestException;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Represents a mocked front end for testing the {@link SingleSegmentUploader}
@@ -41,8 +43,12 @@ public class SsuMockFrontEnd implements FrontEndAdapter {
     }
 
     public void createStream(String streamPath, boolean overwrite, byte[] data, int byteCount) throws RestException, IOException {
+        createStream(streamPath, overwrite, data == null ? null : ByteBuffer.wrap(data, 0, byteCount));
+    }
+
+    public void createStream(String streamPath, boolean overwrite, ByteBuffer data) throws RestException, IOException {
         if (!DoNothing && !TestRetry) {
-            BaseAdapter.createStream(streamPath, overwrite, data, byteCount);
+            BaseAdapter.createStream(streamPath, overwrite, data);
         }
         else if(TestRetry) {
             CallCount++;
@@ -50,7 +56,7 @@ public class SsuMockFrontEnd implements FrontEndAdapter {
             {
                 throw new IntentionalException();
             }
-            BaseAdapter.createStream(streamPath, overwrite, data, byteCount);
+            BaseAdapter.createStream(streamPath, overwrite, data);
         }
     }
 
@@ -61,8 +67,12 @@ public class SsuMockFrontEnd implements FrontEndAdapter {
     }
 
     public void appendToStream(String streamPath, byte[] data, long offset, int byteCount) throws RestException, IOException {
+        appendToStream(streamPath, ByteBuffer.wrap(data, 0, byteCount), offset);
+    }
+
+    public void appendToStream(String streamPath, ByteBuffer data, long offset) throws RestException, IOException {
         if (!DoNothing && !TestRetry) {
-            BaseAdapter.appendToStream(streamPath, data, offset, byteCount);
+            BaseAdapter.appendToStream(streamPath, data, offset);
         }
         else if(TestRetry) {
             CallCount++;
@@ -70,7 +80,7 @@ public class SsuMockFrontEnd implements FrontEndAdapter {
             {
                 throw new IntentionalException();
             }
-            BaseAdapter.appendToStream(streamPath, data, offset, byteCount);
+            BaseAdapter.appendToStream(streamPath, data, offset);
         }
     }
 
@@ -90,6 +100,10 @@ public class SsuMockFrontEnd implements FrontEndAdapter {
         return 0;
     }
 
+    public InputStream readStream(String streamPath, long offset, long length) throws RestException, IOException {
+        return BaseAdapter.readStream(streamPath, offset, length);
+    }
+
     public void concatenate(String targetStreamPath, String[] inputStreamPaths) throws RestException, IOException {
         if (!DoNothing) {
             BaseAdapter.concatenate(targetStreamPath, inputStreamPaths);
@@ -11,8 +11,10 @@ import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Random;
 
 public class StringExtensionsTests {
     private static final String customDelim = ";";
@@ -296,4 +298,154 @@ public class StringExtensionsTests {
             Assert.assertEquals(t.getRight().intValue(), reverseInLargeBuffer);
         }
     }
+
+    @Test
+    public void StringExtensions_FindNewLine_MatchesReferenceOnLongBuffers()
+    {
+        // buffers long enough to be searched a word at a time, with sparse newlines at every alignment
+        Random rnd = new Random(0);
+        Charset[] encodings = new Charset[] { StandardCharsets.UTF_8, StandardCharsets.US_ASCII, StandardCharsets.UTF_16LE, StandardCharsets.UTF_16BE };
+        String[] delimiters = new String[] { null, customDelim };
+        for (Charset encoding : encodings)
+        {
+            for (String delimiter : delimiters)
+            {
+                for (int iteration = 0; iteration < 200; iteration++)
+                {
+                    byte[] buffer = GenerateText(rnd, 1 + rnd.nextInt(300), encoding);
+                    int startOffset = rnd.nextInt(buffer.length);
+                    int forwardLength = Math.max(2, rnd.nextInt(buffer.length - startOffset + 1));
+                    if (startOffset + forwardLength <= buffer.length)
+                    {
+                        Assert.assertEquals(
+                                FindNewlineReference(buffer, startOffset, forwardLength, false, encoding, delimiter),
+                                StringExtensions.findNewline(buffer, startOffset, forwardLength, false, encoding, delimiter));
+                    }
+
+                    int reverseLength = Math.max(2, rnd.nextInt(startOffset + 2));
+                    if (startOffset >= 1 && reverseLength <= startOffset + 1)
+                    {
+                        Assert.assertEquals(
+                                FindNewlineReference(buffer, startOffset, reverseLength, true, encoding, delimiter),
+                                StringExtensions.findNewline(buffer, startOffset, reverseLength, true, encoding, delimiter));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void StringExtensions_FindNewLine_CustomDelimiterReturnsBufferIndex()
+    {
+        byte[] buffer = "abc;defgh;ijklmnopqrstuvwxyz;".getBytes(StandardCharsets.UTF_8);
+        Assert.assertEquals(9, StringExtensions.findNewline(buffer, 4, buffer.length - 4, false, StandardCharsets.UTF_8, customDelim));
+        Assert.assertEquals(9, StringExtensions.findNewline(buffer, 27, 25, true, StandardCharsets.UTF_8, customDelim));
+
+        buffer = "abc;defgh;ijklmnopqrstuvwxyz;".getBytes(StandardCharsets.UTF_16LE);
+        Assert.assertEquals(19, StringExtensions.findNewline(buffer, 8, buffer.length - 8, false, StandardCharsets.UTF_16LE, customDelim));
+        Assert.assertEquals(19, StringExtensions.findNewline(buffer, 55, 50, true, StandardCharsets.UTF_16LE, customDelim));
+    }
+
+    @Test
+    public void StringExtensions_FindNewLine_MultiByteDelimiter()
+    {
+        String text = "caf\u00e9 \u20ac10 \u00e9t\u00e9 \u20ac20 fin";
+        byte[] buffer = text.getBytes(StandardCharsets.UTF_8);
+        byte[] euro = "\u20ac".getBytes(StandardCharsets.UTF_8);
+        byte[] acute = "\u00e9".getBytes(StandardCharsets.UTF_8);
+
+        Assert.assertEquals(IndexOf(buffer, acute, false) + acute.length - 1, StringExtensions.findNewline(buffer, 0, buffer.length, false, StandardCharsets.UTF_8, "\u00e9"));
+        Assert.assertEquals(IndexOf(buffer, acute, true) + acute.length - 1, StringExtensions.findNewline(buffer, buffer.length - 1, buffer.length, true, StandardCharsets.UTF_8, "\u00e9"));
+        Assert.assertEquals(IndexOf(buffer, euro, false) + euro.length - 1, StringExtensions.findNewline(buffer, 0, buffer.length, false, StandardCharsets.UTF_8, "\u20ac"));
+        Assert.assertEquals(IndexOf(buffer, euro, true) + euro.length - 1, StringExtensions.findNewline(buffer, buffer.length - 1, buffer.length, true, StandardCharsets.UTF_8, "\u20ac"));
+
+        // a delimiter that ASCII cannot encode is never found
+        Assert.assertEquals(-1, StringExtensions.findNewline(text.getBytes(StandardCharsets.US_ASCII), 0, text.length(), false, StandardCharsets.US_ASCII, "\u20ac"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void StringExtensions_FindNewLine_UnsupportedEncoding()
+    {
+        StringExtensions.findNewline(new byte[4], 0, 4, false, Charset.forName("UTF-32"), null);
+    }
+
+    /**
+     * Generates random text with sparse newlines, tab-separated fields and custom delimiters.
+     */
+    private static byte[] GenerateText(Random rnd, int charCount, Charset encoding)
+    {
+        String alphabet = "abcdefghijklmnopqrstuvwxyz0123456789 \t";
+        String delimiters = "\r\n;";
+        StringBuilder sb = new StringBuilder(charCount);
+        for (int i = 0; i < charCount; i++)
+        {
+            if (rnd.nextInt(40) == 0)
+            {
+                sb.append(delimiters.charAt(rnd.nextInt(delimiters.length())));
+            }
+            else
+            {
+                sb.append(alphabet.charAt(rnd.nextInt(alphabet.length())));
+            }
+        }
+
+        return sb.toString().getBytes(encoding);
+    }
+
+    /**
+     * A byte-at-a-time implementation of StringExtensions.findNewline, used as the reference for its results.
+     */
+    private static int FindNewlineReference(byte[] buffer, int startOffset, int length, boolean reverse, Charset encoding, String delimiter)
+    {
+        int bytesPerChar = encoding.equals(StandardCharsets.UTF_16LE) || encoding.equals(StandardCharsets.UTF_16BE) ? 2 : 1;
+        int from = reverse ? startOffset - length + 1 : startOffset;
+        int to = reverse ? startOffset + 1 : startOffset + length;
+        int result = -1;
+        for (int i = 0; i + bytesPerChar <= to - from; i++)
+        {
+            int pos = reverse ? to - bytesPerChar - i : from + i;
+            char c = new String(buffer, pos, bytesPerChar, encoding).charAt(0);
+            boolean found = delimiter == null ? c == '\r' || c == '\n' : c == delimiter.charAt(0);
+            if (found)
+            {
+                result = pos + bytesPerChar - 1;
+                break;
+            }
+        }
+
+        if (delimiter == null && !reverse && result >= 0 && result + bytesPerChar < to)
+        {
+            char c = new String(buffer, result + 1, bytesPerChar, encoding).charAt(0);
+            if (c == '\r' || c == '\n')
+            {
+                result += bytesPerChar;
+            }
+        }
+
+        return result;
+    }
+
+    private static int IndexOf(byte[] buffer, byte[] pattern, boolean last)
+    {
+        int result = -1;
+        for (int i = 0; i + pattern.length <= buffer.length; i++)
+        {
+            boolean found = true;
+            for (int j = 0; j < pattern.length && found; j++)
+            {
+                found = buffer[i + j] == pattern[j];
+            }
+
+            if (found)
+            {
+                result = i;
+                if (!last)
+                {
+                    break;
+                }
+            }
+        }
+
+        return result;
+    }
 }
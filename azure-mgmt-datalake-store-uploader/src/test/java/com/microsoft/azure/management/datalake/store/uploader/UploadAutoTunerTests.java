@@ -0,0 +1,218 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.datalake.store.uploader;
+
+import com.google.common.base.Ticker;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests that target the {@link UploadAutoTuner} class.
+ */
+public class UploadAutoTunerTests {
+    private static final int AppendLength = 4 * 1024 * 1024;
+
+    /**
+     * Tests that the segment count is raised to keep the threads busy, within the minimum segment size and the concatenate fan-in.
+     */
+    @Test
+    public void UploadAutoTuner_ChooseSegmentCount()
+    {
+        RecordingListener listener = new RecordingListener();
+        UploadAutoTuner tuner = new UploadAutoTuner(16, listener);
+
+        Assert.assertEquals("Segment count not raised to keep the threads busy", 32, tuner.chooseSegmentCount(1024L * 1024 * 1024, 4));
+        Assert.assertEquals("Segments smaller than the minimum segment size", 10, tuner.chooseSegmentCount(40L * 1024 * 1024, 1));
+        Assert.assertEquals("An empty file should have no segments", 0, tuner.chooseSegmentCount(0, 0));
+
+        Assert.assertEquals(2, listener.Decisions.size());
+        Assert.assertEquals(AutoTuneAction.SegmentCountChosen, listener.Decisions.get(0).getAction());
+        Assert.assertEquals(4, listener.Decisions.get(0).getPreviousValue());
+        Assert.assertEquals(32, listener.Decisions.get(0).getNewValue());
+
+        tuner = new UploadAutoTuner(UploadAutoTuner.MAX_CONCATENATE_FAN_IN, null);
+        Assert.assertEquals("Segment count above the concatenate fan-in", UploadAutoTuner.MAX_CONCATENATE_FAN_IN, tuner.chooseSegmentCount(100L * 1024 * 1024 * 1024, 4));
+        Assert.assertEquals("Default segment count lowered", 400, tuner.chooseSegmentCount(100L * 1024 * 1024 * 1024, 400));
+    }
+
+    /**
+     * Tests that the concurrency limit doubles while the throughput grows with it, up to the maximum, and is halved when the latency inflates without a throughput gain.
+     */
+    @Test
+    public void UploadAutoTuner_GrowAndShrink()
+    {
+        RecordingListener listener = new RecordingListener();
+        FakeTicker ticker = new FakeTicker();
+        UploadAutoTuner tuner = new UploadAutoTuner(8, listener, ticker);
+        Assert.assertEquals(UploadAutoTuner.INITIAL_CONCURRENCY, tuner.getConcurrencyLimit());
+
+        //with a constant latency, every doubling of the concurrency doubles the throughput
+        RunRound(tuner, ticker, 100);
+        RunRound(tuner, ticker, 100);
+        Assert.assertEquals(4, tuner.getConcurrencyLimit());
+        RunRound(tuner, ticker, 100);
+        Assert.assertEquals(8, tuner.getConcurrencyLimit());
+        RunRound(tuner, ticker, 100);
+        Assert.assertEquals("Concurrency limit exceeded the maximum", 8, tuner.getConcurrencyLimit());
+
+        //the service slows down: the appends take ten times longer and the throughput drops
+        RunRound(tuner, ticker, 1000);
+        Assert.assertEquals(4, tuner.getConcurrencyLimit());
+
+        Assert.assertEquals(3, listener.Decisions.size());
+        Assert.assertEquals(AutoTuneAction.ConcurrencyIncreased, listener.Decisions.get(0).getAction());
+        Assert.assertEquals(2, listener.Decisions.get(0).getPreviousValue());
+        Assert.assertEquals(4, listener.Decisions.get(0).getNewValue());
+        Assert.assertEquals(AutoTuneAction.ConcurrencyIncreased, listener.Decisions.get(1).getAction());
+        Assert.assertEquals(8, listener.Decisions.get(1).getNewValue());
+        Assert.assertEquals(AutoTuneAction.ConcurrencyDecreased, listener.Decisions.get(2).getAction());
+        Assert.assertEquals(8, listener.Decisions.get(2).getPreviousValue());
+        Assert.assertEquals(4, listener.Decisions.get(2).getNewValue());
+        Assert.assertEquals(1000, listener.Decisions.get(2).getAverageAppendLatencyMillis(), 0.001);
+    }
+
+    /**
+     * Tests that the concurrency limit is kept once the throughput levels off, and that it is raised by one after a number of windows to probe for more bandwidth.
+     */
+    @Test
+    public void UploadAutoTuner_HoldAndProbe()
+    {
+        FakeTicker ticker = new FakeTicker();
+        UploadAutoTuner tuner = new UploadAutoTuner(16, null, ticker);
+
+        //the bandwidth is saturated: the latency grows with the concurrency, so the throughput stays the same
+        RunRound(tuner, ticker, 50 * tuner.getConcurrencyLimit());
+        RunRound(tuner, ticker, 50 * tuner.getConcurrencyLimit());
+        Assert.assertEquals(4, tuner.getConcurrencyLimit());
+
+        for (int i = 0; i < UploadAutoTuner.PROBE_INTERVAL_WINDOWS - 1; i++)
+        {
+            RunRound(tuner, ticker, 50 * tuner.getConcurrencyLimit());
+            Assert.assertEquals("Concurrency limit changed while the throughput is level", 4, tuner.getConcurrencyLimit());
+        }
+
+        RunRound(tuner, ticker, 50 * tuner.getConcurrencyLimit());
+        Assert.assertEquals("Concurrency limit not probed additively", 5, tuner.getConcurrencyLimit());
+    }
+
+    /**
+     * Tests that a failed append halves the concurrency limit once for all the appends that were in flight with it.
+     */
+    @Test
+    public void UploadAutoTuner_FailedAppends() throws Exception
+    {
+        RecordingListener listener = new RecordingListener();
+        FakeTicker ticker = new FakeTicker();
+        UploadAutoTuner tuner = new UploadAutoTuner(8, listener, ticker);
+
+        long start1 = tuner.appendStarting();
+        long start2 = tuner.appendStarting();
+        ticker.advance(100);
+        tuner.appendFinished(start1, AppendLength, false);
+        tuner.appendFinished(start2, AppendLength, false);
+        Assert.assertEquals(1, tuner.getConcurrencyLimit());
+
+        long start3 = tuner.appendStarting();
+        ticker.advance(100);
+        tuner.appendFinished(start3, AppendLength, false);
+        Assert.assertEquals("Concurrency limit dropped below 1", 1, tuner.getConcurrencyLimit());
+
+        Assert.assertEquals(1, listener.Decisions.size());
+        Assert.assertEquals(AutoTuneAction.ConcurrencyDecreased, listener.Decisions.get(0).getAction());
+    }
+
+    /**
+     * Tests that appends beyond the concurrency limit wait until one of those in flight finishes.
+     */
+    @Test
+    public void UploadAutoTuner_LimitsAppendsInFlight() throws Exception
+    {
+        final UploadAutoTuner tuner = new UploadAutoTuner(1, null);
+        long start = tuner.appendStarting();
+
+        Thread waiting = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    tuner.appendFinished(tuner.appendStarting(), AppendLength, true);
+                } catch (InterruptedException e) {
+                    // the test fails on the join below
+                }
+            }
+        });
+        waiting.start();
+
+        waiting.join(500);
+        Assert.assertTrue("Append started beyond the concurrency limit", waiting.isAlive());
+
+        tuner.appendFinished(start, AppendLength, true);
+        waiting.join(10000);
+        Assert.assertFalse("Append did not start after the one in flight finished", waiting.isAlive());
+    }
+
+    /**
+     * Runs as many appends as the concurrency limit allows at the same time, all of them taking the given time.
+     *
+     * @param tuner The tuner.
+     * @param ticker The ticker of the tuner.
+     * @param latencyMillis The time each append takes.
+     */
+    private static void RunRound(UploadAutoTuner tuner, FakeTicker ticker, long latencyMillis)
+    {
+        try {
+            long[] starts = new long[tuner.getConcurrencyLimit()];
+            for (int i = 0; i < starts.length; i++)
+            {
+                starts[i] = tuner.appendStarting();
+            }
+
+            ticker.advance(latencyMillis);
+            for (long start : starts)
+            {
+                tuner.appendFinished(start, AppendLength, true);
+            }
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * A ticker that only moves when told to.
+     */
+    private static class FakeTicker extends Ticker
+    {
+        private long Nanos;
+
+        public void advance(long millis)
+        {
+            Nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+
+        @Override
+        public long read()
+        {
+            return Nanos;
+        }
+    }
+
+    /**
+     * A listener that keeps all the decisions it is notified of.
+     */
+    private static class RecordingListener implements AutoTuneListener
+    {
+        public List<AutoTuneDecision> Decisions = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void decisionMade(AutoTuneDecision decision)
+        {
+            Decisions.add(decision);
+        }
+    }
+}
@@ -115,6 +115,85 @@ public class UploadMetadataGeneratorTests {
         }
     }
 
+    @Test
+    public void UploadMetadataGenerator_AlignSegmentsToRecordBoundariesInParallel() throws IOException, UploadFailedException, InvalidMetadataException {
+        Random rnd = new Random(0);
+        File folderPath = new File(MessageFormat.format("{0}\\uploadtest", new File(".").getAbsoluteFile()));
+        File filePath = new File(folderPath, "verifymetadataparallel.txt");
+        try
+        {
+            if (!folderPath.exists())
+            {
+                folderPath.mkdirs();
+            }
+
+            AppendToFile(filePath.getAbsolutePath(), 60 * 1024 * 1024, rnd, 0, MaxAppendLength);
+            String metadataFilePath = filePath + ".metadata.txt";
+
+            UploadParameters serialParameters = new UploadParameters(filePath.getAbsolutePath(), filePath.getAbsolutePath(), null, 1, false, false, false, 4 * 1024 * 1024, null);
+            UploadMetadata serial = new UploadMetadataGenerator(serialParameters, MaxAppendLength).createNewMetadata(metadataFilePath);
+
+            UploadParameters parallelParameters = new UploadParameters(filePath.getAbsolutePath(), filePath.getAbsolutePath(), null, 8, false, false, false, 4 * 1024 * 1024, null);
+            UploadMetadata parallel = new UploadMetadataGenerator(parallelParameters, MaxAppendLength).createNewMetadata(metadataFilePath);
+
+            Assert.assertTrue("Expecting the file to be split into several segments", parallel.getSegmentCount() > 1);
+            Assert.assertEquals(serial.getSegmentCount(), parallel.getSegmentCount());
+            for (int i = 0; i < parallel.getSegmentCount(); i++)
+            {
+                Assert.assertEquals(serial.getSegments()[i].getOffset(), parallel.getSegments()[i].getOffset());
+                Assert.assertEquals(serial.getSegments()[i].getLength(), parallel.getSegments()[i].getLength());
+            }
+
+            VerifySegmentsAreOnRecordBoundaries(parallel, filePath.getAbsolutePath());
+        }
+        finally
+        {
+            if (folderPath.exists())
+            {
+                FileUtils.deleteQuietly(folderPath);
+            }
+        }
+    }
+
+    @Test
+    public void UploadMetadataGenerator_AlignSegmentsToRecordBoundariesRemovesEmptySegments() throws IOException, UploadFailedException, InvalidMetadataException {
+        File folderPath = new File(MessageFormat.format("{0}\\uploadtest", new File(".").getAbsoluteFile()));
+        File filePath = new File(folderPath, "verifymetadatasinglerecord.txt");
+        try
+        {
+            if (!folderPath.exists())
+            {
+                folderPath.mkdirs();
+            }
+
+            //a single record, so every segment boundary moves to the end of the file
+            int fileLength = 12 * 1024 * 1024;
+            try (CountingOutputStream stream = new CountingOutputStream(new FileOutputStream(filePath)))
+            {
+                WriteRecord(stream, fileLength - NewLine.length);
+                stream.write(NewLine, 0, NewLine.length);
+            }
+
+            String metadataFilePath = filePath + ".metadata.txt";
+            UploadParameters up = new UploadParameters(filePath.getAbsolutePath(), filePath.getAbsolutePath(), null, 4, false, false, false, 4 * 1024 * 1024, null);
+            Assert.assertTrue("Expecting the file to be split into several segments", new UploadMetadata(metadataFilePath, up).getSegmentCount() > 1);
+
+            UploadMetadata metadata = new UploadMetadataGenerator(up, 2 * fileLength).createNewMetadata(metadataFilePath);
+
+            Assert.assertEquals(1, metadata.getSegmentCount());
+            Assert.assertEquals(1, metadata.getSegments().length);
+            Assert.assertEquals(0, metadata.getSegments()[0].getOffset());
+            Assert.assertEquals(fileLength, metadata.getSegments()[0].getLength());
+        }
+        finally
+        {
+            if (folderPath.exists())
+            {
+                FileUtils.deleteQuietly(folderPath);
+            }
+        }
+    }
+
     private void VerifySegmentsAreOnRecordBoundaries(UploadMetadata metadata, String filePath) throws IOException {
         try(RandomAccessFile stream = new RandomAccessFile(filePath, "r"))
         {
@@ -8,6 +8,8 @@ package com.microsoft.azure.management.datalake.store.uploader;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ObjectStreamClass;
+
 /**
  * Unit tests that target the {@link UploadSegmentMetadata} class.
  */
@@ -173,4 +175,14 @@ public class UploadSegmentMetadataTests {
             Assert.assertEquals(FileLength, reconstructedFileLength);
         }
     }
+
+    /**
+     * Tests that the metadata classes keep the serialization versions of the previous releases, so that their uploads can be resumed.
+     */
+    @Test
+    public void UploadSegmentMetadata_SerialVersionUidsMatchPreviousReleases()
+    {
+        Assert.assertEquals(-2838446203405128809L, ObjectStreamClass.lookup(UploadMetadata.class).getSerialVersionUID());
+        Assert.assertEquals(6400643740343073284L, ObjectStreamClass.lookup(UploadSegmentMetadata.class).getSerialVersionUID());
+    }
 }
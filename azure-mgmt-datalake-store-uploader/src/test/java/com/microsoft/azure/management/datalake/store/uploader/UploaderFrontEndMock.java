@@ -9,6 +9,8 @@ import com.microsoft.rest.RestException;
 import org.junit.Assert;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * A front end mock used for unit testing {@link DataLakeStoreUploader}
@@ -35,6 +37,10 @@ public class UploaderFrontEndMock implements FrontEndAdapter {
     }
 
     public void createStream(String streamPath, boolean overwrite, byte[] data, int byteCount) throws RestException, IOException {
+        createStream(streamPath, overwrite, data == null ? null : ByteBuffer.wrap(data, 0, byteCount));
+    }
+
+    public void createStream(String streamPath, boolean overwrite, ByteBuffer data) throws RestException, IOException {
 
         if(ThrowInCreate) {
             createStreamCount++;
@@ -44,7 +50,7 @@ public class UploaderFrontEndMock implements FrontEndAdapter {
             }
         }
 
-        BaseAdapter.createStream(streamPath, overwrite, data, byteCount);
+        BaseAdapter.createStream(streamPath, overwrite, data);
     }
 
     public void deleteStream(String streamPath, boolean recurse) throws RestException, IOException {
@@ -52,7 +58,11 @@ public class UploaderFrontEndMock implements FrontEndAdapter {
     }
 
     public void appendToStream(String streamPath, byte[] data, long offset, int byteCount) throws RestException, IOException {
-        BaseAdapter.appendToStream(streamPath, data, offset, byteCount);
+        appendToStream(streamPath, ByteBuffer.wrap(data, 0, byteCount), offset);
+    }
+
+    public void appendToStream(String streamPath, ByteBuffer data, long offset) throws RestException, IOException {
+        BaseAdapter.appendToStream(streamPath, data, offset);
     }
 
     public boolean streamExists(String streamPath) throws RestException, IOException {
@@ -63,6 +73,10 @@ public class UploaderFrontEndMock implements FrontEndAdapter {
         return BaseAdapter.getStreamLength(streamPath);
     }
 
+    public InputStream readStream(String streamPath, long offset, long length) throws RestException, IOException {
+        return BaseAdapter.readStream(streamPath, offset, length);
+    }
+
     public void concatenate(String targetStreamPath, String[] inputStreamPaths) throws RestException, IOException {
         if(ThrowInConcat) {
             throw new IntentionalException();
@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.datalake.store.uploader.benchmarks;
+
+import com.microsoft.azure.management.datalake.store.uploader.StringExtensions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.Charset;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the record boundary search over a 4MB append buffer whose only
+ * delimiter is at its start, so each search scans the whole buffer, which is
+ * the worst case of the cutoff search done for every text block uploaded.
+ * Each operation is one 4MB scan; divide the score by 4 for GB/s.
+ *
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args="StringExtensionsBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringExtensionsBenchmark {
+    private static final int BUFFER_LENGTH = 4 * 1024 * 1024;
+
+    @Param({"UTF-8", "UTF-16LE"})
+    private String encodingName;
+
+    @Param({"", ";"})
+    private String delimiter;
+
+    private Charset encoding;
+    private int charLength;
+    private byte[] buffer;
+
+    @Setup
+    public void setup() {
+        encoding = Charset.forName(encodingName);
+        charLength = "a".getBytes(encoding).length;
+        String alphabet = "abcdefghijklmnopqrstuvwxyz0123456789 ,.\t";
+        Random rnd = new Random(0);
+        StringBuilder sb = new StringBuilder(BUFFER_LENGTH / charLength);
+        sb.append(delimiter.isEmpty() ? "\n" : delimiter);
+        while (sb.length() < BUFFER_LENGTH / charLength) {
+            sb.append(alphabet.charAt(rnd.nextInt(alphabet.length())));
+        }
+        buffer = sb.toString().getBytes(encoding);
+    }
+
+    @Benchmark
+    public int reverse() {
+        return StringExtensions.findNewline(buffer, buffer.length - 1, buffer.length, true, encoding, delimiter);
+    }
+
+    @Benchmark
+    public int forwardFromSecondRecord() {
+        // the first character is the delimiter, so this search finds nothing after scanning the whole buffer
+        return StringExtensions.findNewline(buffer, charLength, buffer.length - charLength, false, encoding, delimiter);
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for
+ * license information.
+ */
+package com.microsoft.azure.management.datalake.store.uploader.benchmarks;
+
+import com.microsoft.azure.management.datalake.store.uploader.UploadMetadata;
+import com.microsoft.azure.management.datalake.store.uploader.UploadMetadataGenerator;
+import com.microsoft.azure.management.datalake.store.uploader.UploadParameters;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures creating the metadata of a large generated text file, which
+ * aligns every segment boundary to a record boundary. The file is split into
+ * 4MB segments, so there is one boundary search per 4MB of file.
+ *
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args="UploadMetadataGeneratorBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UploadMetadataGeneratorBenchmark {
+    private static final int SEGMENT_LENGTH = 4 * 1024 * 1024;
+
+    @Param({"1024"})
+    private int fileLengthMB;
+
+    @Param({"1", "8"})
+    private int threadCount;
+
+    private File folder;
+    private File file;
+
+    @Setup
+    public void setup() throws IOException {
+        folder = Files.createTempDirectory("adls-metadata-benchmark").toFile();
+        file = new File(folder, "records.txt");
+        Random rnd = new Random(0);
+        byte[] record = new byte[64 * 1024];
+        for (int i = 0; i < record.length; i++) {
+            record[i] = (byte) ('a' + i % 25);
+        }
+
+        long fileLength = (long) fileLengthMB * 1024 * 1024;
+        try (OutputStream stream = new BufferedOutputStream(new FileOutputStream(file), 1024 * 1024)) {
+            long written = 0;
+            while (written < fileLength) {
+                int recordLength = (int) Math.min(rnd.nextInt(record.length - 2) + 1, fileLength - written - 2);
+                stream.write(record, 0, Math.max(0, recordLength));
+                stream.write('\r');
+                stream.write('\n');
+                written += Math.max(0, recordLength) + 2;
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileUtils.deleteQuietly(folder);
+    }
+
+    @Benchmark
+    public int createNewMetadata() throws Exception {
+        UploadParameters parameters = new UploadParameters(file.getAbsolutePath(), "/records.txt", null, threadCount, false, false, false, SEGMENT_LENGTH, null);
+        UploadMetadata metadata = new UploadMetadataGenerator(parameters).createNewMetadata(new File(folder, "records.txt.metadata").getAbsolutePath());
+        return metadata.getSegmentCount();
+    }
+}
@@ -17,8 +17,6 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.Properties;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * Token based credentials for use with a REST Service Client.
@@ -32,8 +30,15 @@ public class ApplicationTokenCredentials extends TokenCredentials {
     private String secret;
     /** The Azure environment to authenticate with. */
     private AzureEnvironment environment;
-    /** The current authentication result. */
-    private AuthenticationResult authenticationResult;
+    /** The cache holding the access tokens. */
+    private TokenCache tokenCache = TokenCache.getDefault();
+    /** Acquires the access tokens for the cache. */
+    private final TokenCache.TokenSource tokenSource = new TokenCache.TokenSource() {
+        @Override
+        public AuthenticationResult acquire(AuthenticationResult current) throws Exception {
+            return acquireAccessToken();
+        }
+    };
     /** The default subscription to use, if any. */
     private String defaultSubscription;
 
@@ -192,33 +197,45 @@ public class ApplicationTokenCredentials extends TokenCredentials {
         return environment;
     }
 
+    /**
+     * Sets the cache holding the access tokens. By default the tokens are
+     * held in {@link TokenCache#getDefault()}.
+     *
+     * @param tokenCache the token cache.
+     * @return the credentials object itself.
+     */
+    public ApplicationTokenCredentials withTokenCache(TokenCache tokenCache) {
+        this.tokenCache = tokenCache;
+        return this;
+    }
+
     @Override
     public String getToken() throws IOException {
-        if (authenticationResult == null
-            || authenticationResult.getAccessToken() == null) {
-            acquireAccessToken();
-        }
-        return authenticationResult.getAccessToken();
+        return tokenCache.getToken(cacheKey(), tokenSource).getAccessToken();
     }
 
     @Override
     public void refreshToken() throws IOException {
-        acquireAccessToken();
+        tokenCache.refreshToken(cacheKey(), tokenSource);
+    }
+
+    private String cacheKey() {
+        return this.getEnvironment().getAuthenticationEndpoint() + this.getDomain()
+                + "|" + this.getEnvironment().getTokenAudience()
+                + "|" + this.getClientId()
+                + "|" + TokenCache.digest(this.getSecret());
     }
 
-    private void acquireAccessToken() throws IOException {
+    private AuthenticationResult acquireAccessToken() throws IOException {
         String authorityUrl = this.getEnvironment().getAuthenticationEndpoint() + this.getDomain();
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-        AuthenticationContext context = new AuthenticationContext(authorityUrl, this.getEnvironment().isValidateAuthority(), executor);
         try {
-            authenticationResult = context.acquireToken(
+            AuthenticationContext context = new AuthenticationContext(authorityUrl, this.getEnvironment().isValidateAuthority(), TokenCache.executor());
+            return context.acquireToken(
                     this.getEnvironment().getTokenAudience(),
                     new ClientCredential(this.getClientId(), this.getSecret()),
                     null).get();
         } catch (Exception e) {
             throw new IOException(e.getMessage(), e);
-        } finally {
-            executor.shutdown();
         }
     }
 }
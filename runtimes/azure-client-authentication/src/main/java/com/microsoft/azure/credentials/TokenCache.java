@@ -0,0 +1,348 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.azure.credentials;
+
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.microsoft.aad.adal4j.AuthenticationResult;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cache of Active Directory access tokens, keyed by authority, resource
+ * and client.
+ *
+ * A cached token is refreshed in the background some time before it
+ * expires, so requests do not wait for token acquisition in steady state.
+ * A token that has not been read since its last refresh is not refreshed
+ * again; it is dropped instead, so credentials that are no longer used do
+ * not keep acquiring tokens. Only one acquisition per key runs at a time;
+ * concurrent callers wait for its result.
+ */
+public final class TokenCache {
+    /** The default time before expiry at which a token is refreshed, in milliseconds. */
+    public static final long DEFAULT_REFRESH_BEFORE_EXPIRY_IN_MILLISECONDS = TimeUnit.MINUTES.toMillis(5);
+
+    /** The minimum delay before retrying a failed background refresh, in milliseconds. */
+    private static final long MIN_RETRY_DELAY_IN_MILLISECONDS = 1000;
+
+    /** The cache shared by the credentials that are not given one. */
+    private static final TokenCache DEFAULT = new TokenCache(DEFAULT_REFRESH_BEFORE_EXPIRY_IN_MILLISECONDS, TimeUnit.MILLISECONDS);
+
+    /** The executor running the token acquisitions of all caches. */
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("azure-token-acquisition-%d").build());
+
+    /** The timer scheduling the background refreshes of all caches. */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("azure-token-refresh-%d").build());
+
+    /** The cached tokens. */
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /** The time before expiry at which a token is refreshed, in milliseconds. */
+    private final long refreshBeforeExpiryInMilliseconds;
+
+    /**
+     * Creates a token cache.
+     *
+     * @param refreshBeforeExpiry the time before expiry at which a token is refreshed.
+     * @param unit the unit of the time.
+     */
+    public TokenCache(long refreshBeforeExpiry, TimeUnit unit) {
+        this.refreshBeforeExpiryInMilliseconds = unit.toMillis(refreshBeforeExpiry);
+    }
+
+    /**
+     * Gets the cache shared by the credentials that are not given one.
+     *
+     * @return the default token cache.
+     */
+    public static TokenCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Gets the executor to run the token acquisitions on.
+     *
+     * @return the shared executor.
+     */
+    static ExecutorService executor() {
+        return EXECUTOR;
+    }
+
+    /**
+     * Digests a secret for use in a cache key, so that credentials holding
+     * different secrets never share tokens, without keeping the secret in
+     * the key.
+     *
+     * @param secret the secret, or null.
+     * @return the digest of the secret.
+     */
+    static String digest(String secret) {
+        if (secret == null) {
+            return "";
+        }
+        return Hashing.sha256().hashString(secret, StandardCharsets.UTF_8).toString();
+    }
+
+    /**
+     * Gets an unexpired token, acquiring one if none is cached.
+     *
+     * @param key the cache key.
+     * @param source acquires a token for the key.
+     * @return the token.
+     * @throws IOException thrown if the token acquisition fails.
+     */
+    AuthenticationResult getToken(String key, TokenSource source) throws IOException {
+        Entry entry = entryFor(key, source);
+        AuthenticationResult result = entry.result;
+        if (result != null && !isExpired(result)) {
+            return result;
+        }
+        return entry.acquire();
+    }
+
+    /**
+     * Acquires a new token in place of the cached one. Concurrent callers
+     * share a single acquisition.
+     *
+     * @param key the cache key.
+     * @param source acquires a token for the key.
+     * @return the new token.
+     * @throws IOException thrown if the token acquisition fails.
+     */
+    AuthenticationResult refreshToken(String key, TokenSource source) throws IOException {
+        return entryFor(key, source).acquire();
+    }
+
+    /**
+     * Removes all the cached tokens and cancels their background refreshes.
+     */
+    public void clear() {
+        for (Entry entry : entries.values()) {
+            entry.cancelScheduledRefresh();
+        }
+        entries.clear();
+    }
+
+    /**
+     * Gets the cache entry of a key and marks it as read. The source of an
+     * existing entry is kept: the key covers everything the token depends on.
+     *
+     * @param key the cache key.
+     * @param source acquires a token for the key, if the entry is new.
+     * @return the cache entry.
+     */
+    private Entry entryFor(String key, TokenSource source) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry(key, source);
+            Entry existing = entries.putIfAbsent(key, entry);
+            if (existing != null) {
+                entry = existing;
+            }
+        }
+        entry.readSinceRefresh = true;
+        return entry;
+    }
+
+    /**
+     * Checks whether a token has expired.
+     *
+     * @param result the token.
+     * @return true if the token has expired.
+     */
+    private static boolean isExpired(AuthenticationResult result) {
+        return result.getExpiresOnDate() != null && result.getExpiresOnDate().getTime() <= System.currentTimeMillis();
+    }
+
+    /**
+     * Acquires a token for a cache key.
+     */
+    interface TokenSource {
+        /**
+         * Acquires a token.
+         *
+         * @param current the current token, possibly expired, or null.
+         * @return the new token.
+         * @throws Exception thrown if the acquisition fails.
+         */
+        AuthenticationResult acquire(AuthenticationResult current) throws Exception;
+    }
+
+    /**
+     * The cached token of a key.
+     */
+    private final class Entry {
+        /** The cache key. */
+        private final String key;
+        /** Acquires a token for the key. */
+        private final TokenSource source;
+        /** Whether the token was read since the last background refresh started. */
+        private volatile boolean readSinceRefresh;
+        /** The cached token. */
+        private volatile AuthenticationResult result;
+        /** The acquisition in flight, guarded by this entry. */
+        private SettableFuture<AuthenticationResult> inFlight;
+        /** The scheduled background refresh, guarded by this entry. */
+        private ScheduledFuture<?> scheduledRefresh;
+
+        /**
+         * Creates an empty entry.
+         *
+         * @param key the cache key.
+         * @param source acquires a token for the key.
+         */
+        Entry(String key, TokenSource source) {
+            this.key = key;
+            this.source = source;
+        }
+
+        /**
+         * Acquires a token on the calling thread, or waits for the
+         * acquisition in flight.
+         *
+         * @return the token.
+         * @throws IOException thrown if the token acquisition fails.
+         */
+        AuthenticationResult acquire() throws IOException {
+            SettableFuture<AuthenticationResult> future;
+            boolean owner = false;
+            synchronized (this) {
+                if (inFlight == null) {
+                    inFlight = SettableFuture.create();
+                    owner = true;
+                }
+                future = inFlight;
+            }
+            if (owner) {
+                run(future);
+            }
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for an access token", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException(cause.getMessage(), cause);
+            }
+        }
+
+        /**
+         * Refreshes the token in the background, unless an acquisition is in
+         * flight. The current token is kept if the refresh fails. An entry
+         * whose token was not read since the last refresh is removed from the
+         * cache instead.
+         */
+        void refreshInBackground() {
+            final SettableFuture<AuthenticationResult> future;
+            synchronized (this) {
+                if (inFlight != null) {
+                    return;
+                }
+                if (!readSinceRefresh) {
+                    // idle: stop refreshing, the next read acquires a token on the calling thread
+                    scheduledRefresh = null;
+                    entries.remove(key, this);
+                    return;
+                }
+                readSinceRefresh = false;
+                inFlight = SettableFuture.create();
+                future = inFlight;
+            }
+            EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    Entry.this.run(future);
+                }
+            });
+        }
+
+        /**
+         * Runs an acquisition, caches its token and schedules its refresh.
+         *
+         * @param future the future of the acquisition.
+         */
+        private void run(SettableFuture<AuthenticationResult> future) {
+            AuthenticationResult acquired = null;
+            Exception failure = null;
+            try {
+                acquired = source.acquire(result);
+                if (acquired == null) {
+                    failure = new IOException("No access token acquired");
+                }
+            } catch (Exception e) {
+                failure = e;
+            }
+            synchronized (this) {
+                inFlight = null;
+                if (failure == null) {
+                    result = acquired;
+                }
+                scheduleRefresh();
+            }
+            if (failure == null) {
+                future.set(acquired);
+            } else {
+                future.setException(failure);
+            }
+        }
+
+        /**
+         * Schedules the background refresh of the cached token. The caller
+         * holds the lock of this entry.
+         */
+        private void scheduleRefresh() {
+            cancelScheduledRefresh();
+            AuthenticationResult current = result;
+            if (current == null || current.getExpiresOnDate() == null) {
+                return;
+            }
+            long remaining = current.getExpiresOnDate().getTime() - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return;
+            }
+            long delay = remaining - refreshBeforeExpiryInMilliseconds;
+            if (delay <= 0) {
+                // short lived token, or a failed refresh: retry half way to the expiry
+                delay = Math.min(remaining, Math.max(remaining / 2, MIN_RETRY_DELAY_IN_MILLISECONDS));
+            }
+            scheduledRefresh = SCHEDULER.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    refreshInBackground();
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Cancels the scheduled background refresh, if any.
+         */
+        synchronized void cancelScheduledRefresh() {
+            if (scheduledRefresh != null) {
+                scheduledRefresh.cancel(false);
+                scheduledRefresh = null;
+            }
+        }
+    }
+}
@@ -13,9 +13,6 @@ import com.microsoft.azure.AzureEnvironment;
 import com.microsoft.rest.credentials.TokenCredentials;
 
 import java.io.IOException;
-import java.util.Date;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * Token based credentials for use with a REST Service Client.
@@ -33,8 +30,22 @@ public class UserTokenCredentials extends TokenCredentials {
     private String clientRedirectUri;
     /** The Azure environment to authenticate with. */
     private AzureEnvironment environment;
-    /** The current authentication result. */
-    private AuthenticationResult authenticationResult;
+    /** The cache holding the access tokens. */
+    private TokenCache tokenCache = TokenCache.getDefault();
+    /** Acquires the access tokens for the cache. */
+    private final TokenCache.TokenSource tokenSource = new TokenCache.TokenSource() {
+        @Override
+        public AuthenticationResult acquire(AuthenticationResult current) throws Exception {
+            if (current != null && current.getRefreshToken() != null) {
+                try {
+                    return acquireAccessTokenFromRefreshToken(current.getRefreshToken());
+                } catch (IOException e) {
+                    // the refresh token may have expired or been revoked, fall back to the password
+                }
+            }
+            return acquireAccessToken();
+        }
+    };
 
     /**
      * Initializes a new instance of the UserTokenCredentials.
@@ -115,27 +126,41 @@ public class UserTokenCredentials extends TokenCredentials {
         return environment;
     }
 
+    /**
+     * Sets the cache holding the access tokens. By default the tokens are
+     * held in {@link TokenCache#getDefault()}.
+     *
+     * @param tokenCache the token cache.
+     * @return the credentials object itself.
+     */
+    public UserTokenCredentials withTokenCache(TokenCache tokenCache) {
+        this.tokenCache = tokenCache;
+        return this;
+    }
+
     @Override
     public String getToken() throws IOException {
-        if (authenticationResult != null
-            && authenticationResult.getExpiresOnDate().before(new Date())) {
-                acquireAccessTokenFromRefreshToken();
-        } else {
-            acquireAccessToken();
-        }
-        return authenticationResult.getAccessToken();
+        return tokenCache.getToken(cacheKey(), tokenSource).getAccessToken();
     }
 
     @Override
     public void refreshToken() throws IOException {
-        acquireAccessToken();
+        tokenCache.refreshToken(cacheKey(), tokenSource);
+    }
+
+    private String cacheKey() {
+        return this.getEnvironment().getAuthenticationEndpoint() + this.getDomain()
+                + "|" + this.getEnvironment().getTokenAudience()
+                + "|" + this.getClientId()
+                + "|" + this.getUsername()
+                + "|" + TokenCache.digest(this.getPassword());
     }
 
-    private void acquireAccessToken() throws IOException {
+    private AuthenticationResult acquireAccessToken() throws IOException {
         String authorityUrl = this.getEnvironment().getAuthenticationEndpoint() + this.getDomain();
-        AuthenticationContext context = new AuthenticationContext(authorityUrl, this.getEnvironment().isValidateAuthority(), Executors.newSingleThreadExecutor());
         try {
-            authenticationResult = context.acquireToken(
+            AuthenticationContext context = new AuthenticationContext(authorityUrl, this.getEnvironment().isValidateAuthority(), TokenCache.executor());
+            return context.acquireToken(
                     this.getEnvironment().getTokenAudience(),
                     this.getClientId(),
                     this.getUsername(),
@@ -146,19 +171,16 @@ public class UserTokenCredentials extends TokenCredentials {
         }
     }
 
-    private void acquireAccessTokenFromRefreshToken() throws IOException {
+    private AuthenticationResult acquireAccessTokenFromRefreshToken(String refreshToken) throws IOException {
         String authorityUrl = this.getEnvironment().getAuthenticationEndpoint() + this.getDomain();
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-        AuthenticationContext context = new AuthenticationContext(authorityUrl, this.getEnvironment().isValidateAuthority(), executor);
         try {
-            authenticationResult = context.acquireTokenByRefreshToken(
-                    authenticationResult.getRefreshToken(),
+            AuthenticationContext context = new AuthenticationContext(authorityUrl, this.getEnvironment().isValidateAuthority(), TokenCache.executor());
+            return context.acquireTokenByRefreshToken(
+                    refreshToken,
                     this.getClientId(),
                     null, null).get();
         } catch (Exception e) {
             throw new IOException(e.getMessage(), e);
-        } finally {
-            executor.shutdown();
         }
     }
 }
@@ -0,0 +1,152 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.azure.credentials;
+
+import com.microsoft.aad.adal4j.AuthenticationResult;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TokenCacheTests {
+    @Test
+    public void concurrentCallersShareOneAcquisition() throws Exception {
+        final TokenCache cache = new TokenCache(5, TimeUnit.MINUTES);
+        final CountingSource source = new CountingSource(3600, 200);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<?>[] futures = new Future<?>[8];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return cache.getToken("key", source).getAccessToken();
+                    }
+                });
+            }
+            for (Future<?> future : futures) {
+                Assert.assertEquals("token1", future.get());
+            }
+            Assert.assertEquals(1, source.acquisitions.get());
+            Assert.assertEquals("token1", cache.getToken("key", source).getAccessToken());
+            Assert.assertEquals(1, source.acquisitions.get());
+        } finally {
+            executor.shutdown();
+            cache.clear();
+        }
+    }
+
+    @Test
+    public void tokenIsRefreshedBeforeExpiry() throws Exception {
+        TokenCache cache = new TokenCache(5, TimeUnit.MINUTES);
+        CountingSource source = new CountingSource(2, 0);
+        try {
+            Assert.assertEquals("token1", cache.getToken("key", source).getAccessToken());
+            // the token lives shorter than the refresh margin, so it is refreshed half way to its expiry
+            Assert.assertTrue(source.refreshed.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            Assert.assertEquals("token2", cache.getToken("key", source).getAccessToken());
+            Assert.assertSame(source.previous, source.first);
+        } finally {
+            cache.clear();
+        }
+    }
+
+    @Test
+    public void refreshReplacesTokenAndFailuresSurface() throws Exception {
+        TokenCache cache = new TokenCache(5, TimeUnit.MINUTES);
+        CountingSource source = new CountingSource(3600, 0);
+        try {
+            Assert.assertEquals("token1", cache.getToken("key", source).getAccessToken());
+            Assert.assertEquals("token2", cache.refreshToken("key", source).getAccessToken());
+            Assert.assertEquals("token2", cache.getToken("key", source).getAccessToken());
+            source.fail = true;
+            try {
+                cache.refreshToken("key", source);
+                Assert.fail();
+            } catch (IOException e) {
+                Assert.assertEquals("denied", e.getMessage());
+            }
+            Assert.assertEquals("token2", cache.getToken("key", source).getAccessToken());
+        } finally {
+            cache.clear();
+        }
+    }
+
+    @Test
+    public void idleTokenIsNotRefreshed() throws Exception {
+        TokenCache cache = new TokenCache(5, TimeUnit.MINUTES);
+        CountingSource source = new CountingSource(2, 0);
+        try {
+            Assert.assertEquals("token1", cache.getToken("key", source).getAccessToken());
+            Assert.assertTrue(source.refreshed.await(5, TimeUnit.SECONDS));
+            // token2 is never read, so it is dropped instead of refreshed again
+            Thread.sleep(2500);
+            Assert.assertEquals(2, source.acquisitions.get());
+            Assert.assertEquals("token3", cache.getToken("key", source).getAccessToken());
+        } finally {
+            cache.clear();
+        }
+    }
+
+    @Test
+    public void sourceOfExistingEntryIsKept() throws Exception {
+        TokenCache cache = new TokenCache(5, TimeUnit.MINUTES);
+        CountingSource source = new CountingSource(3600, 0);
+        CountingSource other = new CountingSource(3600, 0);
+        other.fail = true;
+        try {
+            Assert.assertEquals("token1", cache.getToken("key", source).getAccessToken());
+            Assert.assertEquals("token1", cache.getToken("key", other).getAccessToken());
+            Assert.assertEquals("token2", cache.refreshToken("key", source).getAccessToken());
+            Assert.assertEquals(0, other.acquisitions.get());
+            Assert.assertNotEquals(TokenCache.digest("secret"), TokenCache.digest("rotated"));
+        } finally {
+            cache.clear();
+        }
+    }
+
+    private static class CountingSource implements TokenCache.TokenSource {
+        private final AtomicInteger acquisitions = new AtomicInteger();
+        private final CountDownLatch refreshed = new CountDownLatch(1);
+        private final long expiresInSeconds;
+        private final long latencyInMilliseconds;
+        private volatile boolean fail;
+        private volatile AuthenticationResult first;
+        private volatile AuthenticationResult previous;
+
+        CountingSource(long expiresInSeconds, long latencyInMilliseconds) {
+            this.expiresInSeconds = expiresInSeconds;
+            this.latencyInMilliseconds = latencyInMilliseconds;
+        }
+
+        @Override
+        public AuthenticationResult acquire(AuthenticationResult current) throws Exception {
+            if (fail) {
+                throw new IOException("denied");
+            }
+            Thread.sleep(latencyInMilliseconds);
+            int count = acquisitions.incrementAndGet();
+            AuthenticationResult result = new AuthenticationResult(null, "token" + count, "refresh", expiresInSeconds, null, null, false);
+            if (count == 1) {
+                first = result;
+            } else {
+                previous = current;
+                refreshed.countDown();
+            }
+            return result;
+        }
+    }
+}
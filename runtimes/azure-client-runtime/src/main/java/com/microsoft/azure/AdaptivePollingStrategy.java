@@ -0,0 +1,105 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.azure;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A polling strategy that polls quickly at first, so short operations are
+ * noticed soon after they finish, then waits exponentially longer between
+ * polls of long operations. The delay never exceeds the maximum delay, nor
+ * the delay requested by the service in a Retry-After header. A random
+ * jitter spreads the polls of operations started together.
+ */
+public final class AdaptivePollingStrategy extends PollingStrategy {
+    /** The default delay before the first poll. */
+    private static final long DEFAULT_INITIAL_DELAY = TimeUnit.SECONDS.toMillis(1);
+    /** The default maximum delay between two polls. */
+    private static final long DEFAULT_MAX_DELAY = TimeUnit.SECONDS.toMillis(AzureAsyncOperation.DEFAULT_DELAY);
+    /** The default ratio of the random variation of each delay. */
+    private static final double DEFAULT_JITTER = 0.2;
+
+    /** The source of the jitter. */
+    private final Random random = new Random();
+    /** The delay before the first poll. */
+    private final long initialDelayInMilliseconds;
+    /** The maximum delay between two polls. */
+    private final long maxDelayInMilliseconds;
+    /** The factor applied to the delay after each poll. */
+    private final double multiplier;
+    /** The ratio of the random variation of each delay. */
+    private final double jitter;
+
+    /**
+     * Creates an adaptive polling strategy doubling the delay after each poll
+     * from 1 second up to 30 seconds.
+     */
+    public AdaptivePollingStrategy() {
+        this(DEFAULT_INITIAL_DELAY, DEFAULT_MAX_DELAY, 2, DEFAULT_JITTER);
+    }
+
+    /**
+     * Creates an adaptive polling strategy.
+     *
+     * @param initialDelayInMilliseconds the delay before the first poll.
+     * @param maxDelayInMilliseconds the maximum delay between two polls.
+     * @param multiplier the factor applied to the delay after each poll, at least 1.
+     * @param jitter the ratio of the random variation of each delay, between 0 and 1.
+     */
+    public AdaptivePollingStrategy(long initialDelayInMilliseconds, long maxDelayInMilliseconds, double multiplier, double jitter) {
+        if (multiplier < 1 || jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("multiplier must be at least 1 and jitter between 0 and 1");
+        }
+        this.initialDelayInMilliseconds = initialDelayInMilliseconds;
+        this.maxDelayInMilliseconds = maxDelayInMilliseconds;
+        this.multiplier = multiplier;
+        this.jitter = jitter;
+    }
+
+    /**
+     * Creates a strategy for operations that usually finish within seconds,
+     * such as creating a network interface or a public IP address.
+     *
+     * @return the polling strategy.
+     */
+    public static AdaptivePollingStrategy forShortOperations() {
+        return new AdaptivePollingStrategy(500, TimeUnit.SECONDS.toMillis(5), 1.5, DEFAULT_JITTER);
+    }
+
+    /**
+     * Creates a strategy for operations that take a few minutes, such as
+     * creating a virtual machine.
+     *
+     * @return the polling strategy.
+     */
+    public static AdaptivePollingStrategy forVirtualMachines() {
+        return new AdaptivePollingStrategy(TimeUnit.SECONDS.toMillis(5), TimeUnit.SECONDS.toMillis(30), 1.5, DEFAULT_JITTER);
+    }
+
+    /**
+     * Creates a strategy for operations that can take up to hours, such as
+     * a template deployment.
+     *
+     * @return the polling strategy.
+     */
+    public static AdaptivePollingStrategy forDeployments() {
+        return new AdaptivePollingStrategy(TimeUnit.SECONDS.toMillis(5), TimeUnit.SECONDS.toMillis(60), 2, DEFAULT_JITTER);
+    }
+
+    @Override
+    public long getDelayInMilliseconds(int pollCount, long serverDelayInMilliseconds) {
+        long max = maxDelayInMilliseconds;
+        if (serverDelayInMilliseconds >= 0) {
+            max = Math.min(max, serverDelayInMilliseconds);
+        }
+        double delay = initialDelayInMilliseconds * Math.pow(multiplier, Math.max(0, pollCount));
+        double variation = 1 - jitter + 2 * jitter * random.nextDouble();
+        return (long) Math.min(max, delay * variation);
+    }
+}
@@ -9,24 +9,20 @@ package com.microsoft.azure;
 
 import com.microsoft.rest.ServiceCall;
 import com.microsoft.rest.ServiceCallback;
-import com.microsoft.rest.ServiceException;
 import com.microsoft.rest.ServiceResponse;
 import com.microsoft.rest.ServiceResponseCallback;
 import com.microsoft.rest.ServiceResponseWithHeaders;
 import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.Response;
-import retrofit2.http.GET;
-import retrofit2.http.Header;
-import retrofit2.http.Url;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.net.MalformedURLException;
-import java.net.URL;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 
 /**
  * An instance of this class defines a ServiceClient that handles polling and
@@ -39,9 +35,18 @@ public class AzureClient extends AzureServiceClient {
      */
     private Integer longRunningOperationRetryTimeout;
     /**
-     * The executor for asynchronous requests.
+     * The polling strategy of the operations returning a resource type
+     * without a strategy of its own.
      */
-    private ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private PollingStrategy pollingStrategy = new AdaptivePollingStrategy();
+    /**
+     * The polling strategies of the operations returning specific resource types.
+     */
+    private final ConcurrentMap<Type, PollingStrategy> pollingStrategies = new ConcurrentHashMap<>();
+    /**
+     * The engine scheduling the polls of long running operations.
+     */
+    private final PollingEngine pollingEngine = PollingEngine.getDefault();
 
     /**
      * The user agent from the service client that owns this Azure Client.
@@ -71,54 +76,9 @@ public class AzureClient extends AzureServiceClient {
      * @throws IOException thrown by deserialization
      */
     public <T> ServiceResponse<T> getPutOrPatchResult(Response<ResponseBody> response, Type resourceType) throws CloudException, InterruptedException, IOException {
-        if (response == null) {
-            throw new CloudException("response is null.");
-        }
-
-        int statusCode = response.code();
-        ResponseBody responseBody;
-        if (response.isSuccessful()) {
-            responseBody = response.body();
-        } else {
-            responseBody = response.errorBody();
-        }
-        if (statusCode != 200 && statusCode != 201 && statusCode != 202) {
-            CloudException exception = new CloudException(statusCode + " is not a valid polling status code");
-            exception.setResponse(response);
-            if (responseBody != null) {
-                exception.setBody((CloudError) restClient().mapperAdapter().deserialize(responseBody.string(), CloudError.class));
-                responseBody.close();
-            }
-            throw exception;
-        }
-
-        PollingState<T> pollingState = new PollingState<>(response, this.getLongRunningOperationRetryTimeout(), resourceType, restClient().mapperAdapter());
-        String url = response.raw().request().url().toString();
-
-        // Check provisioning state
-        while (!AzureAsyncOperation.getTerminalStatuses().contains(pollingState.getStatus())) {
-            Thread.sleep(pollingState.getDelayInMilliseconds());
-
-            if (pollingState.getAzureAsyncOperationHeaderLink() != null
-                    && !pollingState.getAzureAsyncOperationHeaderLink().isEmpty()) {
-                updateStateFromAzureAsyncOperationHeader(pollingState);
-            } else if (pollingState.getLocationHeaderLink() != null
-                    && !pollingState.getLocationHeaderLink().isEmpty()) {
-                updateStateFromLocationHeaderOnPut(pollingState);
-            } else {
-                updateStateFromGetResourceOperation(pollingState, url);
-            }
-        }
-
-        if (AzureAsyncOperation.SUCCESS_STATUS.equals(pollingState.getStatus()) && pollingState.getResource() == null) {
-            updateStateFromGetResourceOperation(pollingState, url);
-        }
-
-        if (AzureAsyncOperation.getFailedStatuses().contains(pollingState.getStatus())) {
-            throw new CloudException("Async operation failed");
-        }
-
-        return new ServiceResponse<>(pollingState.getResource(), pollingState.getResponse());
+        ServiceCall<T> serviceCall = new ServiceCall<>(null);
+        getPutOrPatchResultAsync(response, resourceType, serviceCall, null);
+        return join(serviceCall);
     }
 
     /**
@@ -139,7 +99,7 @@ public class AzureClient extends AzureServiceClient {
         ServiceResponse<T> bodyResponse = getPutOrPatchResult(response, resourceType);
         return new ServiceResponseWithHeaders<>(
                 bodyResponse.getBody(),
-                restClient().mapperAdapter().<THeader>deserialize(restClient().mapperAdapter().serialize(bodyResponse.getResponse().headers()), headerType),
+                restClient().mapperAdapter().deserializeHeaders(bodyResponse.getResponse().headers(), headerType),
                 bodyResponse.getResponse()
         );
     }
@@ -178,8 +138,7 @@ public class AzureClient extends AzureServiceClient {
             exception.setResponse(response);
             try {
                 if (responseBody != null) {
-                    exception.setBody((CloudError) restClient().mapperAdapter().deserialize(responseBody.string(), CloudError.class));
-                    responseBody.close();
+                    exception.setBody(restClient().mapperAdapter().<CloudError>deserialize(responseBody, CloudError.class));
                 }
             } catch (Exception e) { /* ignore serialization errors on top of service errors */ }
             if (callback != null) {
@@ -192,6 +151,7 @@ public class AzureClient extends AzureServiceClient {
         PollingState<T> pollingState;
         try {
             pollingState = new PollingState<>(response, this.getLongRunningOperationRetryTimeout(), resourceType, restClient().mapperAdapter());
+            pollingState.setPollingStrategy(pollingStrategyFor(resourceType));
         } catch (IOException e) {
             if (callback != null) {
                 callback.failure(e);
@@ -203,7 +163,7 @@ public class AzureClient extends AzureServiceClient {
 
         // Task runner will take it from here
         PutPatchPollingTask<T> task = new PutPatchPollingTask<>(pollingState, url, serviceCall, callback);
-        executor.schedule(task, pollingState.getDelayInMilliseconds(), TimeUnit.MILLISECONDS);
+        pollingEngine.submit(pollingState, serviceCall, task, firstPollDelay(pollingState));
         return task;
     }
 
@@ -236,7 +196,7 @@ public class AzureClient extends AzureServiceClient {
                 try {
                     ServiceResponseWithHeaders<T, THeader> clientResponse = new ServiceResponseWithHeaders<>(
                             result.getBody(),
-                            restClient().mapperAdapter().<THeader>deserialize(restClient().mapperAdapter().serialize(result.getResponse().headers()), headerType),
+                            restClient().mapperAdapter().deserializeHeaders(result.getResponse().headers(), headerType),
                             result.getResponse()
                     );
                     if (callback != null) {
@@ -263,52 +223,9 @@ public class AzureClient extends AzureServiceClient {
      * @throws IOException thrown by deserialization
      */
     public <T> ServiceResponse<T> getPostOrDeleteResult(Response<ResponseBody> response, Type resourceType) throws CloudException, InterruptedException, IOException {
-        if (response == null) {
-            throw new CloudException("response is null.");
-        }
-
-        int statusCode = response.code();
-        ResponseBody responseBody;
-        if (response.isSuccessful()) {
-            responseBody = response.body();
-        } else {
-            responseBody = response.errorBody();
-        }
-        if (statusCode != 200 && statusCode != 202 && statusCode != 204) {
-            CloudException exception = new CloudException(statusCode + " is not a valid polling status code");
-            exception.setResponse(response);
-            if (responseBody != null) {
-                exception.setBody((CloudError) restClient().mapperAdapter().deserialize(responseBody.string(), CloudError.class));
-                responseBody.close();
-            }
-            throw exception;
-        }
-
-        PollingState<T> pollingState = new PollingState<>(response, this.getLongRunningOperationRetryTimeout(), resourceType, restClient().mapperAdapter());
-
-        // Check provisioning state
-        while (!AzureAsyncOperation.getTerminalStatuses().contains(pollingState.getStatus())) {
-            Thread.sleep(pollingState.getDelayInMilliseconds());
-
-            if (pollingState.getAzureAsyncOperationHeaderLink() != null
-                    && !pollingState.getAzureAsyncOperationHeaderLink().isEmpty()) {
-                updateStateFromAzureAsyncOperationHeader(pollingState);
-            } else if (pollingState.getLocationHeaderLink() != null
-                    && !pollingState.getLocationHeaderLink().isEmpty()) {
-                updateStateFromLocationHeaderOnPostOrDelete(pollingState);
-            } else {
-                CloudException exception = new CloudException("No header in response");
-                exception.setResponse(response);
-                throw exception;
-            }
-        }
-
-        // Check if operation failed
-        if (AzureAsyncOperation.getFailedStatuses().contains(pollingState.getStatus())) {
-            throw new CloudException("Async operation failed");
-        }
-
-        return new ServiceResponse<>(pollingState.getResource(), pollingState.getResponse());
+        ServiceCall<T> serviceCall = new ServiceCall<>(null);
+        getPostOrDeleteResultAsync(response, resourceType, serviceCall, null);
+        return join(serviceCall);
     }
 
     /**
@@ -329,7 +246,7 @@ public class AzureClient extends AzureServiceClient {
         ServiceResponse<T> bodyResponse = getPostOrDeleteResult(response, resourceType);
         return new ServiceResponseWithHeaders<>(
                 bodyResponse.getBody(),
-                restClient().mapperAdapter().<THeader>deserialize(restClient().mapperAdapter().serialize(bodyResponse.getResponse().headers()), headerType),
+                restClient().mapperAdapter().deserializeHeaders(bodyResponse.getResponse().headers(), headerType),
                 bodyResponse.getResponse()
         );
     }
@@ -368,8 +285,7 @@ public class AzureClient extends AzureServiceClient {
             exception.setResponse(response);
             try {
                 if (responseBody != null) {
-                    exception.setBody((CloudError) restClient().mapperAdapter().deserialize(responseBody.string(), CloudError.class));
-                    responseBody.close();
+                    exception.setBody(restClient().mapperAdapter().<CloudError>deserialize(responseBody, CloudError.class));
                 }
             } catch (Exception e) { /* ignore serialization errors on top of service errors */ }
             if (callback != null) {
@@ -382,6 +298,7 @@ public class AzureClient extends AzureServiceClient {
         PollingState<T> pollingState;
         try {
             pollingState = new PollingState<>(response, this.getLongRunningOperationRetryTimeout(), resourceType, restClient().mapperAdapter());
+            pollingState.setPollingStrategy(pollingStrategyFor(resourceType));
         } catch (IOException e) {
             if (callback != null) {
                 callback.failure(e);
@@ -392,7 +309,7 @@ public class AzureClient extends AzureServiceClient {
 
         // Task runner will take it from here
         PostDeletePollingTask<T> task = new PostDeletePollingTask<>(pollingState, serviceCall, callback);
-        executor.schedule(task, pollingState.getDelayInMilliseconds(), TimeUnit.MILLISECONDS);
+        pollingEngine.submit(pollingState, serviceCall, task, firstPollDelay(pollingState));
         return task;
     }
 
@@ -425,7 +342,7 @@ public class AzureClient extends AzureServiceClient {
                 try {
                     ServiceResponseWithHeaders<T, THeader> clientResponse = new ServiceResponseWithHeaders<>(
                             result.getBody(),
-                            restClient().mapperAdapter().<THeader>deserialize(restClient().mapperAdapter().serialize(result.getResponse().headers()), headerType),
+                            restClient().mapperAdapter().deserializeHeaders(result.getResponse().headers(), headerType),
                             result.getResponse()
                     );
                     if (callback != null) {
@@ -439,26 +356,6 @@ public class AzureClient extends AzureServiceClient {
         });
     }
 
-    /**
-     * Polls from the location header and updates the polling state with the
-     * polling response for a PUT operation.
-     *
-     * @param pollingState the polling state for the current operation.
-     * @param <T> the return type of the caller.
-     * @throws CloudException REST exception
-     * @throws IOException thrown by deserialization
-     */
-    private <T> void updateStateFromLocationHeaderOnPut(PollingState<T> pollingState) throws CloudException, IOException {
-        Response<ResponseBody> response = poll(pollingState.getLocationHeaderLink());
-        int statusCode = response.code();
-        if (statusCode == 202) {
-            pollingState.setResponse(response);
-            pollingState.setStatus(AzureAsyncOperation.IN_PROGRESS_STATUS);
-        } else if (statusCode == 200 || statusCode == 201) {
-            pollingState.updateFromResponseOnPutPatch(response);
-        }
-    }
-
     /**
      * Polls from the location header and updates the polling state with the
      * polling response for a PUT operation.
@@ -469,7 +366,7 @@ public class AzureClient extends AzureServiceClient {
      * @return the task describing the asynchronous polling.
      */
     private <T> Call<ResponseBody> updateStateFromLocationHeaderOnPutAsync(final PollingState<T> pollingState, final ServiceCallback<T> callback) {
-        return pollAsync(pollingState.getLocationHeaderLink(), new ServiceCallback<ResponseBody>() {
+        return pollAsync(pollingState, pollingState.getLocationHeaderLink(), new ServiceCallback<ResponseBody>() {
             @Override
             public void failure(Throwable t) {
                 callback.failure(t);
@@ -493,26 +390,6 @@ public class AzureClient extends AzureServiceClient {
         });
     }
 
-    /**
-     * Polls from the location header and updates the polling state with the
-     * polling response for a POST or DELETE operation.
-     *
-     * @param pollingState the polling state for the current operation.
-     * @param <T> the return type of the caller.
-     * @throws CloudException service exception
-     * @throws IOException thrown by deserialization
-     */
-    private <T> void updateStateFromLocationHeaderOnPostOrDelete(PollingState<T> pollingState) throws CloudException, IOException {
-        Response<ResponseBody> response = poll(pollingState.getLocationHeaderLink());
-        int statusCode = response.code();
-        if (statusCode == 202) {
-            pollingState.setResponse(response);
-            pollingState.setStatus(AzureAsyncOperation.IN_PROGRESS_STATUS);
-        } else if (statusCode == 200 || statusCode == 201 || statusCode == 204) {
-            pollingState.updateFromResponseOnDeletePost(response);
-        }
-    }
-
     /**
      * Polls from the location header and updates the polling state with the
      * polling response for a POST or DELETE operation.
@@ -523,7 +400,7 @@ public class AzureClient extends AzureServiceClient {
      * @return the task describing the asynchronous polling.
      */
     private <T> Call<ResponseBody> updateStateFromLocationHeaderOnPostOrDeleteAsync(final PollingState<T> pollingState, final ServiceCallback<T> callback) {
-        return pollAsync(pollingState.getLocationHeaderLink(), new ServiceCallback<ResponseBody>() {
+        return pollAsync(pollingState, pollingState.getLocationHeaderLink(), new ServiceCallback<ResponseBody>() {
             @Override
             public void failure(Throwable t) {
                 callback.failure(t);
@@ -547,21 +424,6 @@ public class AzureClient extends AzureServiceClient {
         });
     }
 
-    /**
-     * Polls from the provided URL and updates the polling state with the
-     * polling response.
-     *
-     * @param pollingState the polling state for the current operation.
-     * @param url the url to poll from
-     * @param <T> the return type of the caller.
-     * @throws CloudException service exception
-     * @throws IOException thrown by deserialization
-     */
-    private <T> void updateStateFromGetResourceOperation(PollingState<T> pollingState, String url) throws CloudException, IOException {
-        Response<ResponseBody> response = poll(url);
-        pollingState.updateFromResponseOnPutPatch(response);
-    }
-
     /**
      * Polls from the provided URL and updates the polling state with the
      * polling response.
@@ -574,7 +436,7 @@ public class AzureClient extends AzureServiceClient {
      * @return the task describing the asynchronous polling.
      */
     private <T> Call<ResponseBody> updateStateFromGetResourceOperationAsync(final PollingState<T> pollingState, String url, final ServiceCall<T> serviceCall, final ServiceCallback<T> callback) {
-        return pollAsync(url, new ServiceCallback<ResponseBody>() {
+        return pollAsync(pollingState, url, new ServiceCallback<ResponseBody>() {
             @Override
             public void failure(Throwable t) {
                 if (callback != null) {
@@ -603,39 +465,6 @@ public class AzureClient extends AzureServiceClient {
         });
     }
 
-    /**
-     * Polls from the 'Azure-AsyncOperation' header and updates the polling
-     * state with the polling response.
-     *
-     * @param pollingState the polling state for the current operation.
-     * @param <T> the return type of the caller.
-     * @throws CloudException service exception
-     * @throws IOException thrown by deserialization
-     */
-    private <T> void updateStateFromAzureAsyncOperationHeader(PollingState<T> pollingState) throws CloudException, IOException {
-        Response<ResponseBody> response = poll(pollingState.getAzureAsyncOperationHeaderLink());
-
-        AzureAsyncOperation body = null;
-        if (response.body() != null) {
-            body = restClient().mapperAdapter().deserialize(response.body().string(), AzureAsyncOperation.class);
-            response.body().close();
-        }
-
-        if (body == null || body.getStatus() == null) {
-            CloudException exception = new CloudException("no body");
-            exception.setResponse(response);
-            if (response.errorBody() != null) {
-                exception.setBody((CloudError) restClient().mapperAdapter().deserialize(response.errorBody().string(), CloudError.class));
-                response.errorBody().close();
-            }
-            throw exception;
-        }
-
-        pollingState.setStatus(body.getStatus());
-        pollingState.setResponse(response);
-        pollingState.setResource(null);
-    }
-
     /**
      * Polls from the 'Azure-AsyncOperation' header and updates the polling
      * state with the polling response.
@@ -646,7 +475,7 @@ public class AzureClient extends AzureServiceClient {
      * @return the task describing the asynchronous polling.
      */
     private <T> Call<ResponseBody> updateStateFromAzureAsyncOperationHeaderAsync(final PollingState<T> pollingState, final ServiceCallback<T> callback) {
-        return pollAsync(pollingState.getAzureAsyncOperationHeaderLink(), new ServiceCallback<ResponseBody>() {
+        return pollAsync(pollingState, pollingState.getAzureAsyncOperationHeaderLink(), new ServiceCallback<ResponseBody>() {
             @Override
             public void failure(Throwable t) {
                 callback.failure(t);
@@ -657,15 +486,13 @@ public class AzureClient extends AzureServiceClient {
                 try {
                     AzureAsyncOperation body = null;
                     if (result.getBody() != null) {
-                        body = restClient().mapperAdapter().deserialize(result.getBody().string(), AzureAsyncOperation.class);
-                        result.getBody().close();
+                        body = restClient().mapperAdapter().deserialize(result.getBody(), AzureAsyncOperation.class);
                     }
                     if (body == null || body.getStatus() == null) {
                         CloudException exception = new CloudException("no body");
                         exception.setResponse(result.getResponse());
                         if (result.getResponse().errorBody() != null) {
-                            exception.setBody((CloudError) restClient().mapperAdapter().deserialize(result.getResponse().errorBody().string(), CloudError.class));
-                            result.getResponse().errorBody().close();
+                            exception.setBody(restClient().mapperAdapter().<CloudError>deserialize(result.getResponse().errorBody(), CloudError.class));
                         }
                         failure(exception);
                     } else {
@@ -681,74 +508,37 @@ public class AzureClient extends AzureServiceClient {
         });
     }
 
-    /**
-     * Polls from the URL provided.
-     *
-     * @param url the URL to poll from.
-     * @return the raw response.
-     * @throws CloudException REST exception
-     * @throws IOException thrown by deserialization
-     */
-    private Response<ResponseBody> poll(String url) throws CloudException, IOException {
-        URL endpoint;
-        endpoint = new URL(url);
-        int port = endpoint.getPort();
-        if (port == -1) {
-            port = endpoint.getDefaultPort();
-        }
-        AsyncService service = restClient().retrofit().create(AsyncService.class);
-        Response<ResponseBody> response = service.get(endpoint.getFile(), serviceClientUserAgent).execute();
-        int statusCode = response.code();
-        if (statusCode != 200 && statusCode != 201 && statusCode != 202 && statusCode != 204) {
-            CloudException exception = new CloudException(statusCode + " is not a valid polling status code");
-            exception.setResponse(response);
-            if (response.body() != null) {
-                exception.setBody((CloudError) restClient().mapperAdapter().deserialize(response.body().string(), CloudError.class));
-                response.body().close();
-            } else if (response.errorBody() != null) {
-                exception.setBody((CloudError) restClient().mapperAdapter().deserialize(response.errorBody().string(), CloudError.class));
-                response.errorBody().close();
-            }
-            throw exception;
-        }
-        return response;
-    }
-
     /**
      * Polls asynchronously from the URL provided.
      *
+     * @param pollingState the polling state for the current operation.
      * @param url the URL to poll from.
      * @param callback  the user callback to call when operation terminates.
-     * @return the {@link Call} object from Retrofit.
+     * @return the {@link Call} object of the poll.
      */
-    private Call<ResponseBody> pollAsync(String url, final ServiceCallback<ResponseBody> callback) {
-        URL endpoint;
+    private Call<ResponseBody> pollAsync(PollingState<?> pollingState, String url, final ServiceCallback<ResponseBody> callback) {
+        Call<ResponseBody> call;
         try {
-            endpoint = new URL(url);
+            call = PollingCall.get(restClient().retrofit(), url, serviceClientUserAgent);
         } catch (MalformedURLException e) {
             callback.failure(e);
             return null;
         }
-        int port = endpoint.getPort();
-        if (port == -1) {
-            port = endpoint.getDefaultPort();
-        }
-        AsyncService service = restClient().retrofit().create(AsyncService.class);
-        Call<ResponseBody> call = service.get(endpoint.getFile(), serviceClientUserAgent);
+        pollingState.incrementPollCount();
+        final long pollStart = pollingEngine.pollStarted();
         call.enqueue(new ServiceResponseCallback<ResponseBody>(null, callback) {
             @Override
             public void onResponse(Call<ResponseBody> call, Response<ResponseBody> response) {
+                pollingEngine.pollFinished(pollStart);
                 try {
                     int statusCode = response.code();
                     if (statusCode != 200 && statusCode != 201 && statusCode != 202 && statusCode != 204) {
                         CloudException exception = new CloudException(statusCode + " is not a valid polling status code");
                         exception.setResponse(response);
                         if (response.body() != null) {
-                            exception.setBody((CloudError) restClient().mapperAdapter().deserialize(response.body().string(), CloudError.class));
-                            response.body().close();
+                            exception.setBody(restClient().mapperAdapter().<CloudError>deserialize(response.body(), CloudError.class));
                         } else if (response.errorBody() != null) {
-                            exception.setBody((CloudError) restClient().mapperAdapter().deserialize(response.errorBody().string(), CloudError.class));
-                            response.errorBody().close();
+                            exception.setBody(restClient().mapperAdapter().<CloudError>deserialize(response.errorBody(), CloudError.class));
                         }
                         callback.failure(exception);
                         return;
@@ -758,10 +548,102 @@ public class AzureClient extends AzureServiceClient {
                     callback.failure(ex);
                 }
             }
+
+            @Override
+            public void onFailure(Call<ResponseBody> call, Throwable t) {
+                pollingEngine.pollFinished(pollStart);
+                super.onFailure(call, t);
+            }
         });
         return call;
     }
 
+    /**
+     * Gets the delay before the first poll of an operation. An operation
+     * already in a terminal state is completed without waiting.
+     *
+     * @param pollingState the polling state for the current operation.
+     * @return the delay in milliseconds.
+     */
+    private long firstPollDelay(PollingState<?> pollingState) {
+        if (AzureAsyncOperation.getTerminalStatuses().contains(pollingState.getStatus())) {
+            return 0;
+        }
+        return pollingState.nextDelayInMilliseconds();
+    }
+
+    /**
+     * Waits for a long running operation polled by the polling engine to terminate.
+     *
+     * @param serviceCall the service call completed when the operation terminates.
+     * @param <T> the return type of the caller.
+     * @return the terminal response for the operation.
+     * @throws CloudException REST exception
+     * @throws InterruptedException interrupted exception
+     * @throws IOException thrown by deserialization
+     */
+    private <T> ServiceResponse<T> join(ServiceCall<T> serviceCall) throws CloudException, InterruptedException, IOException {
+        try {
+            return serviceCall.get();
+        } catch (InterruptedException e) {
+            serviceCall.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CloudException) {
+                throw (CloudException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CloudException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Gets the polling strategy of the operations returning a resource type.
+     *
+     * @param resourceType the type of the resource.
+     * @return the polling strategy.
+     */
+    private PollingStrategy pollingStrategyFor(Type resourceType) {
+        PollingStrategy strategy = pollingStrategies.get(resourceType);
+        if (strategy == null) {
+            return pollingStrategy;
+        }
+        return strategy;
+    }
+
+    /**
+     * Sets the polling strategy of the long running operations. A long running
+     * operation retry timeout takes precedence over the strategy.
+     *
+     * @param pollingStrategy the polling strategy.
+     * @return the client itself.
+     */
+    public AzureClient withPollingStrategy(PollingStrategy pollingStrategy) {
+        this.pollingStrategy = pollingStrategy;
+        return this;
+    }
+
+    /**
+     * Sets the polling strategy of the long running operations returning a
+     * resource type, e.g. {@link AdaptivePollingStrategy#forVirtualMachines()}
+     * for the creation of virtual machines. A long running operation retry
+     * timeout takes precedence over the strategy.
+     *
+     * @param resourceType the type of the resource returned by the operations.
+     * @param pollingStrategy the polling strategy.
+     * @return the client itself.
+     */
+    public AzureClient withPollingStrategy(Type resourceType, PollingStrategy pollingStrategy) {
+        this.pollingStrategies.put(resourceType, pollingStrategy);
+        return this;
+    }
+
     /**
      * Gets the interval time between two long running operation polls.
      *
@@ -780,14 +662,6 @@ public class AzureClient extends AzureServiceClient {
         this.longRunningOperationRetryTimeout = longRunningOperationRetryTimeout;
     }
 
-    /**
-     * The Retrofit service used for polling.
-     */
-    private interface AsyncService {
-        @GET
-        Call<ResponseBody> get(@Url String url, @Header("User-Agent") String userAgent);
-    }
-
     /**
      * The task runner that describes the state of an asynchronous long running
      * operation.
@@ -803,6 +677,22 @@ public class AzureClient extends AzureServiceClient {
         protected ServiceCallback<T> pollingCallback;
         /** The client callback to call when polling finishes. */
         protected ServiceCallback<T> clientCallback;
+
+        /**
+         * Checks whether the operation was cancelled, in which case polling
+         * stops and the client callback is notified.
+         *
+         * @return true if the operation was cancelled.
+         */
+        protected boolean stopIfCancelled() {
+            if (!serviceCall.isCancelled()) {
+                return false;
+            }
+            if (clientCallback != null) {
+                clientCallback.failure(new CancellationException("Long running operation cancelled"));
+            }
+            return true;
+        }
     }
 
     /**
@@ -838,14 +728,20 @@ public class AzureClient extends AzureServiceClient {
 
                 @Override
                 public void success(ServiceResponse<T> result) {
+                    if (stopIfCancelled()) {
+                        return;
+                    }
                     PutPatchPollingTask<T> task = new PutPatchPollingTask<>(pollingState, url, serviceCall, clientCallback);
-                    executor.schedule(task, pollingState.getDelayInMilliseconds(), TimeUnit.MILLISECONDS);
+                    pollingEngine.schedule(task, pollingState.nextDelayInMilliseconds());
                 }
             };
         }
 
         @Override
         public void run() {
+            if (stopIfCancelled()) {
+                return;
+            }
             // Check provisioning state
             if (!AzureAsyncOperation.getTerminalStatuses().contains(pollingState.getStatus())) {
                 if (pollingState.getAzureAsyncOperationHeaderLink() != null
@@ -861,7 +757,7 @@ public class AzureClient extends AzureServiceClient {
                 if (AzureAsyncOperation.SUCCESS_STATUS.equals(pollingState.getStatus()) && pollingState.getResource() == null) {
                     this.serviceCall.newCall(updateStateFromGetResourceOperationAsync(pollingState, url, serviceCall, clientCallback));
                 } else if (AzureAsyncOperation.getFailedStatuses().contains(pollingState.getStatus())) {
-                    ServiceException t = new ServiceException("Async operation failed");
+                    CloudException t = new CloudException("Async operation failed");
                     if (clientCallback != null) {
                         clientCallback.failure(t);
                     }
@@ -905,33 +801,40 @@ public class AzureClient extends AzureServiceClient {
 
                 @Override
                 public void success(ServiceResponse<T> result) {
+                    if (stopIfCancelled()) {
+                        return;
+                    }
                     PostDeletePollingTask<T> task = new PostDeletePollingTask<>(pollingState, serviceCall, clientCallback);
-                    executor.schedule(task, pollingState.getDelayInMilliseconds(), TimeUnit.MILLISECONDS);
+                    pollingEngine.schedule(task, pollingState.nextDelayInMilliseconds());
                 }
             };
         }
 
         @Override
         public void run() {
+            if (stopIfCancelled()) {
+                return;
+            }
             if (!AzureAsyncOperation.getTerminalStatuses().contains(pollingState.getStatus())) {
                 if (pollingState.getAzureAsyncOperationHeaderLink() != null
                         && !pollingState.getAzureAsyncOperationHeaderLink().isEmpty()) {
-                    updateStateFromAzureAsyncOperationHeaderAsync(pollingState, pollingCallback);
+                    this.serviceCall.newCall(updateStateFromAzureAsyncOperationHeaderAsync(pollingState, pollingCallback));
                 } else if (pollingState.getLocationHeaderLink() != null
                         && !pollingState.getLocationHeaderLink().isEmpty()) {
-                    updateStateFromLocationHeaderOnPostOrDeleteAsync(pollingState, pollingCallback);
+                    this.serviceCall.newCall(updateStateFromLocationHeaderOnPostOrDeleteAsync(pollingState, pollingCallback));
                 } else {
-                    ServiceException serviceException = new ServiceException("No async header in response");
-                    pollingCallback.failure(serviceException);
+                    CloudException exception = new CloudException("No header in response");
+                    exception.setResponse(pollingState.getResponse());
+                    pollingCallback.failure(exception);
                 }
             } else {
                 // Check if operation failed
                 if (AzureAsyncOperation.getFailedStatuses().contains(pollingState.getStatus())) {
-                    ServiceException serviceException = new ServiceException("Async operation failed");
+                    CloudException exception = new CloudException("Async operation failed");
                     if (clientCallback != null) {
-                        clientCallback.failure(serviceException);
+                        clientCallback.failure(exception);
                     }
-                    serviceCall.failure(serviceException);
+                    serviceCall.failure(exception);
                 } else {
                     ServiceResponse<T> serviceResponse = new ServiceResponse<>(pollingState.getResource(), pollingState.getResponse());
                     if (clientCallback != null) {
@@ -7,10 +7,7 @@
 
 package com.microsoft.azure;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * The type representing node in a {@link DAGraph}.
@@ -18,10 +15,9 @@ import java.util.concurrent.locks.ReentrantLock;
  * @param <T> the type of the data stored in the node
  */
 public class DAGNode<T> extends Node<T> {
-    private List<String> dependentKeys;
-    private int toBeResolved;
     private boolean isPreparer;
-    private ReentrantLock lock;
+    /** The position of this node in the prepared {@link DAGraph}, -1 if not prepared. */
+    private int index = -1;
 
     /**
      * Creates a DAG node.
@@ -31,31 +27,6 @@ public class DAGNode<T> extends Node<T> {
      */
     public DAGNode(String key, T data) {
         super(key, data);
-        dependentKeys = new ArrayList<>();
-        lock = new ReentrantLock();
-    }
-
-    /**
-     * @return the lock to be used while performing thread safe operation on this node.
-     */
-    public ReentrantLock lock() {
-        return this.lock;
-    }
-
-    /**
-     * @return a list of keys of nodes in {@link DAGraph} those are dependents on this node
-     */
-    List<String> dependentKeys() {
-        return Collections.unmodifiableList(this.dependentKeys);
-    }
-
-    /**
-     * Mark the node identified by the given key as dependent of this node.
-     *
-     * @param key the id of the dependent node
-     */
-    public void addDependent(String key) {
-        this.dependentKeys.add(key);
     }
 
     /**
@@ -101,26 +72,22 @@ public class DAGNode<T> extends Node<T> {
      * Initialize the node so that traversal can be performed on the parent DAG.
      */
     public void initialize() {
-        this.toBeResolved = this.dependencyKeys().size();
-        this.dependentKeys.clear();
+        this.index = -1;
     }
 
     /**
-     * @return <tt>true</tt> if all dependencies of this node are ready to be consumed
+     * @return the position of this node in the prepared {@link DAGraph}
      */
-    boolean hasAllResolved() {
-        return toBeResolved == 0;
+    int index() {
+        return index;
     }
 
     /**
-     * Reports that one of this node's dependency has been resolved and ready to be consumed.
+     * Sets the position of this node in the prepared {@link DAGraph}.
      *
-     * @param dependencyKey the id of the dependency node
+     * @param index the position
      */
-    void reportResolved(String dependencyKey) {
-        if (toBeResolved == 0) {
-            throw new RuntimeException("invalid state - " + this.key() + ": The dependency '" + dependencyKey + "' is already reported or there is no such dependencyKey");
-        }
-        toBeResolved--;
+    void setIndex(int index) {
+        this.index = index;
     }
 }
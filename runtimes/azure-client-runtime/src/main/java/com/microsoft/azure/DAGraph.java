@@ -7,21 +7,37 @@
 
 package com.microsoft.azure;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * Type representing a DAG (directed acyclic graph).
  * <p>
  * each node in a DAG is represented by {@link DAGNode}
+ * <p>
+ * Once prepared, the nodes are addressed by position: the dependents of each
+ * node are kept in flat int arrays and the unresolved dependencies of each node
+ * in an atomic counter, so reporting completions takes no lock and does no key
+ * lookup.
  *
  * @param <T> the type of the data stored in the graph nodes
  * @param <U> the type of the nodes in the graph
  */
 public class DAGraph<T, U extends DAGNode<T>> extends Graph<T, U> {
-    private ConcurrentLinkedQueue<String> queue;
+    private ConcurrentLinkedQueue<U> queue;
     private boolean hasParent;
     private U rootNode;
+    /** The prepared nodes, indexed by position. */
+    private List<U> nodes;
+    /** The start of the dependents of each prepared node in {@link #dependents}, plus the end. */
+    private int[] dependentOffsets;
+    /** The positions of the dependents of all prepared nodes, grouped by dependency. */
+    private int[] dependents;
+    /** The number of unresolved dependencies of each prepared node. */
+    private AtomicIntegerArray toBeResolved;
 
     /**
      * Creates a new DAG.
@@ -93,7 +109,7 @@ public class DAGraph<T, U extends DAGNode<T>> extends Graph<T, U> {
                     node.setPreparer(false);
                 }
             }
-            initializeDependentKeys();
+            initializeDependents();
             initializeQueue();
         }
     }
@@ -105,11 +121,7 @@ public class DAGraph<T, U extends DAGNode<T>> extends Graph<T, U> {
      * @return next node or null if all the nodes have been explored or no node is available at this moment.
      */
     public U getNext() {
-        String nextItemKey = queue.poll();
-        if (nextItemKey == null) {
-            return null;
-        }
-        return graph.get(nextItemKey);
+        return queue.poll();
     }
 
     /**
@@ -124,55 +136,116 @@ public class DAGraph<T, U extends DAGNode<T>> extends Graph<T, U> {
 
     /**
      * Reports that a node is resolved hence other nodes depends on it can consume it.
+     * <p>
+     * This method can be called concurrently for different nodes.
      *
      * @param completed the node ready to be consumed
      */
     public void reportedCompleted(U completed) {
         completed.setPreparer(true);
-        String dependency = completed.key();
-        for (String dependentKey : graph.get(dependency).dependentKeys()) {
-            DAGNode<T> dependent = graph.get(dependentKey);
-            dependent.lock().lock();
-            try {
-                dependent.reportResolved(dependency);
-                if (dependent.hasAllResolved()) {
-                    queue.add(dependent.key());
-                }
-            } finally {
-                dependent.lock().unlock();
+        int index = completed.index();
+        for (int i = dependentOffsets[index]; i < dependentOffsets[index + 1]; i++) {
+            int dependent = dependents[i];
+            int remaining = toBeResolved.decrementAndGet(dependent);
+            if (remaining == 0) {
+                queue.add(nodes.get(dependent));
+            } else if (remaining < 0) {
+                throw new IllegalStateException("invalid state - " + nodes.get(dependent).key() + ": The dependency '"
+                        + completed.key() + "' is already reported or there is no such dependencyKey");
             }
         }
     }
 
     /**
-     * Initializes dependents of all nodes.
+     * Indexes the nodes and computes the dependents and the number of
+     * dependencies of each node.
      * <p>
-     * The DAG will be explored in DFS order and all node's dependents will be identified,
-     * this prepares the DAG for traversal using getNext method, each call to getNext returns next node
-     * in the DAG with no dependencies.
+     * The dependencies are resolved by key once here, and the DAG is checked
+     * for cycles by a topological sort, which needs neither recursion nor
+     * per-edge key lookups.
      */
-    private void initializeDependentKeys() {
-        visit(new Visitor<U>() {
-            @Override
-            public void visitNode(U node) {
-                if (node.dependencyKeys().isEmpty()) {
-                    return;
+    private void initializeDependents() {
+        int size = graph.size();
+        List<U> indexed = new ArrayList<>(graph.values());
+        for (int i = 0; i < size; i++) {
+            indexed.get(i).setIndex(i);
+        }
+        int[] dependencyCounts = new int[size];
+        int[][] dependencies = new int[size][];
+        int[] offsets = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            List<String> dependencyKeys = indexed.get(i).dependencyKeys();
+            dependencies[i] = new int[dependencyKeys.size()];
+            for (int j = 0; j < dependencyKeys.size(); j++) {
+                U dependency = graph.get(dependencyKeys.get(j));
+                if (dependency == null) {
+                    throw new IllegalStateException("Node '" + indexed.get(i).key()
+                            + "' depends on unknown node '" + dependencyKeys.get(j) + "'");
                 }
+                dependencies[i][j] = dependency.index();
+                offsets[dependency.index() + 1]++;
+            }
+            dependencyCounts[i] = dependencyKeys.size();
+        }
+        for (int i = 0; i < size; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] edges = new int[offsets[size]];
+        int[] fill = new int[size];
+        for (int i = 0; i < size; i++) {
+            for (int dependency : dependencies[i]) {
+                edges[offsets[dependency] + fill[dependency]++] = i;
+            }
+        }
+        checkAcyclic(offsets, edges, dependencyCounts);
+        this.nodes = indexed;
+        this.dependentOffsets = offsets;
+        this.dependents = edges;
+        this.toBeResolved = new AtomicIntegerArray(dependencyCounts);
+    }
 
-                String dependentKey = node.key();
-                for (String dependencyKey : node.dependencyKeys()) {
-                    graph.get(dependencyKey)
-                            .addDependent(dependentKey);
+    /**
+     * Checks that the DAG has no cycle.
+     *
+     * @param offsets the start of the dependents of each node
+     * @param edges the dependents of all nodes
+     * @param dependencyCounts the number of dependencies of each node
+     */
+    private void checkAcyclic(int[] offsets, int[] edges, int[] dependencyCounts) {
+        int size = dependencyCounts.length;
+        int[] remaining = dependencyCounts.clone();
+        int[] ready = new int[size];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < size; i++) {
+            if (remaining[i] == 0) {
+                ready[tail++] = i;
+            }
+        }
+        while (head < tail) {
+            int node = ready[head++];
+            for (int i = offsets[node]; i < offsets[node + 1]; i++) {
+                if (--remaining[edges[i]] == 0) {
+                    ready[tail++] = edges[i];
                 }
             }
+        }
+        if (tail < size) {
+            // locate a cycle to report it
+            visit(new Visitor<U>() {
+                @Override
+                public void visitNode(U node) {
+                }
 
-            @Override
-            public  void visitEdge(String fromKey, String toKey, EdgeType edgeType) {
-                if (edgeType == EdgeType.BACK) {
-                    throw new IllegalStateException("Detected circular dependency: " + findPath(fromKey, toKey));
+                @Override
+                public void visitEdge(String fromKey, String toKey, EdgeType edgeType) {
+                    if (edgeType == EdgeType.BACK) {
+                        throw new IllegalStateException("Detected circular dependency: " + findPath(toKey, fromKey) + " -> " + toKey);
+                    }
                 }
-            }
-        });
+            });
+            throw new IllegalStateException("Found circular dependency");
+        }
     }
 
     /**
@@ -181,13 +254,10 @@ public class DAGraph<T, U extends DAGNode<T>> extends Graph<T, U> {
      */
     private void initializeQueue() {
         this.queue.clear();
-        for (Map.Entry<String, U> entry: graph.entrySet()) {
-            if (!entry.getValue().hasDependencies()) {
-                this.queue.add(entry.getKey());
+        for (U node : nodes) {
+            if (toBeResolved.get(node.index()) == 0) {
+                this.queue.add(node);
             }
         }
-        if (queue.isEmpty()) {
-            throw new RuntimeException("Found circular dependency");
-        }
     }
 }
@@ -7,11 +7,12 @@
 
 package com.microsoft.azure;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * Type representing a directed graph data structure.
@@ -23,24 +24,16 @@ import java.util.Set;
  */
 public class Graph<T, U extends Node<T>> {
     protected Map<String, U> graph;
-    private Set<String> visited;
-    private Integer time;
-    private Map<String, Integer> entryTime;
-    private Map<String, Integer> exitTime;
-    private Map<String, String> parent;
-    private Set<String> processed;
+    /** The nodes of the visit in progress, indexed by position. */
+    private List<U> visitNodes;
+    /** The parent position of each node in the DFS tree of the visit in progress, -1 for roots. */
+    private int[] visitParent;
 
     /**
      * Creates a directed graph.
      */
     public Graph() {
         this.graph = new HashMap<>();
-        this.visited = new HashSet<>();
-        this.time = 0;
-        this.entryTime = new HashMap<>();
-        this.exitTime = new HashMap<>();
-        this.parent = new HashMap<>();
-        this.processed = new HashSet<>();
     }
 
     /**
@@ -63,73 +56,99 @@ public class Graph<T, U extends Node<T>> {
      * Perform DFS visit in this graph.
      * <p>
      * The directed graph will be traversed in DFS order and the visitor will be notified as
-     * search explores each node and edge.
+     * search explores each node and edge. The search uses an explicit stack, so the depth
+     * of the graph is not limited by the depth of the call stack.
      *
      * @param visitor the graph visitor
      */
+    @SuppressWarnings("unchecked")
     public void visit(Visitor visitor) {
-        for (Map.Entry<String, ? extends Node<T>> item : graph.entrySet()) {
-            if (!visited.contains(item.getKey())) {
-                this.dfs(visitor, item.getValue());
-            }
+        int size = graph.size();
+        List<U> nodes = new ArrayList<>(graph.values());
+        Map<String, Integer> positions = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            positions.put(nodes.get(i).key(), i);
         }
-        visited.clear();
-        time = 0;
-        entryTime.clear();
-        exitTime.clear();
-        parent.clear();
-        processed.clear();
-    }
-
-    private void dfs(Visitor visitor, Node<T> node) {
-        visitor.visitNode(node);
-
-        String fromKey = node.key();
-        visited.add(fromKey);
-        time++;
-        entryTime.put(fromKey, time);
-        for (String toKey : node.children()) {
-            if (!visited.contains(toKey)) {
-                parent.put(toKey, fromKey);
-                visitor.visitEdge(fromKey, toKey, edgeType(fromKey, toKey));
-                this.dfs(visitor, this.graph.get(toKey));
-            } else {
-                visitor.visitEdge(fromKey, toKey, edgeType(fromKey, toKey));
+        int[] entryTime = new int[size];
+        int[] exitTime = new int[size];
+        int[] parent = new int[size];
+        int[] nextChild = new int[size];
+        int[] stack = new int[size];
+        Arrays.fill(parent, -1);
+        this.visitNodes = nodes;
+        this.visitParent = parent;
+        try {
+            int time = 0;
+            for (int root = 0; root < size; root++) {
+                if (entryTime[root] != 0) {
+                    continue;
+                }
+                visitor.visitNode(nodes.get(root));
+                entryTime[root] = ++time;
+                int top = 0;
+                stack[top++] = root;
+                while (top > 0) {
+                    int from = stack[top - 1];
+                    List<String> children = nodes.get(from).children();
+                    if (nextChild[from] == children.size()) {
+                        exitTime[from] = ++time;
+                        top--;
+                        continue;
+                    }
+                    String fromKey = nodes.get(from).key();
+                    String toKey = children.get(nextChild[from]++);
+                    Integer position = positions.get(toKey);
+                    if (position == null) {
+                        throw new IllegalStateException("Node '" + fromKey + "' depends on unknown node '" + toKey + "'");
+                    }
+                    int to = position;
+                    if (entryTime[to] == 0) {
+                        parent[to] = from;
+                        visitor.visitEdge(fromKey, toKey, EdgeType.TREE);
+                        visitor.visitNode(nodes.get(to));
+                        entryTime[to] = ++time;
+                        stack[top++] = to;
+                    } else if (parent[to] == from) {
+                        visitor.visitEdge(fromKey, toKey, EdgeType.TREE);
+                    } else if (exitTime[to] == 0) {
+                        visitor.visitEdge(fromKey, toKey, EdgeType.BACK);
+                    } else if (entryTime[to] > entryTime[from]) {
+                        visitor.visitEdge(fromKey, toKey, EdgeType.FORWARD);
+                    } else {
+                        visitor.visitEdge(fromKey, toKey, EdgeType.CROSS);
+                    }
+                }
             }
+        } finally {
+            this.visitNodes = null;
+            this.visitParent = null;
         }
-        time++;
-        exitTime.put(fromKey, time);
-        processed.add(fromKey);
     }
 
-    private EdgeType edgeType(String fromKey, String toKey) {
-        if (parent.containsKey(toKey) && parent.get(toKey).equals(fromKey)) {
-            return EdgeType.TREE;
-        }
-
-        if (visited.contains(toKey) && !processed.contains(toKey)) {
-            return EdgeType.BACK;
-        }
-
-        if (processed.contains(toKey) && entryTime.containsKey(toKey) && entryTime.containsKey(fromKey)) {
-            if (entryTime.get(toKey) > entryTime.get(fromKey)) {
-                return EdgeType.FORWARD;
-            }
-
-            if (entryTime.get(toKey) < entryTime.get(fromKey)) {
-                return EdgeType.CROSS;
+    /**
+     * Finds the path from a node to one of its descendants in the DFS tree of
+     * the visit in progress.
+     *
+     * @param start the key of the ancestor node
+     * @param end the key of the descendant node
+     * @return the path, with the keys separated by arrows
+     */
+    protected String findPath(String start, String end) {
+        int position = -1;
+        for (int i = 0; i < visitNodes.size(); i++) {
+            if (visitNodes.get(i).key().equals(end)) {
+                position = i;
+                break;
             }
         }
-
-        throw new IllegalStateException("Internal Error: Unable to locate the edge type {" + fromKey + ", " + toKey + "}");
-    }
-
-    protected String findPath(String start, String end) {
-        if (start.equals(end)) {
-            return start;
-        } else {
-            return findPath(start, parent.get(end)) + " -> " + end;
+        StringBuilder path = new StringBuilder(end);
+        while (position != -1 && !visitNodes.get(position).key().equals(start)) {
+            position = visitParent[position];
+            if (position != -1) {
+                path.insert(0, visitNodes.get(position).key() + " -> ");
+            }
         }
+        return path.toString();
     }
 
     /**
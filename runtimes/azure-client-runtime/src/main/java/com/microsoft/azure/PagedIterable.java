@@ -0,0 +1,56 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.azure;
+
+import com.microsoft.rest.RestException;
+
+import java.io.IOException;
+
+/**
+ * Defines a forward-only view of a paging operation. Unlike {@link PagedList},
+ * which keeps every item it loads, the iterators of this class hold a single
+ * page at a time, so a listing of any size is walked in constant memory.
+ *
+ * Each iterator starts from the first page; the following pages are fetched
+ * again for every new iterator.
+ *
+ * @param <E> the element type.
+ */
+public abstract class PagedIterable<E> implements Iterable<E> {
+    /** The first page of the operation. */
+    private final Page<E> firstPage;
+
+    /**
+     * Creates an instance of PagedIterable from the first {@link Page} response.
+     *
+     * @param firstPage the first {@link Page} object.
+     */
+    public PagedIterable(Page<E> firstPage) {
+        this.firstPage = firstPage;
+    }
+
+    /**
+     * Override this method to load the next page of items from a next page link.
+     *
+     * @param nextPageLink the link to get the next page of items.
+     * @return the {@link Page} object storing a page of items and a link to the next page.
+     * @throws RestException thrown if an error is raised from Azure.
+     * @throws IOException thrown if there's any failure in deserialization.
+     */
+    public abstract Page<E> nextPage(String nextPageLink) throws RestException, IOException;
+
+    @Override
+    public PagedIterator<E> iterator() {
+        return new PagedIterator<E>(firstPage) {
+            @Override
+            public Page<E> nextPage(String nextPageLink) throws RestException, IOException {
+                return PagedIterable.this.nextPage(nextPageLink);
+            }
+        };
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.azure;
+
+import com.microsoft.rest.RestException;
+
+import javax.xml.bind.DataBindingException;
+import javax.xml.ws.WebServiceException;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A forward-only iterator over the items of a paging operation. Only the
+ * page being iterated is referenced; a page is released as soon as the
+ * iterator moves to the next one.
+ *
+ * @param <E> the element type.
+ */
+public abstract class PagedIterator<E> implements Iterator<E> {
+    /** The page being iterated. */
+    private Page<E> currentPage;
+    /** The iterator over the items of the page being iterated. */
+    private Iterator<E> pageItems;
+    /** Stores the link to get the next page of items. */
+    private String nextPageLink;
+
+    /**
+     * Creates an instance of PagedIterator starting at a {@link Page} response.
+     *
+     * @param page the first {@link Page} object to iterate.
+     */
+    public PagedIterator(Page<E> page) {
+        setCurrentPage(page);
+    }
+
+    /**
+     * Override this method to load the next page of items from a next page link.
+     *
+     * @param nextPageLink the link to get the next page of items.
+     * @return the {@link Page} object storing a page of items and a link to the next page.
+     * @throws RestException thrown if an error is raised from Azure.
+     * @throws IOException thrown if there's any failure in deserialization.
+     */
+    public abstract Page<E> nextPage(String nextPageLink) throws RestException, IOException;
+
+    /**
+     * Gets the page being iterated.
+     *
+     * @return the current page.
+     */
+    public Page<E> currentPage() {
+        return currentPage;
+    }
+
+    /**
+     * Gets the next page's link.
+     *
+     * @return the next page link, null if the current page is the last one.
+     */
+    public String nextPageLink() {
+        return nextPageLink;
+    }
+
+    /**
+     * Loads the following pages until one has items or the last page is reached.
+     * The exceptions are wrapped into Java Runtime exceptions.
+     */
+    @Override
+    public boolean hasNext() {
+        while (!pageItems.hasNext() && nextPageLink != null) {
+            try {
+                setCurrentPage(nextPage(nextPageLink));
+            } catch (RestException e) {
+                throw new WebServiceException(e.toString(), e);
+            } catch (IOException e) {
+                throw new DataBindingException(e.getMessage(), e);
+            }
+        }
+        return pageItems.hasNext();
+    }
+
+    @Override
+    public E next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return pageItems.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    /**
+     * Moves to a page, releasing the previous one.
+     *
+     * @param page the page.
+     */
+    private void setCurrentPage(Page<E> page) {
+        this.currentPage = page;
+        this.nextPageLink = page.getNextPageLink();
+        this.pageItems = page.getItems() == null
+                ? Collections.<E>emptyIterator()
+                : page.getItems().iterator();
+    }
+}
@@ -7,31 +7,61 @@
 
 package com.microsoft.azure;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.microsoft.rest.RestException;
 
 import javax.xml.bind.DataBindingException;
 import javax.xml.ws.WebServiceException;
 import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Defines a list response from a paging operation. The pages are
  * lazy initialized when an instance of this class is iterated.
  *
+ * With prefetch enabled, see {@link #withPrefetch(int)}, the next pages are
+ * fetched in the background while the current one is consumed. As each page
+ * request needs the next page link of the previous page, the pages are
+ * fetched one after the other, up to the prefetch depth ahead.
+ *
  * @param <E> the element type.
  */
 public abstract class PagedList<E> implements List<E> {
+    /** The executor fetching the pages ahead of consumption by default. */
+    private static final ExecutorService DEFAULT_PREFETCH_EXECUTOR = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("azure-paged-list-prefetch-%d").build());
+
     /** The actual items in the list. */
     private List<E> items;
     /** Stores the link to get the next page of items. */
     private String nextPageLink;
     /** Stores the latest page fetched. */
     private Page<E> currentPage;
+    /** The maximum number of pages fetched ahead of consumption, 0 if prefetch is disabled. */
+    private volatile int prefetchDepth;
+    /** The executor fetching the pages ahead of consumption. */
+    private Executor prefetchExecutor;
+    /** The pages fetched ahead of consumption, guarded by itself. */
+    private final Deque<Page<E>> prefetchedPages = new ArrayDeque<>();
+    /** The link of the next page to prefetch, guarded by {@link #prefetchedPages}. */
+    private String prefetchLink;
+    /** Whether a page is being prefetched, guarded by {@link #prefetchedPages}. */
+    private boolean prefetching;
+    /** The failure of the last prefetch, guarded by {@link #prefetchedPages}. */
+    private Exception prefetchFailure;
+    /** Incremented when prefetch is disabled to discard the pages in flight, guarded by {@link #prefetchedPages}. */
+    private int prefetchGeneration;
 
     /**
      * Creates an instance of Pagedlist.
@@ -71,13 +101,72 @@ public abstract class PagedList<E> implements List<E> {
         return this.nextPageLink != null;
     }
 
+    /**
+     * Enables fetching the next pages in the background, on a shared pool of
+     * daemon threads, while the current page is consumed.
+     *
+     * @param depth the maximum number of pages fetched ahead of consumption, 0 to disable prefetch.
+     * @return the list itself.
+     */
+    public PagedList<E> withPrefetch(int depth) {
+        return withPrefetch(depth, DEFAULT_PREFETCH_EXECUTOR);
+    }
+
+    /**
+     * Enables fetching the next pages in the background while the current
+     * page is consumed.
+     *
+     * @param depth the maximum number of pages fetched ahead of consumption, 0 to disable prefetch.
+     * @param executor the executor fetching the pages.
+     * @return the list itself.
+     */
+    public PagedList<E> withPrefetch(int depth, Executor executor) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("depth must not be negative");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("executor == null");
+        }
+        synchronized (prefetchedPages) {
+            if (depth == 0) {
+                prefetchedPages.clear();
+                prefetchFailure = null;
+                prefetching = false;
+                prefetchGeneration++;
+                // wake the consumer waiting for a discarded page, to load it itself
+                prefetchedPages.notifyAll();
+            } else if (prefetchDepth == 0) {
+                prefetchLink = nextPageLink;
+            }
+            this.prefetchDepth = depth;
+            this.prefetchExecutor = executor;
+        }
+        schedulePrefetch();
+        return this;
+    }
+
+    /**
+     * Gets the maximum number of pages fetched ahead of consumption.
+     *
+     * @return the prefetch depth, 0 if prefetch is disabled.
+     */
+    public int prefetchDepth() {
+        return prefetchDepth;
+    }
+
     /**
      * Loads a page from next page link.
      * The exceptions are wrapped into Java Runtime exceptions.
      */
     public void loadNextPage() {
         try {
-            Page<E> nextPage = nextPage(this.nextPageLink);
+            Page<E> nextPage = null;
+            if (prefetchDepth > 0) {
+                nextPage = takePrefetchedPage();
+            }
+            if (nextPage == null) {
+                nextPage = nextPage(this.nextPageLink);
+            }
             this.nextPageLink = nextPage.getNextPageLink();
             this.items.addAll(nextPage.getItems());
             this.currentPage = nextPage;
@@ -88,6 +177,99 @@ public abstract class PagedList<E> implements List<E> {
         }
     }
 
+    /**
+     * Waits for the next prefetched page and starts fetching the following one.
+     *
+     * @return the next page, or null if prefetch was disabled meanwhile.
+     * @throws RestException thrown if an error is raised from Azure.
+     * @throws IOException thrown if there's any failure in deserialization.
+     */
+    private Page<E> takePrefetchedPage() throws RestException, IOException {
+        Page<E> page;
+        synchronized (prefetchedPages) {
+            if (prefetchedPages.isEmpty() && !prefetching && prefetchFailure == null) {
+                // nothing fetched ahead, so the next page to fetch is the next one to consume
+                prefetchLink = nextPageLink;
+            }
+            while (prefetchedPages.isEmpty() && prefetchFailure == null) {
+                if (prefetchDepth == 0) {
+                    return null;
+                }
+                if (!prefetching) {
+                    startPrefetch();
+                }
+                try {
+                    prefetchedPages.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the next page", e);
+                }
+            }
+            if (prefetchedPages.isEmpty()) {
+                Exception failure = prefetchFailure;
+                prefetchFailure = null;
+                if (failure instanceof RestException) {
+                    throw (RestException) failure;
+                } else if (failure instanceof IOException) {
+                    throw (IOException) failure;
+                }
+                throw (RuntimeException) failure;
+            }
+            page = prefetchedPages.poll();
+        }
+        schedulePrefetch();
+        return page;
+    }
+
+    /**
+     * Starts fetching the next page in the background if fewer pages than the
+     * prefetch depth are waiting to be consumed.
+     */
+    private void schedulePrefetch() {
+        synchronized (prefetchedPages) {
+            if (!prefetching && prefetchFailure == null && prefetchLink != null
+                    && prefetchedPages.size() < prefetchDepth) {
+                startPrefetch();
+            }
+        }
+    }
+
+    /**
+     * Fetches the page at {@link #prefetchLink} in the background. The caller
+     * holds the lock of {@link #prefetchedPages}.
+     */
+    private void startPrefetch() {
+        final String link = prefetchLink;
+        final int generation = prefetchGeneration;
+        prefetching = true;
+        prefetchExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Page<E> page = null;
+                Exception failure = null;
+                try {
+                    page = nextPage(link);
+                } catch (RestException | IOException | RuntimeException e) {
+                    failure = e;
+                }
+                synchronized (prefetchedPages) {
+                    if (generation != prefetchGeneration) {
+                        return;
+                    }
+                    prefetching = false;
+                    if (failure != null) {
+                        prefetchFailure = failure;
+                    } else {
+                        prefetchedPages.add(page);
+                        prefetchLink = page.getNextPageLink();
+                    }
+                    prefetchedPages.notifyAll();
+                }
+                schedulePrefetch();
+            }
+        });
+    }
+
     /**
      * Keep loading the next page from the next page link until all items are loaded.
      */
@@ -115,6 +297,50 @@ public abstract class PagedList<E> implements List<E> {
         return nextPageLink;
     }
 
+    /**
+     * Gets a forward-only view of the remaining items of the paging
+     * operation. The view iterates the items loaded so far in place, then
+     * fetches the following pages one at a time without adding them to this
+     * list, so that the rest of the operation is walked in constant memory.
+     *
+     * @return the forward-only view.
+     */
+    public PagedIterable<E> pagedIterable() {
+        final int loadedCount = items.size();
+        final String loadedNextPageLink = nextPageLink;
+        // the items loaded later are appended, so the first ones can be read while this list grows
+        final List<E> loadedItems = new AbstractList<E>() {
+            @Override
+            public E get(int index) {
+                if (index >= loadedCount) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + loadedCount);
+                }
+                return items.get(index);
+            }
+
+            @Override
+            public int size() {
+                return loadedCount;
+            }
+        };
+        return new PagedIterable<E>(new Page<E>() {
+            @Override
+            public String getNextPageLink() {
+                return loadedNextPageLink;
+            }
+
+            @Override
+            public List<E> getItems() {
+                return loadedItems;
+            }
+        }) {
+            @Override
+            public Page<E> nextPage(String nextPageLink) throws RestException, IOException {
+                return PagedList.this.nextPage(nextPageLink);
+            }
+        };
+    }
+
     /**
      * The implementation of {@link ListIterator} for PagedList.
      */
@@ -0,0 +1,178 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.azure;
+
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.Executor;
+
+/**
+ * A GET request polling a long running operation, sent straight through the
+ * call factory of a {@link Retrofit} instance. It goes through the same
+ * interceptors as a service call without creating a service proxy or
+ * parsing a service method per poll.
+ */
+final class PollingCall implements Call<ResponseBody> {
+    /** The Retrofit instance providing the call factory and callback executor. */
+    private final Retrofit retrofit;
+    /** The polling request. */
+    private final Request request;
+    /** The underlying OkHttp call. */
+    private final okhttp3.Call rawCall;
+
+    /**
+     * Creates a polling call.
+     *
+     * @param retrofit the Retrofit instance providing the call factory and callback executor.
+     * @param request the polling request.
+     */
+    private PollingCall(Retrofit retrofit, Request request) {
+        this.retrofit = retrofit;
+        this.request = request;
+        this.rawCall = retrofit.callFactory().newCall(request);
+    }
+
+    /**
+     * Creates a call polling a URL. Like a service call with an {@code @Url}
+     * parameter, the path and query of the URL are resolved against the base
+     * URL of the Retrofit instance.
+     *
+     * @param retrofit the Retrofit instance of the client.
+     * @param url the URL to poll.
+     * @param userAgent the user agent header, or null.
+     * @return the polling call.
+     * @throws MalformedURLException thrown if the URL is not valid.
+     */
+    static PollingCall get(Retrofit retrofit, String url, String userAgent) throws MalformedURLException {
+        Request.Builder builder = new Request.Builder()
+                .url(retrofit.baseUrl().resolve(new URL(url).getFile()))
+                .get();
+        if (userAgent != null) {
+            builder.header("User-Agent", userAgent);
+        }
+        return new PollingCall(retrofit, builder.build());
+    }
+
+    @Override
+    public Response<ResponseBody> execute() throws IOException {
+        return toResponse(rawCall.execute());
+    }
+
+    @Override
+    public void enqueue(final Callback<ResponseBody> callback) {
+        rawCall.enqueue(new okhttp3.Callback() {
+            @Override
+            public void onFailure(okhttp3.Call call, IOException e) {
+                deliver(callback, null, e);
+            }
+
+            @Override
+            public void onResponse(okhttp3.Call call, okhttp3.Response rawResponse) {
+                Response<ResponseBody> response;
+                try {
+                    response = toResponse(rawResponse);
+                } catch (IOException e) {
+                    deliver(callback, null, e);
+                    return;
+                }
+                deliver(callback, response, null);
+            }
+        });
+    }
+
+    @Override
+    public boolean isExecuted() {
+        return rawCall.isExecuted();
+    }
+
+    @Override
+    public void cancel() {
+        rawCall.cancel();
+    }
+
+    @Override
+    public boolean isCanceled() {
+        return rawCall.isCanceled();
+    }
+
+    @Override
+    public Call<ResponseBody> clone() {
+        return new PollingCall(retrofit, request);
+    }
+
+    @Override
+    public Request request() {
+        return request;
+    }
+
+    /**
+     * Delivers the outcome of the call on the callback executor of the Retrofit
+     * instance, if it has one.
+     *
+     * @param callback the callback.
+     * @param response the response, or null on failure.
+     * @param failure the failure, or null on response.
+     */
+    private void deliver(final Callback<ResponseBody> callback, final Response<ResponseBody> response, final Throwable failure) {
+        Runnable delivery = new Runnable() {
+            @Override
+            public void run() {
+                if (failure != null) {
+                    callback.onFailure(PollingCall.this, failure);
+                } else {
+                    callback.onResponse(PollingCall.this, response);
+                }
+            }
+        };
+        Executor executor = retrofit.callbackExecutor();
+        if (executor != null) {
+            executor.execute(delivery);
+        } else {
+            delivery.run();
+        }
+    }
+
+    /**
+     * Converts an OkHttp response the way Retrofit does for a
+     * {@link ResponseBody} return type: the body is buffered, and 204 and 205
+     * responses have no body.
+     *
+     * @param rawResponse the OkHttp response.
+     * @return the Retrofit response.
+     * @throws IOException thrown if the body cannot be read.
+     */
+    private static Response<ResponseBody> toResponse(okhttp3.Response rawResponse) throws IOException {
+        ResponseBody rawBody = rawResponse.body();
+        ResponseBody body = null;
+        okhttp3.Response raw = rawResponse;
+        if (rawBody != null) {
+            try {
+                body = ResponseBody.create(rawBody.contentType(), rawBody.bytes());
+            } finally {
+                rawBody.close();
+            }
+            raw = rawResponse.newBuilder().body(body).build();
+        }
+        int code = raw.code();
+        if (code < 200 || code >= 300) {
+            return Response.error(body != null ? body : ResponseBody.create(null, new byte[0]), raw);
+        }
+        if (code == 204 || code == 205) {
+            return Response.success(null, raw);
+        }
+        return Response.success(body, raw);
+    }
+}
@@ -0,0 +1,191 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.azure;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A process-wide engine that multiplexes the polling of all in-flight long
+ * running operations onto a small, bounded pool of timer threads.
+ *
+ * Polling tasks never block a timer thread: each poll is an asynchronous
+ * request whose response callback reschedules the next poll. Synchronous
+ * callers simply wait on the future of the operation.
+ */
+public final class PollingEngine {
+    /** The number of timer threads of the default engine. */
+    private static final int DEFAULT_POOL_SIZE = 2;
+
+    /** The engine shared by all {@link AzureClient} instances. */
+    private static final PollingEngine DEFAULT = new PollingEngine(DEFAULT_POOL_SIZE);
+
+    /** The timer threads scheduling the polls. */
+    private final ScheduledThreadPoolExecutor executor;
+    /** The number of operations currently being polled. */
+    private final AtomicInteger activeOperations = new AtomicInteger();
+    /** The number of operations that reached a terminal state. */
+    private final AtomicLong completedOperations = new AtomicLong();
+    /** The number of polls issued by the operations that reached a terminal state. */
+    private final AtomicLong completedOperationPolls = new AtomicLong();
+    /** The wall-clock time possibly wasted by the operations that reached a terminal state. */
+    private final AtomicLong completedOperationWastedMillis = new AtomicLong();
+    /** The number of polls that received a response or failed. */
+    private final AtomicLong totalPolls = new AtomicLong();
+    /** The sum of the latencies of all finished polls in nanoseconds. */
+    private final AtomicLong totalPollLatencyNanos = new AtomicLong();
+
+    /**
+     * Creates a polling engine.
+     *
+     * @param poolSize the number of timer threads.
+     */
+    PollingEngine(int poolSize) {
+        this.executor = new ScheduledThreadPoolExecutor(poolSize, new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("azure-lro-poller-%d")
+                .build());
+        this.executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Gets the engine shared by all clients in the process.
+     *
+     * @return the shared polling engine.
+     */
+    public static PollingEngine getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Starts tracking a long running operation and schedules its first poll.
+     * The operation stops being tracked once its future completes.
+     *
+     * @param pollingState the polling state of the operation.
+     * @param operation the future completed when the operation terminates.
+     * @param firstPoll the task issuing the first poll.
+     * @param delayInMilliseconds the delay before the first poll.
+     */
+    void submit(final PollingState<?> pollingState, ListenableFuture<?> operation, Runnable firstPoll, long delayInMilliseconds) {
+        activeOperations.incrementAndGet();
+        operation.addListener(new Runnable() {
+            @Override
+            public void run() {
+                activeOperations.decrementAndGet();
+                completedOperations.incrementAndGet();
+                completedOperationPolls.addAndGet(pollingState.getPollCount());
+                completedOperationWastedMillis.addAndGet(pollingState.getWastedTimeInMilliseconds());
+            }
+        }, MoreExecutors.directExecutor());
+        schedule(firstPoll, delayInMilliseconds);
+    }
+
+    /**
+     * Schedules the next poll of an operation already tracked by this engine.
+     *
+     * @param poll the task issuing the poll.
+     * @param delayInMilliseconds the delay before the poll.
+     * @return the scheduled task.
+     */
+    ScheduledFuture<?> schedule(Runnable poll, long delayInMilliseconds) {
+        return executor.schedule(poll, delayInMilliseconds, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records the start of a poll request.
+     *
+     * @return the start timestamp to pass to {@link #pollFinished(long)}.
+     */
+    long pollStarted() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the end of a poll request.
+     *
+     * @param startNanos the timestamp returned by {@link #pollStarted()}.
+     */
+    void pollFinished(long startNanos) {
+        totalPolls.incrementAndGet();
+        totalPollLatencyNanos.addAndGet(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Gets the number of long running operations currently being polled.
+     *
+     * @return the number of active operations.
+     */
+    public int getActivePolls() {
+        return activeOperations.get();
+    }
+
+    /**
+     * Gets the number of long running operations that reached a terminal state.
+     *
+     * @return the number of completed operations.
+     */
+    public long getCompletedOperations() {
+        return completedOperations.get();
+    }
+
+    /**
+     * Gets the total number of finished poll requests.
+     *
+     * @return the number of polls.
+     */
+    public long getTotalPolls() {
+        return totalPolls.get();
+    }
+
+    /**
+     * Gets the average latency of a poll request.
+     *
+     * @return the average latency in milliseconds, 0 if no poll has finished.
+     */
+    public double getAveragePollLatencyInMilliseconds() {
+        long polls = totalPolls.get();
+        if (polls == 0) {
+            return 0;
+        }
+        return TimeUnit.NANOSECONDS.toMicros(totalPollLatencyNanos.get()) / 1000.0 / polls;
+    }
+
+    /**
+     * Gets the average number of polls issued by a completed operation.
+     *
+     * @return the average number of polls per operation, 0 if no operation completed.
+     */
+    public double getAveragePollsPerOperation() {
+        long operations = completedOperations.get();
+        if (operations == 0) {
+            return 0;
+        }
+        return (double) completedOperationPolls.get() / operations;
+    }
+
+    /**
+     * Gets the average wall-clock time an operation possibly waited after it
+     * had finished, bounded by the delay before its last poll.
+     *
+     * @return the average wasted time in milliseconds, 0 if no operation completed.
+     */
+    public double getAverageWastedTimeInMilliseconds() {
+        long operations = completedOperations.get();
+        if (operations == 0) {
+            return 0;
+        }
+        return (double) completedOperationWastedMillis.get() / operations;
+    }
+}
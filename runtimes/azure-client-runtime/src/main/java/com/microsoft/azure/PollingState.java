@@ -7,11 +7,16 @@
 
 package com.microsoft.azure;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.microsoft.rest.DateTimeRfc1123;
 import com.microsoft.rest.serializer.JacksonMapperAdapter;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import okhttp3.ResponseBody;
 import retrofit2.Response;
@@ -40,6 +45,14 @@ public class PollingState<T> {
     private CloudError error;
     /** The adapter for {@link com.fasterxml.jackson.databind.ObjectMapper}. */
     private JacksonMapperAdapter mapperAdapter;
+    /** The number of polls issued for the operation. */
+    private final AtomicInteger pollCount = new AtomicInteger();
+    /** Decides the delay before each poll. */
+    private PollingStrategy pollingStrategy;
+    /** The sum of the delays waited before the polls. */
+    private final AtomicLong totalDelayInMilliseconds = new AtomicLong();
+    /** The delay waited before the last poll. */
+    private volatile long lastDelayInMilliseconds;
 
     /**
      * Initializes an instance of {@link PollingState}.
@@ -52,23 +65,22 @@ public class PollingState<T> {
      */
     public PollingState(Response<ResponseBody> response, Integer retryTimeout, Type resourceType, JacksonMapperAdapter mapperAdapter) throws IOException {
         this.retryTimeout = retryTimeout;
+        if (retryTimeout != null) {
+            this.pollingStrategy = PollingStrategy.fixed(TimeUnit.SECONDS.toMillis(retryTimeout));
+        } else {
+            this.pollingStrategy = new AdaptivePollingStrategy();
+        }
         this.setResponse(response);
         this.resourceType = resourceType;
         this.mapperAdapter = mapperAdapter;
 
-        String responseContent = null;
-        PollingResource resource = null;
-        if (response.body() != null) {
-            responseContent = response.body().string();
-            response.body().close();
-        }
-        if (responseContent != null && !responseContent.isEmpty()) {
-            this.resource = mapperAdapter.deserialize(responseContent, resourceType);
-            resource = mapperAdapter.deserialize(responseContent, PollingResource.class);
+        byte[] responseContent = readContent(response);
+        String provisioningState = null;
+        if (responseContent != null) {
+            provisioningState = readProvisioningState(responseContent);
         }
-        if (resource != null && resource.getProperties() != null
-                && resource.getProperties().getProvisioningState() != null) {
-            setStatus(resource.getProperties().getProvisioningState());
+        if (provisioningState != null) {
+            setStatus(provisioningState);
         } else {
             switch (this.response.code()) {
                 case 202:
@@ -83,6 +95,10 @@ public class PollingState<T> {
                     setStatus(AzureAsyncOperation.FAILED_STATUS);
             }
         }
+        if (responseContent != null && isTerminal()) {
+            // the resource of an operation still in progress is never returned
+            this.resource = mapperAdapter.deserialize(responseContent, resourceType);
+        }
     }
 
     /**
@@ -93,31 +109,32 @@ public class PollingState<T> {
      * @throws IOException thrown by deserialization
      */
     public void updateFromResponseOnPutPatch(Response<ResponseBody> response) throws CloudException, IOException {
-        String responseContent = null;
-        if (response.body() != null) {
-            responseContent = response.body().string();
-            response.body().close();
-        }
-
-        if (responseContent == null || responseContent.isEmpty()) {
+        byte[] responseContent = readContent(response);
+        if (responseContent == null) {
             CloudException exception = new CloudException("no body");
             exception.setResponse(response);
             throw exception;
         }
 
-        PollingResource resource = mapperAdapter.deserialize(responseContent, PollingResource.class);
-        if (resource != null && resource.getProperties() != null && resource.getProperties().getProvisioningState() != null) {
-            this.setStatus(resource.getProperties().getProvisioningState());
+        String provisioningState = readProvisioningState(responseContent);
+        if (provisioningState != null) {
+            this.setStatus(provisioningState);
         } else {
             this.setStatus(AzureAsyncOperation.SUCCESS_STATUS);
         }
 
-        CloudError error = new CloudError();
-        this.setError(error);
-        error.setCode(this.getStatus());
-        error.setMessage("Long running operation failed");
+        if (AzureAsyncOperation.getFailedStatuses().contains(this.getStatus())) {
+            CloudError error = new CloudError();
+            this.setError(error);
+            error.setCode(this.getStatus());
+            error.setMessage("Long running operation failed");
+        }
         this.setResponse(response);
-        this.setResource(mapperAdapter.<T>deserialize(responseContent, resourceType));
+        if (isTerminal()) {
+            this.setResource(mapperAdapter.<T>deserialize(responseContent, resourceType));
+        } else {
+            this.setResource(null);
+        }
     }
 
     /**
@@ -129,28 +146,173 @@ public class PollingState<T> {
 
     public void updateFromResponseOnDeletePost(Response<ResponseBody> response) throws IOException {
         this.setResponse(response);
-        String responseContent = null;
-        if (response.body() != null) {
-            responseContent = response.body().string();
-            response.body().close();
-        }
-        this.setResource(mapperAdapter.<T>deserialize(responseContent, resourceType));
+        this.setResource(mapperAdapter.<T>deserialize(response.body(), resourceType));
         setStatus(AzureAsyncOperation.SUCCESS_STATUS);
     }
 
+    /**
+     * Checks whether the operation reached a terminal state.
+     *
+     * @return true if the status is terminal.
+     */
+    private boolean isTerminal() {
+        return AzureAsyncOperation.getTerminalStatuses().contains(this.status);
+    }
+
+    /**
+     * Reads 'properties.provisioningState' from a resource in a single pass,
+     * skipping every other value without binding it, and stops as soon as
+     * the state is found.
+     *
+     * @param content the JSON content of the resource
+     * @return the provisioning state, or null if there is none
+     * @throws IOException thrown if the content is not valid JSON
+     */
+    private String readProvisioningState(byte[] content) throws IOException {
+        JsonParser parser = mapperAdapter.getObjectMapper().getFactory().createParser(content);
+        try {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                boolean isProperties = "properties".equals(parser.getCurrentName());
+                if (parser.nextToken() != JsonToken.START_OBJECT || !isProperties) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    boolean isProvisioningState = "provisioningState".equals(parser.getCurrentName());
+                    JsonToken value = parser.nextToken();
+                    if (isProvisioningState) {
+                        return value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                    }
+                    parser.skipChildren();
+                }
+                return null;
+            }
+            return null;
+        } finally {
+            parser.close();
+        }
+    }
+
+    /**
+     * Reads the content of a response body, which is needed more than once
+     * when both the resource and its provisioning state are extracted.
+     *
+     * @param response the response from Retrofit REST call
+     * @return the content of the body, or null if there is no content
+     * @throws IOException thrown when reading the body
+     */
+    private static byte[] readContent(Response<ResponseBody> response) throws IOException {
+        ResponseBody body = response.body();
+        if (body == null) {
+            return null;
+        }
+        try {
+            byte[] content = body.bytes();
+            if (content.length == 0) {
+                return null;
+            }
+            return content;
+        } finally {
+            body.close();
+        }
+    }
+
     /**
      * Gets long running operation delay in milliseconds.
      *
      * @return the delay in milliseconds.
      */
     public int getDelayInMilliseconds() {
-        if (this.retryTimeout != null) {
-            return this.retryTimeout * 1000;
+        return (int) pollingStrategy.getDelayInMilliseconds(pollCount.get(), getRetryAfterInMilliseconds());
+    }
+
+    /**
+     * Gets the delay before the next poll and records it as waited.
+     *
+     * @return the delay in milliseconds.
+     */
+    long nextDelayInMilliseconds() {
+        long delay = getDelayInMilliseconds();
+        lastDelayInMilliseconds = delay;
+        totalDelayInMilliseconds.addAndGet(delay);
+        return delay;
+    }
+
+    /**
+     * Sets the strategy deciding the delay before each poll. A retry timeout
+     * given at construction takes precedence over the strategy.
+     *
+     * @param pollingStrategy the polling strategy.
+     */
+    void setPollingStrategy(PollingStrategy pollingStrategy) {
+        if (this.retryTimeout == null && pollingStrategy != null) {
+            this.pollingStrategy = pollingStrategy;
         }
-        if (this.response != null && response.headers().get("Retry-After") != null) {
-            return Integer.parseInt(response.headers().get("Retry-After")) * 1000;
+    }
+
+    /**
+     * Gets the delay requested by the last response in its Retry-After header,
+     * given either in seconds or as an HTTP date.
+     *
+     * @return the delay in milliseconds, or -1 if there is no valid header.
+     */
+    long getRetryAfterInMilliseconds() {
+        if (this.response == null) {
+            return -1;
+        }
+        String retryAfter = response.headers().get("Retry-After");
+        if (retryAfter == null) {
+            return -1;
+        }
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(retryAfter.trim())));
+        } catch (NumberFormatException e) {
+            try {
+                long date = new DateTimeRfc1123(retryAfter.trim()).getDateTime().getMillis();
+                return Math.max(0, date - System.currentTimeMillis());
+            } catch (IllegalArgumentException ex) {
+                return -1;
+            }
         }
-        return AzureAsyncOperation.DEFAULT_DELAY * 1000;
+    }
+
+    /**
+     * Gets the total time waited between the polls of the operation.
+     *
+     * @return the time in milliseconds.
+     */
+    public long getTotalDelayInMilliseconds() {
+        return totalDelayInMilliseconds.get();
+    }
+
+    /**
+     * Gets the wall-clock time possibly wasted after the operation finished:
+     * the operation finished at some point during the delay before the poll
+     * that saw it terminate, so that delay bounds the time lost.
+     *
+     * @return the time in milliseconds.
+     */
+    public long getWastedTimeInMilliseconds() {
+        return lastDelayInMilliseconds;
+    }
+
+    /**
+     * Gets the number of polls issued for the operation so far.
+     *
+     * @return the number of polls.
+     */
+    public int getPollCount() {
+        return pollCount.get();
+    }
+
+    /**
+     * Records that a poll was issued for the operation.
+     */
+    void incrementPollCount() {
+        pollCount.incrementAndGet();
     }
 
     /**
@@ -258,59 +420,4 @@ public class PollingState<T> {
     public void setError(CloudError error) {
         this.error = error;
     }
-
-    /**
-     * An instance of this class describes the status of a long running operation
-     * and is returned from server each time.
-     */
-    static class PollingResource {
-        /** Inner properties object. */
-        @JsonProperty(value = "properties")
-        private Properties properties;
-
-        /**
-         * Gets the inner properties object.
-         *
-         * @return the inner properties.
-         */
-        public Properties getProperties() {
-            return properties;
-        }
-
-        /**
-         * Sets the inner properties object.
-         *
-         * @param properties the inner properties.
-         */
-        public void setProperties(Properties properties) {
-            this.properties = properties;
-        }
-
-        /**
-         * Inner properties class.
-         */
-        static class Properties {
-            /** The provisioning state of the resource. */
-            @JsonProperty(value = "provisioningState")
-            private String provisioningState;
-
-            /**
-             * Gets the provisioning state of the resource.
-             *
-             * @return the provisioning state.
-             */
-            public String getProvisioningState() {
-                return provisioningState;
-            }
-
-            /**
-             * Sets the provisioning state of the resource.
-             *
-             * @param provisioningState the provisioning state.
-             */
-            public void setProvisioningState(String provisioningState) {
-                this.provisioningState = provisioningState;
-            }
-        }
-    }
 }
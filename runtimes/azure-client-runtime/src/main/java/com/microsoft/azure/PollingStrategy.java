@@ -0,0 +1,40 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.azure;
+
+/**
+ * Decides how long to wait before each poll of a long running operation.
+ */
+public abstract class PollingStrategy {
+    /**
+     * Gets the delay before the next poll of an operation.
+     *
+     * @param pollCount the number of polls already issued for the operation.
+     * @param serverDelayInMilliseconds the delay requested by the service in
+     *                                  the Retry-After header of the last
+     *                                  response, or -1 if none.
+     * @return the delay in milliseconds.
+     */
+    public abstract long getDelayInMilliseconds(int pollCount, long serverDelayInMilliseconds);
+
+    /**
+     * Creates a strategy waiting the same time before every poll, regardless
+     * of the Retry-After header.
+     *
+     * @param delayInMilliseconds the delay in milliseconds.
+     * @return the polling strategy.
+     */
+    public static PollingStrategy fixed(final long delayInMilliseconds) {
+        return new PollingStrategy() {
+            @Override
+            public long getDelayInMilliseconds(int pollCount, long serverDelayInMilliseconds) {
+                return delayInMilliseconds;
+            }
+        };
+    }
+}
@@ -46,6 +46,8 @@ public class RestClient {
     private JacksonMapperAdapter mapperAdapter;
     /** The interceptor to set 'User-Agent' header. */
     private UserAgentInterceptor userAgentInterceptor;
+    /** The interceptor retrying the failed requests. */
+    private RetryHandler retryHandler;
 
     protected RestClient(OkHttpClient httpClient,
                        Retrofit retrofit,
@@ -53,7 +55,8 @@ public class RestClient {
                        CustomHeadersInterceptor customHeadersInterceptor,
                        UserAgentInterceptor userAgentInterceptor,
                        BaseUrlHandler baseUrlHandler,
-                       JacksonMapperAdapter mapperAdapter) {
+                       JacksonMapperAdapter mapperAdapter,
+                       RetryHandler retryHandler) {
         this.httpClient = httpClient;
         this.retrofit = retrofit;
         this.credentials = credentials;
@@ -61,6 +64,7 @@ public class RestClient {
         this.userAgentInterceptor = userAgentInterceptor;
         this.baseUrlHandler = baseUrlHandler;
         this.mapperAdapter = mapperAdapter;
+        this.retryHandler = retryHandler;
     }
 
     /**
@@ -110,6 +114,15 @@ public class RestClient {
         return retrofit;
     }
 
+    /**
+     * Get the interceptor retrying the failed requests.
+     *
+     * @return the retry handler, holding the per host retry statistics.
+     */
+    public RetryHandler retryHandler() {
+        return retryHandler;
+    }
+
     /**
      * Get the credentials attached to this REST client.
      *
@@ -137,6 +150,8 @@ public class RestClient {
         protected BaseUrlHandler baseUrlHandler;
         /** The interceptor to set 'User-Agent' header. */
         protected UserAgentInterceptor userAgentInterceptor;
+        /** The interceptor pacing the requests to the subscription limits, if any. */
+        protected ThrottlingInterceptor throttlingInterceptor;
         /** The inner Builder instance. */
         protected Buildable buildable;
 
@@ -320,6 +335,19 @@ public class RestClient {
                 return this;
             }
 
+            /**
+             * Paces the requests to stay within the subscription request
+             * limits of Azure Resource Manager. The same interceptor can be
+             * shared by several clients using the same subscriptions.
+             *
+             * @param throttlingInterceptor the throttling interceptor
+             * @return the builder itself for chaining
+             */
+            public Buildable withThrottlingInterceptor(ThrottlingInterceptor throttlingInterceptor) {
+                Builder.this.throttlingInterceptor = throttlingInterceptor;
+                return this;
+            }
+
             /**
              * Build a RestClient with all the current configurations.
              *
@@ -327,23 +355,30 @@ public class RestClient {
              */
             public RestClient build() {
                 AzureJacksonMapperAdapter mapperAdapter = new AzureJacksonMapperAdapter();
-                OkHttpClient httpClient = httpClientBuilder
+                RetryHandler retryHandler = new RetryHandler(
+                        new ResourceGetExponentialBackoffRetryStrategy(),
+                        RetryHandler.newDefaultRetryStrategy());
+                httpClientBuilder
                         .addInterceptor(baseUrlHandler)
                         .addInterceptor(customHeadersInterceptor)
-                        .addInterceptor(new RetryHandler(new ResourceGetExponentialBackoffRetryStrategy()))
-                        .addInterceptor(new RetryHandler())
-                        .build();
+                        .addInterceptor(retryHandler);
+                if (throttlingInterceptor != null) {
+                    // Every retry attempt takes its own token
+                    httpClientBuilder.addInterceptor(throttlingInterceptor);
+                }
+                OkHttpClient httpClient = httpClientBuilder.build();
                 return new RestClient(httpClient,
                         retrofitBuilder
                                 .baseUrl(baseUrl)
-                                .client(httpClient)
+                                .callFactory(retryHandler.newCallFactory(httpClient))
                                 .addConverterFactory(mapperAdapter.getConverterFactory())
                                 .build(),
                         credentials,
                         customHeadersInterceptor,
                         userAgentInterceptor,
                         baseUrlHandler,
-                        mapperAdapter);
+                        mapperAdapter,
+                        retryHandler);
             }
 
         }
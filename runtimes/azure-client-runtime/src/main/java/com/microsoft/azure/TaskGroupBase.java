@@ -7,11 +7,26 @@
 
 package com.microsoft.azure;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.microsoft.rest.ServiceCall;
 import com.microsoft.rest.ServiceCallback;
 import com.microsoft.rest.ServiceResponse;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The base implementation of TaskGroup interface.
@@ -21,6 +36,19 @@ import java.util.concurrent.ConcurrentLinkedQueue;
  */
 public abstract class TaskGroupBase<T, U extends TaskItem<T>>
     implements TaskGroup<T, U> {
+    /**
+     * The maximum number of tasks the default executor runs in parallel.
+     */
+    public static final int DEFAULT_PARALLELISM = 16;
+    /**
+     * The executor shared by the task groups that are not given one. When all
+     * its threads are busy the task runs on the thread calling execute, so
+     * that a task executing a nested task group cannot starve the pool.
+     */
+    private static final ExecutorService DEFAULT_EXECUTOR = new ThreadPoolExecutor(
+            0, DEFAULT_PARALLELISM, 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("azure-task-group-%d").build(),
+            new ThreadPoolExecutor.CallerRunsPolicy());
     /**
      * Stores the tasks in this group and their dependency information.
      */
@@ -30,6 +58,10 @@ public abstract class TaskGroupBase<T, U extends TaskItem<T>>
      * the task in this group.
      */
     private ParallelServiceCall parallelServiceCall;
+    /**
+     * The executor running the tasks of a synchronous execution in parallel.
+     */
+    private ExecutorService executor = DEFAULT_EXECUTOR;
 
     /**
      * Creates TaskGroupBase.
@@ -64,13 +96,77 @@ public abstract class TaskGroupBase<T, U extends TaskItem<T>>
         }
     }
 
+    /**
+     * Sets the executor running the tasks of a synchronous execution in parallel.
+     *
+     * @param executor the executor, bounding the number of tasks running at a time
+     * @return the task group itself
+     */
+    public TaskGroupBase<T, U> withExecutor(ExecutorService executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Executes the tasks in the group, running the tasks that do not depend on
+     * each other in parallel. The first failing task cancels the tasks still
+     * running, interrupting them, and its exception is thrown once they have
+     * stopped.
+     *
+     * @throws Exception the exception of the first failing task
+     */
     @Override
     public void execute() throws Exception {
-        DAGNode<U> nextNode = dag.getNext();
-        while (nextNode != null) {
-            nextNode.data().execute();
-            this.dag().reportedCompleted(nextNode);
-            nextNode = dag.getNext();
+        ExecutorCompletionService<DAGNode<U>> completionService = new ExecutorCompletionService<>(executor);
+        Map<Future<DAGNode<U>>, TaskRun> running = new LinkedHashMap<>();
+        List<DAGNode<U>> ready = new ArrayList<>();
+        while (true) {
+            for (DAGNode<U> nextNode = dag.getNext(); nextNode != null; nextNode = dag.getNext()) {
+                ready.add(nextNode);
+            }
+            if (ready.size() == 1 && running.isEmpty()) {
+                // nothing else can run meanwhile, e.g. the root task, so skip the thread hop
+                DAGNode<U> nextNode = ready.remove(0);
+                nextNode.data().execute();
+                dag.reportedCompleted(nextNode);
+                continue;
+            }
+            for (DAGNode<U> nextNode : ready) {
+                TaskRun run = new TaskRun(nextNode);
+                running.put(completionService.submit(run), run);
+            }
+            ready.clear();
+            if (running.isEmpty()) {
+                break;
+            }
+            Future<DAGNode<U>> completed;
+            try {
+                completed = completionService.take();
+            } catch (InterruptedException e) {
+                for (Future<DAGNode<U>> task : running.keySet()) {
+                    task.cancel(true);
+                }
+                throw e;
+            }
+            running.remove(completed);
+            try {
+                dag.reportedCompleted(completed.get());
+            } catch (ExecutionException e) {
+                for (Future<DAGNode<U>> sibling : running.keySet()) {
+                    sibling.cancel(true);
+                }
+                // a cancelled future is done at once, but its task may still be running
+                for (TaskRun sibling : running.values()) {
+                    sibling.awaitStopped();
+                }
+                Throwable failure = e.getCause();
+                if (failure instanceof Exception) {
+                    throw (Exception) failure;
+                } else if (failure instanceof Error) {
+                    throw (Error) failure;
+                }
+                throw e;
+            }
         }
     }
 
@@ -85,6 +181,61 @@ public abstract class TaskGroupBase<T, U extends TaskItem<T>>
         return dag.getNodeData(taskId).result();
     }
 
+    /**
+     * A callable executing the task stored in a node, which can be waited for
+     * once its future is cancelled.
+     */
+    private class TaskRun implements Callable<DAGNode<U>> {
+        /** The node containing the runnable task. */
+        private final DAGNode<U> taskNode;
+        /** Counted down once the task has stopped running. */
+        private final CountDownLatch stopped = new CountDownLatch(1);
+        /** Whether the task has started running, guarded by this. */
+        private boolean started;
+        /** Whether the task must not start running anymore, guarded by this. */
+        private boolean abandoned;
+
+        /**
+         * Creates a TaskRun.
+         *
+         * @param taskNode the node containing the runnable task
+         */
+        TaskRun(DAGNode<U> taskNode) {
+            this.taskNode = taskNode;
+        }
+
+        @Override
+        public DAGNode<U> call() throws Exception {
+            synchronized (this) {
+                if (abandoned) {
+                    throw new CancellationException();
+                }
+                started = true;
+            }
+            try {
+                taskNode.data().execute();
+                return taskNode;
+            } finally {
+                stopped.countDown();
+            }
+        }
+
+        /**
+         * Prevents the task from starting, or waits for it to stop running.
+         *
+         * @throws InterruptedException thrown if the thread is interrupted while waiting
+         */
+        void awaitStopped() throws InterruptedException {
+            synchronized (this) {
+                abandoned = true;
+                if (!started) {
+                    return;
+                }
+            }
+            stopped.await();
+        }
+    }
+
     /**
      * Executes all runnable tasks, a task is runnable when all the tasks its depends
      * on are finished running.
@@ -0,0 +1,528 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.azure;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.microsoft.rest.AdmissionInterceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An instance of this class paces the requests sent to Azure Resource Manager
+ * so that a subscription stays within its read and write request limits.
+ *
+ * Each subscription has a token bucket for reads and one for writes, refilled
+ * at the hourly limit rate. The buckets are resynchronized with the
+ * x-ms-ratelimit-remaining-subscription-reads and -writes headers of every
+ * response, keeping a reserve of requests. Once a bucket is empty, requests
+ * wait in arrival order for their token instead of being rejected with 429;
+ * a response reporting more remaining requests lets them go early.
+ * Synchronous requests wait on the calling thread, asynchronous requests
+ * sent through {@link com.microsoft.rest.retry.RetryHandler#newCallFactory(okhttp3.OkHttpClient)}
+ * wait without holding a thread.
+ *
+ * The same instance can be shared by several {@link RestClient}s, see
+ * {@link RestClient.Builder.Buildable#withThrottlingInterceptor(ThrottlingInterceptor)}.
+ */
+public final class ThrottlingInterceptor implements AdmissionInterceptor {
+    /** The default number of read requests allowed per subscription per hour. */
+    public static final int DEFAULT_READS_PER_HOUR = 12000;
+    /** The default number of write requests allowed per subscription per hour. */
+    public static final int DEFAULT_WRITES_PER_HOUR = 1200;
+    /** The default fraction of the hourly limit kept in reserve. */
+    public static final double DEFAULT_RESERVE_RATIO = 0.05;
+
+    /** The header reporting the remaining read requests of the subscription. */
+    private static final String REMAINING_READS = "x-ms-ratelimit-remaining-subscription-reads";
+    /** The header reporting the remaining write requests of the subscription. */
+    private static final String REMAINING_WRITES = "x-ms-ratelimit-remaining-subscription-writes";
+    /** Matches the subscription id in a request path. */
+    private static final Pattern SUBSCRIPTION = Pattern.compile("/subscriptions/([^/]+)", Pattern.CASE_INSENSITIVE);
+    /** The timer granting the tokens of the waiting requests of all interceptors as they are refilled. */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("azure-throttling-%d").build());
+
+    /** The number of read requests allowed per subscription per hour. */
+    private final int readsPerHour;
+    /** The number of write requests allowed per subscription per hour. */
+    private final int writesPerHour;
+    /** The fraction of the hourly limit kept in reserve. */
+    private final double reserveRatio;
+    /** The token buckets, keyed by subscription id and request kind. */
+    private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    /** The number of requests currently waiting for a token. */
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    /** The largest number of requests that waited for a token at the same time. */
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    /** The number of requests that waited for a token. */
+    private final AtomicLong delayedRequests = new AtomicLong();
+    /** The sum of the waits for a token in nanoseconds. */
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+
+    /**
+     * Creates a throttling interceptor with the default Azure Resource Manager limits.
+     */
+    public ThrottlingInterceptor() {
+        this(DEFAULT_READS_PER_HOUR, DEFAULT_WRITES_PER_HOUR, DEFAULT_RESERVE_RATIO);
+    }
+
+    /**
+     * Creates a throttling interceptor.
+     *
+     * @param readsPerHour the number of read requests allowed per subscription per hour
+     * @param writesPerHour the number of write requests allowed per subscription per hour
+     * @param reserveRatio the fraction of the hourly limits kept in reserve, between 0 and 1
+     */
+    public ThrottlingInterceptor(int readsPerHour, int writesPerHour, double reserveRatio) {
+        if (readsPerHour <= 0 || writesPerHour <= 0) {
+            throw new IllegalArgumentException("readsPerHour and writesPerHour must be positive");
+        }
+        if (reserveRatio < 0 || reserveRatio >= 1) {
+            throw new IllegalArgumentException("reserveRatio must be in [0, 1)");
+        }
+        this.readsPerHour = readsPerHour;
+        this.writesPerHour = writesPerHour;
+        this.reserveRatio = reserveRatio;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String subscriptionId = subscriptionOf(request);
+        if (subscriptionId == null) {
+            return chain.proceed(request);
+        }
+
+        bucket(subscriptionId, isWrite(request)).acquire();
+        Response response = chain.proceed(request);
+        responseReceived(response);
+        return response;
+    }
+
+    @Override
+    public void admit(Request request, Runnable admission) {
+        String subscriptionId = subscriptionOf(request);
+        if (subscriptionId == null) {
+            admission.run();
+            return;
+        }
+        bucket(subscriptionId, isWrite(request)).admit(admission);
+    }
+
+    @Override
+    public void responseReceived(Response response) {
+        String subscriptionId = subscriptionOf(response.request());
+        if (subscriptionId == null) {
+            return;
+        }
+        update(subscriptionId, false, response.header(REMAINING_READS));
+        update(subscriptionId, true, response.header(REMAINING_WRITES));
+    }
+
+    /**
+     * Gets the number of requests currently waiting for a token.
+     *
+     * @return the queue depth.
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * Gets the largest number of requests that waited for a token at the same time.
+     *
+     * @return the maximum queue depth.
+     */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    /**
+     * Gets the number of requests that waited for a token.
+     *
+     * @return the number of delayed requests.
+     */
+    public long getDelayedRequestCount() {
+        return delayedRequests.get();
+    }
+
+    /**
+     * Gets the total time requests waited for a token.
+     *
+     * @return the total wait time in milliseconds.
+     */
+    public long getTotalWaitTimeInMilliseconds() {
+        return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get());
+    }
+
+    /**
+     * Gets the average time a delayed request waited for a token.
+     *
+     * @return the average wait time in milliseconds, 0 if no request was delayed.
+     */
+    public double getAverageWaitTimeInMilliseconds() {
+        long delayed = delayedRequests.get();
+        if (delayed == 0) {
+            return 0;
+        }
+        return TimeUnit.NANOSECONDS.toMicros(totalWaitNanos.get()) / 1000.0 / delayed;
+    }
+
+    /**
+     * Gets the number of read requests a subscription can send without waiting.
+     *
+     * @param subscriptionId the subscription id
+     * @return the available reads, negative if requests are queued
+     */
+    public long getAvailableReads(String subscriptionId) {
+        return bucket(subscriptionId, false).available();
+    }
+
+    /**
+     * Gets the number of write requests a subscription can send without waiting.
+     *
+     * @param subscriptionId the subscription id
+     * @return the available writes, negative if requests are queued
+     */
+    public long getAvailableWrites(String subscriptionId) {
+        return bucket(subscriptionId, true).available();
+    }
+
+    /**
+     * Resynchronizes a token bucket with a remaining request header.
+     *
+     * @param subscriptionId the subscription id
+     * @param write true for the write bucket, false for the read bucket
+     * @param remaining the header value, may be null
+     */
+    private void update(String subscriptionId, boolean write, String remaining) {
+        if (remaining == null) {
+            return;
+        }
+        try {
+            bucket(subscriptionId, write).update(Long.parseLong(remaining.trim()));
+        } catch (NumberFormatException e) {
+            // not a request count, keep the local estimate
+        }
+    }
+
+    /**
+     * Gets the token bucket of a subscription and request kind.
+     *
+     * @param subscriptionId the subscription id
+     * @param write true for the write bucket, false for the read bucket
+     * @return the token bucket
+     */
+    private TokenBucket bucket(String subscriptionId, boolean write) {
+        String key = (write ? "w:" : "r:") + subscriptionId.toLowerCase(Locale.ROOT);
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = new TokenBucket(write ? writesPerHour : readsPerHour, reserveRatio);
+            TokenBucket existing = buckets.putIfAbsent(key, bucket);
+            if (existing != null) {
+                bucket = existing;
+            }
+        }
+        return bucket;
+    }
+
+    /**
+     * Records a request starting to wait for a token.
+     */
+    private void waitStarted() {
+        int depth = queueDepth.incrementAndGet();
+        int max = maxQueueDepth.get();
+        while (depth > max && !maxQueueDepth.compareAndSet(max, depth)) {
+            max = maxQueueDepth.get();
+        }
+        delayedRequests.incrementAndGet();
+    }
+
+    /**
+     * Records a request done waiting for a token.
+     *
+     * @param waitNanos the wait in nanoseconds
+     */
+    private void waitEnded(long waitNanos) {
+        queueDepth.decrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+    }
+
+    /**
+     * Checks whether a request counts against the write limit.
+     *
+     * @param request the request
+     * @return true for a write, false for a read
+     */
+    private static boolean isWrite(Request request) {
+        return !"GET".equalsIgnoreCase(request.method()) && !"HEAD".equalsIgnoreCase(request.method());
+    }
+
+    /**
+     * Gets the subscription id targeted by a request.
+     *
+     * @param request the request
+     * @return the subscription id, or null if the request does not target a subscription
+     */
+    private static String subscriptionOf(Request request) {
+        Matcher matcher = SUBSCRIPTION.matcher(request.url().encodedPath());
+        if (matcher.find()) {
+            return matcher.group(1);
+        }
+        return null;
+    }
+
+    /**
+     * Runs the admissions of asynchronous requests granted a token.
+     *
+     * @param admissions the admissions
+     */
+    private static void run(List<Runnable> admissions) {
+        for (Runnable admission : admissions) {
+            admission.run();
+        }
+    }
+
+    /**
+     * A request waiting for a token.
+     */
+    private static final class Waiter {
+        /** Sends an asynchronous request, null for a synchronous request. */
+        private final Runnable admission;
+        /** The time the request started waiting in nanoseconds. */
+        private final long since;
+        /** Whether the request was granted its token. */
+        private boolean granted;
+
+        /**
+         * Creates a waiter.
+         *
+         * @param admission sends the asynchronous request, null for a synchronous request
+         * @param since the current time in nanoseconds
+         */
+        Waiter(Runnable admission, long since) {
+            this.admission = admission;
+            this.since = since;
+        }
+    }
+
+    /**
+     * A token bucket refilled at an hourly rate. Once it is empty, requests
+     * queue up and are granted the tokens in arrival order as they are
+     * refilled, or as soon as a response reports more remaining requests.
+     */
+    private final class TokenBucket {
+        /** The maximum number of tokens. */
+        private final double capacity;
+        /** The number of requests kept in reserve. */
+        private final double reserve;
+        /** The number of tokens refilled per nanosecond. */
+        private final double tokensPerNano;
+        /** The requests waiting for a token, in arrival order. */
+        private final Queue<Waiter> waiters = new ArrayDeque<>();
+        /** The current number of tokens. */
+        private double tokens;
+        /** The time of the last refill. */
+        private long lastRefillNanos;
+        /** Whether a grant is scheduled for the time the next token is refilled. */
+        private boolean grantScheduled;
+
+        /**
+         * Creates a full token bucket.
+         *
+         * @param perHour the number of requests allowed per hour
+         * @param reserveRatio the fraction of the hourly limit kept in reserve
+         */
+        TokenBucket(int perHour, double reserveRatio) {
+            this.reserve = Math.floor(perHour * reserveRatio);
+            this.capacity = perHour - reserve;
+            this.tokensPerNano = perHour / (double) TimeUnit.HOURS.toNanos(1);
+            this.tokens = capacity;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        /**
+         * Takes a token, waiting on the calling thread until it is granted.
+         *
+         * @throws InterruptedIOException thrown if the thread is interrupted
+         */
+        void acquire() throws InterruptedIOException {
+            Waiter waiter;
+            List<Runnable> admissions;
+            synchronized (this) {
+                long now = System.nanoTime();
+                if (tryTake(now)) {
+                    return;
+                }
+                waiter = new Waiter(null, now);
+                waiters.add(waiter);
+                waitStarted();
+                admissions = grant(now);
+            }
+            run(admissions);
+
+            synchronized (this) {
+                try {
+                    while (!waiter.granted) {
+                        wait();
+                    }
+                    return;
+                } catch (InterruptedException e) {
+                    if (waiter.granted) {
+                        // give the token to the next request
+                        tokens += 1;
+                    } else {
+                        waiters.remove(waiter);
+                        waitEnded(System.nanoTime() - waiter.since);
+                    }
+                    admissions = grant(System.nanoTime());
+                    Thread.currentThread().interrupt();
+                }
+            }
+            run(admissions);
+            throw new InterruptedIOException("Interrupted while waiting for the subscription request limit");
+        }
+
+        /**
+         * Takes a token without blocking: runs the admission right away if a
+         * token is available, once the token is granted otherwise.
+         *
+         * @param admission sends the request
+         */
+        void admit(Runnable admission) {
+            List<Runnable> admissions;
+            synchronized (this) {
+                long now = System.nanoTime();
+                if (tryTake(now)) {
+                    admissions = Collections.singletonList(admission);
+                } else {
+                    waiters.add(new Waiter(admission, now));
+                    waitStarted();
+                    admissions = grant(now);
+                }
+            }
+            run(admissions);
+        }
+
+        /**
+         * Resets the tokens to the remaining requests reported by the server,
+         * minus the reserve, and grants them to the waiting requests.
+         *
+         * @param remaining the remaining requests
+         */
+        void update(long remaining) {
+            List<Runnable> admissions;
+            synchronized (this) {
+                long now = System.nanoTime();
+                refill(now);
+                tokens = Math.min(capacity, remaining - reserve);
+                admissions = grant(now);
+            }
+            run(admissions);
+        }
+
+        /**
+         * Gets the number of tokens not claimed by a waiting request.
+         *
+         * @return the whole number of tokens, negative if requests are queued
+         */
+        synchronized long available() {
+            refill(System.nanoTime());
+            return (long) Math.floor(tokens) - waiters.size();
+        }
+
+        /**
+         * Takes a token if one is available and no request is waiting.
+         *
+         * @param now the current time in nanoseconds
+         * @return true if the token was taken
+         */
+        private boolean tryTake(long now) {
+            refill(now);
+            if (waiters.isEmpty() && tokens >= 1) {
+                tokens -= 1;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Grants the available tokens to the waiting requests in arrival order,
+         * and schedules the next grant if requests are still waiting.
+         * Must be called with the lock held.
+         *
+         * @param now the current time in nanoseconds
+         * @return the admissions of the asynchronous requests granted a token,
+         *         to run once the lock is released
+         */
+        private List<Runnable> grant(long now) {
+            refill(now);
+            List<Runnable> admissions = new ArrayList<>();
+            boolean grantedSynchronous = false;
+            while (!waiters.isEmpty() && tokens >= 1) {
+                Waiter waiter = waiters.remove();
+                tokens -= 1;
+                waiter.granted = true;
+                waitEnded(now - waiter.since);
+                if (waiter.admission == null) {
+                    grantedSynchronous = true;
+                } else {
+                    admissions.add(waiter.admission);
+                }
+            }
+            if (grantedSynchronous) {
+                notifyAll();
+            }
+            if (!waiters.isEmpty() && !grantScheduled) {
+                grantScheduled = true;
+                long delayNanos = (long) Math.ceil((1 - tokens) / tokensPerNano);
+                SCHEDULER.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        List<Runnable> admissions;
+                        synchronized (TokenBucket.this) {
+                            grantScheduled = false;
+                            admissions = grant(System.nanoTime());
+                        }
+                        ThrottlingInterceptor.run(admissions);
+                    }
+                }, delayNanos, TimeUnit.NANOSECONDS);
+            }
+            return admissions;
+        }
+
+        /**
+         * Adds the tokens accrued since the last refill.
+         *
+         * @param now the current time in nanoseconds
+         */
+        private void refill(long now) {
+            tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+            lastRefillNanos = now;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.azure;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.microsoft.rest.ServiceResponse;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import retrofit2.CallAdapter;
+import retrofit2.Retrofit;
+
+public class AzureClientTests {
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    @Test
+    public void putOrPatchPollsAsyncOperationUntilSucceeded() throws Exception {
+        AzureClient azureClient = newAzureClient(new Interceptor() {
+            private int asyncPolls = 0;
+
+            @Override
+            public Response intercept(Chain chain) throws IOException {
+                Request request = chain.request();
+                if (request.url().encodedPath().equals("/operations/1")) {
+                    String status = ++asyncPolls < 3 ? "InProgress" : "Succeeded";
+                    return jsonResponse(request, 200, "{\"status\":\"" + status + "\"}");
+                }
+                return jsonResponse(request, 200, "{\"name\":\"foo\",\"properties\":{\"provisioningState\":\"Succeeded\"}}");
+            }
+        });
+        long polls = PollingEngine.getDefault().getTotalPolls();
+
+        ServiceResponse<Foo> response = azureClient.getPutOrPatchResult(initialResponse(201,
+                "{\"properties\":{\"provisioningState\":\"Creating\"}}"), Foo.class);
+
+        Assert.assertEquals("foo", response.getBody().name);
+        Assert.assertEquals(polls + 4, PollingEngine.getDefault().getTotalPolls());
+    }
+
+    @Test
+    public void putOrPatchFailedOperationThrowsCloudException() throws Exception {
+        AzureClient azureClient = newAzureClient(new Interceptor() {
+            @Override
+            public Response intercept(Chain chain) throws IOException {
+                return jsonResponse(chain.request(), 200, "{\"status\":\"Failed\"}");
+            }
+        });
+        try {
+            azureClient.getPutOrPatchResult(initialResponse(201,
+                    "{\"properties\":{\"provisioningState\":\"Creating\"}}"), Foo.class);
+            Assert.fail();
+        } catch (CloudException e) {
+            Assert.assertEquals("Async operation failed", e.getMessage());
+        }
+    }
+
+    @Test
+    public void postOrDeleteTerminalResponseCompletesWithoutPolling() throws Exception {
+        AzureClient azureClient = newAzureClient(new Interceptor() {
+            @Override
+            public Response intercept(Chain chain) throws IOException {
+                Assert.fail("no poll expected");
+                return null;
+            }
+        });
+        ServiceResponse<Foo> response = azureClient.getPostOrDeleteResult(initialResponse(200, ""), Foo.class);
+        Assert.assertEquals(200, response.getResponse().code());
+    }
+
+    @Test
+    public void interruptedCallerStopsPolling() throws Exception {
+        final AtomicInteger polls = new AtomicInteger();
+        final AzureClient azureClient = newAzureClient(new Interceptor() {
+            @Override
+            public Response intercept(Chain chain) throws IOException {
+                polls.incrementAndGet();
+                return jsonResponse(chain.request(), 200, "{\"status\":\"InProgress\"}");
+            }
+        });
+        final AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Thread caller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    azureClient.getPutOrPatchResult(initialResponse(201,
+                            "{\"properties\":{\"provisioningState\":\"Creating\"}}"), Foo.class);
+                } catch (Throwable t) {
+                    thrown.set(t);
+                }
+            }
+        });
+        caller.start();
+        while (polls.get() < 3) {
+            Thread.sleep(10);
+        }
+        caller.interrupt();
+        caller.join(5000);
+
+        Assert.assertTrue(thrown.get() instanceof InterruptedException);
+        // a poll in flight when the caller was interrupted may still complete, but none is scheduled after it
+        Thread.sleep(200);
+        int stopped = polls.get();
+        Thread.sleep(300);
+        Assert.assertEquals(stopped, polls.get());
+    }
+
+    @Test
+    public void pollsDoNotCreateRetrofitServices() throws Exception {
+        final List<String> polledPaths = new CopyOnWriteArrayList<>();
+        final AtomicInteger serviceMethods = new AtomicInteger();
+        Retrofit.Builder retrofitBuilder = new Retrofit.Builder().addCallAdapterFactory(new CallAdapter.Factory() {
+            @Override
+            public CallAdapter<?> get(Type returnType, Annotation[] annotations, Retrofit retrofit) {
+                // consulted each time Retrofit parses a service method
+                serviceMethods.incrementAndGet();
+                return null;
+            }
+        });
+        RestClient restClient = new RestClient.Builder(new OkHttpClient.Builder(), retrofitBuilder)
+                .withBaseUrl("http://localhost")
+                .withInterceptor(new Interceptor() {
+                    private int polls = 0;
+
+                    @Override
+                    public Response intercept(Chain chain) throws IOException {
+                        Request request = chain.request();
+                        polledPaths.add(request.url().encodedPath() + "?" + request.url().encodedQuery());
+                        String status = ++polls < 5 ? "InProgress" : "Succeeded";
+                        if (request.url().encodedPath().equals("/foos/foo")) {
+                            return jsonResponse(request, 200, "{\"name\":\"foo\",\"properties\":{\"provisioningState\":\"Succeeded\"}}");
+                        }
+                        return jsonResponse(request, 200, "{\"status\":\"" + status + "\"}");
+                    }
+                })
+                .build();
+        AzureClient azureClient = new AzureClient(new AzureServiceClient(restClient) { });
+        azureClient.withLongRunningOperationRetryTimeout(0);
+
+        ServiceResponse<Foo> response = azureClient.getPutOrPatchResult(initialResponse(201,
+                "{\"properties\":{\"provisioningState\":\"Creating\"}}"), Foo.class);
+
+        Assert.assertEquals("foo", response.getBody().name);
+        Assert.assertEquals(6, polledPaths.size());
+        Assert.assertEquals("/operations/1?api-version=2016-01-01", polledPaths.get(0));
+        Assert.assertEquals(0, serviceMethods.get());
+    }
+
+    private static AzureClient newAzureClient(Interceptor server) {
+        RestClient restClient = new RestClient.Builder()
+                .withBaseUrl("http://localhost")
+                .withInterceptor(server)
+                .build();
+        AzureClient azureClient = new AzureClient(new AzureServiceClient(restClient) { });
+        azureClient.withLongRunningOperationRetryTimeout(0);
+        return azureClient;
+    }
+
+    private static retrofit2.Response<ResponseBody> initialResponse(int code, String body) {
+        Response raw = new Response.Builder()
+                .request(new Request.Builder().put(okhttp3.RequestBody.create(JSON, "{}")).url("http://localhost/foos/foo").build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .header("Azure-AsyncOperation", "http://localhost/operations/1?api-version=2016-01-01")
+                .build();
+        return retrofit2.Response.success(ResponseBody.create(JSON, body), raw);
+    }
+
+    private static Response jsonResponse(Request request, int code, String body) {
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .body(ResponseBody.create(JSON, body))
+                .build();
+    }
+
+    public static class Foo {
+        @JsonProperty(value = "name")
+        private String name;
+    }
+}
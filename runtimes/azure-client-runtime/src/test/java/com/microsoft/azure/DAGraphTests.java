@@ -144,6 +144,50 @@ public class DAGraphTests {
         }
     }
 
+    @Test
+    public void testDeepGraph() {
+        int depth = 20000;
+        DAGNode<String> root = new DAGNode<>("N" + depth, "data");
+        DAGraph<String, DAGNode<String>> dag = new DAGraph<>(root);
+        DAGNode<String> previous = root;
+        for (int i = depth - 1; i >= 0; i--) {
+            DAGNode<String> node = new DAGNode<>("N" + i, "data");
+            previous.addDependency(node.key());
+            dag.addNode(node);
+            previous = node;
+        }
+        dag.prepare();
+
+        int count = 0;
+        DAGNode<String> nextNode = dag.getNext();
+        while (nextNode != null) {
+            Assert.assertEquals("N" + count, nextNode.key());
+            dag.reportedCompleted(nextNode);
+            nextNode = dag.getNext();
+            count++;
+        }
+        Assert.assertEquals(depth + 1, count);
+    }
+
+    @Test
+    public void testCircularDependency() {
+        DAGNode<String> nodeA = new DAGNode<>("A", "dataA");
+        DAGNode<String> nodeB = new DAGNode<>("B", "dataB");
+        DAGNode<String> nodeC = new DAGNode<>("C", "dataC");
+        nodeA.addDependency("B");
+        nodeB.addDependency("C");
+        nodeC.addDependency("A");
+        DAGraph<String, DAGNode<String>> dag = new DAGraph<>(nodeA);
+        dag.addNode(nodeB);
+        dag.addNode(nodeC);
+        try {
+            dag.prepare();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("Detected circular dependency: A -> B -> C -> A", e.getMessage());
+        }
+    }
+
     private DAGraph<String, DAGNode<String>> createGraph(String resourceName) {
         DAGNode<String> node = new DAGNode<>(resourceName, "data" + resourceName);
         DAGraph<String, DAGNode<String>> graph = new DAGraph<>(node);
@@ -11,10 +11,15 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import javax.xml.bind.DataBindingException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class PagedListTests {
     private PagedList<Integer> list;
@@ -100,6 +105,134 @@ public class PagedListTests {
         Assert.assertEquals(15, list.lastIndexOf(15));
     }
 
+    @Test
+    public void prefetchTest() throws Exception {
+        final AtomicInteger backgroundFetches = new AtomicInteger();
+        final Thread consumer = Thread.currentThread();
+        PagedList<Integer> prefetched = new PagedList<Integer>(new TestPage(0, 20)) {
+            @Override
+            public Page<Integer> nextPage(String nextPageLink) throws CloudException, IOException {
+                if (Thread.currentThread() != consumer) {
+                    backgroundFetches.incrementAndGet();
+                }
+                return new TestPage(Integer.parseInt(nextPageLink), 20);
+            }
+        }.withPrefetch(3);
+        Assert.assertEquals(3, prefetched.prefetchDepth());
+        int j = 0;
+        for (int i : prefetched) {
+            Assert.assertEquals(i, j++);
+        }
+        Assert.assertEquals(20, j);
+        Assert.assertEquals(19, backgroundFetches.get());
+        Assert.assertEquals(20, prefetched.size());
+    }
+
+    @Test
+    public void prefetchFailureTest() {
+        PagedList<Integer> failing = new PagedList<Integer>(new TestPage(0, 20)) {
+            @Override
+            public Page<Integer> nextPage(String nextPageLink) throws CloudException, IOException {
+                int pageNum = Integer.parseInt(nextPageLink);
+                if (pageNum == 2) {
+                    throw new IOException("page 2");
+                }
+                return new TestPage(pageNum, 20);
+            }
+        }.withPrefetch(2);
+        Assert.assertEquals(1, (int) failing.get(1));
+        try {
+            failing.get(2);
+            Assert.fail();
+        } catch (DataBindingException e) {
+            Assert.assertEquals("page 2", e.getMessage());
+        }
+    }
+
+    @Test
+    public void disablingPrefetchWakesWaitingConsumer() throws Exception {
+        final PagedList<Integer> stalled = new PagedList<Integer>(new TestPage(0, 20)) {
+            @Override
+            public Page<Integer> nextPage(String nextPageLink) throws CloudException, IOException {
+                return new TestPage(Integer.parseInt(nextPageLink), 20);
+            }
+        }.withPrefetch(1, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                // never fetches, so the consumer waits until prefetch is disabled
+            }
+        });
+        final AtomicInteger item = new AtomicInteger(-1);
+        Thread consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                item.set(stalled.get(1));
+            }
+        });
+        consumer.setDaemon(true);
+        consumer.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (consumer.getState() != Thread.State.WAITING) {
+            Assert.assertTrue("The consumer did not wait for the prefetched page", consumer.isAlive() && System.nanoTime() < deadline);
+            Thread.sleep(10);
+        }
+        stalled.withPrefetch(0);
+        consumer.join(5000);
+        Assert.assertFalse("The consumer is still waiting for the prefetched page", consumer.isAlive());
+        Assert.assertEquals(1, item.get());
+    }
+
+    @Test
+    public void pagedIterableTest() {
+        Integer first = list.get(1);
+        int j = 0;
+        for (int i : list.pagedIterable()) {
+            Assert.assertEquals(i, j++);
+        }
+        Assert.assertEquals(20, j);
+        Assert.assertEquals(1, (int) first);
+        // The pages walked by the iterable are not added to the list
+        Assert.assertEquals(1, (int) list.currentPage().getItems().get(0));
+        Assert.assertEquals("2", list.nextPageLink());
+    }
+
+    @Test
+    public void pagedIterableReadsLoadedItemsInPlace() {
+        PagedIterable<Integer> iterable = list.pagedIterable();
+        Iterator<Integer> iterator = iterable.iterator();
+        Assert.assertEquals(0, (int) iterator.next());
+        // Loading more pages into the list does not disturb the view
+        list.loadAll();
+        int j = 1;
+        while (iterator.hasNext()) {
+            Assert.assertEquals(j++, (int) iterator.next());
+        }
+        Assert.assertEquals(20, j);
+    }
+
+    @Test
+    public void pagedIteratorHoldsCurrentPageOnly() {
+        PagedIterable<Integer> iterable = new PagedIterable<Integer>(new TestPage(0, 5)) {
+            @Override
+            public Page<Integer> nextPage(String nextPageLink) throws CloudException, IOException {
+                return new TestPage(Integer.parseInt(nextPageLink), 5);
+            }
+        };
+        PagedIterator<Integer> iterator = iterable.iterator();
+        Assert.assertEquals(0, (int) iterator.next());
+        Assert.assertEquals(1, (int) iterator.next());
+        Assert.assertEquals(Arrays.asList(1), iterator.currentPage().getItems());
+        Assert.assertEquals("2", iterator.nextPageLink());
+        int count = 2;
+        while (iterator.hasNext()) {
+            Assert.assertEquals(count++, (int) iterator.next());
+        }
+        Assert.assertEquals(5, count);
+        Assert.assertNull(iterator.nextPageLink());
+        // A new iterator starts over
+        Assert.assertEquals(0, (int) iterable.iterator().next());
+    }
+
     public static class TestPage implements Page<Integer> {
         private int page;
         private int max;
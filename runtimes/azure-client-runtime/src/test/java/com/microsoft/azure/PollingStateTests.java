@@ -0,0 +1,75 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.azure;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.microsoft.rest.serializer.JacksonMapperAdapter;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PollingStateTests {
+    @Test
+    public void resourceInProgressIsNotDeserialized() throws Exception {
+        // "count" cannot bind to an int, so binding the resource would fail
+        PollingState<Foo> state = new PollingState<>(response(201,
+                "{\"tags\":{\"a\":\"b\"},\"properties\":{\"nested\":{\"provisioningState\":\"Bogus\"},"
+                        + "\"provisioningState\":\"Creating\"},\"count\":\"many\"}"),
+                null, Foo.class, new JacksonMapperAdapter());
+        Assert.assertEquals("Creating", state.getStatus());
+        Assert.assertNull(state.getResource());
+
+        state.updateFromResponseOnPutPatch(response(200, "{\"properties\":{\"provisioningState\":\"Updating\"},\"count\":\"many\"}"));
+        Assert.assertEquals("Updating", state.getStatus());
+        Assert.assertNull(state.getResource());
+        Assert.assertNull(state.getError());
+    }
+
+    @Test
+    public void terminalResourceIsDeserialized() throws Exception {
+        PollingState<Foo> state = new PollingState<>(response(201, "{\"properties\":{\"provisioningState\":\"Creating\"}}"),
+                null, Foo.class, new JacksonMapperAdapter());
+        state.updateFromResponseOnPutPatch(response(200, "{\"name\":\"foo\",\"count\":3,\"properties\":{\"provisioningState\":\"Succeeded\"}}"));
+        Assert.assertEquals("Succeeded", state.getStatus());
+        Assert.assertEquals("foo", state.getResource().name);
+        Assert.assertEquals(3, state.getResource().count);
+
+        PollingState<Foo> noState = new PollingState<>(response(200, "{\"name\":\"bar\"}"),
+                null, Foo.class, new JacksonMapperAdapter());
+        Assert.assertEquals("Succeeded", noState.getStatus());
+        Assert.assertEquals("bar", noState.getResource().name);
+    }
+
+    @Test
+    public void failedStateRecordsError() throws Exception {
+        PollingState<Foo> state = new PollingState<>(response(201, "{\"properties\":{\"provisioningState\":\"Creating\"}}"),
+                null, Foo.class, new JacksonMapperAdapter());
+        state.updateFromResponseOnPutPatch(response(200, "{\"properties\":{\"provisioningState\":\"Failed\"}}"));
+        Assert.assertEquals("Failed", state.getError().getCode());
+    }
+
+    private static retrofit2.Response<ResponseBody> response(int code, String body) {
+        Response raw = new Response.Builder()
+                .request(new Request.Builder().url("http://localhost/foos/foo").build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .build();
+        return retrofit2.Response.success(ResponseBody.create(MediaType.parse("application/json"), body), raw);
+    }
+
+    public static class Foo {
+        @JsonProperty(value = "name")
+        private String name;
+        @JsonProperty(value = "count")
+        private int count;
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.azure;
+
+import com.microsoft.rest.DateTimeRfc1123;
+import com.microsoft.rest.serializer.JacksonMapperAdapter;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PollingStrategyTests {
+    @Test
+    public void adaptiveDelayGrowsUpToTheMaximum() {
+        AdaptivePollingStrategy strategy = new AdaptivePollingStrategy(1000, 30000, 2, 0);
+        Assert.assertEquals(1000, strategy.getDelayInMilliseconds(0, -1));
+        Assert.assertEquals(2000, strategy.getDelayInMilliseconds(1, -1));
+        Assert.assertEquals(16000, strategy.getDelayInMilliseconds(4, -1));
+        Assert.assertEquals(30000, strategy.getDelayInMilliseconds(5, -1));
+        Assert.assertEquals(30000, strategy.getDelayInMilliseconds(100, -1));
+        // the Retry-After header caps the delay
+        Assert.assertEquals(5000, strategy.getDelayInMilliseconds(10, 5000));
+    }
+
+    @Test
+    public void adaptiveDelayIsJittered() {
+        AdaptivePollingStrategy strategy = new AdaptivePollingStrategy(10000, 60000, 2, 0.2);
+        for (int i = 0; i < 100; i++) {
+            long delay = strategy.getDelayInMilliseconds(0, -1);
+            Assert.assertTrue(delay >= 8000 && delay <= 12000);
+        }
+    }
+
+    @Test
+    public void retryAfterAcceptsSecondsAndHttpDates() throws Exception {
+        PollingState<Object> seconds = newPollingState("7");
+        Assert.assertEquals(7000, seconds.getRetryAfterInMilliseconds());
+
+        String date = new DateTimeRfc1123(DateTime.now().plusSeconds(20)).toString();
+        long delay = newPollingState(date).getRetryAfterInMilliseconds();
+        Assert.assertTrue(delay > 15000 && delay <= 20000);
+
+        Assert.assertEquals(-1, newPollingState("soon").getRetryAfterInMilliseconds());
+    }
+
+    @Test
+    public void retryTimeoutTakesPrecedence() throws Exception {
+        PollingState<Object> state = new PollingState<>(response("7"), 3, Object.class, new JacksonMapperAdapter());
+        state.setPollingStrategy(AdaptivePollingStrategy.forShortOperations());
+        Assert.assertEquals(3000, state.nextDelayInMilliseconds());
+        Assert.assertEquals(3000, state.getWastedTimeInMilliseconds());
+    }
+
+    private static PollingState<Object> newPollingState(String retryAfter) throws Exception {
+        return new PollingState<>(response(retryAfter), null, Object.class, new JacksonMapperAdapter());
+    }
+
+    private static retrofit2.Response<ResponseBody> response(String retryAfter) {
+        Response raw = new Response.Builder()
+                .request(new Request.Builder().url("http://localhost/foos/foo").build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(202)
+                .header("Retry-After", retryAfter)
+                .build();
+        return retrofit2.Response.success(ResponseBody.create(MediaType.parse("application/json"), ""), raw);
+    }
+}
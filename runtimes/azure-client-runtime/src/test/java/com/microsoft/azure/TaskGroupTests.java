@@ -0,0 +1,152 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.azure;
+
+import com.microsoft.rest.ServiceCall;
+import com.microsoft.rest.ServiceCallback;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TaskGroupTests {
+    @Test
+    public void independentTasksRunInParallel() throws Exception {
+        // the three leaves only finish once all of them are running
+        final CountDownLatch started = new CountDownLatch(3);
+        List<String> order = new CopyOnWriteArrayList<>();
+        TestTask root = new TestTask("root", order, null, null);
+        TestTaskGroup group = new TestTaskGroup(root);
+        for (String key : new String[] {"storage", "ip", "network"}) {
+            group.add(new TestTask(key, order, started, null));
+        }
+
+        group.prepare();
+        group.execute();
+
+        Assert.assertEquals(4, order.size());
+        Assert.assertEquals("root", order.get(3));
+        Assert.assertEquals("root", group.taskResult("root"));
+    }
+
+    @Test
+    public void failingTaskStopsTheGroup() throws Exception {
+        List<String> order = new CopyOnWriteArrayList<>();
+        TestTask root = new TestTask("root", order, null, null);
+        TestTaskGroup group = new TestTaskGroup(root);
+        group.add(new TestTask("ok", order, null, null));
+        group.add(new TestTask("bad", order, null, new IllegalStateException("bad")));
+
+        group.prepare();
+        try {
+            group.execute();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("bad", e.getMessage());
+        }
+        Assert.assertFalse(order.contains("root"));
+    }
+
+    @Test
+    public void failingTaskCancelsRunningTasks() throws Exception {
+        final List<String> order = new CopyOnWriteArrayList<>();
+        final CountDownLatch slowStarted = new CountDownLatch(1);
+        TestTask root = new TestTask("root", order, null, null);
+        TestTaskGroup group = new TestTaskGroup(root);
+        group.add(new TestTask("slow", order, null, null) {
+            @Override
+            public void execute() throws Exception {
+                slowStarted.countDown();
+                try {
+                    Thread.sleep(60000);
+                } catch (InterruptedException e) {
+                    Thread.sleep(100);
+                    order.add("slow cancelled");
+                    throw e;
+                }
+                super.execute();
+            }
+        });
+        group.add(new TestTask("bad", order, null, new IllegalStateException("bad")) {
+            @Override
+            public void execute() throws Exception {
+                Assert.assertTrue(slowStarted.await(5, TimeUnit.SECONDS));
+                super.execute();
+            }
+        });
+
+        group.prepare();
+        long start = System.nanoTime();
+        try {
+            group.execute();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("bad", e.getMessage());
+        }
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 30);
+        // the running task was interrupted, and had stopped when the failure was thrown
+        Assert.assertEquals(Arrays.asList("slow cancelled"), order);
+    }
+
+    private static class TestTaskGroup extends TaskGroupBase<String, TestTask> {
+        TestTaskGroup(TestTask root) {
+            super(root.key, root);
+        }
+
+        void add(TestTask task) {
+            dag().addNode(new DAGNode<>(task.key, task));
+            for (DAGNode<TestTask> node : dag().getNodes()) {
+                if (dag().isRootNode(node)) {
+                    node.addDependency(task.key);
+                }
+            }
+        }
+    }
+
+    private static class TestTask implements TaskItem<String> {
+        private final String key;
+        private final List<String> order;
+        private final CountDownLatch started;
+        private final Exception failure;
+        private volatile String result;
+
+        TestTask(String key, List<String> order, CountDownLatch started, Exception failure) {
+            this.key = key;
+            this.order = order;
+            this.started = started;
+            this.failure = failure;
+        }
+
+        @Override
+        public String result() {
+            return result;
+        }
+
+        @Override
+        public void execute() throws Exception {
+            if (failure != null) {
+                throw failure;
+            }
+            if (started != null) {
+                started.countDown();
+                Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+            }
+            order.add(key);
+            result = key;
+        }
+
+        @Override
+        public ServiceCall<String> executeAsync(ServiceCallback<String> callback) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.azure;
+
+import com.microsoft.rest.retry.RetryHandler;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+public class ThrottlingInterceptorTests {
+    private static final String SUBSCRIPTION_URL = "http://localhost/subscriptions/sub1/resourceGroups/rg1";
+
+    @Test
+    public void exhaustedReadsAreDelayed() throws Exception {
+        // 10 reads per second, no reserve
+        ThrottlingInterceptor throttling = new ThrottlingInterceptor(36000, 36000, 0);
+        OkHttpClient client = newClient(throttling, "0", "100");
+
+        Assert.assertEquals(200, client.newCall(get(SUBSCRIPTION_URL)).execute().code());
+        Assert.assertEquals(0, throttling.getDelayedRequestCount());
+        Assert.assertEquals(0, throttling.getAvailableReads("sub1"));
+
+        Assert.assertEquals(200, client.newCall(get(SUBSCRIPTION_URL)).execute().code());
+        Assert.assertEquals(1, throttling.getDelayedRequestCount());
+        Assert.assertTrue(throttling.getTotalWaitTimeInMilliseconds() >= 90);
+        Assert.assertEquals(1, throttling.getMaxQueueDepth());
+        Assert.assertEquals(0, throttling.getQueueDepth());
+
+        // Writes have their own quota
+        client.newCall(new Request.Builder().url(SUBSCRIPTION_URL)
+                .put(RequestBody.create(MediaType.parse("application/json"), "{}")).build()).execute();
+        Assert.assertEquals(1, throttling.getDelayedRequestCount());
+        Assert.assertEquals(100, throttling.getAvailableWrites("sub1"));
+    }
+
+    @Test
+    public void subscriptionsAreThrottledIndependently() throws Exception {
+        ThrottlingInterceptor throttling = new ThrottlingInterceptor(36000, 36000, 0);
+        OkHttpClient client = newClient(throttling, "0", null);
+
+        client.newCall(get(SUBSCRIPTION_URL)).execute();
+        client.newCall(get("http://localhost/subscriptions/sub2/providers")).execute();
+        client.newCall(get("http://localhost/providers/Microsoft.Compute")).execute();
+
+        Assert.assertEquals(0, throttling.getDelayedRequestCount());
+        Assert.assertEquals(0, throttling.getAvailableReads("sub2"));
+    }
+
+    @Test
+    public void reserveIsKeptBeforeTheLimit() throws Exception {
+        // 10 reads per second, 10% reserve: 3600 remaining reads are already in the reserve
+        ThrottlingInterceptor throttling = new ThrottlingInterceptor(36000, 36000, 0.1);
+        OkHttpClient client = newClient(throttling, "3600", null);
+
+        client.newCall(get(SUBSCRIPTION_URL)).execute();
+        client.newCall(get(SUBSCRIPTION_URL)).execute();
+
+        Assert.assertEquals(1, throttling.getDelayedRequestCount());
+    }
+
+    @Test
+    public void asyncRequestsWaitWithoutHoldingADispatcherThread() throws Exception {
+        // 1 read per second, no reserve
+        ThrottlingInterceptor throttling = new ThrottlingInterceptor(3600, 3600, 0);
+        OkHttpClient client = newClient(throttling, "0", null);
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(1);
+        client = client.newBuilder().dispatcher(dispatcher).build();
+        Call.Factory callFactory = new RetryHandler().newCallFactory(client);
+
+        callFactory.newCall(get(SUBSCRIPTION_URL)).execute();
+        CountDownLatch throttled = enqueue(callFactory, SUBSCRIPTION_URL);
+        Assert.assertEquals(1, throttling.getQueueDepth());
+
+        // The throttled request does not keep the only dispatcher slot
+        CountDownLatch unthrottled = enqueue(callFactory, "http://localhost/providers/Microsoft.Compute");
+        Assert.assertTrue(unthrottled.await(500, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(1, throttled.getCount());
+
+        // A response reporting more remaining reads lets it go before the next token is refilled
+        throttling.responseReceived(new Response.Builder()
+                .request(get(SUBSCRIPTION_URL))
+                .code(200)
+                .protocol(Protocol.HTTP_1_1)
+                .header("x-ms-ratelimit-remaining-subscription-reads", "10")
+                .build());
+        Assert.assertTrue(throttled.await(500, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(0, throttling.getQueueDepth());
+        Assert.assertEquals(1, throttling.getDelayedRequestCount());
+    }
+
+    private static CountDownLatch enqueue(Call.Factory callFactory, String url) {
+        final CountDownLatch done = new CountDownLatch(1);
+        callFactory.newCall(get(url)).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) throws IOException {
+                done.countDown();
+            }
+        });
+        return done;
+    }
+
+    private static OkHttpClient newClient(ThrottlingInterceptor throttling, final String remainingReads, final String remainingWrites) {
+        return new OkHttpClient.Builder()
+                .addInterceptor(throttling)
+                .addInterceptor(new Interceptor() {
+                    @Override
+                    public Response intercept(Chain chain) throws IOException {
+                        Response.Builder response = new Response.Builder()
+                                .request(chain.request())
+                                .code(200)
+                                .protocol(Protocol.HTTP_1_1)
+                                .header("x-ms-ratelimit-remaining-subscription-reads", remainingReads);
+                        if (remainingWrites != null) {
+                            response.header("x-ms-ratelimit-remaining-subscription-writes", remainingWrites);
+                        }
+                        return response.build();
+                    }
+                })
+                .build();
+    }
+
+    private static Request get(String url) {
+        return new Request.Builder().url(url).get().build();
+    }
+}
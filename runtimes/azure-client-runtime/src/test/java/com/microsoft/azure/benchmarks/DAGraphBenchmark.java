@@ -0,0 +1,88 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.azure.benchmarks;
+
+import com.microsoft.azure.DAGNode;
+import com.microsoft.azure.DAGraph;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building, preparing and draining the dependency graph of a mass
+ * rollout: a root depending on many network interfaces, each depending on
+ * its public IP and on one of a few shared virtual networks, plus a long
+ * dependency chain.
+ *
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args="DAGraphBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DAGraphBenchmark {
+    @Param({"10000", "50000"})
+    private int size;
+
+    @Benchmark
+    public int wideRollout() {
+        DAGNode<String> root = new DAGNode<>("root", "root");
+        DAGraph<String, DAGNode<String>> dag = new DAGraph<>(root);
+        for (int i = 0; i < 10; i++) {
+            dag.addNode(new DAGNode<>("vnet" + i, "vnet"));
+        }
+        int nics = size / 2;
+        for (int i = 0; i < nics; i++) {
+            DAGNode<String> ip = new DAGNode<>("ip" + i, "ip");
+            DAGNode<String> nic = new DAGNode<>("nic" + i, "nic");
+            nic.addDependency(ip.key());
+            nic.addDependency("vnet" + (i % 10));
+            root.addDependency(nic.key());
+            dag.addNode(ip);
+            dag.addNode(nic);
+        }
+        return drain(dag);
+    }
+
+    @Benchmark
+    public int deepChain() {
+        DAGNode<String> root = new DAGNode<>("node" + size, "data");
+        DAGraph<String, DAGNode<String>> dag = new DAGraph<>(root);
+        DAGNode<String> previous = root;
+        for (int i = size - 1; i >= 0; i--) {
+            DAGNode<String> node = new DAGNode<>("node" + i, "data");
+            previous.addDependency(node.key());
+            dag.addNode(node);
+            previous = node;
+        }
+        return drain(dag);
+    }
+
+    private static int drain(DAGraph<String, DAGNode<String>> dag) {
+        dag.prepare();
+        int count = 0;
+        for (DAGNode<String> node = dag.getNext(); node != null; node = dag.getNext()) {
+            dag.reportedCompleted(node);
+            count++;
+        }
+        return count;
+    }
+}
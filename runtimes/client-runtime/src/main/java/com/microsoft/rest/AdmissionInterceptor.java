@@ -0,0 +1,40 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.rest;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * An interceptor that may hold requests back before they are sent, e.g. to
+ * stay within a request rate limit.
+ *
+ * Synchronous calls wait in {@link #intercept(Chain)} on the calling thread.
+ * The asynchronous calls created by
+ * {@link com.microsoft.rest.retry.RetryHandler#newCallFactory(okhttp3.OkHttpClient)}
+ * skip the interceptor and ask for admission through {@link #admit(Request, Runnable)}
+ * instead, so that no dispatcher thread is blocked while they wait.
+ */
+public interface AdmissionInterceptor extends Interceptor {
+    /**
+     * Admits a request without blocking: the admission runs once the request
+     * may be sent, possibly right away on the calling thread.
+     *
+     * @param request the request to send.
+     * @param admission sends the request.
+     */
+    void admit(Request request, Runnable admission);
+
+    /**
+     * Records the response to a request admitted through {@link #admit(Request, Runnable)}.
+     *
+     * @param response the response.
+     */
+    void responseReceived(Response response);
+}
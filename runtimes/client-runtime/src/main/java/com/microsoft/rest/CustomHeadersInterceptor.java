@@ -12,28 +12,34 @@ import okhttp3.Interceptor;
 import okhttp3.Request;
 import okhttp3.Response;
 
+import java.io.Closeable;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * An instance of this class enables adding custom headers in client requests
  * when added to the {@link okhttp3.OkHttpClient} interceptors.
+ *
+ * The headers are kept in an immutable snapshot that is replaced on every
+ * change, so they can be changed while requests are in flight. A custom
+ * header replaces the request headers of the same name.
  */
 public class CustomHeadersInterceptor implements Interceptor {
     /**
-     * A mapping of custom headers.
+     * The current snapshot of the custom headers.
+     */
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    /**
+     * The headers of the scopes open on each thread.
      */
-    private Map<String, List<String>> headers;
+    private final ThreadLocal<Snapshot> scopedHeaders = new ThreadLocal<>();
 
     /**
      * Initialize an instance of {@link CustomHeadersInterceptor} class.
      */
     public CustomHeadersInterceptor() {
-        headers = new HashMap<String, List<String>>();
     }
 
     /**
@@ -55,9 +61,8 @@ public class CustomHeadersInterceptor implements Interceptor {
      * @param value the value of the header.
      * @return the interceptor instance itself.
      */
-    public CustomHeadersInterceptor replaceHeader(String name, String value) {
-        this.headers.put(name, new ArrayList<String>());
-        this.headers.get(name).add(value);
+    public synchronized CustomHeadersInterceptor replaceHeader(String name, String value) {
+        this.snapshot = new Snapshot(snapshot.headers.newBuilder().set(name, value).build());
         return this;
     }
 
@@ -69,11 +74,8 @@ public class CustomHeadersInterceptor implements Interceptor {
      * @param value the value of the header.
      * @return the interceptor instance itself.
      */
-    public CustomHeadersInterceptor addHeader(String name, String value) {
-        if (!this.headers.containsKey(name)) {
-            this.headers.put(name, new ArrayList<String>());
-        }
-        this.headers.get(name).add(value);
+    public synchronized CustomHeadersInterceptor addHeader(String name, String value) {
+        this.snapshot = new Snapshot(snapshot.headers.newBuilder().add(name, value).build());
         return this;
     }
 
@@ -83,8 +85,8 @@ public class CustomHeadersInterceptor implements Interceptor {
      * @param headers an OkHttp {@link Headers} object.
      * @return the interceptor instance itself.
      */
-    public CustomHeadersInterceptor addHeaders(Headers headers) {
-        this.headers.putAll(headers.toMultimap());
+    public synchronized CustomHeadersInterceptor addHeaders(Headers headers) {
+        this.snapshot = new Snapshot(overlay(snapshot.headers.newBuilder(), new Snapshot(headers)).build());
         return this;
     }
 
@@ -94,10 +96,12 @@ public class CustomHeadersInterceptor implements Interceptor {
      * @param headers a map of headers.
      * @return the interceptor instance itself.
      */
-    public CustomHeadersInterceptor addHeaderMap(Map<String, String> headers) {
+    public synchronized CustomHeadersInterceptor addHeaderMap(Map<String, String> headers) {
+        Headers.Builder builder = snapshot.headers.newBuilder();
         for (Map.Entry<String, String> header : headers.entrySet()) {
-            this.headers.put(header.getKey(), Collections.singletonList(header.getValue()));
+            builder.set(header.getKey(), header.getValue());
         }
+        this.snapshot = new Snapshot(builder.build());
         return this;
     }
 
@@ -107,8 +111,15 @@ public class CustomHeadersInterceptor implements Interceptor {
      * @param headers a multimap of headers.
      * @return the interceptor instance itself.
      */
-    public CustomHeadersInterceptor addHeaderMultimap(Map<String, List<String>> headers) {
-        this.headers.putAll(headers);
+    public synchronized CustomHeadersInterceptor addHeaderMultimap(Map<String, List<String>> headers) {
+        Headers.Builder builder = snapshot.headers.newBuilder();
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            builder.removeAll(header.getKey());
+            for (String value : header.getValue()) {
+                builder.add(header.getKey(), value);
+            }
+        }
+        this.snapshot = new Snapshot(builder.build());
         return this;
     }
 
@@ -118,19 +129,129 @@ public class CustomHeadersInterceptor implements Interceptor {
      * @param name the name of the header to remove.
      * @return the interceptor instance itself.
      */
-    public CustomHeadersInterceptor removeHeader(String name) {
-        this.headers.remove(name);
+    public synchronized CustomHeadersInterceptor removeHeader(String name) {
+        this.snapshot = new Snapshot(snapshot.headers.newBuilder().removeAll(name).build());
         return this;
     }
 
+    /**
+     * Gets the custom headers added to every request.
+     *
+     * @return an immutable snapshot of the headers.
+     */
+    public Headers headers() {
+        return snapshot.headers;
+    }
+
+    /**
+     * Opens a scope adding headers to the requests executed on the current
+     * thread until the scope is closed, without changing the headers of the
+     * other requests. The scoped headers replace the custom headers of the
+     * same name. Scopes can be nested.
+     * <pre>
+     * try (CustomHeadersInterceptor.Scope scope = interceptor.scope(headers)) {
+     *     client.resources().get(...);
+     * }
+     * </pre>
+     * The scope applies to synchronous calls only: asynchronous calls run
+     * on the threads of the HTTP client dispatcher.
+     *
+     * @param headers the headers to add.
+     * @return the scope, to close once the calls are done.
+     */
+    public Scope scope(Headers headers) {
+        Snapshot previous = scopedHeaders.get();
+        Snapshot scoped = new Snapshot(headers);
+        if (previous != null) {
+            scoped = new Snapshot(overlay(previous.headers.newBuilder(), scoped).build());
+        }
+        scopedHeaders.set(scoped);
+        return new Scope(previous);
+    }
+
     @Override
     public Response intercept(Chain chain) throws IOException {
-        Request.Builder builder = chain.request().newBuilder();
-        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
-            for (String value : header.getValue()) {
-                builder = builder.header(header.getKey(), value);
+        Snapshot shared = this.snapshot;
+        Snapshot scoped = scopedHeaders.get();
+        Request request = chain.request();
+        if (shared.names.length == 0 && scoped == null) {
+            return chain.proceed(request);
+        }
+        Headers.Builder builder = overlay(request.headers().newBuilder(), shared);
+        if (scoped != null) {
+            overlay(builder, scoped);
+        }
+        return chain.proceed(request.newBuilder().headers(builder.build()).build());
+    }
+
+    /**
+     * Replaces the headers of a builder with the headers of a snapshot that
+     * have the same names.
+     *
+     * @param builder the headers to change.
+     * @param overlay the headers to apply.
+     * @return the builder.
+     */
+    private static Headers.Builder overlay(Headers.Builder builder, Snapshot overlay) {
+        for (String name : overlay.names) {
+            builder.removeAll(name);
+        }
+        Headers headers = overlay.headers;
+        for (int i = 0; i < headers.size(); i++) {
+            builder.add(headers.name(i), headers.value(i));
+        }
+        return builder;
+    }
+
+    /**
+     * A scope of headers opened by {@link #scope(Headers)}.
+     */
+    public final class Scope implements Closeable {
+        /** The headers of the enclosing scope, or null. */
+        private final Snapshot previous;
+
+        /**
+         * Creates a scope.
+         *
+         * @param previous the headers of the enclosing scope, or null.
+         */
+        private Scope(Snapshot previous) {
+            this.previous = previous;
+        }
+
+        /**
+         * Closes the scope, restoring the headers of the enclosing scope.
+         */
+        @Override
+        public void close() {
+            if (previous == null) {
+                scopedHeaders.remove();
+            } else {
+                scopedHeaders.set(previous);
             }
         }
-        return chain.proceed(builder.build());
+    }
+
+    /**
+     * An immutable set of headers with its distinct names, computed once.
+     */
+    private static final class Snapshot {
+        /** The snapshot without headers. */
+        private static final Snapshot EMPTY = new Snapshot(new Headers.Builder().build());
+
+        /** The headers. */
+        private final Headers headers;
+        /** The distinct names of the headers. */
+        private final String[] names;
+
+        /**
+         * Creates a snapshot.
+         *
+         * @param headers the headers.
+         */
+        Snapshot(Headers headers) {
+            this.headers = headers;
+            this.names = headers.names().toArray(new String[0]);
+        }
     }
 }
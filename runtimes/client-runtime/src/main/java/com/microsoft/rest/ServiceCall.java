@@ -22,7 +22,13 @@ public class ServiceCall<T> extends AbstractFuture<ServiceResponse<T>> {
     /**
      * The Retrofit method invocation.
      */
-    private Call<?> call;
+    private volatile Call<?> call;
+
+    /**
+     * Whether the operation was cancelled. A cancelled operation does not
+     * start any more calls.
+     */
+    private volatile boolean cancelled;
 
     /**
      * Creates an instance of ServiceCall.
@@ -34,12 +40,16 @@ public class ServiceCall<T> extends AbstractFuture<ServiceResponse<T>> {
     }
 
     /**
-     * Updates the current Retrofit call object.
+     * Updates the current Retrofit call object. The call is cancelled right
+     * away if the operation was cancelled.
      *
      * @param call the new call object.
      */
     public void newCall(Call<?> call) {
         this.call = call;
+        if (cancelled && call != null) {
+            call.cancel();
+        }
     }
 
     /**
@@ -52,24 +62,30 @@ public class ServiceCall<T> extends AbstractFuture<ServiceResponse<T>> {
     }
 
     /**
-     * Cancel the Retrofit call if possible. Parameter
-     * 'mayInterruptIfRunning is ignored.
+     * Cancels the operation: the current Retrofit call, if any, is cancelled
+     * and no more calls are made for the operation, including calls that
+     * are only scheduled (e.g. the next poll of a long running operation).
+     * Parameter 'mayInterruptIfRunning is ignored.
      *
      * @param mayInterruptIfRunning ignored
      */
     @Override
     public boolean cancel(boolean mayInterruptIfRunning) {
-        if (isCancelled()) {
+        if (isDone()) {
             return false;
-        } else {
-            call.cancel();
-            return true;
         }
+        cancelled = true;
+        Call<?> current = call;
+        if (current != null) {
+            current.cancel();
+        }
+        return super.cancel(false);
     }
 
     @Override
     public boolean isCancelled() {
-        return call.isCanceled();
+        Call<?> current = call;
+        return cancelled || super.isCancelled() || (current != null && current.isCanceled());
     }
 
     /**
@@ -27,6 +27,8 @@ public abstract class ServiceClient {
     private Retrofit retrofit;
     /** The adapter to a Jackson {@link com.fasterxml.jackson.databind.ObjectMapper}. */
     private JacksonMapperAdapter mapperAdapter;
+    /** The interceptor retrying the failed requests. */
+    private RetryHandler retryHandler;
 
     /**
      * Initializes a new instance of the ServiceClient class.
@@ -54,16 +56,17 @@ public abstract class ServiceClient {
         this.mapperAdapter = new JacksonMapperAdapter();
         CookieManager cookieManager = new CookieManager();
         cookieManager.setCookiePolicy(CookiePolicy.ACCEPT_ALL);
+        this.retryHandler = new RetryHandler();
         this.httpClient = clientBuilder
                 .cookieJar(new JavaNetCookieJar(cookieManager))
                 .addInterceptor(new UserAgentInterceptor())
                 .addInterceptor(new BaseUrlHandler())
                 .addInterceptor(new CustomHeadersInterceptor())
-                .addInterceptor(new RetryHandler())
+                .addInterceptor(retryHandler)
                 .build();
         this.retrofit = restBuilder
                 .baseUrl(baseUrl)
-                .client(httpClient)
+                .callFactory(retryHandler.newCallFactory(httpClient))
                 .addConverterFactory(mapperAdapter.getConverterFactory())
                 .build();
     }
@@ -82,6 +85,13 @@ public abstract class ServiceClient {
         return this.httpClient;
     }
 
+    /**
+     * @return the interceptor retrying the failed requests, holding the retry statistics.
+     */
+    public RetryHandler retryHandler() {
+        return this.retryHandler;
+    }
+
     /**
      * @return the adapter to a Jackson {@link com.fasterxml.jackson.databind.ObjectMapper}.
      */
@@ -211,9 +211,7 @@ public class ServiceResponseBuilder<T, E extends RestException> {
      */
     public <THeader> ServiceResponseWithHeaders<T, THeader> buildWithHeaders(Response<ResponseBody> response, Class<THeader> headerType) throws E, IOException {
         ServiceResponse<T> bodyResponse = build(response);
-        THeader headers = mapperAdapter.deserialize(
-                mapperAdapter.serialize(response.headers()),
-                headerType);
+        THeader headers = mapperAdapter.deserializeHeaders(response.headers(), headerType);
         return new ServiceResponseWithHeaders<>(bodyResponse.getBody(), headers, bodyResponse.getResponse());
     }
 
@@ -236,9 +234,7 @@ public class ServiceResponseBuilder<T, E extends RestException> {
      */
     public <THeader> ServiceResponseWithHeaders<T, THeader> buildEmptyWithHeaders(Response<Void> response, Class<THeader> headerType) throws E, IOException {
         ServiceResponse<T> bodyResponse = buildEmpty(response);
-        THeader headers = mapperAdapter.deserialize(
-                mapperAdapter.serialize(response.headers()),
-                headerType);
+        THeader headers = mapperAdapter.deserializeHeaders(response.headers(), headerType);
         ServiceResponseWithHeaders<T, THeader> serviceResponse = new ServiceResponseWithHeaders<>(headers, bodyResponse.getHeadResponse());
         serviceResponse.setBody(bodyResponse.getBody());
         return serviceResponse;
@@ -278,12 +274,7 @@ public class ServiceResponseBuilder<T, E extends RestException> {
         }
         // Deserialize
         else {
-            String responseContent = responseBody.string();
-            responseBody.close();
-            if (responseContent.length() <= 0) {
-                return null;
-            }
-            return mapperAdapter.deserialize(responseContent, type);
+            return mapperAdapter.deserialize(responseBody, type);
         }
     }
 }
@@ -9,20 +9,44 @@ package com.microsoft.rest;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.primitives.Primitives;
-import com.google.common.reflect.TypeToken;
 
 import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 import org.joda.time.Period;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Validates user provided parameters are not null if they are required.
+ *
+ * The fields to check for each parameter class are resolved once and cached:
+ * only the required fields and the fields whose values may need validation
+ * themselves are visited on later calls.
  */
 public final class Validator {
+    /**
+     * The types whose instances, and the instances of their super types, are never validated.
+     */
+    private static final Class<?>[] LEAF_TYPES = {
+        LocalDate.class, DateTime.class, String.class, DateTimeRfc1123.class, Period.class
+    };
+
+    /**
+     * The cached validation plans, keyed by parameter class.
+     */
+    private static final ConcurrentMap<Class<?>, FieldPlan[]> PLANS = new ConcurrentHashMap<>();
+
+    /**
+     * The plan of the types that are not validated.
+     */
+    private static final FieldPlan[] LEAF = new FieldPlan[0];
+
     /**
      * Hidden constructor for utility class.
      */
@@ -41,71 +65,113 @@ public final class Validator {
             return;
         }
 
-        Class parameterType = parameter.getClass();
-        TypeToken<?> parameterToken = TypeToken.of(parameterType);
-        if (Primitives.isWrapperType(parameterType)) {
-            parameterToken = parameterToken.unwrap();
-        }
-        if (parameterToken.isPrimitive()
-                || parameterType.isEnum()
-                || parameterToken.isAssignableFrom(LocalDate.class)
-                || parameterToken.isAssignableFrom(DateTime.class)
-                || parameterToken.isAssignableFrom(String.class)
-                || parameterToken.isAssignableFrom(DateTimeRfc1123.class)
-                || parameterToken.isAssignableFrom(Period.class)) {
-            return;
-        }
-
-        for (Class<?> c : parameterToken.getTypes().classes().rawTypes()) {
-            // Ignore checks for Object type.
-            if (c.isAssignableFrom(Object.class)) {
-                continue;
+        Class<?> parameterType = parameter.getClass();
+        for (FieldPlan plan : planFor(parameterType)) {
+            Object property;
+            try {
+                property = plan.field.get(parameter);
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException(e.getMessage(), e);
             }
-            for (Field field : c.getDeclaredFields()) {
-                field.setAccessible(true);
-                JsonProperty annotation = field.getAnnotation(JsonProperty.class);
-                Object property;
-                try {
-                    property = field.get(parameter);
-                } catch (IllegalAccessException e) {
-                    throw new IllegalArgumentException(e.getMessage(), e);
+            if (property == null) {
+                if (plan.required) {
+                    throw new IllegalArgumentException(plan.field.getName() + " is required and cannot be null.");
                 }
-                if (property == null) {
-                    if (annotation != null && annotation.required()) {
-                        throw new IllegalArgumentException(field.getName() + " is required and cannot be null.");
-                    }
-                } else {
-                    try {
-                        Class<?> propertyType = property.getClass();
-                        if (TypeToken.of(List.class).isAssignableFrom(propertyType)) {
-                            List<?> items = (List<?>) property;
-                            for (Object item : items) {
-                                Validator.validate(item);
-                            }
-                        }
-                        else if (TypeToken.of(Map.class).isAssignableFrom(propertyType)) {
-                            Map<?, ?> entries = (Map<?, ?>) property;
-                            for (Map.Entry<?, ?> entry : entries.entrySet()) {
-                                Validator.validate(entry.getKey());
-                                Validator.validate(entry.getValue());
-                            }
-                        }
-                        else if (parameterType != propertyType) {
-                            Validator.validate(property);
+            } else if (plan.descend) {
+                try {
+                    if (property instanceof List) {
+                        for (Object item : (List<?>) property) {
+                            Validator.validate(item);
                         }
-                    } catch (IllegalArgumentException ex) {
-                        if (ex.getCause() == null) {
-                            // Build property chain
-                            throw new IllegalArgumentException(field.getName() + "." + ex.getMessage());
-                        } else {
-                            throw ex;
+                    } else if (property instanceof Map) {
+                        for (Map.Entry<?, ?> entry : ((Map<?, ?>) property).entrySet()) {
+                            Validator.validate(entry.getKey());
+                            Validator.validate(entry.getValue());
                         }
+                    } else if (parameterType != property.getClass()) {
+                        Validator.validate(property);
+                    }
+                } catch (IllegalArgumentException ex) {
+                    if (ex.getCause() == null) {
+                        // Build property chain
+                        throw new IllegalArgumentException(plan.field.getName() + "." + ex.getMessage());
+                    } else {
+                        throw ex;
                     }
                 }
             }
         }
     }
 
+    /**
+     * Gets the cached validation plan of a parameter class.
+     *
+     * @param type the parameter class
+     * @return the fields to visit, empty for the types that are not validated
+     */
+    private static FieldPlan[] planFor(Class<?> type) {
+        FieldPlan[] plan = PLANS.get(type);
+        if (plan == null) {
+            plan = isLeaf(type) ? LEAF : compile(type);
+            FieldPlan[] existing = PLANS.putIfAbsent(type, plan);
+            if (existing != null) {
+                plan = existing;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Builds the validation plan of a parameter class from the declared
+     * fields of the class and of its super classes.
+     *
+     * @param type the parameter class
+     * @return the required fields and the fields whose values may need validation
+     */
+    private static FieldPlan[] compile(Class<?> type) {
+        List<FieldPlan> plan = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                JsonProperty annotation = field.getAnnotation(JsonProperty.class);
+                boolean required = annotation != null && annotation.required();
+                boolean descend = !isAlwaysLeaf(field.getType());
+                if (required || descend) {
+                    field.setAccessible(true);
+                    plan.add(new FieldPlan(field, required, descend));
+                }
+            }
+        }
+        return plan.isEmpty() ? LEAF : plan.toArray(new FieldPlan[plan.size()]);
+    }
+
+    /**
+     * Checks whether the instances of a type are not validated.
+     *
+     * @param type the runtime type of a parameter
+     * @return true if the type is not validated
+     */
+    private static boolean isLeaf(Class<?> type) {
+        if (type.isPrimitive() || Primitives.isWrapperType(type) || type.isEnum()) {
+            return true;
+        }
+        for (Class<?> leafType : LEAF_TYPES) {
+            if (type.isAssignableFrom(leafType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether every value of a field of the declared type is not validated.
+     *
+     * @param type the declared type of a field
+     * @return true if no value of the field needs validation
+     */
+    private static boolean isAlwaysLeaf(Class<?> type) {
+        return type.isPrimitive() || type.isEnum() || (Modifier.isFinal(type.getModifiers()) && isLeaf(type));
+    }
+
     /**
      * Validates a user provided required parameter to be not null. Returns if
      * the parameter passes the validation. An {@link IllegalArgumentException} is passed
@@ -121,4 +187,29 @@ public final class Validator {
             serviceCallback.failure(ex);
         }
     }
+
+    /**
+     * A field visited by the validation of its declaring class.
+     */
+    private static final class FieldPlan {
+        /** The accessible field. */
+        private final Field field;
+        /** Whether the field is required to be not null. */
+        private final boolean required;
+        /** Whether the value of the field may need validation. */
+        private final boolean descend;
+
+        /**
+         * Creates a field plan.
+         *
+         * @param field the accessible field
+         * @param required whether the field is required to be not null
+         * @param descend whether the value of the field may need validation
+         */
+        FieldPlan(Field field, boolean required, boolean descend) {
+            this.field = field;
+            this.required = required;
+            this.descend = descend;
+        }
+    }
 }
@@ -34,17 +34,23 @@ public class TokenCredentialsInterceptor implements Interceptor {
 
     @Override
     public Response intercept(Chain chain) throws IOException {
-        Response response = sendRequestWithAuthorization(chain);
+        String token = credentials.getToken();
+        Response response = sendRequestWithAuthorization(chain, token);
         if (response == null || response.code() == 401) {
-            credentials.refreshToken();
-            response = sendRequestWithAuthorization(chain);
+            String current = credentials.getToken();
+            // another request may already have replaced the rejected token
+            if (current == null || current.equals(token)) {
+                credentials.refreshToken();
+                current = credentials.getToken();
+            }
+            response = sendRequestWithAuthorization(chain, current);
         }
         return response;
     }
 
-    private Response sendRequestWithAuthorization(Chain chain) throws IOException {
+    private Response sendRequestWithAuthorization(Chain chain, String token) throws IOException {
         Request newRequest = chain.request().newBuilder()
-                .header("Authorization", credentials.getScheme() + " " + credentials.getToken())
+                .header("Authorization", credentials.getScheme() + " " + token)
                 .build();
         return chain.proceed(newRequest);
     }
@@ -9,6 +9,8 @@ package com.microsoft.rest.retry;
 
 import okhttp3.Response;
 
+import java.util.concurrent.ThreadLocalRandom;
+
 /**
  * A retry strategy with backoff parameters for calculating the exponential delay between retries.
  */
@@ -28,6 +30,14 @@ public class ExponentialBackoffRetryStrategy extends RetryStrategy {
      * delay between retries.
      */
     public static final int DEFAULT_MIN_BACKOFF = 1000;
+    /**
+     * The lower bound of the random factor applied to the delta backoff.
+     */
+    private static final double MIN_JITTER = 0.8;
+    /**
+     * The width of the range of the random factor applied to the delta backoff.
+     */
+    private static final double JITTER_RANGE = 0.4;
 
     /**
      * The value that will be used to calculate a random delta in the exponential delay
@@ -101,6 +111,25 @@ public class ExponentialBackoffRetryStrategy extends RetryStrategy {
         int code = response.code();
         //CHECKSTYLE IGNORE MagicNumber FOR NEXT 2 LINES
         return retryCount < this.retryCount
-                && (code == 408 || (code >= 500 && code != 501 && code != 505));
+                && (code == 408 || code == 429 || (code >= 500 && code != 501 && code != 505));
+    }
+
+    /**
+     * Gets the delay before the next retry attempt: the minimum backoff plus
+     * an exponentially growing, randomized multiple of the delta backoff,
+     * capped at the maximum backoff.
+     *
+     * @param retryCount The current retry attempt count.
+     * @param response The response that caused the retry conditions to occur.
+     * @return the delay in milliseconds.
+     */
+    @Override
+    public long getRetryDelayInMilliseconds(int retryCount, Response response) {
+        if (retryCount == 0 && isFastFirstRetry()) {
+            return 0;
+        }
+        double jitter = MIN_JITTER + JITTER_RANGE * ThreadLocalRandom.current().nextDouble();
+        double increment = (Math.pow(2, retryCount) - 1) * deltaBackoff * jitter;
+        return (long) Math.min(minBackoff + increment, maxBackoff);
     }
 }
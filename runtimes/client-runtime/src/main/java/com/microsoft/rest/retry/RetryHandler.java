@@ -7,16 +7,51 @@
 
 package com.microsoft.rest.retry;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.microsoft.rest.AdmissionInterceptor;
+import com.microsoft.rest.DateTimeRfc1123;
+
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * An instance of this interceptor placed in the request pipeline handles retriable errors.
+ *
+ * The delay before each retry attempt is the larger of the delay computed by
+ * the retry strategy and the delay requested by the server, either through a
+ * Retry-After header or an exhausted x-ms-ratelimit-remaining-* quota, and
+ * never more than the maximum retry delay, whatever the server requests.
+ * Synchronous calls wait on the calling thread. Asynchronous calls created
+ * through {@link #newCallFactory(OkHttpClient)} are rescheduled on a timer
+ * instead, releasing the dispatcher thread between attempts; such a call
+ * keeps its retry state itself and leaves the request, including its tag,
+ * untouched. Such a call also asks the {@link AdmissionInterceptor}s of the
+ * client for admission before each attempt, instead of waiting in them.
  */
 public class RetryHandler implements Interceptor {
+    /**
+     * Represents the default maximum delay before a retry attempt.
+     */
+    public static final long DEFAULT_MAX_RETRY_DELAY = 1000 * 60;
     /**
      * Represents the default number of retries.
      */
@@ -34,18 +69,80 @@ public class RetryHandler implements Interceptor {
      * Represents the default minimum backoff time.
      */
     private static final int DEFAULT_MIN_BACKOFF = 1000;
+    /**
+     * Represents the minimum delay before retrying a response reporting an
+     * exhausted rate limit quota without a Retry-After header.
+     */
+    private static final int DEFAULT_RATE_LIMIT_BACKOFF = 1000 * 10;
+    /**
+     * The header carrying the delay requested by the server.
+     */
+    private static final String RETRY_AFTER = "Retry-After";
+    /**
+     * The prefix of the headers carrying the remaining request quota.
+     */
+    private static final String RATE_LIMIT_REMAINING_PREFIX = "x-ms-ratelimit-remaining-";
+    /**
+     * The HTTP status code for too many requests.
+     */
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    /**
+     * The timer rescheduling the asynchronous retry attempts of all handlers.
+     */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("rest-retry-scheduler-%d").build());
 
     /**
-     * The retry strategy to use.
+     * The retry strategies to use, consulted in order.
      */
-    private RetryStrategy retryStrategy;
+    private final RetryStrategy[] retryStrategies;
+
+    /**
+     * The retry counters, keyed by host.
+     */
+    private final ConcurrentMap<String, RetryStatistics> statistics = new ConcurrentHashMap<>();
+
+    /**
+     * The maximum delay before a retry attempt in milliseconds.
+     */
+    private volatile long maxRetryDelayInMilliseconds = DEFAULT_MAX_RETRY_DELAY;
 
     /**
      * Initialized an instance of {@link RetryHandler} class.
      * Sets default retry strategy base on Exponential Backoff.
      */
     public RetryHandler() {
-        this.retryStrategy = new ExponentialBackoffRetryStrategy(
+        this(newDefaultRetryStrategy());
+    }
+
+    /**
+     * Initialized an instance of {@link RetryHandler} class.
+     *
+     * @param retryStrategy retry strategy to use.
+     */
+    public RetryHandler(RetryStrategy retryStrategy) {
+        this(new RetryStrategy[] {retryStrategy});
+    }
+
+    /**
+     * Initialized an instance of {@link RetryHandler} class. A response is
+     * retried by the first strategy that accepts it; each strategy keeps its
+     * own retry count.
+     *
+     * @param retryStrategies retry strategies to use, in order.
+     */
+    public RetryHandler(RetryStrategy... retryStrategies) {
+        this.retryStrategies = retryStrategies.clone();
+    }
+
+    /**
+     * Creates the exponential backoff retry strategy used by default.
+     *
+     * @return the default retry strategy.
+     */
+    public static RetryStrategy newDefaultRetryStrategy() {
+        return new ExponentialBackoffRetryStrategy(
                 DEFAULT_NUMBER_OF_ATTEMPTS,
                 DEFAULT_MIN_BACKOFF,
                 DEFAULT_MAX_BACKOFF,
@@ -53,32 +150,345 @@ public class RetryHandler implements Interceptor {
     }
 
     /**
-     * Initialized an instance of {@link RetryHandler} class.
+     * Sets the maximum delay before a retry attempt, which also bounds the
+     * delay requested by the server through a Retry-After header.
      *
-     * @param retryStrategy retry strategy to use.
+     * @param maxRetryDelayInMilliseconds the maximum delay in milliseconds.
+     * @return the handler itself.
      */
-    public RetryHandler(RetryStrategy retryStrategy) {
-        this.retryStrategy = retryStrategy;
+    public RetryHandler withMaxRetryDelayInMilliseconds(long maxRetryDelayInMilliseconds) {
+        if (maxRetryDelayInMilliseconds < 0) {
+            throw new IllegalArgumentException("maxRetryDelayInMilliseconds must not be negative");
+        }
+        this.maxRetryDelayInMilliseconds = maxRetryDelayInMilliseconds;
+        return this;
+    }
+
+    /**
+     * Gets the retry counters of this handler.
+     *
+     * @return a live, read-only view of the retry counters keyed by host.
+     */
+    public Map<String, RetryStatistics> getStatistics() {
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    /**
+     * Creates a call factory whose asynchronous calls are retried by this
+     * handler on a timer. Synchronous calls are executed by the client as
+     * they are, so the client should have this handler among its
+     * interceptors; the asynchronous attempts are sent without it.
+     *
+     * @param httpClient the HTTP client executing the calls.
+     * @return the call factory, e.g. for {@link retrofit2.Retrofit.Builder#callFactory(Call.Factory)}.
+     */
+    public Call.Factory newCallFactory(final OkHttpClient httpClient) {
+        OkHttpClient.Builder attemptClientBuilder = httpClient.newBuilder();
+        attemptClientBuilder.interceptors().removeAll(Collections.singleton(this));
+        final List<AdmissionInterceptor> admissions = new ArrayList<>();
+        for (Interceptor interceptor : httpClient.interceptors()) {
+            if (interceptor instanceof AdmissionInterceptor) {
+                admissions.add((AdmissionInterceptor) interceptor);
+            }
+        }
+        attemptClientBuilder.interceptors().removeAll(admissions);
+        final OkHttpClient attemptClient = attemptClientBuilder.build();
+        return new Call.Factory() {
+            @Override
+            public Call newCall(Request request) {
+                return new RetryingCall(httpClient, attemptClient, admissions, request);
+            }
+        };
     }
 
     @Override
     public Response intercept(Chain chain) throws IOException {
         Request request = chain.request();
+        Attempts attempts = new Attempts();
 
         // try the request
         Response response = chain.proceed(request);
 
-        int tryCount = 0;
-        while (retryStrategy.shouldRetry(tryCount, response)) {
-            tryCount++;
+        while (true) {
+            long delay = attempts.nextDelay(response);
+            if (delay < 0) {
+                // otherwise just pass the original response on
+                return response;
+            }
             if (response.body() != null) {
                 response.body().close();
             }
+            sleep(delay);
             // retry the request
             response = chain.proceed(request);
         }
+    }
 
-        // otherwise just pass the original response on
-        return response;
+    /**
+     * Gets the delay requested by the server before sending another request.
+     *
+     * @param response the response.
+     * @return the delay in milliseconds, or -1 if the server did not request one.
+     */
+    private static long serverDelayInMilliseconds(Response response) {
+        String retryAfter = response.header(RETRY_AFTER);
+        if (retryAfter != null) {
+            try {
+                return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(retryAfter.trim())));
+            } catch (NumberFormatException e) {
+                try {
+                    long date = new DateTimeRfc1123(retryAfter.trim()).getDateTime().getMillis();
+                    return Math.max(0, date - System.currentTimeMillis());
+                } catch (IllegalArgumentException ignored) {
+                    // not a valid Retry-After value
+                }
+            }
+        }
+        for (String name : response.headers().names()) {
+            if (name.toLowerCase(Locale.ROOT).startsWith(RATE_LIMIT_REMAINING_PREFIX)) {
+                try {
+                    if (Long.parseLong(response.header(name).trim()) <= 0) {
+                        return DEFAULT_RATE_LIMIT_BACKOFF;
+                    }
+                } catch (NumberFormatException ignored) {
+                    // not a quota
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Waits on the current thread.
+     *
+     * @param delayInMilliseconds the delay.
+     * @throws InterruptedIOException thrown if the thread is interrupted.
+     */
+    private static void sleep(long delayInMilliseconds) throws InterruptedIOException {
+        if (delayInMilliseconds <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delayInMilliseconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry the request");
+        }
+    }
+
+    /**
+     * The retry state of one call across its attempts.
+     */
+    private final class Attempts {
+        /** The retry count of each strategy. */
+        private final int[] retryCounts = new int[retryStrategies.length];
+
+        /**
+         * Decides whether a response is retried and records the attempt.
+         *
+         * @param response the response.
+         * @return the delay before the retry attempt in milliseconds, or -1 if it is not retried.
+         */
+        long nextDelay(Response response) {
+            for (int i = 0; i < retryStrategies.length; i++) {
+                RetryStrategy retryStrategy = retryStrategies[i];
+                if (retryStrategy.shouldRetry(retryCounts[i], response)) {
+                    long serverDelay = serverDelayInMilliseconds(response);
+                    long delay = Math.min(maxRetryDelayInMilliseconds,
+                            Math.max(retryStrategy.getRetryDelayInMilliseconds(retryCounts[i], response), serverDelay));
+                    retryCounts[i]++;
+                    statisticsFor(response.request().url().host())
+                            .recordRetry(delay, serverDelay >= 0 || response.code() == TOO_MANY_REQUESTS);
+                    return delay;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Gets the retry counters of a host.
+         *
+         * @param host the host.
+         * @return the retry counters.
+         */
+        private RetryStatistics statisticsFor(String host) {
+            RetryStatistics hostStatistics = statistics.get(host);
+            if (hostStatistics == null) {
+                hostStatistics = new RetryStatistics();
+                RetryStatistics existing = statistics.putIfAbsent(host, hostStatistics);
+                if (existing != null) {
+                    hostStatistics = existing;
+                }
+            }
+            return hostStatistics;
+        }
+    }
+
+    /**
+     * A call whose asynchronous retry attempts are rescheduled on the timer.
+     */
+    private final class RetryingCall implements Call {
+        /** The HTTP client executing a synchronous call. */
+        private final OkHttpClient httpClient;
+        /** The HTTP client executing the asynchronous attempts, without this handler nor the admission interceptors. */
+        private final OkHttpClient attemptClient;
+        /** The interceptors admitting each asynchronous attempt, in order. */
+        private final List<AdmissionInterceptor> admissions;
+        /** The original request. */
+        private final Request request;
+        /** The retry state of an asynchronous call, only used on the thread handling its latest attempt. */
+        private final Attempts attempts = new Attempts();
+        /** Whether the call was executed or enqueued. */
+        private final AtomicBoolean executed = new AtomicBoolean();
+        /** Whether the call was canceled. */
+        private volatile boolean canceled;
+        /** The call of the current attempt. */
+        private volatile Call current;
+        /** The callback of an asynchronous call. */
+        private volatile Callback callback;
+        /** The scheduled next attempt of an asynchronous call. */
+        private volatile ScheduledFuture<?> pendingRetry;
+
+        /**
+         * Creates a retrying call.
+         *
+         * @param httpClient the HTTP client executing a synchronous call.
+         * @param attemptClient the HTTP client executing the asynchronous attempts.
+         * @param admissions the interceptors admitting each asynchronous attempt.
+         * @param request the original request.
+         */
+        RetryingCall(OkHttpClient httpClient, OkHttpClient attemptClient, List<AdmissionInterceptor> admissions, Request request) {
+            this.httpClient = httpClient;
+            this.attemptClient = attemptClient;
+            this.admissions = admissions;
+            this.request = request;
+        }
+
+        @Override
+        public Request request() {
+            return request;
+        }
+
+        @Override
+        public Response execute() throws IOException {
+            markExecuted();
+            current = httpClient.newCall(request);
+            if (canceled) {
+                current.cancel();
+            }
+            return current.execute();
+        }
+
+        @Override
+        public void enqueue(Callback responseCallback) {
+            markExecuted();
+            callback = responseCallback;
+            send();
+        }
+
+        /**
+         * Sends one asynchronous attempt once it is admitted.
+         */
+        private void send() {
+            admit(0);
+        }
+
+        /**
+         * Asks the admission interceptors, from the given one on, to admit
+         * the attempt, and sends it once they all have.
+         *
+         * @param index the index of the next admission interceptor.
+         */
+        private void admit(final int index) {
+            if (index == admissions.size()) {
+                sendAdmitted();
+                return;
+            }
+            admissions.get(index).admit(request, new Runnable() {
+                @Override
+                public void run() {
+                    admit(index + 1);
+                }
+            });
+        }
+
+        /**
+         * Sends one admitted asynchronous attempt.
+         */
+        private void sendAdmitted() {
+            current = attemptClient.newCall(request);
+            if (canceled) {
+                current.cancel();
+            }
+            current.enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    callback.onFailure(RetryingCall.this, e);
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) throws IOException {
+                    for (AdmissionInterceptor admission : admissions) {
+                        admission.responseReceived(response);
+                    }
+                    long delay = attempts.nextDelay(response);
+                    if (delay < 0) {
+                        callback.onResponse(RetryingCall.this, response);
+                        return;
+                    }
+                    if (response.body() != null) {
+                        response.body().close();
+                    }
+                    pendingRetry = SCHEDULER.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            send();
+                        }
+                    }, delay, TimeUnit.MILLISECONDS);
+                    if (canceled) {
+                        cancelPendingRetry();
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+            Call call = current;
+            if (call != null) {
+                call.cancel();
+            }
+            cancelPendingRetry();
+        }
+
+        /**
+         * Cancels the scheduled next attempt, failing the callback if it was still pending.
+         */
+        private void cancelPendingRetry() {
+            ScheduledFuture<?> retry = pendingRetry;
+            if (retry != null && retry.cancel(false)) {
+                callback.onFailure(this, new IOException("Canceled"));
+            }
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return executed.get();
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        /**
+         * Marks the call as executed.
+         */
+        private void markExecuted() {
+            if (!executed.compareAndSet(false, true)) {
+                throw new IllegalStateException("Already Executed");
+            }
+        }
     }
 }
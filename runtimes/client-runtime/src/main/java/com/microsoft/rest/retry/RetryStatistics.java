@@ -0,0 +1,64 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.rest.retry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The retry counters of a {@link RetryHandler} for one host.
+ */
+public final class RetryStatistics {
+    /** The number of retry attempts. */
+    private final AtomicLong retryCount = new AtomicLong();
+    /** The number of retried responses that asked the client to slow down. */
+    private final AtomicLong throttledCount = new AtomicLong();
+    /** The sum of the delays before the retry attempts in milliseconds. */
+    private final AtomicLong totalDelayInMilliseconds = new AtomicLong();
+
+    /**
+     * Records a retry attempt.
+     *
+     * @param delayInMilliseconds the delay before the attempt.
+     * @param throttled whether the retried response asked the client to slow down.
+     */
+    void recordRetry(long delayInMilliseconds, boolean throttled) {
+        retryCount.incrementAndGet();
+        totalDelayInMilliseconds.addAndGet(delayInMilliseconds);
+        if (throttled) {
+            throttledCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the number of retry attempts.
+     *
+     * @return the number of retries.
+     */
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    /**
+     * Gets the number of retried responses that were throttled, i.e. had a
+     * 429 status, a Retry-After header or an exhausted rate limit.
+     *
+     * @return the number of throttled responses.
+     */
+    public long getThrottledCount() {
+        return throttledCount.get();
+    }
+
+    /**
+     * Gets the total time spent waiting before retry attempts.
+     *
+     * @return the total delay in milliseconds.
+     */
+    public long getTotalDelayInMilliseconds() {
+        return totalDelayInMilliseconds.get();
+    }
+}
@@ -61,6 +61,22 @@ public abstract class RetryStrategy {
      */
     public abstract boolean shouldRetry(int retryCount, Response response);
 
+    /**
+     * Gets the delay before the next retry attempt. The first attempt is made
+     * immediately if fast first retry is enabled, the subsequent ones after
+     * the default retry interval.
+     *
+     * @param retryCount The current retry attempt count.
+     * @param response The response that caused the retry conditions to occur.
+     * @return the delay in milliseconds.
+     */
+    public long getRetryDelayInMilliseconds(int retryCount, Response response) {
+        if (retryCount == 0 && fastFirstRetry) {
+            return 0;
+        }
+        return DEFAULT_RETRY_INTERVAL;
+    }
+
     /**
      * Gets the name of the retry strategy.
      *
@@ -0,0 +1,70 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.rest.serializer;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.lang.reflect.Field;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Parses the dotted property names of flattened models, e.g.
+ * "properties.name", into their path segments. A dot escaped with a
+ * backslash is part of the segment.
+ */
+final class FlattenedPropertyPaths {
+    /** Matches a property name that contains an unescaped dot. */
+    private static final Pattern FLATTENED = Pattern.compile(".+[^\\\\]\\..+");
+    /** Matches the unescaped dots of a property name. */
+    private static final Pattern SEPARATOR = Pattern.compile("((?<!\\\\))\\.");
+
+    /**
+     * Hidden constructor for utility class.
+     */
+    private FlattenedPropertyPaths() {
+    }
+
+    /**
+     * Splits a property name into its path segments.
+     *
+     * @param name the property name.
+     * @return the unescaped path segments, or null if the property is not flattened.
+     */
+    static String[] split(String name) {
+        if (!FLATTENED.matcher(name).matches()) {
+            return null;
+        }
+        String[] segments = SEPARATOR.split(name);
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = segments[i].replace("\\.", ".");
+        }
+        return segments;
+    }
+
+    /**
+     * Gets the flattened properties declared on a class.
+     *
+     * @param type the class.
+     * @return the path segments of each flattened property, keyed by property name, in declaration order.
+     */
+    static Map<String, String[]> declaredOn(Class<?> type) {
+        Map<String, String[]> paths = new LinkedHashMap<>();
+        for (Field field : type.getDeclaredFields()) {
+            JsonProperty property = field.getAnnotation(JsonProperty.class);
+            if (property != null) {
+                String[] segments = split(property.value());
+                if (segments != null) {
+                    paths.put(property.value(), segments);
+                }
+            }
+        }
+        return paths;
+    }
+}
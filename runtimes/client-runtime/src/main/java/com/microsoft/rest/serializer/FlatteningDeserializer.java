@@ -7,29 +7,34 @@
 
 package com.microsoft.rest.serializer;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.BeanDescription;
 import com.fasterxml.jackson.databind.DeserializationConfig;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerBase;
 import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
 import com.fasterxml.jackson.databind.deser.ResolvableDeserializer;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 import com.fasterxml.jackson.databind.module.SimpleModule;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 
 import java.io.IOException;
-import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Custom serializer for deserializing complex types with wrapped properties.
  * For example, a property with annotation @JsonProperty(value = "properties.name")
  * will be mapped to a top level "name" property in the POJO model.
+ *
+ * The wrapped properties of the handled type are compiled once into a tree
+ * of path segments. The payload is then streamed into a token buffer in which
+ * every wrapped value is hoisted to a top level "properties.name" field, and
+ * the buffer is handed to the default deserializer.
  */
 public class FlatteningDeserializer extends StdDeserializer<Object> implements ResolvableDeserializer {
     /**
@@ -42,6 +47,16 @@ public class FlatteningDeserializer extends StdDeserializer<Object> implements R
      */
     private final ObjectMapper mapper;
 
+    /**
+     * The root of the tree of wrapped property paths.
+     */
+    private final PathNode root;
+
+    /**
+     * The names of the wrapped properties, indexed by {@link PathNode#index}.
+     */
+    private final String[] flattenedNames;
+
     /**
      * Creates an instance of FlatteningDeserializer.
      * @param vc handled type
@@ -52,6 +67,26 @@ public class FlatteningDeserializer extends StdDeserializer<Object> implements R
         super(vc);
         this.defaultDeserializer = defaultDeserializer;
         this.mapper = mapper;
+        Map<String, String[]> paths = FlattenedPropertyPaths.declaredOn(defaultDeserializer.handledType());
+        this.root = new PathNode();
+        this.flattenedNames = paths.keySet().toArray(new String[paths.size()]);
+        for (int i = 0; i < flattenedNames.length; i++) {
+            PathNode node = root;
+            for (String segment : paths.get(flattenedNames[i])) {
+                PathNode child = node.children.get(segment);
+                if (child == null) {
+                    child = new PathNode();
+                    node.children.put(segment, child);
+                }
+                node = child;
+            }
+            node.index = i;
+        }
+        if (defaultDeserializer instanceof BeanDeserializerBase) {
+            for (Map.Entry<String, PathNode> entry : root.children.entrySet()) {
+                entry.getValue().keep = ((BeanDeserializerBase) defaultDeserializer).findProperty(entry.getKey()) != null;
+            }
+        }
     }
 
     /**
@@ -75,36 +110,117 @@ public class FlatteningDeserializer extends StdDeserializer<Object> implements R
         return module;
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public Object deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
-        JsonNode root = mapper.readTree(jp);
-        final Class<?> tClass = this.defaultDeserializer.handledType();
-        for (Field field : tClass.getDeclaredFields()) {
-            JsonNode node = root;
-            JsonProperty property = field.getAnnotation(JsonProperty.class);
-            if (property != null) {
-                String value = property.value();
-                if (value.matches(".+[^\\\\]\\..+")) {
-                    String[] values = value.split("((?<!\\\\))\\.");
-                    for (String val : values) {
-                        val = val.replace("\\.", ".");
-                        node = node.get(val);
-                        if (node == null) {
-                            break;
-                        }
-                    }
-                    ((ObjectNode) root).put(value, node);
-                }
+        JsonToken token = jp.getCurrentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = jp.nextToken();
+        } else if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {
+            return defaultDeserializer.deserialize(jp, ctxt);
+        }
+
+        TokenBuffer buffer = new TokenBuffer(jp, ctxt);
+        boolean[] found = new boolean[flattenedNames.length];
+        buffer.writeStartObject();
+        for (; token == JsonToken.FIELD_NAME; token = jp.nextToken()) {
+            String name = jp.getCurrentName();
+            jp.nextToken();
+            PathNode node = root.children.get(name);
+            if (node == null) {
+                buffer.writeFieldName(name);
+                buffer.copyCurrentStructure(jp);
+            } else if (node.keep) {
+                TokenBuffer value = new TokenBuffer(jp, ctxt);
+                value.copyCurrentStructure(jp);
+                buffer.writeFieldName(name);
+                buffer.copyCurrentStructure(startedParser(value));
+                hoist(startedParser(value), node, buffer, found);
+            } else {
+                hoist(jp, node, buffer, found);
             }
         }
-        JsonParser parser = new JsonFactory().createParser(root.toString());
+        // Wrapped properties missing from the payload are explicitly null.
+        for (int i = 0; i < found.length; i++) {
+            if (!found[i]) {
+                buffer.writeFieldName(flattenedNames[i]);
+                buffer.writeNull();
+            }
+        }
+        buffer.writeEndObject();
+
+        JsonParser parser = buffer.asParser(jp.getCodec());
         parser.nextToken();
         return defaultDeserializer.deserialize(parser, ctxt);
     }
 
+    /**
+     * Copies the wrapped property values found under the current value of a
+     * parser to top level fields of the token buffer.
+     *
+     * @param jp the parser, positioned on the value matching the path node
+     * @param node the path node matching the current value
+     * @param buffer the token buffer of the top level object
+     * @param found the flags of the wrapped properties already copied
+     * @throws IOException thrown by the parser or the buffer
+     */
+    private void hoist(JsonParser jp, PathNode node, TokenBuffer buffer, boolean[] found) throws IOException {
+        if (node.index >= 0 && node.children.isEmpty()) {
+            buffer.writeFieldName(flattenedNames[node.index]);
+            buffer.copyCurrentStructure(jp);
+            found[node.index] = true;
+            return;
+        }
+        if (node.index >= 0) {
+            // Both a wrapped property and the parent of other wrapped properties
+            TokenBuffer value = new TokenBuffer(jp);
+            value.copyCurrentStructure(jp);
+            buffer.writeFieldName(flattenedNames[node.index]);
+            buffer.copyCurrentStructure(startedParser(value));
+            found[node.index] = true;
+            jp = startedParser(value);
+        }
+        if (jp.getCurrentToken() != JsonToken.START_OBJECT) {
+            jp.skipChildren();
+            return;
+        }
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            PathNode child = node.children.get(jp.getCurrentName());
+            jp.nextToken();
+            if (child == null) {
+                jp.skipChildren();
+            } else {
+                hoist(jp, child, buffer, found);
+            }
+        }
+    }
+
+    /**
+     * Creates a parser over a token buffer, positioned on its first token.
+     *
+     * @param buffer the token buffer
+     * @return the parser
+     * @throws IOException thrown by the parser
+     */
+    private JsonParser startedParser(TokenBuffer buffer) throws IOException {
+        JsonParser parser = buffer.asParser(mapper);
+        parser.nextToken();
+        return parser;
+    }
+
     @Override
     public void resolve(DeserializationContext ctxt) throws JsonMappingException {
         ((ResolvableDeserializer) defaultDeserializer).resolve(ctxt);
     }
+
+    /**
+     * A segment in the tree of wrapped property paths.
+     */
+    private static final class PathNode {
+        /** The child segments, keyed by JSON field name. */
+        private final Map<String, PathNode> children = new HashMap<>();
+        /** The index of the wrapped property ending at this segment, or -1. */
+        private int index = -1;
+        /** Whether the handled type also has a property named after this top level segment. */
+        private boolean keep;
+    }
 }
@@ -7,35 +7,48 @@
 
 package com.microsoft.rest.serializer;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.BeanDescription;
 import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationConfig;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.module.SimpleModule;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.JsonNodeFactory;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
 import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
 import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 
 import java.io.IOException;
-import java.util.Iterator;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Queue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Set;
 
 /**
  * Custom serializer for serializing types with wrapped properties.
  * For example, a property with annotation @JsonProperty(value = "properties.name")
  * will be mapped from a top level "name" property in the POJO model to
  * {'properties' : { 'name' : 'my_name' }} in the serialized payload.
+ *
+ * The default serializer writes the model into a token buffer, from which
+ * the plain properties are streamed straight to the output while the wrapped
+ * properties are regrouped under their parent objects. Nested models are
+ * written by their own serializers.
  */
 public class FlatteningSerializer extends StdSerializer<Object> implements ResolvableSerializer {
+    /**
+     * Marks a property name known not to be wrapped.
+     */
+    private static final String[] NOT_FLATTENED = new String[0];
+
     /**
      * The default mapperAdapter for the current type.
      */
@@ -46,6 +59,19 @@ public class FlatteningSerializer extends StdSerializer<Object> implements Resol
      */
     private final ObjectMapper mapper;
 
+    /**
+     * The path segments of the properties declared on the current type and
+     * its super types, keyed by property name. Other names, e.g. those of
+     * additional properties, are parsed on each use so that they do not pile
+     * up here.
+     */
+    private final Map<String, String[]> paths;
+
+    /**
+     * The first path segments of the wrapped properties declared on the current type.
+     */
+    private final Set<String> roots;
+
     /**
      * Creates an instance of FlatteningSerializer.
      * @param vc handled type
@@ -56,6 +82,23 @@ public class FlatteningSerializer extends StdSerializer<Object> implements Resol
         super(vc, false);
         this.defaultSerializer = defaultSerializer;
         this.mapper = mapper;
+        Map<String, String[]> declared = new HashMap<>();
+        this.roots = new HashSet<>();
+        for (Class<?> type = vc; type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                JsonProperty property = field.getAnnotation(JsonProperty.class);
+                if (property != null && !declared.containsKey(property.value())) {
+                    String[] segments = FlattenedPropertyPaths.split(property.value());
+                    declared.put(property.value(), segments == null ? NOT_FLATTENED : segments);
+                }
+            }
+        }
+        for (String[] segments : declared.values()) {
+            if (segments != NOT_FLATTENED) {
+                roots.add(segments[0]);
+            }
+        }
+        this.paths = Collections.unmodifiableMap(declared);
     }
 
     /**
@@ -79,6 +122,7 @@ public class FlatteningSerializer extends StdSerializer<Object> implements Resol
         return module;
     }
 
+    @SuppressWarnings("unchecked")
     @Override
     public void serialize(Object value, JsonGenerator jgen, SerializerProvider provider) throws IOException {
         if (value == null) {
@@ -86,58 +130,108 @@ public class FlatteningSerializer extends StdSerializer<Object> implements Resol
             return;
         }
 
-        // BFS for all collapsed properties
-        ObjectNode root = mapper.valueToTree(value);
-        ObjectNode res = root.deepCopy();
-        Queue<ObjectNode> source = new LinkedBlockingQueue<ObjectNode>();
-        Queue<ObjectNode> target = new LinkedBlockingQueue<ObjectNode>();
-        source.add(root);
-        target.add(res);
-        while (!source.isEmpty()) {
-            ObjectNode current = source.poll();
-            ObjectNode resCurrent = target.poll();
-            Iterator<Map.Entry<String, JsonNode>> fields = current.fields();
-            while (fields.hasNext()) {
-                Map.Entry<String, JsonNode> field = fields.next();
-                ObjectNode node = resCurrent;
-                String key = field.getKey();
-                JsonNode outNode = resCurrent.get(key);
-                if (field.getKey().matches(".+[^\\\\]\\..+")) {
-                    String[] values = field.getKey().split("((?<!\\\\))\\.");
-                    for (int i = 0; i < values.length; ++i) {
-                        values[i] = values[i].replace("\\.", ".");
-                        if (i == values.length - 1) {
-                            break;
-                        }
-                        String val = values[i];
-                        if (node.has(val)) {
-                            node = (ObjectNode) node.get(val);
-                        } else {
-                            ObjectNode child = new ObjectNode(JsonNodeFactory.instance);
-                            node.put(val, child);
-                            node = child;
-                        }
-                    }
-                    node.set(values[values.length - 1], resCurrent.get(field.getKey()));
-                    resCurrent.remove(field.getKey());
-                    outNode = node.get(values[values.length - 1]);
+        TokenBuffer buffer = new TokenBuffer(jgen.getCodec(), false);
+        ((JsonSerializer<Object>) defaultSerializer).serialize(value, buffer, provider);
+        JsonParser parser = buffer.asParser(mapper);
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            jgen.copyCurrentStructure(parser);
+            return;
+        }
+
+        Map<String, Object> wrapped = null;
+        jgen.writeStartObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            String[] segments = pathOf(name);
+            if (segments != NOT_FLATTENED) {
+                if (wrapped == null) {
+                    wrapped = new LinkedHashMap<>();
+                }
+                put(wrapped, segments, segments.length - 1, parser);
+            } else if (token == JsonToken.START_OBJECT && roots.contains(name)) {
+                // A plain object property shares its name with a wrapper object
+                if (wrapped == null) {
+                    wrapped = new LinkedHashMap<>();
                 }
-                if (field.getValue() instanceof ObjectNode) {
-                    source.add((ObjectNode) field.getValue());
-                    target.add((ObjectNode) outNode);
-                } else if (field.getValue() instanceof ArrayNode
-                    && (field.getValue()).size() > 0
-                    && (field.getValue()).get(0) instanceof ObjectNode) {
-                    Iterator<JsonNode> sourceIt = field.getValue().elements();
-                    Iterator<JsonNode> targetIt = outNode.elements();
-                    while (sourceIt.hasNext()) {
-                        source.add((ObjectNode) sourceIt.next());
-                        target.add((ObjectNode) targetIt.next());
-                    }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String child = parser.getCurrentName();
+                    parser.nextToken();
+                    put(wrapped, new String[] {name, child}, 1, parser);
                 }
+            } else {
+                jgen.writeFieldName(name);
+                jgen.copyCurrentStructure(parser);
+            }
+        }
+        if (wrapped != null) {
+            write(wrapped, jgen);
+        }
+        jgen.writeEndObject();
+    }
+
+    /**
+     * Gets the path segments of a serialized property name.
+     *
+     * @param name the property name
+     * @return the path segments, or {@link #NOT_FLATTENED}
+     */
+    private String[] pathOf(String name) {
+        String[] segments = paths.get(name);
+        if (segments == null) {
+            segments = FlattenedPropertyPaths.split(name);
+            if (segments == null) {
+                segments = NOT_FLATTENED;
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Buffers the current value of a parser under its path in the tree of
+     * wrapper objects.
+     *
+     * @param wrapped the tree of wrapper objects
+     * @param segments the path segments
+     * @param last the index of the last path segment to use
+     * @param parser the parser, positioned on the value
+     * @throws IOException thrown by the parser
+     */
+    @SuppressWarnings("unchecked")
+    private void put(Map<String, Object> wrapped, String[] segments, int last, JsonParser parser) throws IOException {
+        Map<String, Object> node = wrapped;
+        for (int i = 0; i < last; i++) {
+            Object child = node.get(segments[i]);
+            if (!(child instanceof Map)) {
+                child = new LinkedHashMap<String, Object>();
+                node.put(segments[i], child);
+            }
+            node = (Map<String, Object>) child;
+        }
+        TokenBuffer value = new TokenBuffer(parser);
+        value.copyCurrentStructure(parser);
+        node.put(segments[last], value);
+    }
+
+    /**
+     * Writes the fields of a wrapper object.
+     *
+     * @param node the fields of the wrapper object
+     * @param jgen the generator
+     * @throws IOException thrown by the generator
+     */
+    @SuppressWarnings("unchecked")
+    private void write(Map<String, Object> node, JsonGenerator jgen) throws IOException {
+        for (Map.Entry<String, Object> field : node.entrySet()) {
+            jgen.writeFieldName(field.getKey());
+            if (field.getValue() instanceof TokenBuffer) {
+                ((TokenBuffer) field.getValue()).serialize(jgen);
+            } else {
+                jgen.writeStartObject();
+                write((Map<String, Object>) field.getValue(), jgen);
+                jgen.writeEndObject();
             }
         }
-        jgen.writeTree(res);
     }
 
     @Override
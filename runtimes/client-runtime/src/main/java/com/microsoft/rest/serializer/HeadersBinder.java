@@ -0,0 +1,222 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.rest.serializer;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Joiner;
+import com.microsoft.rest.DateTimeRfc1123;
+import okhttp3.Headers;
+import org.joda.time.DateTime;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Binds the values of HTTP response headers directly onto the
+ * {@link JsonProperty} annotated fields of a header model class, without
+ * going through an intermediate JSON document.
+ *
+ * The binding plan of each header class is computed once and cached.
+ *
+ * @param <T> the type of the header model.
+ */
+public final class HeadersBinder<T> {
+    /** The cached binders, keyed by header model class. */
+    private static final ConcurrentMap<Class<?>, HeadersBinder<?>> BINDERS = new ConcurrentHashMap<>();
+
+    /** The no-argument constructor of the header model. */
+    private final Constructor<T> constructor;
+    /** The bindings of the annotated fields of the header model. */
+    private final FieldBinding[] bindings;
+
+    /**
+     * Creates the binding plan for a header model class.
+     *
+     * @param type the header model class.
+     */
+    private HeadersBinder(Class<T> type) {
+        try {
+            this.constructor = type.getDeclaredConstructor();
+            this.constructor.setAccessible(true);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(type.getName() + " does not have a parameterless constructor.", e);
+        }
+        List<FieldBinding> fieldBindings = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                JsonProperty property = field.getAnnotation(JsonProperty.class);
+                if (property == null || Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                field.setAccessible(true);
+                String headerName = property.value().isEmpty() ? field.getName() : property.value();
+                fieldBindings.add(new FieldBinding(headerName, field));
+            }
+        }
+        this.bindings = fieldBindings.toArray(new FieldBinding[fieldBindings.size()]);
+    }
+
+    /**
+     * Gets the binder for a header model class.
+     *
+     * @param type the header model class.
+     * @param <T> the type of the header model.
+     * @return the cached binder.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> HeadersBinder<T> forClass(Class<T> type) {
+        HeadersBinder<?> binder = BINDERS.get(type);
+        if (binder == null) {
+            binder = new HeadersBinder<>(type);
+            HeadersBinder<?> existing = BINDERS.putIfAbsent(type, binder);
+            if (existing != null) {
+                binder = existing;
+            }
+        }
+        return (HeadersBinder<T>) binder;
+    }
+
+    /**
+     * Creates an instance of the header model from the response headers.
+     *
+     * @param headers the response headers.
+     * @param mapper the object mapper used for field types without a built-in conversion.
+     * @return the header model.
+     * @throws IOException thrown if a header value cannot be converted.
+     */
+    public T bind(Headers headers, ObjectMapper mapper) throws IOException {
+        T result;
+        try {
+            result = constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Unable to create an instance of " + constructor.getDeclaringClass().getName(), e);
+        }
+        for (FieldBinding binding : bindings) {
+            List<String> values = headers.values(binding.headerName);
+            if (values.isEmpty()) {
+                continue;
+            }
+            try {
+                binding.field.set(result, binding.convert(values, mapper));
+            } catch (IllegalAccessException | IllegalArgumentException e) {
+                throw new IOException("Unable to deserialize header '" + binding.headerName + "' into "
+                        + binding.field.getDeclaringClass().getName() + "." + binding.field.getName(), e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The kind of conversion applied to a header value.
+     */
+    private enum Conversion {
+        STRING, DATE_TIME_RFC1123, DATE_TIME, UUID, INTEGER, LONG, BOOLEAN, DOUBLE, MAPPER
+    }
+
+    /**
+     * The binding of one header onto one field.
+     */
+    private static final class FieldBinding {
+        /** The name of the header. */
+        private final String headerName;
+        /** The field to set. */
+        private final Field field;
+        /** The conversion from the header value to the field type. */
+        private final Conversion conversion;
+        /** The field type, resolved lazily for the mapper conversion. */
+        private volatile JavaType javaType;
+
+        /**
+         * Creates a field binding.
+         *
+         * @param headerName the name of the header.
+         * @param field the field to set.
+         */
+        FieldBinding(String headerName, Field field) {
+            this.headerName = headerName;
+            this.field = field;
+            this.conversion = conversionFor(field.getType());
+        }
+
+        /**
+         * Converts the values of the header into the field type.
+         *
+         * @param values the non-empty values of the header.
+         * @param mapper the object mapper used for unknown field types.
+         * @return the converted value.
+         */
+        Object convert(List<String> values, ObjectMapper mapper) {
+            String value = values.get(values.size() - 1);
+            switch (conversion) {
+                case STRING:
+                    if (values.size() > 1) {
+                        return Joiner.on(",").join(values);
+                    }
+                    return value;
+                case DATE_TIME_RFC1123:
+                    return new DateTimeRfc1123(value);
+                case DATE_TIME:
+                    return DateTime.parse(value);
+                case UUID:
+                    return java.util.UUID.fromString(value);
+                case INTEGER:
+                    return Integer.valueOf(value.trim());
+                case LONG:
+                    return Long.valueOf(value.trim());
+                case BOOLEAN:
+                    return Boolean.valueOf(value.trim());
+                case DOUBLE:
+                    return Double.valueOf(value.trim());
+                default:
+                    if (javaType == null) {
+                        javaType = mapper.getTypeFactory().constructType(field.getGenericType());
+                    }
+                    if (javaType.isCollectionLikeType() || javaType.isArrayType()) {
+                        return mapper.convertValue(values, javaType);
+                    }
+                    return mapper.convertValue(value, javaType);
+            }
+        }
+
+        /**
+         * Picks the conversion for a field type.
+         *
+         * @param type the field type.
+         * @return the conversion.
+         */
+        private static Conversion conversionFor(Class<?> type) {
+            if (type == String.class) {
+                return Conversion.STRING;
+            } else if (type == DateTimeRfc1123.class) {
+                return Conversion.DATE_TIME_RFC1123;
+            } else if (type == DateTime.class) {
+                return Conversion.DATE_TIME;
+            } else if (type == UUID.class) {
+                return Conversion.UUID;
+            } else if (type == Integer.class || type == int.class) {
+                return Conversion.INTEGER;
+            } else if (type == Long.class || type == long.class) {
+                return Conversion.LONG;
+            } else if (type == Boolean.class || type == boolean.class) {
+                return Conversion.BOOLEAN;
+            } else if (type == Double.class || type == double.class) {
+                return Conversion.DOUBLE;
+            }
+            return Conversion.MAPPER;
+        }
+    }
+}
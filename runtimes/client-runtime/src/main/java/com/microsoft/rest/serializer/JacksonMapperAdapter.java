@@ -9,19 +9,32 @@ package com.microsoft.rest.serializer;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.joda.JodaModule;
 import com.google.common.base.CharMatcher;
 import com.google.common.base.Joiner;
+import com.microsoft.rest.Base64Url;
+import com.microsoft.rest.DateTimeRfc1123;
+import okhttp3.Headers;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.ISODateTimeFormat;
 
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.InputStream;
 import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A serialization helper class wrapped around {@link JacksonConverterFactory} and {@link ObjectMapper}.
@@ -42,6 +55,21 @@ public class JacksonMapperAdapter {
      */
     private JacksonConverterFactory converterFactory;
 
+    /**
+     * The readers of the current {@link ObjectMapper}, cached by target type.
+     */
+    private final ConcurrentMap<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    /**
+     * The writers of the current {@link ObjectMapper}, cached by source class.
+     */
+    private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    /**
+     * The raw serialized values of enum constants, cached by enum class and indexed by ordinal.
+     */
+    private final ConcurrentMap<Class<?>, String[]> rawEnumValues = new ConcurrentHashMap<>();
+
     /**
      * Initializes an instance of JacksonMapperAdapter with default configurations
      * applied to the object mapper.
@@ -118,15 +146,30 @@ public class JacksonMapperAdapter {
         if (object == null) {
             return null;
         }
-        StringWriter writer = new StringWriter();
-        getObjectMapper().writeValue(writer, object);
-        return writer.toString();
+        return getWriter(object.getClass()).writeValueAsString(object);
+    }
+
+    /**
+     * Serializes an object into UTF-8 encoded JSON using the current {@link ObjectMapper}.
+     *
+     * @param object the object to serialize.
+     * @return the serialized bytes. Null if the object to serialize is null.
+     * @throws IOException exception from serialization.
+     */
+    public byte[] serializeToBytes(Object object) throws IOException {
+        if (object == null) {
+            return null;
+        }
+        return getWriter(object.getClass()).writeValueAsBytes(object);
     }
 
     /**
      * Serializes an object into a raw string using the current {@link ObjectMapper}.
      * The leading and trailing quotes will be trimmed.
      *
+     * Strings, enums, numbers, booleans, dates and {@link Base64Url} values
+     * are formatted directly, without going through the object mapper.
+     *
      * @param object the object to serialize.
      * @return the serialized string. Null if the object to serialize is null.
      */
@@ -134,6 +177,24 @@ public class JacksonMapperAdapter {
         if (object == null) {
             return null;
         }
+        Class<?> type = object.getClass();
+        if (type == String.class) {
+            return (String) object;
+        } else if (object instanceof Enum<?>) {
+            return serializeRawEnum((Enum<?>) object);
+        } else if (type == Integer.class || type == Long.class || type == Double.class || type == Float.class
+                || type == Short.class || type == Byte.class || type == BigInteger.class || type == BigDecimal.class
+                || type == Boolean.class) {
+            return object.toString();
+        } else if (type == Base64Url.class) {
+            return object.toString();
+        } else if (!getObjectMapper().isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)) {
+            if (type == DateTime.class) {
+                return ((DateTime) object).withZone(DateTimeZone.UTC).toString(ISODateTimeFormat.dateTime());
+            } else if (type == DateTimeRfc1123.class) {
+                return object.toString();
+            }
+        }
         try {
             return CharMatcher.is('"').trimFrom(serialize(object));
         } catch (IOException ex) {
@@ -141,6 +202,32 @@ public class JacksonMapperAdapter {
         }
     }
 
+    /**
+     * Serializes an enum constant into a raw string. The serialized values of
+     * all the constants of an enum are computed once through the object mapper,
+     * so that {@link com.fasterxml.jackson.annotation.JsonValue} is honored.
+     *
+     * @param constant the enum constant.
+     * @return the serialized string.
+     */
+    private String serializeRawEnum(Enum<?> constant) {
+        Class<?> enumType = constant.getDeclaringClass();
+        String[] values = rawEnumValues.get(enumType);
+        if (values == null) {
+            Object[] constants = enumType.getEnumConstants();
+            values = new String[constants.length];
+            for (int i = 0; i < constants.length; i++) {
+                try {
+                    values[i] = CharMatcher.is('"').trimFrom(serialize(constants[i]));
+                } catch (IOException ex) {
+                    values[i] = null;
+                }
+            }
+            rawEnumValues.putIfAbsent(enumType, values);
+        }
+        return values[constant.ordinal()];
+    }
+
     /**
      * Serializes a list into a string with the delimiter specified with the
      * Swagger collection format joining each individual serialized items in
@@ -171,16 +258,125 @@ public class JacksonMapperAdapter {
      * @return the deserialized object.
      * @throws IOException exception in deserialization
      */
-    @SuppressWarnings("unchecked")
     public <T> T deserialize(String value, final Type type) throws IOException {
         if (value == null || value.isEmpty()) {
             return null;
         }
-        return (T) getObjectMapper().readValue(value, new TypeReference<T>() {
-            @Override
-            public Type getType() {
-                return type;
+        return getReader(type).readValue(value);
+    }
+
+    /**
+     * Deserializes UTF-8 encoded JSON into a {@link T} object using the current {@link ObjectMapper}.
+     *
+     * @param value the bytes to deserialize.
+     * @param <T> the type of the deserialized object.
+     * @param type the type to deserialize.
+     * @return the deserialized object.
+     * @throws IOException exception in deserialization
+     */
+    public <T> T deserialize(byte[] value, final Type type) throws IOException {
+        if (value == null || value.length == 0) {
+            return null;
+        }
+        return getReader(type).readValue(value);
+    }
+
+    /**
+     * Deserializes a JSON stream into a {@link T} object using the current {@link ObjectMapper}.
+     * The stream is not closed.
+     *
+     * @param stream the stream to deserialize.
+     * @param type the type to deserialize.
+     * @param <T> the type of the deserialized object.
+     * @return the deserialized object.
+     * @throws IOException exception in deserialization
+     */
+    public <T> T deserialize(InputStream stream, Type type) throws IOException {
+        if (stream == null) {
+            return null;
+        }
+        return getReader(type).readValue(stream);
+    }
+
+    /**
+     * Deserializes a response body into a {@link T} object using the current
+     * {@link ObjectMapper}, reading the content as a stream. The body is closed.
+     *
+     * @param responseBody the response body to deserialize.
+     * @param type the type to deserialize.
+     * @param <T> the type of the deserialized object.
+     * @return the deserialized object, or null if the body is empty.
+     * @throws IOException exception in deserialization
+     */
+    public <T> T deserialize(ResponseBody responseBody, Type type) throws IOException {
+        if (responseBody == null) {
+            return null;
+        }
+        try {
+            BufferedSource source = responseBody.source();
+            if (source.exhausted()) {
+                return null;
+            }
+            return deserialize(source.inputStream(), type);
+        } finally {
+            responseBody.close();
+        }
+    }
+
+    /**
+     * Gets the reader of the current {@link ObjectMapper} for a type. Readers
+     * are immutable and cached, so the type is only resolved once.
+     *
+     * @param type the type to read.
+     * @return the reader for the type.
+     */
+    protected ObjectReader getReader(Type type) {
+        ObjectReader reader = readers.get(type);
+        if (reader == null) {
+            ObjectMapper objectMapper = getObjectMapper();
+            reader = objectMapper.readerFor(objectMapper.getTypeFactory().constructType(type));
+            ObjectReader existing = readers.putIfAbsent(type, reader);
+            if (existing != null) {
+                reader = existing;
             }
-        });
+        }
+        return reader;
+    }
+
+    /**
+     * Gets the writer of the current {@link ObjectMapper} for a class.
+     * Writers are immutable and cached.
+     *
+     * @param type the class to write.
+     * @return the writer for the class.
+     */
+    protected ObjectWriter getWriter(Class<?> type) {
+        ObjectWriter writer = writers.get(type);
+        if (writer == null) {
+            writer = getObjectMapper().writerFor(type);
+            ObjectWriter existing = writers.putIfAbsent(type, writer);
+            if (existing != null) {
+                writer = existing;
+            }
+        }
+        return writer;
+    }
+
+    /**
+     * Deserializes HTTP response headers into a {@link T} object, binding
+     * each header onto the field whose {@link com.fasterxml.jackson.annotation.JsonProperty}
+     * matches the header name.
+     *
+     * @param headers the response headers.
+     * @param type the type of the header model.
+     * @param <T> the type of the header model.
+     * @return the deserialized headers.
+     * @throws IOException exception in deserialization
+     */
+    public <T> T deserializeHeaders(Headers headers, Class<T> type) throws IOException {
+        if (headers == null) {
+            return null;
+        }
+        return HeadersBinder.forClass(type).bind(headers, getObjectMapper());
     }
 }
@@ -0,0 +1,102 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.rest;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+public class CustomHeadersTests {
+    @Test
+    public void customHeadersReplaceRequestHeaders() throws Exception {
+        CustomHeadersInterceptor headers = new CustomHeadersInterceptor()
+                .addHeader("x-ms-tag", "a")
+                .addHeader("x-ms-tag", "b")
+                .replaceHeader("accept-language", "fr-FR");
+        Request request = send(headers, new Request.Builder()
+                .url("http://localhost")
+                .header("Accept-Language", "en-US")
+                .header("x-ms-other", "kept")
+                .build());
+        Assert.assertEquals(Arrays.asList("a", "b"), request.headers("x-ms-tag"));
+        Assert.assertEquals(Arrays.asList("fr-FR"), request.headers("Accept-Language"));
+        Assert.assertEquals("kept", request.header("x-ms-other"));
+
+        headers.removeHeader("x-ms-tag");
+        request = send(headers, new Request.Builder().url("http://localhost").build());
+        Assert.assertTrue(request.headers("x-ms-tag").isEmpty());
+        Assert.assertEquals(1, headers.headers().size());
+    }
+
+    @Test
+    public void scopedHeadersApplyToTheirThreadOnly() throws Exception {
+        final CustomHeadersInterceptor headers = new CustomHeadersInterceptor().addHeader("x-ms-tag", "shared");
+        Request request;
+        try (CustomHeadersInterceptor.Scope outer = headers.scope(Headers.of("x-ms-tag", "scoped", "x-ms-outer", "1"))) {
+            try (CustomHeadersInterceptor.Scope inner = headers.scope(Headers.of("x-ms-inner", "2"))) {
+                request = send(headers, new Request.Builder().url("http://localhost").build());
+                Assert.assertEquals(Arrays.asList("scoped"), request.headers("x-ms-tag"));
+                Assert.assertEquals("1", request.header("x-ms-outer"));
+                Assert.assertEquals("2", request.header("x-ms-inner"));
+
+                final Request[] other = new Request[1];
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            other[0] = send(headers, new Request.Builder().url("http://localhost").build());
+                        } catch (IOException e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                });
+                thread.start();
+                thread.join();
+                Assert.assertEquals("shared", other[0].header("x-ms-tag"));
+                Assert.assertNull(other[0].header("x-ms-outer"));
+            }
+            request = send(headers, new Request.Builder().url("http://localhost").build());
+            Assert.assertNull(request.header("x-ms-inner"));
+            Assert.assertEquals("1", request.header("x-ms-outer"));
+        }
+        request = send(headers, new Request.Builder().url("http://localhost").build());
+        List<String> tags = request.headers("x-ms-tag");
+        Assert.assertEquals(Arrays.asList("shared"), tags);
+        Assert.assertNull(request.header("x-ms-outer"));
+    }
+
+    private static Request send(CustomHeadersInterceptor headers, Request request) throws IOException {
+        final Request[] sent = new Request[1];
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(headers)
+                .addInterceptor(new Interceptor() {
+                    @Override
+                    public Response intercept(Chain chain) throws IOException {
+                        sent[0] = chain.request();
+                        return new Response.Builder()
+                                .request(chain.request())
+                                .code(200)
+                                .protocol(Protocol.HTTP_1_1)
+                                .build();
+                    }
+                })
+                .build();
+        client.newCall(request).execute();
+        return sent[0];
+    }
+}
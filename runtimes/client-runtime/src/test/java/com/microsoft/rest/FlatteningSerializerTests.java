@@ -0,0 +1,131 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.rest;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.microsoft.rest.serializer.JacksonMapperAdapter;
+import com.microsoft.rest.serializer.JsonFlatten;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class FlatteningSerializerTests {
+    private final JacksonMapperAdapter mapperAdapter = new JacksonMapperAdapter();
+
+    @Test
+    public void serializeWrapsFlattenedProperties() throws Exception {
+        Vm vm = new Vm();
+        vm.id = "vm1";
+        vm.size = "Large";
+        vm.osType = "Linux";
+        vm.dotted = "d";
+        vm.tags = Collections.singletonMap("a.b", "c");
+        Nic nic = new Nic();
+        nic.ip = "10.0.0.1";
+        vm.nics = Arrays.asList(nic);
+
+        String json = mapperAdapter.serialize(vm);
+
+        Assert.assertEquals("{\"id\":\"vm1\",\"tags\":{\"a.b\":\"c\"},"
+                + "\"properties\":{\"size\":\"Large\",\"os\":{\"type\":\"Linux\"},"
+                + "\"nics\":[{\"properties\":{\"ip\":\"10.0.0.1\"}}],\"a.b\":\"d\"}}", json);
+    }
+
+    @Test
+    public void deserializeUnwrapsFlattenedProperties() throws Exception {
+        String json = "{\"id\":\"vm1\",\"unknown\":{\"x\":1},\"properties\":{\"size\":\"Large\",\"extra\":[1,2],"
+                + "\"os\":{\"type\":\"Linux\"},\"nics\":[{\"properties\":{\"ip\":\"10.0.0.1\"}}],\"a.b\":\"d\"}}";
+
+        Vm vm = mapperAdapter.deserialize(json, Vm.class);
+
+        Assert.assertEquals("vm1", vm.id);
+        Assert.assertEquals("Large", vm.size);
+        Assert.assertEquals("Linux", vm.osType);
+        Assert.assertEquals("d", vm.dotted);
+        Assert.assertEquals("10.0.0.1", vm.nics.get(0).ip);
+    }
+
+    @Test
+    public void deserializeMissingWrapperLeavesPropertiesNull() throws Exception {
+        Vm vm = mapperAdapter.deserialize("{\"id\":\"vm1\",\"properties\":{\"os\":null}}", Vm.class);
+
+        Assert.assertEquals("vm1", vm.id);
+        Assert.assertNull(vm.size);
+        Assert.assertNull(vm.osType);
+        Assert.assertNull(vm.nics);
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        Vm vm = new Vm();
+        vm.size = "Small";
+        vm.osType = "Windows";
+        Vm copy = mapperAdapter.deserialize(mapperAdapter.serialize(vm), Vm.class);
+
+        Assert.assertEquals("Small", copy.size);
+        Assert.assertEquals("Windows", copy.osType);
+        Assert.assertEquals(mapperAdapter.serialize(vm), mapperAdapter.serialize(copy));
+    }
+
+    @Test
+    public void serializeWrapsAdditionalProperties() throws Exception {
+        Disk disk = new Disk();
+        disk.size = 10;
+        disk.additionalProperties.put("properties.sku", "Premium");
+        disk.additionalProperties.put("location", "westus");
+
+        Assert.assertEquals("{\"location\":\"westus\",\"properties\":{\"size\":10,\"sku\":\"Premium\"}}",
+                mapperAdapter.serialize(disk));
+        disk.additionalProperties.put("properties.sku", "Standard");
+        Assert.assertEquals("{\"location\":\"westus\",\"properties\":{\"size\":10,\"sku\":\"Standard\"}}",
+                mapperAdapter.serialize(disk));
+    }
+
+    @JsonFlatten
+    public static class Vm {
+        @JsonProperty(value = "id")
+        private String id;
+        @JsonProperty(value = "tags")
+        private Map<String, String> tags;
+        @JsonProperty(value = "properties.size")
+        private String size;
+        @JsonProperty(value = "properties.os.type")
+        private String osType;
+        @JsonProperty(value = "properties.nics")
+        private List<Nic> nics;
+        @JsonProperty(value = "properties.a\\.b")
+        private String dotted;
+    }
+
+    @JsonFlatten
+    public static class Disk {
+        @JsonProperty(value = "properties.size")
+        private int size;
+        @JsonIgnore
+        private Map<String, Object> additionalProperties = new TreeMap<>();
+
+        @JsonAnyGetter
+        public Map<String, Object> additionalProperties() {
+            return additionalProperties;
+        }
+    }
+
+    @JsonFlatten
+    public static class Nic {
+        @JsonProperty(value = "properties.ip")
+        private String ip;
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.rest;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.microsoft.rest.serializer.JacksonMapperAdapter;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+
+import okhttp3.Headers;
+
+public class HeadersBinderTests {
+    private final JacksonMapperAdapter mapperAdapter = new JacksonMapperAdapter();
+
+    @Test
+    public void bindsTypedHeaders() throws Exception {
+        UUID requestId = UUID.randomUUID();
+        Headers headers = new Headers.Builder()
+                .add("client-request-id", "abc")
+                .add("request-id", requestId.toString())
+                .add("etag", "0x8D3")
+                .add("Last-Modified", "Tue, 05 Jul 2016 21:30:00 GMT")
+                .add("Content-Length", "1024")
+                .add("ocp-batch-file-isdirectory", "true")
+                .add("x-ms-test-mode", "SECOND")
+                .build();
+
+        TestHeaders result = mapperAdapter.deserializeHeaders(headers, TestHeaders.class);
+
+        Assert.assertEquals("abc", result.clientRequestId);
+        Assert.assertEquals(requestId, result.requestId);
+        Assert.assertEquals("0x8D3", result.eTag);
+        Assert.assertEquals(new DateTime(2016, 7, 5, 21, 30, DateTimeZone.UTC), result.lastModified.getDateTime());
+        Assert.assertEquals(Long.valueOf(1024), result.contentLength);
+        Assert.assertTrue(result.isDirectory);
+        Assert.assertEquals(TestMode.SECOND, result.mode);
+        Assert.assertNull(result.missing);
+    }
+
+    @Test
+    public void bindsMultiValuedHeaders() throws Exception {
+        Headers headers = new Headers.Builder()
+                .add("x-ms-values", "a")
+                .add("x-ms-values", "b")
+                .build();
+
+        TestHeaders result = mapperAdapter.deserializeHeaders(headers, TestHeaders.class);
+
+        Assert.assertEquals(2, result.values.size());
+        Assert.assertEquals("b", result.values.get(1));
+    }
+
+    @Test(expected = IOException.class)
+    public void invalidHeaderValueThrows() throws Exception {
+        Headers headers = new Headers.Builder().add("Content-Length", "many").build();
+        mapperAdapter.deserializeHeaders(headers, TestHeaders.class);
+    }
+
+    public enum TestMode {
+        FIRST, SECOND
+    }
+
+    public static class TestHeaders {
+        @JsonProperty(value = "client-request-id")
+        private String clientRequestId;
+        @JsonProperty(value = "request-id")
+        private UUID requestId;
+        @JsonProperty(value = "ETag")
+        private String eTag;
+        @JsonProperty(value = "Last-Modified")
+        private DateTimeRfc1123 lastModified;
+        @JsonProperty(value = "Content-Length")
+        private Long contentLength;
+        @JsonProperty(value = "ocp-batch-file-isdirectory")
+        private Boolean isDirectory;
+        @JsonProperty(value = "x-ms-test-mode")
+        private TestMode mode;
+        @JsonProperty(value = "x-ms-values")
+        private List<String> values;
+        @JsonProperty(value = "x-ms-missing")
+        private String missing;
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.rest;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.google.common.base.CharMatcher;
+import com.microsoft.rest.serializer.JacksonMapperAdapter;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+public class JacksonMapperAdapterTests {
+    private final JacksonMapperAdapter mapperAdapter = new JacksonMapperAdapter();
+
+    @Test
+    public void serializeRawMatchesJackson() throws Exception {
+        List<Object> values = Arrays.<Object>asList(
+                "plain",
+                42,
+                42L,
+                1.5d,
+                new BigDecimal("12.50"),
+                true,
+                Color.DARK_BLUE,
+                Size.LARGE,
+                new DateTime(2016, 7, 5, 21, 30, 15, 123, DateTimeZone.forOffsetHours(8)),
+                new DateTimeRfc1123(new DateTime(2016, 7, 5, 21, 30, DateTimeZone.UTC)),
+                Base64Url.encode("hello".getBytes(StandardCharsets.UTF_8)));
+        for (Object value : values) {
+            String expected = CharMatcher.is('"').trimFrom(mapperAdapter.getObjectMapper().writeValueAsString(value));
+            Assert.assertEquals(expected, mapperAdapter.serializeRaw(value));
+        }
+    }
+
+    @Test
+    public void serializeRawFallsBackToJackson() throws Exception {
+        Assert.assertEquals("{name:foo}", mapperAdapter.serializeRaw(new Foo("foo")).replace("\"", ""));
+        Assert.assertNull(mapperAdapter.serializeRaw(null));
+    }
+
+    @Test
+    public void bytesRoundTrip() throws Exception {
+        byte[] bytes = mapperAdapter.serializeToBytes(new Foo("bar"));
+        Foo foo = mapperAdapter.deserialize(bytes, Foo.class);
+        Assert.assertEquals("bar", foo.name);
+        Assert.assertNull(mapperAdapter.deserialize(new byte[0], Foo.class));
+        Assert.assertEquals(mapperAdapter.serialize(foo), new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    public enum Color {
+        DARK_BLUE("darkBlue");
+
+        private final String value;
+
+        Color(String value) {
+            this.value = value;
+        }
+
+        @JsonValue
+        @Override
+        public String toString() {
+            return value;
+        }
+    }
+
+    public enum Size {
+        SMALL, LARGE
+    }
+
+    public static class Foo {
+        @JsonProperty(value = "name")
+        private String name;
+
+        public Foo() {
+        }
+
+        public Foo(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -7,13 +7,23 @@
 
 package com.microsoft.rest;
 
+import com.microsoft.rest.retry.ExponentialBackoffRetryStrategy;
 import com.microsoft.rest.retry.RetryHandler;
+import com.microsoft.rest.retry.RetryStatistics;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
 import okhttp3.Protocol;
@@ -26,7 +36,7 @@ public class RetryHandlerTests {
     public void exponentialRetryEndOn501() throws Exception {
         OkHttpClient.Builder clientBuilder = new OkHttpClient.Builder();
         Retrofit.Builder retrofitBuilder = new Retrofit.Builder();
-        clientBuilder.addInterceptor(new RetryHandler());
+        clientBuilder.addInterceptor(new RetryHandler(fastRetryStrategy()));
         clientBuilder.addInterceptor(new Interceptor() {
             // Send 408, 500, 502, all retried, with a 501 ending
             private int[] codes = new int[]{408, 500, 502, 501};
@@ -51,7 +61,7 @@ public class RetryHandlerTests {
     public void exponentialRetryMax() throws Exception {
         OkHttpClient.Builder clientBuilder = new OkHttpClient.Builder();
         Retrofit.Builder retrofitBuilder = new Retrofit.Builder();
-        clientBuilder.addInterceptor(new RetryHandler());
+        clientBuilder.addInterceptor(new RetryHandler(fastRetryStrategy()));
         clientBuilder.addInterceptor(new Interceptor() {
             // Send 500 until max retry is hit
             private int count = 0;
@@ -71,4 +81,141 @@ public class RetryHandlerTests {
                 new Request.Builder().url("http://localhost").get().build()).execute();
         Assert.assertEquals(500, response.code());
     }
+
+    @Test
+    public void retryAfterIsHonoured() throws Exception {
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(new RetryHandler(fastRetryStrategy()))
+                .addInterceptor(new Interceptor() {
+                    private int count = 0;
+
+                    @Override
+                    public Response intercept(Chain chain) throws IOException {
+                        return new Response.Builder()
+                                .request(chain.request())
+                                .code(count++ == 0 ? 429 : 200)
+                                .header("Retry-After", "1")
+                                .protocol(Protocol.HTTP_1_1)
+                                .build();
+                    }
+                })
+                .build();
+        long start = System.nanoTime();
+        Response response = client.newCall(new Request.Builder().url("http://localhost").get().build()).execute();
+        Assert.assertEquals(200, response.code());
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 1000);
+    }
+
+    @Test
+    public void retryAfterIsBounded() throws Exception {
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(new RetryHandler(fastRetryStrategy()).withMaxRetryDelayInMilliseconds(100))
+                .addInterceptor(new Interceptor() {
+                    private int count = 0;
+
+                    @Override
+                    public Response intercept(Chain chain) throws IOException {
+                        return new Response.Builder()
+                                .request(chain.request())
+                                .code(count++ == 0 ? 429 : 200)
+                                .header("Retry-After", "100000000")
+                                .protocol(Protocol.HTTP_1_1)
+                                .build();
+                    }
+                })
+                .build();
+        long start = System.nanoTime();
+        Response response = client.newCall(new Request.Builder().url("http://localhost").get().build()).execute();
+        Assert.assertEquals(200, response.code());
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000);
+    }
+
+    @Test
+    public void asyncRetryIsRescheduled() throws Exception {
+        final RetryHandler retryHandler = new RetryHandler(new ExponentialBackoffRetryStrategy(null, 3, 10, 50, 10, false));
+        final AtomicReference<String> retryThread = new AtomicReference<>();
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(retryHandler)
+                .addInterceptor(new Interceptor() {
+                    private int count = 0;
+
+                    @Override
+                    public Response intercept(Chain chain) throws IOException {
+                        Request request = chain.request();
+                        if (count > 0) {
+                            retryThread.set(Thread.currentThread().getName());
+                        }
+                        return new Response.Builder()
+                                .request(request)
+                                .code(count++ < 2 ? 503 : 200)
+                                .protocol(Protocol.HTTP_1_1)
+                                .build();
+                    }
+                })
+                .build();
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<Response> result = new AtomicReference<>();
+        retryHandler.newCallFactory(client).newCall(new Request.Builder().url("http://localhost").get().build())
+                .enqueue(new Callback() {
+                    @Override
+                    public void onFailure(Call call, IOException e) {
+                        latch.countDown();
+                    }
+
+                    @Override
+                    public void onResponse(Call call, Response response) throws IOException {
+                        result.set(response);
+                        latch.countDown();
+                    }
+                });
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(200, result.get().code());
+        Assert.assertTrue(retryThread.get().startsWith("OkHttp"));
+        RetryStatistics statistics = retryHandler.getStatistics().get("localhost");
+        Assert.assertEquals(2, statistics.getRetryCount());
+        Assert.assertEquals(0, statistics.getThrottledCount());
+        Assert.assertTrue(statistics.getTotalDelayInMilliseconds() >= 20);
+    }
+
+    @Test
+    public void asyncRetryKeepsRequestTag() throws Exception {
+        final RetryHandler retryHandler = new RetryHandler(fastRetryStrategy());
+        final List<Object> tags = new CopyOnWriteArrayList<>();
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(retryHandler)
+                .addInterceptor(new Interceptor() {
+                    private int count = 0;
+
+                    @Override
+                    public Response intercept(Chain chain) throws IOException {
+                        tags.add(chain.request().tag());
+                        return new Response.Builder()
+                                .request(chain.request())
+                                .code(count++ < 2 ? 503 : 200)
+                                .protocol(Protocol.HTTP_1_1)
+                                .build();
+                    }
+                })
+                .build();
+        final CountDownLatch latch = new CountDownLatch(1);
+        Call call = retryHandler.newCallFactory(client).newCall(new Request.Builder().url("http://localhost").tag("caller").get().build());
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) throws IOException {
+                latch.countDown();
+            }
+        });
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.<Object>asList("caller", "caller", "caller"), tags);
+        Assert.assertEquals("caller", call.request().tag());
+    }
+
+    private static ExponentialBackoffRetryStrategy fastRetryStrategy() {
+        return new ExponentialBackoffRetryStrategy(3, 0, 0, 0);
+    }
 }
@@ -138,6 +138,33 @@ public class ValidatorTests {
         Validator.validate(textNode);
     }
 
+    @Test
+    public void validateInheritedAndUntypedFields() throws Exception {
+        ChildWrapper body = new ChildWrapper();
+        body.value = "parent";
+        body.child = new StringWrapper();
+        body.child.value = "child";
+        body.untyped = new StringWrapper();
+        ((StringWrapper) body.untyped).value = "untyped";
+        Validator.validate(body); // pass
+        body.untyped = new StringWrapper();
+        try {
+            Validator.validate(body); // fail
+            fail();
+        } catch (IllegalArgumentException ex) {
+            Assert.assertTrue(ex.getMessage().contains("untyped.value is required"));
+        }
+        body.untyped = Color.RED;
+        Validator.validate(body); // pass
+        body.value = null;
+        try {
+            Validator.validate(body); // fail
+            fail();
+        } catch (IllegalArgumentException ex) {
+            Assert.assertTrue(ex.getMessage().contains("value is required"));
+        }
+    }
+
     public final class IntWrapper {
         @JsonProperty(required = true)
         // CHECKSTYLE IGNORE VisibilityModifier FOR NEXT 2 LINES
@@ -175,6 +202,19 @@ public class ValidatorTests {
         public Map<LocalDate, StringWrapper> map;
     }
 
+    public class ParentWrapper {
+        @JsonProperty(required = true)
+        // CHECKSTYLE IGNORE VisibilityModifier FOR NEXT 1 LINE
+        public String value;
+    }
+
+    public final class ChildWrapper extends ParentWrapper {
+        @JsonProperty(required = true)
+        // CHECKSTYLE IGNORE VisibilityModifier FOR NEXT 2 LINES
+        public StringWrapper child;
+        public Object untyped;
+    }
+
     public enum Color {
         RED,
         GREEN,
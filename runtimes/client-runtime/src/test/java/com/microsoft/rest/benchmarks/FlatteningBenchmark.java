@@ -0,0 +1,240 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.rest.benchmarks;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.microsoft.rest.serializer.JacksonMapperAdapter;
+import com.microsoft.rest.serializer.JsonFlatten;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures serializing and deserializing flattened models shaped like the
+ * compute, network and website resources: a virtual machine with nested
+ * profiles, a network interface with a list of flattened IP configurations
+ * and a web site with many wrapped scalar properties.
+ *
+ * Run with the GC profiler to compare allocations per operation:
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args="FlatteningBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlatteningBenchmark {
+    private final JacksonMapperAdapter mapperAdapter = new JacksonMapperAdapter();
+
+    private VirtualMachine virtualMachine;
+    private NetworkInterface networkInterface;
+    private Site site;
+    private String virtualMachineJson;
+    private String networkInterfaceJson;
+    private String siteJson;
+
+    @Setup
+    public void setup() throws IOException {
+        virtualMachine = new VirtualMachine();
+        virtualMachine.id = "/subscriptions/sub/resourceGroups/rg/providers/Microsoft.Compute/virtualMachines/vm1";
+        virtualMachine.name = "vm1";
+        virtualMachine.location = "westus";
+        virtualMachine.tags = Collections.singletonMap("env", "test");
+        virtualMachine.vmSize = "Standard_D2";
+        virtualMachine.computerName = "vm1";
+        virtualMachine.adminUsername = "azureuser";
+        virtualMachine.imagePublisher = "Canonical";
+        virtualMachine.imageOffer = "UbuntuServer";
+        virtualMachine.imageSku = "14.04.4-LTS";
+        virtualMachine.osDiskName = "osdisk";
+        virtualMachine.osDiskUri = "https://account.blob.core.windows.net/vhds/osdisk.vhd";
+        virtualMachine.provisioningState = "Succeeded";
+
+        networkInterface = new NetworkInterface();
+        networkInterface.id = "/subscriptions/sub/resourceGroups/rg/providers/Microsoft.Network/networkInterfaces/nic1";
+        networkInterface.name = "nic1";
+        networkInterface.location = "westus";
+        networkInterface.enableIPForwarding = false;
+        networkInterface.primary = true;
+        networkInterface.ipConfigurations = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            IPConfiguration ipConfiguration = new IPConfiguration();
+            ipConfiguration.name = "ipconfig" + i;
+            ipConfiguration.privateIPAddress = "10.0.0." + i;
+            ipConfiguration.privateIPAllocationMethod = "Dynamic";
+            ipConfiguration.subnetId = networkInterface.id + "/subnets/default";
+            ipConfiguration.provisioningState = "Succeeded";
+            networkInterface.ipConfigurations.add(ipConfiguration);
+        }
+        networkInterface.provisioningState = "Succeeded";
+
+        site = new Site();
+        site.id = "/subscriptions/sub/resourceGroups/rg/providers/Microsoft.Web/sites/site1";
+        site.name = "site1";
+        site.location = "westus";
+        site.state = "Running";
+        site.hostNames = Collections.singletonList("site1.azurewebsites.net");
+        site.repositorySiteName = "site1";
+        site.usageState = "Normal";
+        site.enabled = true;
+        site.enabledHostNames = Collections.singletonList("site1.scm.azurewebsites.net");
+        site.availabilityState = "Normal";
+        site.serverFarmId = "/subscriptions/sub/resourceGroups/rg/providers/Microsoft.Web/serverfarms/plan1";
+        site.defaultHostName = "site1.azurewebsites.net";
+        site.clientAffinityEnabled = true;
+        site.containerSize = 1536;
+        site.outboundIpAddresses = "1.2.3.4,1.2.3.5";
+
+        virtualMachineJson = mapperAdapter.serialize(virtualMachine);
+        networkInterfaceJson = mapperAdapter.serialize(networkInterface);
+        siteJson = mapperAdapter.serialize(site);
+    }
+
+    @Benchmark
+    public String serializeVirtualMachine() throws IOException {
+        return mapperAdapter.serialize(virtualMachine);
+    }
+
+    @Benchmark
+    public VirtualMachine deserializeVirtualMachine() throws IOException {
+        return mapperAdapter.deserialize(virtualMachineJson, VirtualMachine.class);
+    }
+
+    @Benchmark
+    public String serializeNetworkInterface() throws IOException {
+        return mapperAdapter.serialize(networkInterface);
+    }
+
+    @Benchmark
+    public NetworkInterface deserializeNetworkInterface() throws IOException {
+        return mapperAdapter.deserialize(networkInterfaceJson, NetworkInterface.class);
+    }
+
+    @Benchmark
+    public String serializeSite() throws IOException {
+        return mapperAdapter.serialize(site);
+    }
+
+    @Benchmark
+    public Site deserializeSite() throws IOException {
+        return mapperAdapter.deserialize(siteJson, Site.class);
+    }
+
+    @JsonFlatten
+    public static class VirtualMachine {
+        @JsonProperty(value = "id")
+        private String id;
+        @JsonProperty(value = "name")
+        private String name;
+        @JsonProperty(value = "location")
+        private String location;
+        @JsonProperty(value = "tags")
+        private Map<String, String> tags;
+        @JsonProperty(value = "properties.hardwareProfile.vmSize")
+        private String vmSize;
+        @JsonProperty(value = "properties.osProfile.computerName")
+        private String computerName;
+        @JsonProperty(value = "properties.osProfile.adminUsername")
+        private String adminUsername;
+        @JsonProperty(value = "properties.storageProfile.imageReference.publisher")
+        private String imagePublisher;
+        @JsonProperty(value = "properties.storageProfile.imageReference.offer")
+        private String imageOffer;
+        @JsonProperty(value = "properties.storageProfile.imageReference.sku")
+        private String imageSku;
+        @JsonProperty(value = "properties.storageProfile.osDisk.name")
+        private String osDiskName;
+        @JsonProperty(value = "properties.storageProfile.osDisk.vhd.uri")
+        private String osDiskUri;
+        @JsonProperty(value = "properties.provisioningState")
+        private String provisioningState;
+    }
+
+    @JsonFlatten
+    public static class NetworkInterface {
+        @JsonProperty(value = "id")
+        private String id;
+        @JsonProperty(value = "name")
+        private String name;
+        @JsonProperty(value = "location")
+        private String location;
+        @JsonProperty(value = "properties.ipConfigurations")
+        private List<IPConfiguration> ipConfigurations;
+        @JsonProperty(value = "properties.enableIPForwarding")
+        private Boolean enableIPForwarding;
+        @JsonProperty(value = "properties.primary")
+        private Boolean primary;
+        @JsonProperty(value = "properties.provisioningState")
+        private String provisioningState;
+    }
+
+    @JsonFlatten
+    public static class IPConfiguration {
+        @JsonProperty(value = "name")
+        private String name;
+        @JsonProperty(value = "properties.privateIPAddress")
+        private String privateIPAddress;
+        @JsonProperty(value = "properties.privateIPAllocationMethod")
+        private String privateIPAllocationMethod;
+        @JsonProperty(value = "properties.subnet.id")
+        private String subnetId;
+        @JsonProperty(value = "properties.provisioningState")
+        private String provisioningState;
+    }
+
+    @JsonFlatten
+    public static class Site {
+        @JsonProperty(value = "id")
+        private String id;
+        @JsonProperty(value = "name")
+        private String name;
+        @JsonProperty(value = "location")
+        private String location;
+        @JsonProperty(value = "properties.state")
+        private String state;
+        @JsonProperty(value = "properties.hostNames")
+        private List<String> hostNames;
+        @JsonProperty(value = "properties.repositorySiteName")
+        private String repositorySiteName;
+        @JsonProperty(value = "properties.usageState")
+        private String usageState;
+        @JsonProperty(value = "properties.enabled")
+        private Boolean enabled;
+        @JsonProperty(value = "properties.enabledHostNames")
+        private List<String> enabledHostNames;
+        @JsonProperty(value = "properties.availabilityState")
+        private String availabilityState;
+        @JsonProperty(value = "properties.serverFarmId")
+        private String serverFarmId;
+        @JsonProperty(value = "properties.defaultHostName")
+        private String defaultHostName;
+        @JsonProperty(value = "properties.clientAffinityEnabled")
+        private Boolean clientAffinityEnabled;
+        @JsonProperty(value = "properties.containerSize")
+        private Integer containerSize;
+        @JsonProperty(value = "properties.outboundIpAddresses")
+        private String outboundIpAddresses;
+    }
+}
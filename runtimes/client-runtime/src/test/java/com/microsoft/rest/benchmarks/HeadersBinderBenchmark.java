@@ -0,0 +1,78 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.rest.benchmarks;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.microsoft.rest.DateTimeRfc1123;
+import com.microsoft.rest.serializer.JacksonMapperAdapter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Headers;
+
+/**
+ * Compares binding response headers directly onto a header model with the
+ * previous JSON round trip through the object mapper.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=HeadersBinderBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeadersBinderBenchmark {
+    private final JacksonMapperAdapter mapperAdapter = new JacksonMapperAdapter();
+
+    private final Headers headers = new Headers.Builder()
+            .add("Content-Type", "application/json; odata=minimalmetadata")
+            .add("client-request-id", "9a9dcb86-2c3f-4a0b-9d67-3fce1b5a0e39")
+            .add("request-id", "0f2d8bd3-8f0d-47ce-8c6b-1a9d7a0c1c71")
+            .add("ETag", "0x8D3A4B2C1D0E9F8")
+            .add("Last-Modified", "Tue, 05 Jul 2016 21:30:00 GMT")
+            .add("DataServiceId", "https://account.westus.batch.azure.com/jobs/job-1")
+            .add("Server", "Microsoft-HTTPAPI/2.0")
+            .add("Date", "Tue, 05 Jul 2016 21:30:01 GMT")
+            .build();
+
+    @Benchmark
+    public BatchHeaders bindDirectly() throws IOException {
+        return mapperAdapter.deserializeHeaders(headers, BatchHeaders.class);
+    }
+
+    @Benchmark
+    public BatchHeaders jsonRoundTrip() throws IOException {
+        return mapperAdapter.deserialize(mapperAdapter.serialize(headers), BatchHeaders.class);
+    }
+
+    public static class BatchHeaders {
+        @JsonProperty(value = "client-request-id")
+        private String clientRequestId;
+        @JsonProperty(value = "request-id")
+        private String requestId;
+        @JsonProperty(value = "ETag")
+        private String eTag;
+        @JsonProperty(value = "Last-Modified")
+        private DateTimeRfc1123 lastModified;
+        @JsonProperty(value = "DataServiceId")
+        private String dataServiceId;
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.rest.benchmarks;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.common.base.CharMatcher;
+import com.microsoft.rest.serializer.JacksonMapperAdapter;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cached reader/writer and raw serialization fast paths of
+ * {@link JacksonMapperAdapter} with the previous per-call object mapper usage.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=JacksonMapperAdapterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JacksonMapperAdapterBenchmark {
+    private final JacksonMapperAdapter mapperAdapter = new JacksonMapperAdapter();
+
+    private final String apiVersion = "2016-03-30";
+    private final DateTime timestamp = new DateTime(2016, 7, 5, 21, 30, DateTimeZone.UTC);
+    private final Sku sku = Sku.STANDARD_LRS;
+    private final String json = "{\"name\":\"vm1\",\"location\":\"westus\",\"type\":\"Microsoft.Compute/virtualMachines\"}";
+
+    @Benchmark
+    public String serializeRawString() {
+        return mapperAdapter.serializeRaw(apiVersion);
+    }
+
+    @Benchmark
+    public String serializeRawStringViaJackson() throws IOException {
+        return legacySerializeRaw(apiVersion);
+    }
+
+    @Benchmark
+    public String serializeRawDateTime() {
+        return mapperAdapter.serializeRaw(timestamp);
+    }
+
+    @Benchmark
+    public String serializeRawDateTimeViaJackson() throws IOException {
+        return legacySerializeRaw(timestamp);
+    }
+
+    @Benchmark
+    public String serializeRawEnum() {
+        return mapperAdapter.serializeRaw(sku);
+    }
+
+    @Benchmark
+    public String serializeRawEnumViaJackson() throws IOException {
+        return legacySerializeRaw(sku);
+    }
+
+    @Benchmark
+    public Resource deserializeCachedReader() throws IOException {
+        return mapperAdapter.deserialize(json, Resource.class);
+    }
+
+    @Benchmark
+    public Resource deserializeTypeReference() throws IOException {
+        final Type type = Resource.class;
+        return mapperAdapter.getObjectMapper().readValue(json, new TypeReference<Resource>() {
+            @Override
+            public Type getType() {
+                return type;
+            }
+        });
+    }
+
+    @Benchmark
+    public String serializeCachedWriter() throws IOException {
+        return mapperAdapter.serialize(sku);
+    }
+
+    @Benchmark
+    public String serializeStringWriter() throws IOException {
+        StringWriter writer = new StringWriter();
+        mapperAdapter.getObjectMapper().writeValue(writer, sku);
+        return writer.toString();
+    }
+
+    private String legacySerializeRaw(Object object) throws IOException {
+        StringWriter writer = new StringWriter();
+        mapperAdapter.getObjectMapper().writeValue(writer, object);
+        return CharMatcher.is('"').trimFrom(writer.toString());
+    }
+
+    public enum Sku {
+        STANDARD_LRS, PREMIUM_LRS
+    }
+
+    public static class Resource {
+        @JsonProperty(value = "name")
+        private String name;
+        @JsonProperty(value = "location")
+        private String location;
+        @JsonProperty(value = "type")
+        private String type;
+    }
+}
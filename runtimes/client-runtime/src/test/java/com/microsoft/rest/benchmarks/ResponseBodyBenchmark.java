@@ -0,0 +1,105 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.rest.benchmarks;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.microsoft.rest.serializer.JacksonMapperAdapter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+
+/**
+ * Compares deserializing a large list page from the response body stream
+ * with loading the whole payload into a string first.
+ *
+ * Run with the GC profiler to compare allocations per operation:
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args="ResponseBodyBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseBodyBenchmark {
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    @Param({ "100", "5000" })
+    private int items;
+
+    private final JacksonMapperAdapter mapperAdapter = new JacksonMapperAdapter();
+
+    private byte[] payload;
+
+    @Setup
+    public void setup() {
+        StringBuilder builder = new StringBuilder("{\"value\":[");
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"id\":\"task-").append(i)
+                    .append("\",\"url\":\"https://account.westus.batch.azure.com/jobs/job-1/tasks/task-").append(i)
+                    .append("\",\"eTag\":\"0x8D3A4B2C1D0E9F8\",\"state\":\"completed\"")
+                    .append(",\"commandLine\":\"cmd /c echo processing item ").append(i).append("\"}");
+        }
+        builder.append("],\"odata.nextLink\":\"https://account.westus.batch.azure.com/jobs/job-1/tasks?skiptoken=abc\"}");
+        payload = builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public TaskPage fromString() throws IOException {
+        ResponseBody body = ResponseBody.create(JSON, payload);
+        String content = body.string();
+        body.close();
+        return mapperAdapter.deserialize(content, TaskPage.class);
+    }
+
+    @Benchmark
+    public TaskPage fromStream() throws IOException {
+        return mapperAdapter.deserialize(ResponseBody.create(JSON, payload), TaskPage.class);
+    }
+
+    public static class TaskPage {
+        @JsonProperty(value = "value")
+        private List<Task> items;
+        @JsonProperty(value = "odata.nextLink")
+        private String nextPageLink;
+    }
+
+    public static class Task {
+        @JsonProperty(value = "id")
+        private String id;
+        @JsonProperty(value = "url")
+        private String url;
+        @JsonProperty(value = "eTag")
+        private String eTag;
+        @JsonProperty(value = "state")
+        private String state;
+        @JsonProperty(value = "commandLine")
+        private String commandLine;
+    }
+}
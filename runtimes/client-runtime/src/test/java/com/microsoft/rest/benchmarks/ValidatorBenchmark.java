@@ -0,0 +1,122 @@
+/**
+ *
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ *
+ */
+
+package com.microsoft.rest.benchmarks;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.microsoft.rest.Validator;
+
+import org.joda.time.DateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures validating a batch of 100 task-like parameters, the shape of the
+ * payload sent by a batch task collection add.
+ *
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args="ValidatorBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidatorBenchmark {
+    private TaskCollection collection;
+
+    @Setup
+    public void setup() {
+        collection = new TaskCollection();
+        collection.value = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Task task = new Task();
+            task.id = "task" + i;
+            task.commandLine = "cmd /c echo " + i;
+            task.displayName = "Task " + i;
+            task.runElevated = false;
+            task.created = DateTime.now();
+            task.constraints = new Constraints();
+            task.constraints.maxWallClockTime = "PT1H";
+            task.constraints.maxTaskRetryCount = 3;
+            task.environmentSettings = new ArrayList<>();
+            for (int j = 0; j < 4; j++) {
+                EnvironmentSetting setting = new EnvironmentSetting();
+                setting.name = "VAR" + j;
+                setting.value = "value" + j;
+                task.environmentSettings.add(setting);
+            }
+            task.resourceFiles = Collections.singletonList(new ResourceFile());
+            task.resourceFiles.get(0).blobSource = "https://account.blob.core.windows.net/container/file" + i;
+            task.resourceFiles.get(0).filePath = "file" + i;
+            task.metadata = new HashMap<>();
+            task.metadata.put("key", "value");
+            collection.value.add(task);
+        }
+    }
+
+    @Benchmark
+    public TaskCollection validateTaskCollection() {
+        Validator.validate(collection);
+        return collection;
+    }
+
+    public static class TaskCollection {
+        @JsonProperty(required = true)
+        private List<Task> value;
+    }
+
+    public static class Task {
+        @JsonProperty(required = true)
+        private String id;
+        private String displayName;
+        @JsonProperty(required = true)
+        private String commandLine;
+        private List<ResourceFile> resourceFiles;
+        private List<EnvironmentSetting> environmentSettings;
+        private Constraints constraints;
+        private Boolean runElevated;
+        private DateTime created;
+        private Map<String, String> metadata;
+    }
+
+    public static class ResourceFile {
+        @JsonProperty(required = true)
+        private String blobSource;
+        @JsonProperty(required = true)
+        private String filePath;
+        private String fileMode;
+    }
+
+    public static class EnvironmentSetting {
+        @JsonProperty(required = true)
+        private String name;
+        private String value;
+    }
+
+    public static class Constraints {
+        private String maxWallClockTime;
+        private String retentionTime;
+        private Integer maxTaskRetryCount;
+    }
+}